@@ -41,7 +41,8 @@ public class CorsConfig {
             "Authorization",
             "X-User-Id",
             "X-Tenant-Id",
-            "X-User-Roles"
+            "X-User-Roles",
+            "X-Next-Cursor"
         ));
 
         // Tiempo de cache para preflight
@@ -0,0 +1,124 @@
+package com.agromercado.pedidos.carga;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parámetros de una prueba de carga, leídos de argumentos {@code --clave=valor}.
+ * Las duraciones aceptan el formato ISO-8601 ({@code PT5M}) o segundos ({@code 300}).
+ *
+ * @param modo           {@code carga} (por defecto) o {@code stub} para levantar solo el stub de productos
+ * @param baseUrl        URL de pedidos-service
+ * @param tasa           sesiones de compra que llegan por segundo (llegadas de Poisson)
+ * @param usuarios       clientes distintos; una sesión que llega sin cliente libre se descarta
+ * @param duracion       tiempo de medición, sin contar el calentamiento
+ * @param calentamiento  tiempo inicial con carga cuyos resultados no entran en el resumen
+ * @param pensarMin      espera mínima del usuario entre pasos
+ * @param pensarMax      espera máxima del usuario entre pasos
+ * @param itemsMin       productos mínimos que agrega cada sesión
+ * @param itemsMax       productos máximos que agrega cada sesión
+ * @param probConfirmar  fracción de sesiones que confirman el carrito (el resto lo vacía)
+ * @param probPagar      fracción de pedidos confirmados que se pagan
+ * @param esperarPago    si se consulta GET /pagos/{id} hasta que el pago se resuelve
+ * @param stub           si se levanta el stub de productos-service en este proceso
+ * @param stubPuerto     puerto del stub
+ * @param stubProductos  productos del catálogo simulado
+ * @param stubLatencia   latencia base de cada respuesta del stub
+ * @param stubVariacion  variación aleatoria (uniforme) que se suma a la latencia base
+ * @param intervalo      resolución de las curvas de throughput
+ * @param salida         directorio donde se escriben los reportes
+ */
+public record Configuracion(
+        String modo,
+        String baseUrl,
+        double tasa,
+        int usuarios,
+        Duration duracion,
+        Duration calentamiento,
+        Duration pensarMin,
+        Duration pensarMax,
+        int itemsMin,
+        int itemsMax,
+        double probConfirmar,
+        double probPagar,
+        boolean esperarPago,
+        boolean stub,
+        int stubPuerto,
+        int stubProductos,
+        Duration stubLatencia,
+        Duration stubVariacion,
+        Duration intervalo,
+        Path salida) {
+
+    private static final Set<String> CLAVES = Set.of("modo", "base-url", "tasa", "usuarios", "duracion",
+            "calentamiento", "pensar-min", "pensar-max", "items-min", "items-max", "prob-confirmar", "prob-pagar",
+            "esperar-pago", "stub", "stub-puerto", "stub-productos", "stub-latencia", "stub-variacion",
+            "intervalo", "salida");
+
+    public Configuracion {
+        if (!modo.equals("carga") && !modo.equals("stub")) {
+            throw new IllegalArgumentException("modo debe ser carga o stub: " + modo);
+        }
+        if (tasa <= 0 || usuarios <= 0) {
+            throw new IllegalArgumentException("tasa y usuarios deben ser positivos");
+        }
+        if (itemsMin < 1 || itemsMax < itemsMin) {
+            throw new IllegalArgumentException("Se requiere 1 <= items-min <= items-max");
+        }
+        if (pensarMax.compareTo(pensarMin) < 0) {
+            throw new IllegalArgumentException("pensar-max no puede ser menor que pensar-min");
+        }
+        if (probConfirmar < 0 || probConfirmar > 1 || probPagar < 0 || probPagar > 1) {
+            throw new IllegalArgumentException("Las probabilidades deben estar entre 0 y 1");
+        }
+        if (intervalo.isZero() || intervalo.isNegative()) {
+            throw new IllegalArgumentException("intervalo debe ser positivo");
+        }
+    }
+
+    public static Configuracion desdeArgumentos(String... args) {
+        Map<String, String> valores = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento no válido (se espera --clave=valor): " + arg);
+            }
+            String clave = arg.substring(2, arg.indexOf('='));
+            if (!CLAVES.contains(clave)) {
+                throw new IllegalArgumentException("Parámetro desconocido: " + clave);
+            }
+            valores.put(clave, arg.substring(arg.indexOf('=') + 1));
+        }
+
+        return new Configuracion(
+                valores.getOrDefault("modo", "carga"),
+                valores.getOrDefault("base-url", "http://localhost:5003"),
+                Double.parseDouble(valores.getOrDefault("tasa", "10")),
+                Integer.parseInt(valores.getOrDefault("usuarios", "500")),
+                duracion(valores.getOrDefault("duracion", "PT2M")),
+                duracion(valores.getOrDefault("calentamiento", "PT30S")),
+                duracion(valores.getOrDefault("pensar-min", "PT0.5S")),
+                duracion(valores.getOrDefault("pensar-max", "PT3S")),
+                Integer.parseInt(valores.getOrDefault("items-min", "1")),
+                Integer.parseInt(valores.getOrDefault("items-max", "6")),
+                Double.parseDouble(valores.getOrDefault("prob-confirmar", "0.6")),
+                Double.parseDouble(valores.getOrDefault("prob-pagar", "0.85")),
+                Boolean.parseBoolean(valores.getOrDefault("esperar-pago", "true")),
+                Boolean.parseBoolean(valores.getOrDefault("stub", "true")),
+                Integer.parseInt(valores.getOrDefault("stub-puerto", "5099")),
+                Integer.parseInt(valores.getOrDefault("stub-productos", "200")),
+                duracion(valores.getOrDefault("stub-latencia", "PT0.02S")),
+                duracion(valores.getOrDefault("stub-variacion", "PT0.01S")),
+                duracion(valores.getOrDefault("intervalo", "PT1S")),
+                Path.of(valores.getOrDefault("salida", "target/carga")));
+    }
+
+    static Duration duracion(String valor) {
+        if (valor.startsWith("P") || valor.startsWith("p")) {
+            return Duration.parse(valor);
+        }
+        return Duration.ofMillis(Math.round(Double.parseDouble(valor) * 1000));
+    }
+}
@@ -0,0 +1,99 @@
+package com.agromercado.pedidos.carga;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencias y errores por operación. Cada operación tiene un {@link Recorder}
+ * de HdrHistogram, que admite registros concurrentes sin bloqueo y entrega el
+ * histograma del intervalo transcurrido desde la última lectura. Las latencias
+ * se guardan en microsegundos.
+ */
+public class Metricas {
+
+    // 1 µs a 10 min con 3 dígitos significativos
+    private static final long MAXIMO_US = 600_000_000L;
+
+    private final Map<String, Operacion> operaciones = new ConcurrentHashMap<>();
+    private final LongAdder sesionesIniciadas = new LongAdder();
+    private final LongAdder sesionesDescartadas = new LongAdder();
+
+    public void registrar(String operacion, long inicioNanos, long finNanos) {
+        long microsegundos = Math.max(1, (finNanos - inicioNanos) / 1_000);
+        operacion(operacion).recorder.recordValue(Math.min(microsegundos, MAXIMO_US));
+    }
+
+    public void registrarError(String operacion, String motivo) {
+        Operacion op = operacion(operacion);
+        op.erroresIntervalo.increment();
+        op.motivos.computeIfAbsent(motivo, m -> new LongAdder()).increment();
+    }
+
+    public void sesionIniciada() {
+        sesionesIniciadas.increment();
+    }
+
+    public void sesionDescartada() {
+        sesionesDescartadas.increment();
+    }
+
+    /**
+     * Cierra el intervalo en curso y devuelve, por operación, el histograma y
+     * los errores registrados desde la llamada anterior.
+     */
+    public List<Intervalo> cerrarIntervalo(long inicioMs, long finMs) {
+        List<Intervalo> intervalos = new ArrayList<>();
+        for (Map.Entry<String, Operacion> entrada : new TreeMap<>(operaciones).entrySet()) {
+            Operacion op = entrada.getValue();
+            Histogram histograma = op.recorder.getIntervalHistogram();
+            histograma.setTag(entrada.getKey());
+            histograma.setStartTimeStamp(inicioMs);
+            histograma.setEndTimeStamp(finMs);
+            intervalos.add(new Intervalo(entrada.getKey(), histograma, op.erroresIntervalo.sumThenReset()));
+        }
+        return intervalos;
+    }
+
+    /**
+     * Motivos de error acumulados por operación (código HTTP o excepción).
+     */
+    public Map<String, Map<String, Long>> getMotivosError() {
+        Map<String, Map<String, Long>> resultado = new TreeMap<>();
+        operaciones.forEach((nombre, op) -> {
+            Map<String, Long> motivos = new TreeMap<>();
+            op.motivos.forEach((motivo, contador) -> motivos.put(motivo, contador.sum()));
+            if (!motivos.isEmpty()) {
+                resultado.put(nombre, motivos);
+            }
+        });
+        return resultado;
+    }
+
+    public long getSesionesIniciadas() {
+        return sesionesIniciadas.sum();
+    }
+
+    public long getSesionesDescartadas() {
+        return sesionesDescartadas.sum();
+    }
+
+    private Operacion operacion(String nombre) {
+        return operaciones.computeIfAbsent(nombre, n -> new Operacion());
+    }
+
+    public record Intervalo(String operacion, Histogram histograma, long errores) {
+    }
+
+    private static final class Operacion {
+        private final Recorder recorder = new Recorder(MAXIMO_US, 3);
+        private final LongAdder erroresIntervalo = new LongAdder();
+        private final Map<String, LongAdder> motivos = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,204 @@
+package com.agromercado.pedidos.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prueba de carga del flujo de compra de pedidos-service.
+ *
+ * Modelo abierto: las sesiones llegan a {@code tasa} por segundo (Poisson) sin
+ * importar cuánto tarde el servicio, así que una degradación se ve como latencia
+ * y sesiones acumuladas en lugar de esconderse bajando el ritmo del generador.
+ * Cada sesión ocupa uno de los {@code usuarios} clientes (el carrito es por
+ * cliente); si no queda ninguno libre la llegada se cuenta como descartada.
+ *
+ * Uso: {@code java -jar target/pedidos-carga-0.0.1-SNAPSHOT.jar --tasa=20 --duracion=PT5M}.
+ * Ver README.md para los parámetros y cómo apuntar pedidos-service al stub.
+ */
+public class PruebaCarga {
+
+    private static final Duration ESPERA_SERVICIO = Duration.ofMinutes(2);
+    private static final Duration ESPERA_DRENADO = Duration.ofMinutes(2);
+
+    public static void main(String[] args) throws Exception {
+        Configuracion configuracion = Configuracion.desdeArgumentos(args);
+
+        if (configuracion.modo().equals("stub")) {
+            StubProductos stub = iniciarStub(configuracion);
+            Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+            Thread.currentThread().join();
+            return;
+        }
+
+        try (StubProductos stub = configuracion.stub() ? iniciarStub(configuracion) : null) {
+            String resumen = new PruebaCarga(configuracion).ejecutar(stub);
+            System.out.println();
+            System.out.print(resumen);
+        }
+    }
+
+    private static StubProductos iniciarStub(Configuracion configuracion) throws IOException {
+        StubProductos stub = new StubProductos(configuracion.stubPuerto(), configuracion.stubProductos(),
+                configuracion.stubLatencia(), configuracion.stubVariacion()).iniciar();
+        System.out.printf("Stub de productos-service en http://localhost:%d (%d productos, latencia %s + hasta %s)%n",
+                stub.getPuerto(), configuracion.stubProductos(), configuracion.stubLatencia(), configuracion.stubVariacion());
+        return stub;
+    }
+
+    private final Configuracion configuracion;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Metricas metricas = new Metricas();
+    private final HttpClient http;
+
+    PruebaCarga(Configuracion configuracion) {
+        this.configuracion = configuracion;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    String ejecutar(StubProductos stub) throws IOException, InterruptedException {
+        esperarServicio();
+
+        String corrida = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path directorio = configuracion.salida().resolve(corrida);
+        BlockingQueue<String> libres = new ArrayBlockingQueue<>(configuracion.usuarios());
+        for (int i = 0; i < configuracion.usuarios(); i++) {
+            // IDs nuevos en cada corrida: no se heredan carritos de pruebas anteriores
+            libres.add("carga-" + corrida + "-" + i);
+        }
+
+        long inicioMs = System.currentTimeMillis();
+        long inicio = System.nanoTime();
+        long finCalentamiento = inicio + configuracion.calentamiento().toNanos();
+        long fin = finCalentamiento + configuracion.duracion().toNanos();
+        long intervaloMs = configuracion.intervalo().toMillis();
+        long calentamientoMs = configuracion.calentamiento().toMillis();
+
+        ExecutorService sesiones = Executors.newVirtualThreadPerTaskExecutor();
+        ScheduledExecutorService relojIntervalos = Executors.newSingleThreadScheduledExecutor();
+        try (Reporte reporte = new Reporte(directorio, inicioMs)) {
+            long[] ultimoCierre = {System.currentTimeMillis()};
+            Runnable cerrarIntervalo = () -> {
+                long ahoraMs = System.currentTimeMillis();
+                List<Metricas.Intervalo> intervalos = metricas.cerrarIntervalo(ultimoCierre[0], ahoraMs);
+                // El intervalo cuenta como calentamiento si la mayor parte cayó dentro de él
+                boolean calentamiento = (ultimoCierre[0] + ahoraMs) / 2 < inicioMs + calentamientoMs;
+                double segundos = Math.max(0.001, (ahoraMs - ultimoCierre[0]) / 1000.0);
+                reporte.intervalo(intervalos, (ahoraMs - inicioMs) / 1000.0, segundos, calentamiento);
+                imprimirProgreso(intervalos, (ahoraMs - inicioMs) / 1000.0, segundos, calentamiento, libres.size());
+                ultimoCierre[0] = ahoraMs;
+            };
+            relojIntervalos.scheduleAtFixedRate(cerrarIntervalo, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+
+            generarLlegadas(inicio, fin, libres, sesiones);
+
+            // Las sesiones en curso terminan; su latencia forma parte de la medición
+            sesiones.shutdown();
+            if (!sesiones.awaitTermination(ESPERA_DRENADO.toMillis(), TimeUnit.MILLISECONDS)) {
+                System.out.println("Sesiones sin terminar tras " + ESPERA_DRENADO + "; se interrumpen");
+                sesiones.shutdownNow();
+            }
+            relojIntervalos.shutdown();
+            relojIntervalos.awaitTermination(10, TimeUnit.SECONDS);
+            cerrarIntervalo.run();
+
+            double segundosMedidos = Math.max(0.001, (System.nanoTime() - finCalentamiento) / 1e9);
+            Map<String, Long> llamadasStub = stub != null ? stub.getLlamadas() : Map.of();
+            String resumen = reporte.resumir(configuracion, metricas, llamadasStub, segundosMedidos);
+            return resumen + String.format("%nReportes en %s%n", directorio.toAbsolutePath());
+        } finally {
+            sesiones.shutdownNow();
+            relojIntervalos.shutdownNow();
+        }
+    }
+
+    /**
+     * Lanza sesiones en los instantes de un proceso de Poisson hasta {@code fin}.
+     */
+    private void generarLlegadas(long inicio, long fin, BlockingQueue<String> libres, ExecutorService sesiones) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        double mediaEntreLlegadasNanos = 1e9 / configuracion.tasa();
+        long siguiente = inicio;
+        while (siguiente < fin) {
+            long espera = siguiente - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+                continue;
+            }
+
+            String clienteId = libres.poll();
+            if (clienteId == null) {
+                metricas.sesionDescartada();
+            } else {
+                metricas.sesionIniciada();
+                sesiones.execute(() -> {
+                    try {
+                        new SesionCompra(http, mapper, configuracion, metricas, clienteId).run();
+                    } finally {
+                        libres.add(clienteId);
+                    }
+                });
+            }
+            siguiente += (long) (-Math.log(1 - aleatorio.nextDouble()) * mediaEntreLlegadasNanos);
+        }
+    }
+
+    private void esperarServicio() throws InterruptedException {
+        URI salud = URI.create(configuracion.baseUrl() + "/actuator/health");
+        long limite = System.nanoTime() + ESPERA_SERVICIO.toNanos();
+        System.out.println("Esperando a pedidos-service en " + salud);
+        while (true) {
+            try {
+                HttpResponse<Void> respuesta = http.send(HttpRequest.newBuilder(salud).timeout(Duration.ofSeconds(5)).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                if (respuesta.statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Aún no levanta
+            }
+            if (System.nanoTime() > limite) {
+                throw new IllegalStateException("pedidos-service no respondió en " + ESPERA_SERVICIO + " en " + salud);
+            }
+            Thread.sleep(1000);
+        }
+    }
+
+    private static void imprimirProgreso(List<Metricas.Intervalo> intervalos, double segundo, double duracion,
+                                         boolean calentamiento, int usuariosLibres) {
+        long completadas = 0;
+        long errores = 0;
+        long p99 = 0;
+        for (Metricas.Intervalo intervalo : intervalos) {
+            completadas += intervalo.histograma().getTotalCount();
+            errores += intervalo.errores();
+            p99 = Math.max(p99, intervalo.histograma().getValueAtPercentile(99));
+        }
+        System.out.printf(Locale.ROOT, "[%6.1f s]%s %8.1f ops/s  errores %4d  p99 máx %8.1f ms  usuarios libres %d%n",
+                segundo, calentamiento ? " (calentamiento)" : "", completadas / duracion, errores, p99 / 1000.0,
+                usuariosLibres);
+    }
+}
@@ -0,0 +1,137 @@
+package com.agromercado.pedidos.carga;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Escribe los resultados de la prueba en el directorio de salida:
+ * <ul>
+ *   <li>{@code latencias.hlog}: histogramas de cada intervalo y operación (formato
+ *       HdrHistogram; se pueden graficar con HistogramLogAnalyzer o HdrHistogramVisualizer).</li>
+ *   <li>{@code throughput.csv}: una fila por intervalo y operación con completadas,
+ *       errores, operaciones por segundo y percentiles; es la curva de throughput.</li>
+ *   <li>{@code <operacion>.hgrm}: distribución de percentiles de la fase de medición.</li>
+ *   <li>{@code resumen.txt}: tabla final con los parámetros de la prueba.</li>
+ * </ul>
+ * Los intervalos del calentamiento van al log y al CSV marcados, pero no al resumen.
+ */
+public class Reporte implements AutoCloseable {
+
+    private static final double MICROS_POR_MS = 1000.0;
+
+    private final Path directorio;
+    private final PrintStream log;
+    private final HistogramLogWriter logWriter;
+    private final PrintWriter csv;
+    private final Map<String, Histogram> totales = new TreeMap<>();
+    private final Map<String, Long> erroresTotales = new TreeMap<>();
+
+    public Reporte(Path directorio, long inicioMs) throws IOException {
+        this.directorio = Files.createDirectories(directorio);
+        this.log = new PrintStream(Files.newOutputStream(directorio.resolve("latencias.hlog")), false, StandardCharsets.UTF_8);
+        this.logWriter = new HistogramLogWriter(log);
+        logWriter.outputLogFormatVersion();
+        logWriter.outputStartTime(inicioMs);
+        logWriter.setBaseTime(inicioMs);
+        logWriter.outputLegend();
+
+        this.csv = new PrintWriter(Files.newBufferedWriter(directorio.resolve("throughput.csv"), StandardCharsets.UTF_8));
+        csv.println("segundo,fase,operacion,completadas,errores,ops_por_segundo,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+    }
+
+    /**
+     * Registra un intervalo cerrado. {@code segundo} es el final del intervalo
+     * contado desde el inicio de la prueba.
+     */
+    public void intervalo(List<Metricas.Intervalo> intervalos, double segundo, double duracionSegundos,
+                          boolean calentamiento) {
+        for (Metricas.Intervalo intervalo : intervalos) {
+            Histogram histograma = intervalo.histograma();
+            if (histograma.getTotalCount() > 0) {
+                logWriter.outputIntervalHistogram(histograma);
+            }
+            csv.printf(Locale.ROOT, "%.1f,%s,%s,%d,%d,%.2f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                    segundo, calentamiento ? "calentamiento" : "medicion", intervalo.operacion(),
+                    histograma.getTotalCount(), intervalo.errores(),
+                    histograma.getTotalCount() / duracionSegundos,
+                    ms(histograma, 50), ms(histograma, 90), ms(histograma, 99), ms(histograma, 99.9),
+                    histograma.getMaxValue() / MICROS_POR_MS);
+
+            if (!calentamiento) {
+                totales.computeIfAbsent(intervalo.operacion(), op -> new Histogram(histograma.getHighestTrackableValue(), 3))
+                        .add(histograma);
+                erroresTotales.merge(intervalo.operacion(), intervalo.errores(), Long::sum);
+            }
+        }
+        csv.flush();
+    }
+
+    /**
+     * Escribe las distribuciones y el resumen de la fase de medición y lo devuelve como texto.
+     */
+    public String resumir(Configuracion configuracion, Metricas metricas, Map<String, Long> llamadasStub,
+                          double segundosMedidos) throws IOException {
+        StringBuilder texto = new StringBuilder();
+        texto.append(String.format(Locale.ROOT, "Prueba de carga contra %s%n", configuracion.baseUrl()));
+        texto.append(String.format(Locale.ROOT,
+                "Tasa %.1f sesiones/s, %d usuarios, medición %s (calentamiento %s), pensar %s-%s%n",
+                configuracion.tasa(), configuracion.usuarios(), configuracion.duracion(),
+                configuracion.calentamiento(), configuracion.pensarMin(), configuracion.pensarMax()));
+        texto.append(String.format(Locale.ROOT,
+                "Mezcla: %d-%d productos por carrito, confirman %.0f%%, pagan %.0f%% de los confirmados%n",
+                configuracion.itemsMin(), configuracion.itemsMax(),
+                configuracion.probConfirmar() * 100, configuracion.probPagar() * 100));
+        texto.append(String.format(Locale.ROOT, "Sesiones iniciadas: %d, descartadas por falta de usuario libre: %d%n%n",
+                metricas.getSesionesIniciadas(), metricas.getSesionesDescartadas()));
+
+        texto.append(String.format(Locale.ROOT, "%-20s %10s %8s %9s %9s %9s %9s %9s %9s%n",
+                "operacion", "completadas", "errores", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map.Entry<String, Histogram> entrada : totales.entrySet()) {
+            Histogram histograma = entrada.getValue();
+            texto.append(String.format(Locale.ROOT, "%-20s %10d %8d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    entrada.getKey(), histograma.getTotalCount(), erroresTotales.getOrDefault(entrada.getKey(), 0L),
+                    histograma.getTotalCount() / segundosMedidos,
+                    ms(histograma, 50), ms(histograma, 90), ms(histograma, 99), ms(histograma, 99.9),
+                    histograma.getMaxValue() / MICROS_POR_MS));
+
+            try (PrintStream hgrm = new PrintStream(
+                    Files.newOutputStream(directorio.resolve(entrada.getKey() + ".hgrm")), false, StandardCharsets.UTF_8)) {
+                histograma.outputPercentileDistribution(hgrm, MICROS_POR_MS);
+            }
+        }
+
+        Map<String, Map<String, Long>> motivos = metricas.getMotivosError();
+        if (!motivos.isEmpty()) {
+            texto.append(String.format("%nErrores por motivo (toda la prueba):%n"));
+            motivos.forEach((operacion, porMotivo) -> porMotivo.forEach((motivo, total) ->
+                    texto.append(String.format(Locale.ROOT, "  %-20s %-40s %d%n", operacion, motivo, total))));
+        }
+        if (!llamadasStub.isEmpty()) {
+            texto.append(String.format("%nLlamadas recibidas por el stub de productos: %s%n", llamadasStub));
+        }
+
+        Files.writeString(directorio.resolve("resumen.txt"), texto, StandardCharsets.UTF_8);
+        return texto.toString();
+    }
+
+    private static double ms(Histogram histograma, double percentil) {
+        return histograma.getValueAtPercentile(percentil) / MICROS_POR_MS;
+    }
+
+    @Override
+    public void close() {
+        csv.close();
+        log.close();
+    }
+}
@@ -0,0 +1,164 @@
+package com.agromercado.pedidos.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Recorrido de un cliente: agrega productos al carrito, lo confirma o lo vacía
+ * y, si confirmó, paga el pedido. Entre paso y paso espera un tiempo de
+ * "pensar" aleatorio. El primer error termina la sesión.
+ *
+ * Operaciones registradas: {@code carrito.agregar}, {@code carrito.vaciar},
+ * {@code pedidos.confirmar}, {@code pagos.procesar} y, si se espera el
+ * resultado del pago, {@code pagos.resolucion} (desde el POST hasta que el pago
+ * deja PROCESANDO; incluye la pasarela simulada).
+ */
+class SesionCompra implements Runnable {
+
+    static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration CONSULTA_PAGO = Duration.ofMillis(250);
+
+    private final HttpClient http;
+    private final ObjectMapper mapper;
+    private final Configuracion configuracion;
+    private final Metricas metricas;
+    private final String clienteId;
+
+    SesionCompra(HttpClient http, ObjectMapper mapper, Configuracion configuracion, Metricas metricas, String clienteId) {
+        this.http = http;
+        this.mapper = mapper;
+        this.configuracion = configuracion;
+        this.metricas = metricas;
+        this.clienteId = clienteId;
+    }
+
+    @Override
+    public void run() {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        try {
+            int items = aleatorio.nextInt(configuracion.itemsMin(), configuracion.itemsMax() + 1);
+            for (int i = 0; i < items; i++) {
+                long productoId = aleatorio.nextLong(1, configuracion.stubProductos() + 1);
+                enviar("carrito.agregar", "POST", "/carrito/agregar",
+                        Map.of("productoId", productoId, "cantidad", aleatorio.nextInt(1, 4)));
+                pensar();
+            }
+
+            if (aleatorio.nextDouble() >= configuracion.probConfirmar()) {
+                enviar("carrito.vaciar", "DELETE", "/carrito", null);
+                return;
+            }
+            JsonNode pedido = enviar("pedidos.confirmar", "POST", "/pedidos/confirmar", Map.of(
+                    "direccionEntrega", "Calle de carga " + clienteId,
+                    "telefonoContacto", "3000000000",
+                    "metodoPago", "TARJETA_CREDITO"));
+
+            if (aleatorio.nextDouble() >= configuracion.probPagar()) {
+                return;
+            }
+            pensar();
+            long inicioPago = System.nanoTime();
+            JsonNode pago = enviar("pagos.procesar", "POST", "/pagos/procesar", Map.of(
+                    "pedidoId", pedido.path("id").asLong(),
+                    "metodoPago", "TARJETA_CREDITO",
+                    "numeroTarjeta", "4111111111111111",
+                    "nombreTitular", "Cliente Carga",
+                    "fechaVencimiento", "12/30",
+                    "cvv", "123"));
+            if (configuracion.esperarPago()) {
+                esperarResolucion(pago.path("pagoId").asLong(), inicioPago);
+            }
+        } catch (FalloOperacion e) {
+            // Ya registrado; la sesión termina aquí
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void esperarResolucion(long pagoId, long inicioNanos) throws InterruptedException {
+        long limite = inicioNanos + TIMEOUT.toNanos();
+        while (System.nanoTime() < limite) {
+            Thread.sleep(CONSULTA_PAGO);
+            JsonNode pago;
+            try {
+                pago = ejecutar("GET", "/pagos/" + pagoId, null);
+            } catch (FalloOperacion e) {
+                metricas.registrarError("pagos.resolucion", e.getMessage());
+                return;
+            }
+            if (!"PROCESANDO".equals(pago.path("estado").asText())) {
+                metricas.registrar("pagos.resolucion", inicioNanos, System.nanoTime());
+                return;
+            }
+        }
+        metricas.registrarError("pagos.resolucion", "sin resolver en " + TIMEOUT.toSeconds() + " s");
+    }
+
+    /**
+     * Ejecuta la petición y registra su latencia, o el error si falla.
+     */
+    private JsonNode enviar(String operacion, String metodo, String ruta, Object cuerpo)
+            throws FalloOperacion, InterruptedException {
+        long inicio = System.nanoTime();
+        try {
+            JsonNode respuesta = ejecutar(metodo, ruta, cuerpo);
+            metricas.registrar(operacion, inicio, System.nanoTime());
+            return respuesta;
+        } catch (FalloOperacion e) {
+            metricas.registrarError(operacion, e.getMessage());
+            throw e;
+        }
+    }
+
+    private JsonNode ejecutar(String metodo, String ruta, Object cuerpo) throws FalloOperacion, InterruptedException {
+        try {
+            HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(configuracion.baseUrl() + ruta))
+                    .timeout(TIMEOUT)
+                    .header("X-User-Id", clienteId)
+                    .header("X-User-Name", "Cliente " + clienteId)
+                    .header("Accept", "application/json");
+            if (cuerpo != null) {
+                peticion.header("Content-Type", "application/json")
+                        .method(metodo, HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(cuerpo)));
+            } else {
+                peticion.method(metodo, HttpRequest.BodyPublishers.noBody());
+            }
+
+            HttpResponse<byte[]> respuesta = http.send(peticion.build(), HttpResponse.BodyHandlers.ofByteArray());
+            if (respuesta.statusCode() >= 300) {
+                throw new FalloOperacion("HTTP " + respuesta.statusCode());
+            }
+            return respuesta.body().length > 0 ? mapper.readTree(respuesta.body()) : mapper.nullNode();
+        } catch (HttpTimeoutException e) {
+            throw new FalloOperacion("timeout");
+        } catch (IOException e) {
+            throw new FalloOperacion(e.getClass().getSimpleName());
+        }
+    }
+
+    private void pensar() throws InterruptedException {
+        long minimo = configuracion.pensarMin().toMillis();
+        long maximo = configuracion.pensarMax().toMillis();
+        long espera = maximo > minimo ? ThreadLocalRandom.current().nextLong(minimo, maximo + 1) : minimo;
+        if (espera > 0) {
+            Thread.sleep(espera);
+        }
+    }
+
+    static final class FalloOperacion extends Exception {
+
+        FalloOperacion(String motivo) {
+            super(motivo, null, false, false);
+        }
+    }
+}
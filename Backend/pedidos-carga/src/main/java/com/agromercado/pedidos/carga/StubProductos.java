@@ -0,0 +1,186 @@
+package com.agromercado.pedidos.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sustituto de productos-service con la latencia configurada.
+ *
+ * Atiende las rutas que usa pedidos-service (consulta de productos, catálogo y
+ * reservas de stock) con un catálogo fijo de una sola zona y stock ilimitado,
+ * para que la prueba mida a pedidos-service y no el inventario. Cada respuesta
+ * espera {@code latencia} más una variación uniforme de hasta {@code variacion}.
+ */
+public class StubProductos implements AutoCloseable {
+
+    static final String ZONA = "zona-carga";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final int productos;
+    private final long latenciaMs;
+    private final long variacionMs;
+    private final Instant version = Instant.now();
+    private final Map<String, LongAdder> llamadas = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer servidor;
+
+    public StubProductos(int puerto, int productos, Duration latencia, Duration variacion) throws IOException {
+        this.productos = productos;
+        this.latenciaMs = latencia.toMillis();
+        this.variacionMs = variacion.toMillis();
+        this.servidor = HttpServer.create(new InetSocketAddress(puerto), 1024);
+        servidor.setExecutor(executor);
+        servidor.createContext("/productos", this::atender);
+    }
+
+    public StubProductos iniciar() {
+        servidor.start();
+        return this;
+    }
+
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Llamadas recibidas por tipo de ruta, para el resumen de la prueba.
+     */
+    public Map<String, Long> getLlamadas() {
+        Map<String, Long> copia = new LinkedHashMap<>();
+        llamadas.forEach((ruta, contador) -> copia.put(ruta, contador.sum()));
+        return copia;
+    }
+
+    private void atender(HttpExchange intercambio) throws IOException {
+        try (intercambio) {
+            esperar();
+            String metodo = intercambio.getRequestMethod();
+            String ruta = intercambio.getRequestURI().getPath();
+            intercambio.getRequestBody().readAllBytes();
+
+            if (metodo.equals("GET") && ruta.equals("/productos/batch")) {
+                contar("batch");
+                List<Map<String, Object>> encontrados = new ArrayList<>();
+                for (String id : parametro(intercambio, "ids").split(",")) {
+                    Map<String, Object> producto = producto(id);
+                    if (producto != null) {
+                        encontrados.add(producto);
+                    }
+                }
+                responder(intercambio, 200, encontrados);
+            } else if (metodo.equals("GET") && ruta.equals("/productos")) {
+                contar("catalogo");
+                List<Map<String, Object>> catalogo = new ArrayList<>();
+                for (int id = 1; id <= productos; id++) {
+                    catalogo.add(producto(String.valueOf(id)));
+                }
+                responder(intercambio, 200, catalogo);
+            } else if (metodo.equals("GET") && ruta.startsWith("/productos/")) {
+                contar("producto");
+                Map<String, Object> producto = producto(ruta.substring("/productos/".length()));
+                responder(intercambio, producto != null ? 200 : 404, producto);
+            } else if (metodo.equals("POST") && ruta.equals("/productos/reservas")) {
+                contar("reservar");
+                Map<String, Object> reserva = new LinkedHashMap<>();
+                reserva.put("reservaId", "RES-" + UUID.randomUUID());
+                reserva.put("estado", "ACTIVA");
+                reserva.put("expiraEn", Instant.now().plus(Duration.ofMinutes(15)).toString());
+                responder(intercambio, 201, reserva);
+            } else if (metodo.equals("POST") && ruta.startsWith("/productos/reservas/")) {
+                contar(ruta.endsWith("/confirmar") ? "confirmar-reserva" : "liberar-reserva");
+                responder(intercambio, 200, null);
+            } else {
+                contar("desconocida");
+                responder(intercambio, 404, null);
+            }
+        }
+    }
+
+    private Map<String, Object> producto(String texto) {
+        int id;
+        try {
+            id = Integer.parseInt(texto.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (id < 1 || id > productos) {
+            return null;
+        }
+        Map<String, Object> producto = new LinkedHashMap<>();
+        producto.put("idProducto", id);
+        producto.put("nombre", "Producto de carga " + id);
+        producto.put("descripcion", "Producto simulado para pruebas de carga");
+        producto.put("precioUnitario", BigDecimal.valueOf(1000L + (id * 37L) % 9000));
+        producto.put("unidadMedida", "kg");
+        producto.put("stockDisponible", 1_000_000);
+        producto.put("disponible", true);
+        producto.put("idProductor", "productor-carga-" + (id % 20));
+        producto.put("zonaId", ZONA);
+        producto.put("updatedAt", version.toString());
+        return producto;
+    }
+
+    private void esperar() {
+        long espera = latenciaMs + (variacionMs > 0 ? ThreadLocalRandom.current().nextLong(variacionMs + 1) : 0);
+        if (espera > 0) {
+            try {
+                Thread.sleep(espera);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void contar(String ruta) {
+        llamadas.computeIfAbsent(ruta, r -> new LongAdder()).increment();
+    }
+
+    private static String parametro(HttpExchange intercambio, String nombre) {
+        String consulta = intercambio.getRequestURI().getQuery();
+        if (consulta != null) {
+            for (String par : consulta.split("&")) {
+                if (par.startsWith(nombre + "=")) {
+                    return par.substring(nombre.length() + 1);
+                }
+            }
+        }
+        return "";
+    }
+
+    private void responder(HttpExchange intercambio, int estado, Object cuerpo) throws IOException {
+        if (cuerpo == null) {
+            intercambio.sendResponseHeaders(estado, -1);
+            return;
+        }
+        byte[] json = mapper.writeValueAsBytes(cuerpo);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json");
+        intercambio.sendResponseHeaders(estado, json.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(json);
+        }
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,37 @@
+package com.agromercado.pedidos.carga;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Configuracion - Pruebas Unitarias")
+class ConfiguracionTest {
+
+    @Test
+    @DisplayName("Debe usar los valores por defecto y aceptar duraciones ISO o en segundos")
+    void debeLeerArgumentos() {
+        Configuracion configuracion = Configuracion.desdeArgumentos(
+                "--tasa=25", "--duracion=PT5M", "--pensar-min=0.2", "--pensar-max=1", "--stub=false");
+
+        assertEquals("carga", configuracion.modo());
+        assertEquals("http://localhost:5003", configuracion.baseUrl());
+        assertEquals(25.0, configuracion.tasa());
+        assertEquals(Duration.ofMinutes(5), configuracion.duracion());
+        assertEquals(Duration.ofMillis(200), configuracion.pensarMin());
+        assertEquals(Duration.ofSeconds(1), configuracion.pensarMax());
+        assertFalse(configuracion.stub());
+        assertEquals(500, configuracion.usuarios());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar parámetros desconocidos o incoherentes")
+    void debeRechazarParametrosNoValidos() {
+        assertThrows(IllegalArgumentException.class, () -> Configuracion.desdeArgumentos("--tasaa=10"));
+        assertThrows(IllegalArgumentException.class, () -> Configuracion.desdeArgumentos("tasa=10"));
+        assertThrows(IllegalArgumentException.class, () -> Configuracion.desdeArgumentos("--items-min=5", "--items-max=2"));
+        assertThrows(IllegalArgumentException.class, () -> Configuracion.desdeArgumentos("--prob-pagar=1.5"));
+    }
+}
@@ -0,0 +1,58 @@
+package com.agromercado.pedidos.carga;
+
+import org.HdrHistogram.HistogramLogReader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Reporte - Pruebas Unitarias")
+class ReporteTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    @DisplayName("Debe excluir el calentamiento del resumen y escribir log, curva y distribuciones")
+    void debeEscribirReportes() throws Exception {
+        Metricas metricas = new Metricas();
+        long inicioMs = System.currentTimeMillis();
+
+        try (Reporte reporte = new Reporte(directorio, inicioMs)) {
+            // Calentamiento: latencias altas que no deben aparecer en el resumen
+            metricas.registrar("pedidos.confirmar", 0, 900_000_000L);
+            reporte.intervalo(metricas.cerrarIntervalo(inicioMs, inicioMs + 1000), 1, 1, true);
+
+            for (int i = 1; i <= 100; i++) {
+                metricas.registrar("pedidos.confirmar", 0, i * 1_000_000L);
+            }
+            metricas.registrarError("pedidos.confirmar", "HTTP 500");
+            reporte.intervalo(metricas.cerrarIntervalo(inicioMs + 1000, inicioMs + 2000), 2, 1, false);
+
+            String resumen = reporte.resumir(Configuracion.desdeArgumentos(), metricas, Map.of(), 1);
+
+            assertTrue(resumen.contains("pedidos.confirmar"));
+            assertTrue(resumen.contains("HTTP 500"));
+            assertFalse(resumen.contains("900."), resumen);
+        }
+
+        List<String> curva = Files.readAllLines(directorio.resolve("throughput.csv"));
+        assertEquals(3, curva.size());
+        assertTrue(curva.get(1).startsWith("1.0,calentamiento,pedidos.confirmar,1,0,"));
+        assertTrue(curva.get(2).startsWith("2.0,medicion,pedidos.confirmar,100,1,100.00,"));
+        assertTrue(Files.readString(directorio.resolve("pedidos.confirmar.hgrm")).contains("#[Max"));
+
+        HistogramLogReader log = new HistogramLogReader(directorio.resolve("latencias.hlog").toFile());
+        int histogramas = 0;
+        while (log.nextIntervalHistogram() != null) {
+            histogramas++;
+        }
+        assertEquals(2, histogramas);
+    }
+}
@@ -0,0 +1,69 @@
+package com.agromercado.pedidos.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StubProductos - Pruebas Unitarias")
+class StubProductosTest {
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private StubProductos stub;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubProductos(0, 10, Duration.ofMillis(30), Duration.ZERO).iniciar();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    private HttpResponse<String> enviar(String metodo, String ruta) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + stub.getPuerto() + ruta))
+                        .method(metodo, HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("Debe responder el lote solo con los productos existentes y con la latencia configurada")
+    void debeResponderLoteConLatencia() throws Exception {
+        long inicio = System.nanoTime();
+        HttpResponse<String> respuesta = enviar("GET", "/productos/batch?ids=1,5,99");
+        long transcurridoMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        JsonNode productos = mapper.readTree(respuesta.body());
+        assertEquals(200, respuesta.statusCode());
+        assertEquals(2, productos.size());
+        assertEquals(5, productos.get(1).path("idProducto").asInt());
+        assertEquals(StubProductos.ZONA, productos.get(1).path("zonaId").asText());
+        assertTrue(transcurridoMs >= 30, "latencia " + transcurridoMs + " ms");
+        assertEquals(404, enviar("GET", "/productos/99").statusCode());
+    }
+
+    @Test
+    @DisplayName("Debe aceptar reservas y contar las llamadas por ruta")
+    void debeAceptarReservas() throws Exception {
+        HttpResponse<String> reserva = enviar("POST", "/productos/reservas");
+        String reservaId = mapper.readTree(reserva.body()).path("reservaId").asText();
+
+        assertEquals(201, reserva.statusCode());
+        assertTrue(reservaId.startsWith("RES-"));
+        assertEquals(200, enviar("POST", "/productos/reservas/" + reservaId + "/confirmar").statusCode());
+        assertEquals(1L, stub.getLlamadas().get("reservar"));
+        assertEquals(1L, stub.getLlamadas().get("confirmar-reserva"));
+    }
+}
@@ -1,6 +1,8 @@
 package com.agromercado.pedidos.api.controller;
 
 import com.agromercado.pedidos.application.dto.AgregarProductoCarritoRequest;
+import com.agromercado.pedidos.application.dto.OperacionesCarritoRequest;
+import com.agromercado.pedidos.application.dto.OperacionesCarritoResponse;
 import com.agromercado.pedidos.application.dto.PedidoResponse;
 import com.agromercado.pedidos.application.service.PedidoService;
 import jakarta.validation.Valid;
@@ -46,6 +48,22 @@ public class CarritoController {
         return ResponseEntity.ok(carrito);
     }
 
+    /**
+     * POST /carrito/items:batch - Aplica varias operaciones (AGREGAR, FIJAR_CANTIDAD, ELIMINAR)
+     * con una sola escritura del carrito y devuelve el resultado de cada una
+     */
+    @PostMapping("/items:batch")
+    public ResponseEntity<OperacionesCarritoResponse> aplicarOperaciones(
+            @RequestHeader("X-User-Id") String clienteId,
+            @RequestHeader(value = "X-User-Name", required = false, defaultValue = "Usuario") String clienteNombre,
+            @RequestHeader(value = "X-User-Email", required = false) String clienteEmail,
+            @Valid @RequestBody OperacionesCarritoRequest request) {
+
+        OperacionesCarritoResponse respuesta = pedidoService.aplicarOperacionesCarrito(
+                clienteId, clienteNombre, clienteEmail, request.getOperaciones());
+        return ResponseEntity.ok(respuesta);
+    }
+
     /**
      * DELETE /carrito/items/{detalleId} - Elimina un producto del carrito
      */
@@ -2,12 +2,16 @@ package com.agromercado.pedidos.api.controller;
 
 import com.agromercado.pedidos.application.dto.PagoResponse;
 import com.agromercado.pedidos.application.dto.ProcesarPagoRequest;
-import com.agromercado.pedidos.application.service.PedidoService;
+import com.agromercado.pedidos.application.service.ConciliacionPagos;
+import com.agromercado.pedidos.application.service.IdempotenciaService;
+import com.agromercado.pedidos.application.service.PagoService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+
 /**
  * Controlador REST para procesamiento de pagos
  */
@@ -16,17 +20,56 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class PagoController {
 
-    private final PedidoService pedidoService;
+    private final PagoService pagoService;
+    private final IdempotenciaService idempotenciaService;
+    private final ConciliacionPagos conciliacionPagos;
 
     /**
-     * POST /pagos/procesar - Procesa el pago de un pedido
+     * POST /pagos/procesar - Inicia el pago de un pedido (202 Accepted).
+     * El resultado se consulta en GET /pagos/{id}. Con el header Idempotency-Key
+     * los reintentos devuelven el mismo pago en lugar de iniciar otro cobro.
      */
     @PostMapping("/procesar")
     public ResponseEntity<PagoResponse> procesarPago(
             @RequestHeader("X-User-Id") String clienteId,
+            @RequestHeader(value = IdempotenciaService.HEADER_CLAVE, required = false) String claveIdempotencia,
             @Valid @RequestBody ProcesarPagoRequest request) {
 
-        PagoResponse response = pedidoService.procesarPago(clienteId, request);
+        PagoResponse response = idempotenciaService.ejecutar("pagos.procesar", clienteId, claveIdempotencia,
+                request, PagoResponse.class, () -> pagoService.iniciarPago(clienteId, request));
+        return ResponseEntity.accepted()
+                .location(URI.create("/pagos/" + response.getPagoId()))
+                .body(response);
+    }
+
+    /**
+     * POST /pagos/conciliacion - Lanza la conciliación de pagos con la pasarela (202 Accepted)
+     */
+    @PostMapping("/conciliacion")
+    public ResponseEntity<Void> iniciarConciliacion() {
+        conciliacionPagos.iniciar();
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * GET /pagos/conciliacion - Resumen de la última conciliación (204 si aún no se ha ejecutado)
+     */
+    @GetMapping("/conciliacion")
+    public ResponseEntity<ConciliacionPagos.Resumen> consultarConciliacion() {
+        return conciliacionPagos.getUltimoResumen()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    /**
+     * GET /pagos/{id} - Consulta el estado de un pago
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<PagoResponse> consultarPago(
+            @RequestHeader("X-User-Id") String clienteId,
+            @PathVariable Long id) {
+
+        PagoResponse response = pagoService.consultarPago(clienteId, id);
         return ResponseEntity.ok(response);
     }
 }
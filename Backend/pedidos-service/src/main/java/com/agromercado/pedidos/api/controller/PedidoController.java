@@ -1,15 +1,31 @@
 package com.agromercado.pedidos.api.controller;
 
+import com.agromercado.pedidos.application.dto.CambioEstadoLoteRequest;
+import com.agromercado.pedidos.application.dto.CambioEstadoLoteResponse;
 import com.agromercado.pedidos.application.dto.ConfirmarPedidoRequest;
+import com.agromercado.pedidos.application.dto.FiltroPedidos;
+import com.agromercado.pedidos.application.dto.LineaProductorDTO;
+import com.agromercado.pedidos.application.dto.PaginaLineasProductorResponse;
+import com.agromercado.pedidos.application.dto.PaginaPedidosResponse;
 import com.agromercado.pedidos.application.dto.PedidoResponse;
+import com.agromercado.pedidos.application.service.ArchivoPedidosService;
+import com.agromercado.pedidos.application.service.ExportacionPedidosService;
+import com.agromercado.pedidos.application.service.IdempotenciaService;
 import com.agromercado.pedidos.application.service.PedidoService;
 import com.agromercado.pedidos.domain.model.EstadoPedido;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -20,17 +36,25 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PedidoController {
 
+    static final String HEADER_SIGUIENTE_CURSOR = "X-Next-Cursor";
+
     private final PedidoService pedidoService;
+    private final ExportacionPedidosService exportacionPedidosService;
+    private final IdempotenciaService idempotenciaService;
+    private final ArchivoPedidosService archivoPedidosService;
 
     /**
-     * POST /pedidos/confirmar - Confirma el carrito como pedido
+     * POST /pedidos/confirmar - Confirma el carrito como pedido.
+     * Con el header Idempotency-Key los reintentos devuelven el mismo pedido.
      */
     @PostMapping("/confirmar")
     public ResponseEntity<PedidoResponse> confirmarPedido(
             @RequestHeader("X-User-Id") String clienteId,
+            @RequestHeader(value = IdempotenciaService.HEADER_CLAVE, required = false) String claveIdempotencia,
             @Valid @RequestBody ConfirmarPedidoRequest request) {
 
-        PedidoResponse pedido = pedidoService.confirmarPedido(clienteId, request);
+        PedidoResponse pedido = idempotenciaService.ejecutar("pedidos.confirmar", clienteId, claveIdempotencia,
+                request, PedidoResponse.class, () -> pedidoService.confirmarPedido(clienteId, request));
         return ResponseEntity.status(HttpStatus.CREATED).body(pedido);
     }
 
@@ -44,23 +68,116 @@ public class PedidoController {
     }
 
     /**
-     * GET /pedidos/mis-pedidos - Lista los pedidos del cliente actual
+     * GET /pedidos/mis-pedidos - Lista los pedidos del cliente actual.
+     * Paginado por cursor: si hay más resultados la respuesta incluye el header
+     * X-Next-Cursor, que se envía como ?cursor= para pedir la página siguiente.
      */
     @GetMapping("/mis-pedidos")
     public ResponseEntity<List<PedidoResponse>> listarMisPedidos(
-            @RequestHeader("X-User-Id") String clienteId) {
+            @RequestHeader("X-User-Id") String clienteId,
+            @RequestParam(required = false) EstadoPedido estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+
+        PaginaPedidosResponse pagina = pedidoService.listarPedidosCliente(clienteId,
+                new FiltroPedidos(estado, desde, hasta, cursor, limite));
+        return responderPagina(pagina);
+    }
+
+    /**
+     * GET /pedidos/archivo/mis-pedidos - Lista los pedidos archivados del cliente actual
+     * (entregados o cancelados hace más de pedidos.archivo.meses). Misma paginación que
+     * /pedidos/mis-pedidos.
+     */
+    @GetMapping("/archivo/mis-pedidos")
+    public ResponseEntity<List<PedidoResponse>> listarMisPedidosArchivados(
+            @RequestHeader("X-User-Id") String clienteId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
 
-        List<PedidoResponse> pedidos = pedidoService.listarPedidosCliente(clienteId);
-        return ResponseEntity.ok(pedidos);
+        return responderPagina(archivoPedidosService.listarPedidosCliente(clienteId, cursor, limite));
     }
 
     /**
-     * GET /pedidos/zona/{zonaId} - Lista pedidos de una zona (para admin de zona)
+     * GET /pedidos/archivo/{id} - Obtiene un pedido archivado por su id original
+     */
+    @GetMapping("/archivo/{id}")
+    public ResponseEntity<PedidoResponse> obtenerPedidoArchivado(@PathVariable Long id) {
+        return ResponseEntity.ok(archivoPedidosService.obtenerPedido(id));
+    }
+
+    /**
+     * GET /pedidos/zona/{zonaId} - Lista pedidos de una zona (para admin de zona).
+     * Mismos filtros y paginación que /pedidos/mis-pedidos.
      */
     @GetMapping("/zona/{zonaId}")
-    public ResponseEntity<List<PedidoResponse>> listarPedidosPorZona(@PathVariable String zonaId) {
-        List<PedidoResponse> pedidos = pedidoService.listarPedidosPorZona(zonaId);
-        return ResponseEntity.ok(pedidos);
+    public ResponseEntity<List<PedidoResponse>> listarPedidosPorZona(
+            @PathVariable String zonaId,
+            @RequestParam(required = false) EstadoPedido estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+
+        PaginaPedidosResponse pagina = pedidoService.listarPedidosPorZona(zonaId,
+                new FiltroPedidos(estado, desde, hasta, cursor, limite));
+        return responderPagina(pagina);
+    }
+
+    /**
+     * GET /pedidos/productor/{productorId}/lineas - Lista las líneas de pedido de un productor
+     * (para preparar entregas). Mismos filtros y paginación que /pedidos/mis-pedidos.
+     */
+    @GetMapping("/productor/{productorId}/lineas")
+    public ResponseEntity<List<LineaProductorDTO>> listarLineasProductor(
+            @PathVariable String productorId,
+            @RequestParam(required = false) EstadoPedido estado,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+
+        PaginaLineasProductorResponse pagina = pedidoService.listarLineasProductor(productorId,
+                new FiltroPedidos(estado, desde, hasta, cursor, limite));
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguienteCursor() != null) {
+            respuesta.header(HEADER_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+        }
+        return respuesta.body(pagina.getLineas());
+    }
+
+    /**
+     * GET /pedidos/zona/{zonaId}/export?format=csv|ndjson&desde=&hasta= - Descarga todos
+     * los pedidos de la zona, una fila por línea de pedido, en streaming
+     */
+    @GetMapping("/zona/{zonaId}/export")
+    public ResponseEntity<StreamingResponseBody> exportarPedidosZona(
+            @PathVariable String zonaId,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+
+        ExportacionPedidosService.Formato formato = ExportacionPedidosService.formato(format);
+        MediaType tipo = formato == ExportacionPedidosService.Formato.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        String archivo = "pedidos-" + zonaId + "." + formato.name().toLowerCase();
+
+        StreamingResponseBody cuerpo = salida -> exportacionPedidosService.exportarZona(zonaId, formato, desde, hasta, salida);
+        return ResponseEntity.ok()
+                .contentType(tipo)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(archivo).build().toString())
+                .body(cuerpo);
+    }
+
+    private ResponseEntity<List<PedidoResponse>> responderPagina(PaginaPedidosResponse pagina) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguienteCursor() != null) {
+            respuesta.header(HEADER_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+        }
+        return respuesta.body(pagina.getPedidos());
     }
 
     /**
@@ -74,4 +191,30 @@ public class PedidoController {
         PedidoResponse pedido = pedidoService.actualizarEstado(id, estado);
         return ResponseEntity.ok(pedido);
     }
+
+    /**
+     * POST /pedidos/{id}/cancelar - Cancela un pedido del cliente. Si estaba pagado,
+     * el reembolso se procesa en segundo plano (estadoPago pasa a REEMBOLSADO)
+     */
+    @PostMapping("/{id}/cancelar")
+    public ResponseEntity<PedidoResponse> cancelarPedido(
+            @RequestHeader("X-User-Id") String clienteId,
+            @PathVariable Long id) {
+
+        PedidoResponse pedido = pedidoService.cancelarPedido(clienteId, id);
+        return ResponseEntity.ok(pedido);
+    }
+
+    /**
+     * PATCH /pedidos/estado:batch - Cambia el estado de varios pedidos (p. ej. EN_PREPARACION
+     * a ENVIADO) en una transacción y devuelve los que no se pudieron cambiar con el motivo
+     */
+    @PatchMapping("/estado:batch")
+    public ResponseEntity<CambioEstadoLoteResponse> cambiarEstadoPorLote(
+            @Valid @RequestBody CambioEstadoLoteRequest request) {
+
+        CambioEstadoLoteResponse respuesta = pedidoService.cambiarEstadoPorLote(
+                request.getPedidoIds(), request.getEstado());
+        return ResponseEntity.ok(respuesta);
+    }
 }
@@ -0,0 +1,61 @@
+package com.agromercado.pedidos.api.controller;
+
+import com.agromercado.pedidos.application.dto.ResumenVentasResponse;
+import com.agromercado.pedidos.application.service.VentasDiariasBackfill;
+import com.agromercado.pedidos.application.service.VentasDiariasService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * Controlador REST de ventas agregadas por día (tabla ventas_diarias)
+ */
+@RestController
+@RequestMapping("/pedidos/ventas")
+@RequiredArgsConstructor
+public class VentasController {
+
+    private final VentasDiariasService ventasDiariasService;
+    private final VentasDiariasBackfill ventasDiariasBackfill;
+
+    /**
+     * GET /pedidos/ventas/productor/{productorId}?desde=&hasta=&zonaId= - Ventas de un productor
+     */
+    @GetMapping("/productor/{productorId}")
+    public ResponseEntity<ResumenVentasResponse> ventasProductor(
+            @PathVariable String productorId,
+            @RequestParam(required = false) String zonaId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+
+        return ResponseEntity.ok(ventasDiariasService.resumenProductor(productorId, zonaId, desde, hasta));
+    }
+
+    /**
+     * GET /pedidos/ventas/zona/{zonaId}?desde=&hasta= - Ventas de una zona (para admin de zona)
+     */
+    @GetMapping("/zona/{zonaId}")
+    public ResponseEntity<ResumenVentasResponse> ventasZona(
+            @PathVariable String zonaId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+
+        return ResponseEntity.ok(ventasDiariasService.resumenZona(zonaId, desde, hasta));
+    }
+
+    /**
+     * POST /pedidos/ventas/reconstruir?desde=&hasta= - Reconstruye las ventas desde el historial (202 Accepted).
+     * Sin fechas se reconstruye todo.
+     */
+    @PostMapping("/reconstruir")
+    public ResponseEntity<Void> reconstruir(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+
+        ventasDiariasBackfill.iniciar(desde, hasta);
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.agromercado.pedidos.application.dto;
+
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambioEstadoLoteRequest {
+
+    @NotEmpty(message = "Debe indicar al menos un pedido")
+    @Size(max = 500, message = "Máximo 500 pedidos por petición")
+    private List<@NotNull Long> pedidoIds;
+
+    @NotNull(message = "El estado destino es requerido")
+    private EstadoPedido estado;
+}
@@ -0,0 +1,30 @@
+package com.agromercado.pedidos.application.dto;
+
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CambioEstadoLoteResponse {
+
+    private EstadoPedido estado;              // Estado destino
+    private int actualizados;                 // Pedidos que cambiaron de estado
+    private List<PedidoRechazado> rechazados; // Pedidos que no se cambiaron, con el motivo
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class PedidoRechazado {
+        private Long pedidoId;
+        private EstadoPedido estadoActual;  // null si el pedido no existe
+        private String mensaje;
+    }
+}
@@ -0,0 +1,25 @@
+package com.agromercado.pedidos.application.dto;
+
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Filtros y posición de una consulta paginada de pedidos
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FiltroPedidos {
+
+    private EstadoPedido estado;
+    private LocalDate desde;   // Inclusive
+    private LocalDate hasta;   // Inclusive
+    private String cursor;     // Devuelto por la página anterior; null para la primera
+    private Integer limite;
+}
@@ -0,0 +1,36 @@
+package com.agromercado.pedidos.application.dto;
+
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Línea de pedido vista por su productor: los datos de la línea más lo
+ * mínimo de la cabecera para preparar la entrega
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LineaProductorDTO {
+
+    private Long id;
+    private Long pedidoId;
+    private String numeroPedido;
+    private EstadoPedido estado;
+    private String zonaId;
+    private LocalDateTime fechaCreacion;
+    private String direccionEntrega;
+    private String telefonoContacto;
+    private Long productoId;
+    private String productoNombre;
+    private Integer cantidad;
+    private String unidadMedida;
+    private BigDecimal precioUnitario;
+    private BigDecimal subtotal;
+}
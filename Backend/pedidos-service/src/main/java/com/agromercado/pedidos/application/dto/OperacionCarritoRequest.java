@@ -0,0 +1,31 @@
+package com.agromercado.pedidos.application.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Una operación de POST /carrito/items:batch. Las líneas se identifican por producto.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperacionCarritoRequest {
+
+    public enum Tipo {
+        AGREGAR,          // Suma la cantidad a la línea del producto (la crea si no existe)
+        FIJAR_CANTIDAD,   // Deja la línea con la cantidad indicada; 0 la elimina
+        ELIMINAR          // Quita la línea del producto
+    }
+
+    @NotNull(message = "El tipo de operación es requerido")
+    private Tipo tipo;
+
+    @NotNull(message = "El ID del producto es requerido")
+    private Long productoId;
+
+    @Min(value = 0, message = "La cantidad no puede ser negativa")
+    private Integer cantidad;
+}
@@ -0,0 +1,20 @@
+package com.agromercado.pedidos.application.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperacionesCarritoRequest {
+
+    @NotEmpty(message = "Debe indicar al menos una operación")
+    @Size(max = 100, message = "Máximo 100 operaciones por petición")
+    private List<@Valid OperacionCarritoRequest> operaciones;
+}
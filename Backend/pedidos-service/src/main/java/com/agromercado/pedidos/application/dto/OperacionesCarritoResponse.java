@@ -0,0 +1,29 @@
+package com.agromercado.pedidos.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OperacionesCarritoResponse {
+
+    private PedidoResponse carrito;               // Carrito tras aplicar las operaciones válidas
+    private List<ResultadoOperacion> resultados;  // Uno por operación, en el mismo orden
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ResultadoOperacion {
+        private int indice;
+        private Long productoId;
+        private boolean aplicada;
+        private String mensaje;  // Motivo si no se aplicó
+    }
+}
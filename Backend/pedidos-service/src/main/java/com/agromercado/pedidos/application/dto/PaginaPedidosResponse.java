@@ -0,0 +1,18 @@
+package com.agromercado.pedidos.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaginaPedidosResponse {
+
+    private List<PedidoResponse> pedidos;
+    private String siguienteCursor;  // null si no hay más páginas
+}
@@ -1,5 +1,6 @@
 package com.agromercado.pedidos.application.dto;
 
+import com.agromercado.pedidos.domain.model.EstadoPago;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,6 +14,8 @@ import java.math.BigDecimal;
 @Builder
 public class PagoResponse {
 
+    private Long pagoId;
+    private EstadoPago estado;
     private String transaccionId;
     private boolean aprobado;
     private String mensaje;
@@ -3,12 +3,15 @@ package com.agromercado.pedidos.application.dto;
 import com.agromercado.pedidos.domain.model.EstadoPago;
 import com.agromercado.pedidos.domain.model.EstadoPedido;
 import com.agromercado.pedidos.domain.model.MetodoPago;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -39,4 +42,8 @@ public class PedidoResponse {
     private LocalDateTime fechaEntrega;
     private String transaccionPagoId;
     private List<DetallePedidoDTO> detalles;
+
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private LocalDate particion;  // Solo para acotar las consultas de sus líneas a su partición; no se publica
 }
@@ -0,0 +1,30 @@
+package com.agromercado.pedidos.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Ventas de un productor o de una zona en un rango de días de pago.
+ * Los ingresos son subtotales sin IVA.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResumenVentasResponse {
+
+    private LocalDate desde;
+    private LocalDate hasta;
+    private long unidadesVendidas;
+    private BigDecimal ingresos;
+    private long unidadesEntregadas;
+    private long unidadesCanceladas;
+    private List<VentasAgregadasDTO> porDia;
+    private List<VentasAgregadasDTO> porProducto;
+}
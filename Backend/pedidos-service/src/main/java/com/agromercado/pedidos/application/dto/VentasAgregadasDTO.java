@@ -0,0 +1,27 @@
+package com.agromercado.pedidos.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Totales de ventas de un día o de un producto (según el desglose, el otro campo va vacío).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VentasAgregadasDTO {
+
+    private LocalDate dia;
+    private Long productoId;
+    private String productorId;
+    private long unidadesVendidas;
+    private BigDecimal ingresos;
+    private long unidadesEntregadas;
+    private long unidadesCanceladas;
+}
@@ -0,0 +1,266 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.application.dto.DetallePedidoDTO;
+import com.agromercado.pedidos.application.dto.PedidoResponse;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Mantiene las particiones mensuales de pedidos y detalles_pedido (V15) y
+ * archiva los pedidos antiguos en pedidos_archivo.
+ *
+ * Cada ejecución crea las particiones del mes actual y de los
+ * {@code meses-adelantados} siguientes y, si el archivo está habilitado, mueve
+ * los pedidos ENTREGADO o CANCELADO sin escrituras desde hace {@code meses}
+ * meses. Se recorren por id en lotes de {@code tamano-lote}, cada uno en su
+ * propia transacción: se bloquean las filas (saltando las que otra transacción
+ * tenga tomadas), se copian como JSON y se borran con sus líneas. Al final se
+ * eliminan las particiones anteriores al límite que quedaron vacías, así que
+ * la tabla solo conserva los meses recientes y lo que aún no se puede archivar.
+ *
+ * Los candidatos solo se buscan en las particiones anteriores al límite. Los
+ * pedidos con un pago PROCESANDO o un reembolso PENDIENTE se dejan para una
+ * ejecución posterior. Crear y eliminar particiones solo aplica en PostgreSQL.
+ *
+ * Un carrito confirmado va a la partición del mes en que se creó, que puede
+ * ser antiguo: la confirmación la asegura antes ({@link #asegurarParticion}) y
+ * no se eliminan los meses que aún tienen carritos (V16).
+ */
+@Component
+@Slf4j
+public class ArchivadorPedidos {
+
+    private static final String SELECCIONAR_LOTE = """
+            SELECT id FROM pedidos
+            WHERE particion > ? AND particion <= ?
+              AND estado IN ('ENTREGADO', 'CANCELADO') AND estado_pago <> 'PROCESANDO'
+              AND fecha_actualizacion < ? AND id > ?
+              AND NOT EXISTS (SELECT 1 FROM reembolsos r WHERE r.pedido_id = pedidos.id AND r.estado = 'PENDIENTE')
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String INSERTAR_ARCHIVO = """
+            INSERT INTO pedidos_archivo (id, cliente_id, zona_id, numero_pedido, estado, fecha_creacion,
+                                         fecha_pago, fecha_archivo, datos)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final Date CARRITOS = Date.valueOf(Pedido.PARTICION_CARRITOS);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate transaccionPropia;
+    private final PedidoRepository pedidoRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean habilitado;
+    private final int meses;
+    private final int mesesAdelantados;
+    private final int tamanoLote;
+    private final Counter pedidosArchivados;
+
+    /** Meses cuya partición ya se comprobó; una partición con carritos nunca se elimina */
+    private final Set<LocalDate> particionesExistentes = ConcurrentHashMap.newKeySet();
+
+    private volatile Boolean postgres;
+
+    public ArchivadorPedidos(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             PedidoRepository pedidoRepository,
+                             ObjectMapper objectMapper,
+                             MeterRegistry registry,
+                             @Value("${pedidos.archivo.habilitado:true}") boolean habilitado,
+                             @Value("${pedidos.archivo.meses:12}") int meses,
+                             @Value("${pedidos.archivo.meses-adelantados:3}") int mesesAdelantados,
+                             @Value("${pedidos.archivo.tamano-lote:500}") int tamanoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transaccionPropia = new TransactionTemplate(transactionManager);
+        this.transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.pedidoRepository = pedidoRepository;
+        this.objectMapper = objectMapper;
+        this.habilitado = habilitado;
+        this.meses = meses;
+        this.mesesAdelantados = mesesAdelantados;
+        this.tamanoLote = tamanoLote;
+        this.pedidosArchivados = Counter.builder("pedidos.archivo.archivados").register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${pedidos.archivo.intervalo-ms:86400000}",
+            initialDelayString = "${pedidos.archivo.retraso-inicial-ms:60000}")
+    public void archivarProgramado() {
+        try {
+            // Las particiones futuras se crean aunque el archivo esté deshabilitado: sin ellas no se puede insertar
+            crearParticiones(LocalDate.now());
+            if (habilitado) {
+                LocalDateTime limite = LocalDateTime.now().minusMonths(meses);
+                archivar(limite);
+                eliminarParticionesVacias(limite);
+            }
+        } catch (RuntimeException e) {
+            log.error("Error en el archivo de pedidos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Crea, si faltan, las particiones del mes de {@code hoy} y de los {@code meses-adelantados} siguientes.
+     */
+    public void crearParticiones(LocalDate hoy) {
+        if (!esPostgres()) {
+            return;
+        }
+        LocalDate mes = hoy.withDayOfMonth(1);
+        for (int i = 0; i <= mesesAdelantados; i++) {
+            jdbcTemplate.query("SELECT crear_particion_pedidos(?)", fila -> { }, Date.valueOf(mes.plusMonths(i)));
+            particionesExistentes.add(mes.plusMonths(i));
+        }
+    }
+
+    /**
+     * Crea, si falta, la partición del mes {@code particion} antes de mover un
+     * carrito a ella. Va en su propia transacción para no retener el bloqueo
+     * de pedidos hasta que termine la confirmación.
+     */
+    public void asegurarParticion(LocalDate particion) {
+        if (particionesExistentes.contains(particion) || !esPostgres()) {
+            return;
+        }
+        transaccionPropia.executeWithoutResult(status ->
+                jdbcTemplate.query("SELECT crear_particion_pedidos(?)", fila -> { }, Date.valueOf(particion)));
+        particionesExistentes.add(particion);
+    }
+
+    /**
+     * Elimina las particiones de los meses anteriores al de {@code limite} que ya no tienen pedidos.
+     *
+     * @return particiones mensuales eliminadas
+     */
+    public int eliminarParticionesVacias(LocalDateTime limite) {
+        if (!esPostgres()) {
+            return 0;
+        }
+        Integer eliminadas = jdbcTemplate.queryForObject("SELECT eliminar_particiones_vacias_pedidos(?)",
+                Integer.class, Date.valueOf(Pedido.particionDelMes(limite)));
+        if (eliminadas != null && eliminadas > 0) {
+            log.info("Archivo de pedidos: {} particiones mensuales vacías eliminadas", eliminadas);
+        }
+        return eliminadas != null ? eliminadas : 0;
+    }
+
+    /**
+     * Archiva los pedidos entregados o cancelados cuya última escritura es anterior a {@code limite}.
+     *
+     * @return pedidos archivados
+     */
+    public int archivar(LocalDateTime limite) {
+        long inicio = System.currentTimeMillis();
+        // Un pedido escrito antes del límite se creó antes: su partición no es posterior a la del límite
+        LocalDate ultimaParticion = Pedido.particionDelMes(limite);
+        Long posicion = 0L;
+        int archivados = 0;
+        int lotes = 0;
+
+        while (posicion != null) {
+            long desde = posicion;
+            Lote lote = transactionTemplate.execute(status -> archivarLote(limite, ultimaParticion, desde));
+            lotes++;
+            archivados += lote.archivados();
+            posicion = lote.siguiente();
+        }
+
+        pedidosArchivados.increment(archivados);
+        if (archivados > 0) {
+            log.info("Archivo de pedidos: {} pedidos anteriores a {} archivados en {} lotes ({} ms)",
+                    archivados, limite, lotes, System.currentTimeMillis() - inicio);
+        }
+        return archivados;
+    }
+
+    private Lote archivarLote(LocalDateTime limite, LocalDate ultimaParticion, long desde) {
+        Date hasta = Date.valueOf(ultimaParticion);
+        List<Long> ids = jdbcTemplate.queryForList(SELECCIONAR_LOTE, Long.class,
+                CARRITOS, hasta, Timestamp.valueOf(limite), desde, tamanoLote);
+        if (ids.isEmpty()) {
+            return new Lote(0, null);
+        }
+
+        // Se guarda lo mismo que devuelve GET /pedidos/{id}: la cabecera con sus líneas
+        Specification<Pedido> delLote = (root, query, cb) -> cb.and(
+                root.get("id").in(ids),
+                cb.greaterThan(root.get("particion"), Pedido.PARTICION_CARRITOS),
+                cb.lessThanOrEqualTo(root.get("particion"), ultimaParticion));
+        List<PedidoResponse> pedidos = pedidoRepository.buscarCabeceras(delLote, ids.size());
+        Map<Long, List<DetallePedidoDTO>> detalles = pedidoRepository.buscarDetalles(ids,
+                pedidos.stream().map(PedidoResponse::getParticion).collect(Collectors.toSet()));
+
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        List<Object[]> filas = new ArrayList<>(pedidos.size());
+        for (PedidoResponse pedido : pedidos) {
+            pedido.setDetalles(detalles.getOrDefault(pedido.getId(), List.of()));
+            filas.add(new Object[]{pedido.getId(), pedido.getClienteId(), pedido.getZonaId(), pedido.getNumeroPedido(),
+                    pedido.getEstado().name(), Timestamp.valueOf(pedido.getFechaCreacion()),
+                    pedido.getFechaPago() != null ? Timestamp.valueOf(pedido.getFechaPago()) : null, ahora, aJson(pedido)});
+        }
+        jdbcTemplate.batchUpdate(INSERTAR_ARCHIVO, filas);
+
+        String enLote = String.join(",", Collections.nCopies(ids.size(), "?"));
+        List<Object> parametros = new ArrayList<>(ids.size() + 2);
+        parametros.add(CARRITOS);
+        parametros.add(hasta);
+        parametros.addAll(ids);
+        jdbcTemplate.update("DELETE FROM detalles_pedido WHERE particion > ? AND particion <= ? AND pedido_id IN ("
+                + enLote + ")", parametros.toArray());
+        int archivados = jdbcTemplate.update("DELETE FROM pedidos WHERE particion > ? AND particion <= ? AND id IN ("
+                + enLote + ")", parametros.toArray());
+
+        Long siguiente = ids.size() < tamanoLote ? null : ids.get(ids.size() - 1);
+        return new Lote(archivados, siguiente);
+    }
+
+    private String aJson(PedidoResponse pedido) {
+        try {
+            return objectMapper.writeValueAsString(pedido);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el pedido " + pedido.getId(), e);
+        }
+    }
+
+    private boolean esPostgres() {
+        if (postgres == null) {
+            String baseDeDatos = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(baseDeDatos);
+        }
+        return postgres;
+    }
+
+    private record Lote(int archivados, Long siguiente) {
+    }
+}
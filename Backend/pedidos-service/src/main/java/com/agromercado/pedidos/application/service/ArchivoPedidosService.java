@@ -0,0 +1,78 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.application.dto.PaginaPedidosResponse;
+import com.agromercado.pedidos.application.dto.PedidoResponse;
+import com.agromercado.pedidos.domain.model.PedidoArchivado;
+import com.agromercado.pedidos.domain.repository.PedidoArchivadoRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Consultas sobre los pedidos que {@link ArchivadorPedidos} movió a pedidos_archivo.
+ * Es una ruta de lectura aparte: los listados de pedidos no leen el archivo, y
+ * el archivo no toca las particiones de pedidos.
+ */
+@Service
+@RequiredArgsConstructor
+public class ArchivoPedidosService {
+
+    private static final int LIMITE_POR_DEFECTO = 20;
+    private static final int LIMITE_MAXIMO = 100;
+
+    private final PedidoArchivadoRepository pedidoArchivadoRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Obtiene un pedido archivado por el id que tenía en pedidos
+     */
+    @Transactional(readOnly = true)
+    public PedidoResponse obtenerPedido(Long pedidoId) {
+        return pedidoArchivadoRepository.findById(pedidoId)
+                .map(this::aPedidoResponse)
+                .orElseThrow(() -> new IllegalArgumentException("Pedido archivado no encontrado"));
+    }
+
+    /**
+     * Lista los pedidos archivados de un cliente, del más reciente al más antiguo, por páginas
+     */
+    @Transactional(readOnly = true)
+    public PaginaPedidosResponse listarPedidosCliente(String clienteId, String cursor, Integer limite) {
+        int tamano = limite == null ? LIMITE_POR_DEFECTO : Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+
+        // Se pide un pedido de más para saber si existe una página siguiente
+        List<PedidoArchivado> archivados;
+        if (cursor != null && !cursor.isBlank()) {
+            CursorPedido posicion = CursorPedido.decodificar(cursor);
+            archivados = pedidoArchivadoRepository.buscarDelClienteDespuesDe(clienteId, posicion.fechaCreacion(),
+                    posicion.id(), Limit.of(tamano + 1));
+        } else {
+            archivados = pedidoArchivadoRepository.buscarDelCliente(clienteId, Limit.of(tamano + 1));
+        }
+
+        String siguienteCursor = null;
+        if (archivados.size() > tamano) {
+            archivados = archivados.subList(0, tamano);
+            PedidoArchivado ultimo = archivados.get(tamano - 1);
+            siguienteCursor = new CursorPedido(ultimo.getFechaCreacion(), ultimo.getId()).codificar();
+        }
+
+        return PaginaPedidosResponse.builder()
+                .pedidos(archivados.stream().map(this::aPedidoResponse).toList())
+                .siguienteCursor(siguienteCursor)
+                .build();
+    }
+
+    private PedidoResponse aPedidoResponse(PedidoArchivado archivado) {
+        try {
+            return objectMapper.readValue(archivado.getDatos(), PedidoResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Pedido archivado " + archivado.getId() + " ilegible", e);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.agromercado.pedidos.application.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Asigna a esta instancia el worker id del generador de números de pedido.
+ *
+ * Si {@code pedidos.numero-pedido.worker-id} está configurado se usa tal cual.
+ * Si no, se toma en arriendo una fila de numero_pedido_workers: primero un id
+ * que nadie use y, si no hay, uno cuyo arriendo haya caducado. Ambas escrituras
+ * son condicionales, así que dos instancias que arrancan a la vez no pueden
+ * quedarse con el mismo id.
+ *
+ * El arriendo falla cerrado: {@link #workerIdVigente()} lanza excepción si la
+ * última renovación tiene más antigüedad que el arriendo (otra instancia ya
+ * podría haber tomado el id) o si la renovación encontró la fila en manos de
+ * otra instancia. Mientras tanto no se generan números de pedido; cada
+ * renovación programada intenta arrendar de nuevo un id.
+ */
+@Component
+@Slf4j
+public class AsignadorWorkerId {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration arriendo;
+    private final String instancia;
+    private final boolean arrendado;
+
+    /** Id arrendado, o -1 si esta instancia perdió el arriendo y no consiguió otro */
+    private volatile int workerId;
+
+    /** Instante (epoch ms) hasta el que el arriendo sigue siendo de esta instancia */
+    private volatile long vigenteHastaMs = Long.MAX_VALUE;
+
+    public AsignadorWorkerId(JdbcTemplate jdbcTemplate,
+                             @Value("${pedidos.numero-pedido.worker-id:-1}") int workerIdConfigurado,
+                             @Value("${pedidos.numero-pedido.arriendo:PT5M}") Duration arriendo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.arriendo = arriendo;
+        this.instancia = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+
+        if (workerIdConfigurado >= 0) {
+            this.workerId = workerIdConfigurado;
+            this.arrendado = false;
+            log.info("Worker id {} tomado de la configuración", workerId);
+        } else {
+            this.workerId = arrendar();
+            this.arrendado = true;
+            log.info("Worker id {} arrendado por la instancia {}", workerId, instancia);
+        }
+    }
+
+    public int getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * Worker id con el que se pueden generar números ahora mismo.
+     *
+     * @throws IllegalStateException si el arriendo se perdió o caducó sin renovarse
+     */
+    public int workerIdVigente() {
+        int id = workerId;
+        if (id < 0 || System.currentTimeMillis() >= vigenteHastaMs) {
+            throw new IllegalStateException(
+                    "La instancia " + instancia + " no tiene un worker id arrendado; no se generan números de pedido");
+        }
+        return id;
+    }
+
+    private int arrendar() {
+        Instant ahora = Instant.now();
+        Map<Integer, Instant> ocupados = new HashMap<>();
+        jdbcTemplate.query("SELECT worker_id, renovado_en FROM numero_pedido_workers",
+                rs -> { ocupados.put(rs.getInt(1), rs.getTimestamp(2).toInstant()); });
+
+        for (int id = 0; id <= GeneradorNumeroPedidoTemporal.MAX_WORKER_ID; id++) {
+            if (!ocupados.containsKey(id) && insertar(id, ahora)) {
+                vigenteHastaMs = ahora.plus(arriendo).toEpochMilli();
+                return id;
+            }
+        }
+
+        Instant caducidad = ahora.minus(arriendo);
+        for (Map.Entry<Integer, Instant> ocupado : ocupados.entrySet()) {
+            if (ocupado.getValue().isBefore(caducidad)) {
+                int tomadas = jdbcTemplate.update(
+                        "UPDATE numero_pedido_workers SET instancia = ?, renovado_en = ? WHERE worker_id = ? AND renovado_en < ?",
+                        instancia, Timestamp.from(ahora), ocupado.getKey(), Timestamp.from(caducidad));
+                if (tomadas == 1) {
+                    vigenteHastaMs = ahora.plus(arriendo).toEpochMilli();
+                    return ocupado.getKey();
+                }
+            }
+        }
+
+        throw new IllegalStateException("No hay worker ids libres para el generador de números de pedido");
+    }
+
+    private boolean insertar(int id, Instant ahora) {
+        try {
+            jdbcTemplate.update("INSERT INTO numero_pedido_workers (worker_id, instancia, renovado_en) VALUES (?, ?, ?)",
+                    id, instancia, Timestamp.from(ahora));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Renueva el arriendo. Si otra instancia se quedó con el id (esta estuvo
+     * sin renovar más que el arriendo) se deja de generar números y se intenta
+     * arrendar otro id libre o caducado.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.numero-pedido.renovacion-ms:60000}")
+    public void renovar() {
+        if (!arrendado) {
+            return;
+        }
+        try {
+            if (workerId >= 0) {
+                Instant ahora = Instant.now();
+                int renovadas = jdbcTemplate.update(
+                        "UPDATE numero_pedido_workers SET renovado_en = ? WHERE worker_id = ? AND instancia = ?",
+                        Timestamp.from(ahora), workerId, instancia);
+                if (renovadas == 1) {
+                    vigenteHastaMs = ahora.plus(arriendo).toEpochMilli();
+                    return;
+                }
+                log.error("El worker id {} ya no pertenece a la instancia {}; se suspende la generación de números",
+                        workerId, instancia);
+                workerId = -1;
+            }
+            workerId = arrendar();
+            log.info("Worker id {} arrendado de nuevo por la instancia {}", workerId, instancia);
+        } catch (IllegalStateException | DataAccessException e) {
+            // Si el arriendo sigue vigente se vuelve a intentar en la próxima renovación
+            log.error("No se pudo renovar el worker id de la instancia {}: {}", instancia, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void liberar() {
+        if (arrendado && workerId >= 0) {
+            jdbcTemplate.update("DELETE FROM numero_pedido_workers WHERE worker_id = ? AND instancia = ?",
+                    workerId, instancia);
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Conjunto de trabajo de carritos activos.
+ *
+ * Los carritos se mantienen en memoria y las ediciones frecuentes (cambiar
+ * cantidades, quitar líneas, vaciar) solo marcan el carrito como sucio; un
+ * proceso periódico los escribe por lotes en una sola transacción. Las
+ * operaciones que necesitan IDs de BD (crear el carrito o agregar una línea
+ * nueva) se escriben de inmediato. Al confirmar un pedido o al apagar el
+ * servicio los carritos pendientes se escriben de forma síncrona.
+ *
+ * Cada carrito guarda también las ediciones diferidas que ya se respondieron
+ * y siguen sin escribirse. Si al escribirlo resulta que otra instancia lo
+ * modificó (bloqueo optimista), se relee de la BD y esas ediciones se vuelven a
+ * aplicar encima en lugar de perderse.
+ *
+ * Con {@code pedidos.carrito.write-behind.habilitado=false} no se guarda nada
+ * en memoria y cada edición se escribe directamente (comportamiento original).
+ */
+@Component
+@Slf4j
+public class CarritoStore {
+
+    private static final int MAX_REAPLICACIONES = 3;
+
+    private final PedidoRepository pedidoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean writeBehind;
+    private final int tamanoLote;
+    private final int maxCarritos;
+    private final long maxInactividadMs;
+
+    private final ConcurrentHashMap<String, Entrada> carritos = new ConcurrentHashMap<>();
+
+    private final Counter escriturasInmediatas;
+    private final Counter escriturasDiferidas;
+    private final Counter edicionesAgrupadas;
+    private final Counter edicionesReaplicadas;
+    private final Counter edicionesPerdidas;
+
+    public CarritoStore(PedidoRepository pedidoRepository,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry registry,
+                        @Value("${pedidos.carrito.write-behind.habilitado:true}") boolean writeBehind,
+                        @Value("${pedidos.carrito.write-behind.tamano-lote:200}") int tamanoLote,
+                        @Value("${pedidos.carrito.max-carritos:10000}") int maxCarritos,
+                        @Value("${pedidos.carrito.max-inactividad:PT30M}") Duration maxInactividad) {
+        this.pedidoRepository = pedidoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        if (writeBehind) {
+            // Las escrituras diferidas no dependen de la transacción de quien las provoca
+            this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+        this.writeBehind = writeBehind;
+        this.tamanoLote = tamanoLote;
+        this.maxCarritos = maxCarritos;
+        this.maxInactividadMs = maxInactividad.toMillis();
+
+        this.escriturasInmediatas = Counter.builder("pedidos.carrito.escrituras")
+                .tag("tipo", "inmediata").register(registry);
+        this.escriturasDiferidas = Counter.builder("pedidos.carrito.escrituras")
+                .tag("tipo", "diferida").register(registry);
+        this.edicionesAgrupadas = Counter.builder("pedidos.carrito.ediciones.agrupadas").register(registry);
+        this.edicionesReaplicadas = Counter.builder("pedidos.carrito.ediciones.reaplicadas").register(registry);
+        this.edicionesPerdidas = Counter.builder("pedidos.carrito.ediciones.perdidas").register(registry);
+        Gauge.builder("pedidos.carrito.memoria.tamano", carritos, ConcurrentHashMap::size).register(registry);
+    }
+
+    /**
+     * Ejecuta una edición del carrito del cliente en exclusión mutua con las
+     * demás ediciones y escrituras de ese mismo carrito.
+     */
+    public <T> T editar(String clienteId, Supplier<T> edicion) {
+        if (!writeBehind) {
+            return edicion.get();
+        }
+        while (true) {
+            Entrada entrada = carritos.computeIfAbsent(clienteId, Entrada::new);
+            entrada.lock.lock();
+            try {
+                if (entrada.descartada) {
+                    continue;  // Se desalojó mientras esperábamos: usar la nueva entrada
+                }
+                entrada.ultimoAccesoMs = System.currentTimeMillis();
+                return aplicar(entrada, edicion);
+            } finally {
+                entrada.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Devuelve el carrito del cliente desde memoria o, si no está, desde la BD.
+     * Debe llamarse dentro de {@link #editar}.
+     */
+    public Optional<Pedido> buscar(String clienteId) {
+        if (!writeBehind) {
+            return cargar(clienteId);
+        }
+        Entrada entrada = carritos.get(clienteId);
+        if (entrada.carrito == null) {
+            entrada.carrito = cargar(clienteId).orElse(null);
+        }
+        return Optional.ofNullable(entrada.carrito);
+    }
+
+    /**
+     * Devuelve el carrito del cliente o lo crea en la BD con los datos del proveedor dado.
+     * La creación es un upsert: si otra petición lo creó a la vez, se usa ese.
+     * Debe llamarse dentro de {@link #editar}.
+     */
+    public Pedido buscarOCrear(String clienteId, Supplier<Pedido> nuevo) {
+        return buscar(clienteId).orElseGet(() -> crear(clienteId, nuevo.get()));
+    }
+
+    /**
+     * Registra una edición del carrito. Si {@code inmediata} es true (p. ej. la
+     * edición creó líneas que necesitan ID) se escribe ya; si no, se difiere.
+     * Debe llamarse dentro de {@link #editar}.
+     */
+    public Pedido guardar(String clienteId, Pedido carrito, boolean inmediata) {
+        if (!writeBehind || inmediata) {
+            return guardarAhora(clienteId, carrito);
+        }
+        Entrada entrada = carritos.get(clienteId);
+        if (entrada.sucio) {
+            edicionesAgrupadas.increment();
+        }
+        entrada.sucio = true;
+        entrada.edicionDiferida = true;
+        return carrito;
+    }
+
+    /**
+     * Indica si el carrito del cliente está en memoria (en uso o con ediciones sin escribir)
+     */
+    public boolean enMemoria(String clienteId) {
+        return writeBehind && carritos.containsKey(clienteId);
+    }
+
+    /**
+     * Escribe el carrito pendiente del cliente y lo saca de memoria, de modo que
+     * la siguiente lectura venga de la BD. Lo usa la confirmación del pedido.
+     */
+    public void descargar(String clienteId) {
+        if (!writeBehind) {
+            return;
+        }
+        Entrada entrada = carritos.get(clienteId);
+        if (entrada == null) {
+            return;
+        }
+        entrada.lock.lock();
+        try {
+            if (entrada.sucio) {
+                escribirEnTransaccion(List.of(entrada));
+            }
+            desalojar(clienteId, entrada);
+        } finally {
+            entrada.lock.unlock();
+        }
+    }
+
+    /**
+     * Escribe por lotes los carritos con ediciones pendientes y desaloja los
+     * inactivos o, si se supera {@code pedidos.carrito.max-carritos}, los menos
+     * usados recientemente.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.carrito.write-behind.intervalo-ms:2000}")
+    public void escribirPendientes() {
+        if (!writeBehind) {
+            return;
+        }
+
+        List<Entrada> sucios = new ArrayList<>();
+        for (Entrada entrada : carritos.values()) {
+            if (entrada.sucio) {
+                sucios.add(entrada);
+            }
+            if (sucios.size() == tamanoLote) {
+                escribirLote(sucios);
+                sucios = new ArrayList<>();
+            }
+        }
+        if (!sucios.isEmpty()) {
+            escribirLote(sucios);
+        }
+
+        desalojarInactivos();
+    }
+
+    @PreDestroy
+    void escribirAlApagar() {
+        if (!writeBehind) {
+            return;
+        }
+        long pendientes = carritos.values().stream().filter(e -> e.sucio).count();
+        if (pendientes > 0) {
+            log.info("Escribiendo {} carritos pendientes antes de apagar", pendientes);
+            escribirPendientes();
+        }
+    }
+
+    private void escribirLote(List<Entrada> lote) {
+        try {
+            escribirEnTransaccion(lote);
+        } catch (RuntimeException e) {
+            // Un carrito problemático no debe bloquear al resto: reintentar uno por uno
+            log.warn("Falló la escritura por lotes de {} carritos, reintentando individualmente: {}",
+                    lote.size(), e.getMessage());
+            for (Entrada entrada : lote) {
+                try {
+                    escribirEnTransaccion(List.of(entrada));
+                } catch (OptimisticLockingFailureException conflicto) {
+                    reaplicar(entrada);
+                } catch (RuntimeException individual) {
+                    log.error("No se pudo escribir el carrito {}: {}",
+                            entrada.carrito != null ? entrada.carrito.getId() : null, individual.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe el lote en una sola transacción. Los carritos quedan bloqueados
+     * hasta el commit y luego se reemplazan por la copia recién escrita, de modo
+     * que la siguiente escritura parte del estado real de la BD.
+     */
+    private void escribirEnTransaccion(List<Entrada> lote) {
+        List<Entrada> bloqueadas = new ArrayList<>();
+        try {
+            for (Entrada entrada : lote) {
+                entrada.lock.lock();
+                bloqueadas.add(entrada);
+            }
+            List<Entrada> escritas = lote.stream()
+                    .filter(e -> e.sucio && !e.descartada && e.carrito != null)
+                    .toList();
+            List<Pedido> guardados = transactionTemplate.execute(status -> escritas.stream()
+                    .map(entrada -> {
+                        Pedido guardado = pedidoRepository.save(entrada.carrito);
+                        guardado.getDetalles().size();
+                        return guardado;
+                    })
+                    .toList());
+
+            for (int i = 0; i < escritas.size(); i++) {
+                Entrada entrada = escritas.get(i);
+                entrada.carrito = guardados.get(i);
+                entrada.sucio = false;
+                entrada.pendientes.clear();
+            }
+            escriturasDiferidas.increment(escritas.size());
+        } finally {
+            bloqueadas.forEach(entrada -> entrada.lock.unlock());
+        }
+    }
+
+    private Pedido guardarAhora(String clienteId, Pedido carrito) {
+        Pedido guardado;
+        try {
+            guardado = transactionTemplate.execute(status -> {
+                Pedido resultado = pedidoRepository.save(carrito);
+                resultado.getDetalles().size();  // Inicializar las líneas antes de cerrar la sesión
+                return resultado;
+            });
+        } catch (RuntimeException e) {
+            // La copia en memoria ya tiene la edición fallida: descartarla y releer de la BD
+            Entrada entrada = writeBehind ? carritos.get(clienteId) : null;
+            if (entrada != null) {
+                desalojar(clienteId, entrada);
+            }
+            throw e;
+        }
+        escriturasInmediatas.increment();
+
+        if (!writeBehind) {
+            return guardado;
+        }
+        Entrada entrada = carritos.get(clienteId);
+        entrada.carrito = guardado;
+        entrada.sucio = false;
+        entrada.pendientes.clear();  // La escritura incluyó también las ediciones diferidas anteriores
+        return guardado;
+    }
+
+    private Pedido crear(String clienteId, Pedido nuevo) {
+        Pedido carrito = transactionTemplate.execute(status -> {
+            if (pedidoRepository.crearCarritoSiNoExiste(clienteId, nuevo.getClienteNombre(), nuevo.getClienteEmail()) > 0) {
+                log.info("Creando nuevo carrito para cliente {}", clienteId);
+            }
+            Pedido creado = pedidoRepository.buscarCarrito(clienteId)
+                    .orElseThrow(() -> new IllegalStateException("No se pudo crear el carrito del cliente " + clienteId));
+            creado.getDetalles().size();
+            return creado;
+        });
+        escriturasInmediatas.increment();
+
+        if (writeBehind) {
+            Entrada entrada = carritos.get(clienteId);
+            entrada.carrito = carrito;
+            entrada.sucio = false;
+            entrada.pendientes.clear();
+        }
+        return carrito;
+    }
+
+    private Optional<Pedido> cargar(String clienteId) {
+        return transactionTemplate.execute(status -> {
+            Optional<Pedido> carrito = pedidoRepository.buscarCarrito(clienteId);
+            carrito.ifPresent(c -> c.getDetalles().size());
+            return carrito;
+        });
+    }
+
+    private void desalojarInactivos() {
+        long limite = System.currentTimeMillis() - maxInactividadMs;
+        List<Map.Entry<String, Entrada>> candidatos = new ArrayList<>(carritos.entrySet());
+
+        int exceso = carritos.size() - maxCarritos;
+        if (exceso > 0) {
+            candidatos.sort(Comparator.comparingLong(e -> e.getValue().ultimoAccesoMs));
+        }
+
+        for (Map.Entry<String, Entrada> candidato : candidatos) {
+            Entrada entrada = candidato.getValue();
+            if (entrada.ultimoAccesoMs >= limite && exceso <= 0) {
+                continue;
+            }
+            entrada.lock.lock();
+            try {
+                if (entrada.sucio) {
+                    escribirEnTransaccion(List.of(entrada));
+                }
+                desalojar(candidato.getKey(), entrada);
+                exceso--;
+            } catch (RuntimeException e) {
+                log.error("No se pudo escribir el carrito del cliente {} antes de desalojarlo: {}",
+                        candidato.getKey(), e.getMessage());
+            } finally {
+                entrada.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Aplica una edición y, si quedó diferida, la guarda para poder repetirla
+     * sobre una versión más reciente del carrito.
+     */
+    private <T> T aplicar(Entrada entrada, Supplier<T> edicion) {
+        entrada.edicionDiferida = false;
+        T resultado = edicion.get();
+        if (entrada.edicionDiferida) {
+            entrada.pendientes.add(edicion);
+        }
+        return resultado;
+    }
+
+    /**
+     * Otra instancia escribió el carrito después de leerlo aquí: la copia en
+     * memoria está obsoleta y escribirla fallaría siempre. Se relee de la BD y
+     * se repiten encima las ediciones ya respondidas que seguían sin escribir.
+     */
+    private void reaplicar(Entrada entrada) {
+        entrada.lock.lock();
+        try {
+            for (int intento = 1; !entrada.descartada; intento++) {
+                Pedido actual = cargar(entrada.clienteId).orElse(null);
+                List<Supplier<?>> pendientes = new ArrayList<>(entrada.pendientes);
+                entrada.pendientes.clear();
+                entrada.carrito = actual;
+                entrada.sucio = false;
+                for (Supplier<?> edicion : pendientes) {
+                    if (entrada.descartada) {
+                        // Una escritura inmediata de la edición falló y desalojó el carrito
+                        edicionesPerdidas.increment();
+                        continue;
+                    }
+                    try {
+                        aplicar(entrada, edicion);
+                        edicionesReaplicadas.increment();
+                    } catch (RuntimeException e) {
+                        edicionesPerdidas.increment();
+                        log.error("Carrito del cliente {}: una edición ya respondida no se pudo repetir sobre la versión actual: {}",
+                                entrada.clienteId, e.getMessage());
+                    }
+                }
+
+                try {
+                    if (entrada.sucio) {
+                        escribirEnTransaccion(List.of(entrada));
+                    }
+                    log.info("Carrito del cliente {} modificado desde otra instancia; {} ediciones repetidas sobre la versión actual",
+                            entrada.clienteId, pendientes.size());
+                    return;
+                } catch (OptimisticLockingFailureException conflicto) {
+                    if (intento == MAX_REAPLICACIONES) {
+                        edicionesPerdidas.increment(entrada.pendientes.size());
+                        log.error("Carrito del cliente {}: {} ediciones ya respondidas se descartan tras {} conflictos seguidos",
+                                entrada.clienteId, entrada.pendientes.size(), intento);
+                        desalojar(entrada.clienteId, entrada);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("No se pudo repetir las ediciones del carrito del cliente {}: {}", entrada.clienteId, e.getMessage());
+        } finally {
+            entrada.lock.unlock();
+        }
+    }
+
+    private void desalojar(String clienteId, Entrada entrada) {
+        entrada.descartada = true;
+        carritos.remove(clienteId, entrada);
+    }
+
+    /** Estado en memoria de un carrito; se protege con su propio lock. */
+    private static class Entrada {
+        final String clienteId;
+        final ReentrantLock lock = new ReentrantLock();
+        Pedido carrito;
+        final List<Supplier<?>> pendientes = new ArrayList<>();  // Ediciones diferidas ya respondidas
+        boolean edicionDiferida;
+        volatile boolean sucio;
+        boolean descartada;
+        volatile long ultimoAccesoMs = System.currentTimeMillis();
+
+        Entrada(String clienteId) {
+            this.clienteId = clienteId;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.agromercado.pedidos.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Réplica en memoria de los campos de producto que necesita pedidos-service
+ * (precio, zona y productor).
+ *
+ * Se carga con un snapshot completo, se mantiene al día con los eventos
+ * ProductoActualizado/ProductoEliminado y cada entrada caduca tras
+ * {@code productos.replica.max-antiguedad} sin refrescarse, de modo que si se
+ * pierden eventos el cliente HTTP vuelve a ser la fuente de verdad.
+ *
+ * El stock no se replica: las reservas lo cambian sin publicar eventos, así
+ * que la copia estaría desactualizada. Las entradas se guardan con
+ * {@code stockDisponible} nulo y la disponibilidad la decide la reserva de
+ * stock al confirmar el pedido.
+ */
+@Component
+@Slf4j
+public class CatalogoProductosReplica {
+
+    private final ConcurrentHashMap<Integer, Entrada> productos = new ConcurrentHashMap<>();
+    private final boolean habilitada;
+    private final long maxAntiguedadMs;
+
+    private final Counter aciertos;
+    private final Counter fallos;
+    private final Counter obsoletos;
+    private volatile long ultimaSincronizacionMs = 0;
+
+    public CatalogoProductosReplica(MeterRegistry registry,
+                                    @Value("${productos.replica.habilitada:true}") boolean habilitada,
+                                    @Value("${productos.replica.max-antiguedad:PT10M}") Duration maxAntiguedad) {
+        this.habilitada = habilitada;
+        this.maxAntiguedadMs = maxAntiguedad.toMillis();
+
+        this.aciertos = Counter.builder("pedidos.catalogo.replica.consultas")
+                .tag("resultado", "hit").register(registry);
+        this.fallos = Counter.builder("pedidos.catalogo.replica.consultas")
+                .tag("resultado", "miss").register(registry);
+        this.obsoletos = Counter.builder("pedidos.catalogo.replica.consultas")
+                .tag("resultado", "stale").register(registry);
+        Gauge.builder("pedidos.catalogo.replica.tamano", productos, ConcurrentHashMap::size)
+                .register(registry);
+        Gauge.builder("pedidos.catalogo.replica.antiguedad.segundos", this,
+                        r -> r.ultimaSincronizacionMs == 0 ? -1 : (System.currentTimeMillis() - r.ultimaSincronizacionMs) / 1000.0)
+                .register(registry);
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    /**
+     * Busca un producto en la réplica. Devuelve vacío si no está o si su
+     * entrada superó la antigüedad máxima.
+     */
+    public Optional<ProductoClientService.ProductoDTO> buscar(Long productoId) {
+        if (!habilitada || productoId == null) {
+            return Optional.empty();
+        }
+
+        Entrada entrada = productos.get(productoId.intValue());
+        if (entrada == null) {
+            fallos.increment();
+            return Optional.empty();
+        }
+        if (System.currentTimeMillis() - entrada.refrescadaEnMs() > maxAntiguedadMs) {
+            obsoletos.increment();
+            return Optional.empty();
+        }
+
+        aciertos.increment();
+        return Optional.of(entrada.producto());
+    }
+
+    /**
+     * Guarda un producto leído directamente de productos-service.
+     */
+    public void guardar(ProductoClientService.ProductoDTO producto) {
+        aplicarActualizacion(producto);
+    }
+
+    /**
+     * Aplica un cambio de producto ignorando versiones más antiguas que la guardada.
+     */
+    public void aplicarActualizacion(ProductoClientService.ProductoDTO producto) {
+        if (!habilitada || producto == null || producto.getIdProducto() == null) {
+            return;
+        }
+
+        long ahora = System.currentTimeMillis();
+        Entrada nueva = new Entrada(sinStock(producto), version(producto), ahora);
+        productos.merge(producto.getIdProducto(), nueva,
+                (actual, candidata) -> candidata.version() >= actual.version() ? candidata : actual.refrescada(ahora));
+        ultimaSincronizacionMs = ahora;
+    }
+
+    public void eliminar(Integer productoId) {
+        if (!habilitada || productoId == null) {
+            return;
+        }
+        productos.remove(productoId);
+        ultimaSincronizacionMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Reemplaza el contenido con un snapshot completo del catálogo.
+     * Los productos que ya no aparecen se eliminan.
+     */
+    public void cargarSnapshot(Collection<ProductoClientService.ProductoDTO> snapshot) {
+        if (!habilitada) {
+            return;
+        }
+
+        Set<Integer> vigentes = new HashSet<>();
+        for (ProductoClientService.ProductoDTO producto : snapshot) {
+            if (producto.getIdProducto() != null) {
+                vigentes.add(producto.getIdProducto());
+                aplicarActualizacion(producto);
+            }
+        }
+        productos.keySet().retainAll(vigentes);
+        log.info("Réplica de catálogo cargada con {} productos", productos.size());
+    }
+
+    private static ProductoClientService.ProductoDTO sinStock(ProductoClientService.ProductoDTO producto) {
+        return new ProductoClientService.ProductoDTO(producto.getIdProducto(), producto.getNombre(),
+                producto.getDescripcion(), producto.getPrecioUnitario(), producto.getUnidadMedida(), null,
+                producto.getDisponible(), producto.getIdProductor(), producto.getZonaId(), producto.getUpdatedAt(),
+                producto.getNombreProductor());
+    }
+
+    private static long version(ProductoClientService.ProductoDTO producto) {
+        return producto.getUpdatedAt() != null ? producto.getUpdatedAt().toEpochMilli() : 0L;
+    }
+
+    private record Entrada(ProductoClientService.ProductoDTO producto, long version, long refrescadaEnMs) {
+
+        Entrada refrescada(long ahora) {
+            return new Entrada(producto, version, ahora);
+        }
+    }
+}
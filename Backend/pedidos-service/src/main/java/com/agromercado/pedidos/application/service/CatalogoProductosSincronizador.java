@@ -0,0 +1,33 @@
+package com.agromercado.pedidos.application.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recarga periódicamente la réplica del catálogo con un snapshot completo.
+ * Los eventos mantienen la réplica al día entre recargas; la recarga corrige
+ * cualquier evento perdido.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CatalogoProductosSincronizador {
+
+    private final ProductoClientService productoClientService;
+    private final CatalogoProductosReplica replica;
+
+    @Scheduled(initialDelayString = "${productos.replica.carga-inicial-ms:5000}",
+               fixedDelayString = "${productos.replica.recarga-ms:300000}")
+    public void recargar() {
+        if (!replica.isHabilitada()) {
+            return;
+        }
+        try {
+            replica.cargarSnapshot(productoClientService.obtenerCatalogo());
+        } catch (Exception e) {
+            log.warn("No se pudo recargar la réplica del catálogo: {}", e.getMessage());
+        }
+    }
+}
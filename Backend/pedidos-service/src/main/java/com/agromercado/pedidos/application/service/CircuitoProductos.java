@@ -0,0 +1,233 @@
+package com.agromercado.pedidos.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker y bulkhead para las llamadas a productos-service.
+ *
+ * El bulkhead limita las llamadas simultáneas con dos grupos de cupos. Las
+ * consultas de productos se rechazan al instante si no hay cupo, en lugar de
+ * hacer cola. Las operaciones sobre reservas (reservar, renovar, confirmar,
+ * liberar, devolver) tienen sus propios cupos, que una ráfaga de consultas no
+ * puede agotar, y si están ocupados esperan hasta {@code espera-reservas}:
+ * confirmar o liberar una reserva después de cobrar no debe perderse por un
+ * pico momentáneo. El circuito mira los resultados
+ * de las últimas {@code ventana} llamadas: si los fallos superan
+ * {@code umbral-fallos} se abre y durante {@code abierto-durante} todas las
+ * llamadas fallan sin salir a la red. Pasado ese tiempo deja pasar una sola
+ * llamada de prueba que decide si se cierra o vuelve a abrirse.
+ * Las respuestas 4xx cuentan como éxito: el servicio está respondiendo.
+ */
+@Component
+@Slf4j
+public class CircuitoProductos {
+
+    enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    // Lecturas de productos: las únicas que se rechazan sin esperar cupo
+    private static final Set<String> CONSULTAS = Set.of("producto", "batch", "catalogo");
+
+    private final MeterRegistry registry;
+    private final Semaphore cupos;
+    private final Semaphore cuposReservas;
+    private final long esperaReservasMs;
+    private final int minimoLlamadas;
+    private final double umbralFallos;
+    private final long abiertoDuranteMs;
+    private final LongSupplier reloj;
+
+    private final Counter rechazadasCircuito;
+    private final Counter rechazadasBulkhead;
+
+    // Estado del circuito, protegido por this
+    private final boolean[] ventana;
+    private int posicion = 0;
+    private int registradas = 0;
+    private int fallos = 0;
+    private Estado estado = Estado.CERRADO;
+    private long abiertoHastaMs = 0;
+    private boolean pruebaEnCurso = false;
+
+    @Autowired
+    public CircuitoProductos(MeterRegistry registry,
+                             @Value("${productos.client.bulkhead.max-concurrentes:20}") int maxConcurrentes,
+                             @Value("${productos.client.bulkhead.max-concurrentes-reservas:10}") int maxConcurrentesReservas,
+                             @Value("${productos.client.bulkhead.espera-reservas:PT1S}") Duration esperaReservas,
+                             @Value("${productos.client.circuito.ventana:20}") int ventana,
+                             @Value("${productos.client.circuito.minimo-llamadas:10}") int minimoLlamadas,
+                             @Value("${productos.client.circuito.umbral-fallos:0.5}") double umbralFallos,
+                             @Value("${productos.client.circuito.abierto-durante:PT30S}") Duration abiertoDurante) {
+        this(registry, maxConcurrentes, maxConcurrentesReservas, esperaReservas, ventana, minimoLlamadas,
+                umbralFallos, abiertoDurante, System::currentTimeMillis);
+    }
+
+    CircuitoProductos(MeterRegistry registry, int maxConcurrentes, int maxConcurrentesReservas, Duration esperaReservas,
+                      int ventana, int minimoLlamadas, double umbralFallos, Duration abiertoDurante, LongSupplier reloj) {
+        this.registry = registry;
+        this.cupos = new Semaphore(maxConcurrentes);
+        this.cuposReservas = new Semaphore(maxConcurrentesReservas);
+        this.esperaReservasMs = esperaReservas.toMillis();
+        this.ventana = new boolean[Math.max(1, ventana)];
+        this.minimoLlamadas = Math.max(1, Math.min(minimoLlamadas, this.ventana.length));
+        this.umbralFallos = umbralFallos;
+        this.abiertoDuranteMs = abiertoDurante.toMillis();
+        this.reloj = reloj;
+
+        this.rechazadasCircuito = Counter.builder("pedidos.productos.rechazadas")
+                .tag("motivo", "circuito").register(registry);
+        this.rechazadasBulkhead = Counter.builder("pedidos.productos.rechazadas")
+                .tag("motivo", "bulkhead").register(registry);
+        Gauge.builder("pedidos.productos.circuito.estado", this, c -> c.getEstado().ordinal())
+                .description("0 = cerrado, 1 = abierto, 2 = semiabierto")
+                .register(registry);
+        Gauge.builder("pedidos.productos.bulkhead.disponibles", cupos, Semaphore::availablePermits)
+                .tag("tipo", "consulta")
+                .register(registry);
+        Gauge.builder("pedidos.productos.bulkhead.disponibles", cuposReservas, Semaphore::availablePermits)
+                .tag("tipo", "reserva")
+                .register(registry);
+    }
+
+    /**
+     * Ejecuta la llamada a productos-service si el circuito y el bulkhead lo permiten.
+     *
+     * @throws IllegalStateException si la llamada se rechaza sin ejecutarse
+     */
+    public <T> T ejecutar(String operacion, Supplier<T> llamada) {
+        boolean prueba = permitir();
+        Semaphore grupo = CONSULTAS.contains(operacion) ? cupos : cuposReservas;
+        if (!adquirir(grupo)) {
+            if (prueba) {
+                liberarPrueba();
+            }
+            rechazadasBulkhead.increment();
+            throw new IllegalStateException("Demasiadas consultas en curso a productos-service, intente nuevamente");
+        }
+
+        Timer.Sample muestra = Timer.start(registry);
+        String resultado = "error";
+        try {
+            T respuesta = llamada.get();
+            resultado = "exito";
+            registrar(false);
+            return respuesta;
+        } catch (HttpClientErrorException e) {
+            resultado = "cliente";
+            registrar(false);
+            throw e;
+        } catch (RuntimeException e) {
+            registrar(true);
+            throw e;
+        } finally {
+            grupo.release();
+            muestra.stop(Timer.builder("pedidos.productos.latencia")
+                    .tag("operacion", operacion)
+                    .tag("resultado", resultado)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    private boolean adquirir(Semaphore grupo) {
+        if (grupo == cupos) {
+            return cupos.tryAcquire();
+        }
+        try {
+            return grupo.tryAcquire(esperaReservasMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    synchronized Estado getEstado() {
+        if (estado == Estado.ABIERTO && reloj.getAsLong() >= abiertoHastaMs) {
+            return Estado.SEMIABIERTO;
+        }
+        return estado;
+    }
+
+    /**
+     * Devuelve true si la llamada es la prueba del estado semiabierto.
+     */
+    private synchronized boolean permitir() {
+        if (estado == Estado.ABIERTO && reloj.getAsLong() >= abiertoHastaMs) {
+            estado = Estado.SEMIABIERTO;
+            pruebaEnCurso = false;
+        }
+        if (estado == Estado.CERRADO) {
+            return false;
+        }
+        if (estado == Estado.SEMIABIERTO && !pruebaEnCurso) {
+            pruebaEnCurso = true;
+            return true;
+        }
+        rechazadasCircuito.increment();
+        throw new IllegalStateException("productos-service no está disponible, intente nuevamente en unos segundos");
+    }
+
+    private synchronized void liberarPrueba() {
+        pruebaEnCurso = false;
+    }
+
+    private synchronized void registrar(boolean fallo) {
+        switch (estado) {
+            case SEMIABIERTO -> {
+                if (fallo) {
+                    log.warn("Falló la llamada de prueba a productos-service, el circuito sigue abierto");
+                    abrir();
+                } else {
+                    log.info("Circuito hacia productos-service cerrado");
+                    estado = Estado.CERRADO;
+                    reiniciarVentana();
+                }
+            }
+            case CERRADO -> {
+                if (registradas == ventana.length && ventana[posicion]) {
+                    fallos--;
+                }
+                ventana[posicion] = fallo;
+                posicion = (posicion + 1) % ventana.length;
+                registradas = Math.min(registradas + 1, ventana.length);
+                if (fallo) {
+                    fallos++;
+                }
+                if (registradas >= minimoLlamadas && fallos >= umbralFallos * registradas) {
+                    log.warn("Circuito hacia productos-service abierto: {} fallos en {} llamadas", fallos, registradas);
+                    abrir();
+                }
+            }
+            case ABIERTO -> {
+                // Llamadas que empezaron antes de abrirse: no cambian nada
+            }
+        }
+    }
+
+    private void abrir() {
+        estado = Estado.ABIERTO;
+        abiertoHastaMs = reloj.getAsLong() + abiertoDuranteMs;
+        pruebaEnCurso = false;
+        reiniciarVentana();
+    }
+
+    private void reiniciarVentana() {
+        posicion = 0;
+        registradas = 0;
+        fallos = 0;
+    }
+}
@@ -0,0 +1,397 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.IncidenciaConciliacion;
+import com.agromercado.pedidos.domain.model.Pago;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.IncidenciaConciliacionRepository;
+import com.agromercado.pedidos.domain.repository.PagoRepository;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Conciliación de los pagos de pedidos con el registro de transacciones de la pasarela.
+ *
+ * Busca tres inconsistencias ({@link Caso}) y las recorre por zona en paralelo
+ * ({@code paralelismo} zonas a la vez), en lotes ordenados por id. La lectura
+ * no bloquea filas; cada reparación es una transacción corta sobre un solo
+ * pedido que vuelve a comprobar su estado, así que un pedido que cambió
+ * mientras tanto se omite en lugar de pisarse. Lo que no se puede reparar sin
+ * intervención (p. ej. la pasarela cobró pero el pedido quedó rechazado) se
+ * marca en el resumen y en el log, y queda en incidencias_conciliacion: las
+ * pasadas siguientes no lo vuelven a reportar mientras el pedido y el motivo
+ * sigan iguales, y la fila se borra cuando el caso deja de aparecer.
+ */
+@Component
+@Slf4j
+public class ConciliacionPagos {
+
+    private static final int MAX_INCIDENCIAS = 100;
+
+    public enum Caso {
+        /** Pago en PROCESANDO más tiempo del razonable: se resuelve con lo que diga la pasarela y el stock */
+        PAGO_EN_PROCESO("estado_pago = 'PROCESANDO' AND fecha_actualizacion < ?"),
+        /** Pedido pagado sin ID de transacción: se completa si la pasarela lo aprobó */
+        APROBADO_SIN_TRANSACCION("estado_pago = 'APROBADO' AND transaccion_pago_id IS NULL"),
+        /** Pago rechazado que nadie reintentó: el pedido se cancela y se libera su reserva */
+        RECHAZADO_PENDIENTE("estado_pago = 'RECHAZADO' AND estado = 'PENDIENTE' AND fecha_actualizacion < ?");
+
+        private final String condicion;
+
+        Caso(String condicion) {
+            this.condicion = condicion;
+        }
+    }
+
+    enum Resultado { REPARADO, MARCADO, YA_MARCADO, OMITIDO }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PedidoRepository pedidoRepository;
+    private final PagoRepository pagoRepository;
+    private final IncidenciaConciliacionRepository incidenciaRepository;
+    private final PagoSimuladoService pasarela;
+    private final PagoService pagoService;
+    private final ProductoClientService productoClientService;
+    private final OutboxPedidos outboxPedidos;
+    private final VentasDiariasService ventasDiariasService;
+    private final MeterRegistry registry;
+    private final boolean habilitada;
+    private final Duration esperaProcesando;
+    private final Duration plazoReintento;
+    private final int tamanoLote;
+    private final int paralelismo;
+
+    private final AtomicBoolean enCurso = new AtomicBoolean(false);
+    private volatile Resumen ultimoResumen;
+
+    public ConciliacionPagos(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             PedidoRepository pedidoRepository,
+                             PagoRepository pagoRepository,
+                             IncidenciaConciliacionRepository incidenciaRepository,
+                             PagoSimuladoService pasarela,
+                             PagoService pagoService,
+                             ProductoClientService productoClientService,
+                             OutboxPedidos outboxPedidos,
+                             VentasDiariasService ventasDiariasService,
+                             MeterRegistry registry,
+                             @Value("${pagos.conciliacion.habilitada:true}") boolean habilitada,
+                             @Value("${pagos.conciliacion.espera-procesando:PT15M}") Duration esperaProcesando,
+                             @Value("${pagos.conciliacion.plazo-reintento:P2D}") Duration plazoReintento,
+                             @Value("${pagos.conciliacion.tamano-lote:200}") int tamanoLote,
+                             @Value("${pagos.conciliacion.paralelismo:4}") int paralelismo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pedidoRepository = pedidoRepository;
+        this.pagoRepository = pagoRepository;
+        this.incidenciaRepository = incidenciaRepository;
+        this.pasarela = pasarela;
+        this.pagoService = pagoService;
+        this.productoClientService = productoClientService;
+        this.outboxPedidos = outboxPedidos;
+        this.ventasDiariasService = ventasDiariasService;
+        this.registry = registry;
+        this.habilitada = habilitada;
+        this.esperaProcesando = esperaProcesando;
+        this.plazoReintento = plazoReintento;
+        this.tamanoLote = tamanoLote;
+        this.paralelismo = paralelismo;
+    }
+
+    @Scheduled(fixedDelayString = "${pagos.conciliacion.intervalo-ms:900000}",
+            initialDelayString = "${pagos.conciliacion.retraso-inicial-ms:300000}")
+    public void conciliarProgramado() {
+        if (habilitada && enCurso.compareAndSet(false, true)) {
+            try {
+                conciliar();
+            } finally {
+                enCurso.set(false);
+            }
+        }
+    }
+
+    /**
+     * Lanza una conciliación en segundo plano. El resumen queda en {@link #getUltimoResumen()}.
+     */
+    public void iniciar() {
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una conciliación de pagos en curso");
+        }
+        Thread.ofVirtual().name("conciliacion-pagos").start(() -> {
+            try {
+                conciliar();
+            } catch (RuntimeException e) {
+                log.error("Falló la conciliación de pagos: {}", e.getMessage());
+            } finally {
+                enCurso.set(false);
+            }
+        });
+    }
+
+    public Optional<Resumen> getUltimoResumen() {
+        return Optional.ofNullable(ultimoResumen);
+    }
+
+    /**
+     * Recorre todas las zonas con pagos inconsistentes y devuelve el resumen.
+     */
+    public Resumen conciliar() {
+        LocalDateTime inicio = LocalDateTime.now();
+        long inicioMs = System.currentTimeMillis();
+        Timestamp limiteProcesando = Timestamp.valueOf(inicio.minus(esperaProcesando));
+        Timestamp limiteReintento = Timestamp.valueOf(inicio.minus(plazoReintento));
+
+        List<String> zonas = jdbcTemplate.queryForList(
+                "SELECT DISTINCT zona_id FROM pedidos WHERE (" + Caso.PAGO_EN_PROCESO.condicion + ") OR ("
+                        + Caso.APROBADO_SIN_TRANSACCION.condicion + ") OR (" + Caso.RECHAZADO_PENDIENTE.condicion + ")",
+                String.class, limiteProcesando, limiteReintento);
+
+        List<ResumenZona> resumenes = new ArrayList<>();
+        List<Incidencia> incidencias = Collections.synchronizedList(new ArrayList<>());
+        try (ExecutorService executor = Executors.newFixedThreadPool(paralelismo,
+                Thread.ofPlatform().name("conciliacion-pagos-", 0).factory())) {
+            List<Future<ResumenZona>> tareas = new ArrayList<>();
+            for (String zonaId : zonas) {
+                tareas.add(executor.submit(() ->
+                        conciliarZona(zonaId, limiteProcesando, limiteReintento, incidencias)));
+            }
+            for (Future<ResumenZona> tarea : tareas) {
+                resumenes.add(tarea.get());
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Conciliación interrumpida");
+        }
+
+        // Lo que esta pasada completa no volvió a encontrar ya no está pendiente
+        transactionTemplate.executeWithoutResult(status -> incidenciaRepository.eliminarNoRevisadas(inicio));
+
+        long duracionMs = System.currentTimeMillis() - inicioMs;
+        Resumen resumen = new Resumen(inicio, duracionMs,
+                resumenes.stream().mapToInt(ResumenZona::revisados).sum(),
+                resumenes.stream().mapToInt(ResumenZona::reparados).sum(),
+                resumenes.stream().mapToInt(ResumenZona::marcados).sum(),
+                resumenes.stream().mapToInt(ResumenZona::yaMarcados).sum(),
+                resumenes.stream().mapToInt(ResumenZona::omitidos).sum(),
+                resumenes, List.copyOf(incidencias));
+        registry.timer("pedidos.pagos.conciliacion.duracion").record(duracionMs, TimeUnit.MILLISECONDS);
+        log.info("Conciliación de pagos: {} zonas, {} pedidos revisados, {} reparados, {} marcados, {} ya marcados, "
+                        + "{} omitidos ({} ms)", zonas.size(), resumen.revisados(), resumen.reparados(), resumen.marcados(),
+                resumen.yaMarcados(), resumen.omitidos(), duracionMs);
+        ultimoResumen = resumen;
+        return resumen;
+    }
+
+    private ResumenZona conciliarZona(String zonaId, Timestamp limiteProcesando, Timestamp limiteReintento,
+                                      List<Incidencia> incidencias) {
+        long inicioMs = System.currentTimeMillis();
+        Zona zona = new Zona(zonaId, incidencias);
+        int[] conteo = new int[Resultado.values().length];
+
+        for (Caso caso : Caso.values()) {
+            String sql = "SELECT id FROM pedidos WHERE " + (zonaId == null ? "zona_id IS NULL" : "zona_id = ?")
+                    + " AND " + caso.condicion + " AND id > ? ORDER BY id LIMIT ?";
+            long ultimoId = 0;
+            while (true) {
+                List<Object> args = new ArrayList<>();
+                if (zonaId != null) {
+                    args.add(zonaId);
+                }
+                if (caso == Caso.PAGO_EN_PROCESO) {
+                    args.add(limiteProcesando);
+                } else if (caso == Caso.RECHAZADO_PENDIENTE) {
+                    args.add(limiteReintento);
+                }
+                args.add(ultimoId);
+                args.add(tamanoLote);
+
+                List<Long> ids = jdbcTemplate.queryForList(sql, Long.class, args.toArray());
+                for (Long pedidoId : ids) {
+                    Resultado resultado = conciliarPedido(caso, pedidoId, zona);
+                    conteo[resultado.ordinal()]++;
+                    registry.counter("pedidos.pagos.conciliacion.pedidos",
+                            "caso", caso.name(), "resultado", resultado.name()).increment();
+                }
+                if (ids.size() < tamanoLote) {
+                    break;
+                }
+                ultimoId = ids.get(ids.size() - 1);
+            }
+        }
+
+        int reparados = conteo[Resultado.REPARADO.ordinal()];
+        int marcados = conteo[Resultado.MARCADO.ordinal()];
+        int yaMarcados = conteo[Resultado.YA_MARCADO.ordinal()];
+        int omitidos = conteo[Resultado.OMITIDO.ordinal()];
+        return new ResumenZona(zonaId, reparados + marcados + yaMarcados + omitidos, reparados, marcados, yaMarcados,
+                omitidos, System.currentTimeMillis() - inicioMs);
+    }
+
+    private Resultado conciliarPedido(Caso caso, Long pedidoId, Zona zona) {
+        try {
+            return switch (caso) {
+                case PAGO_EN_PROCESO -> resolverPagoEnProceso(pedidoId, zona);
+                case APROBADO_SIN_TRANSACCION -> completarTransaccion(pedidoId, zona);
+                case RECHAZADO_PENDIENTE -> cancelarRechazado(pedidoId, zona);
+            };
+        } catch (OptimisticLockingFailureException e) {
+            log.debug("Conciliación: pedido {} modificado durante la reparación, se omite", pedidoId);
+            return Resultado.OMITIDO;
+        }
+    }
+
+    private Resultado resolverPagoEnProceso(Long pedidoId, Zona zona) {
+        Optional<Pago> pago = pagoRepository.findByPedidoIdOrderByFechaCreacionDesc(pedidoId).stream()
+                .filter(p -> p.getEstado() == EstadoPago.PROCESANDO)
+                .findFirst();
+        if (pago.isEmpty()) {
+            return marcar(zona, pedidoId, Caso.PAGO_EN_PROCESO, "Pedido en PROCESANDO sin un pago en curso");
+        }
+
+        // Una transacción anterior al pago en curso pertenece a otro intento
+        Optional<PagoSimuladoService.TransaccionPasarela> transaccion = pasarela.consultarTransaccion(pedidoId)
+                .filter(t -> !t.fecha().isBefore(pago.get().getFechaCreacion()));
+        if (transaccion.isPresent() && transaccion.get().aprobado()
+                && transaccion.get().monto().compareTo(pago.get().getMonto()) != 0) {
+            return marcar(zona, pedidoId, Caso.PAGO_EN_PROCESO, "La pasarela aprobó "
+                    + transaccion.get().monto() + " pero el pago es por " + pago.get().getMonto());
+        }
+
+        if (!pagoService.resolverPagoPendiente(pago.get().getId(), transaccion.orElse(null))) {
+            // Sin respuesta de productos-service el pago sigue en PROCESANDO: se retoma en la próxima pasada
+            return Resultado.OMITIDO;
+        }
+        return Resultado.REPARADO;
+    }
+
+    private Resultado completarTransaccion(Long pedidoId, Zona zona) {
+        Optional<PagoSimuladoService.TransaccionPasarela> transaccion = pasarela.consultarTransaccion(pedidoId)
+                .filter(PagoSimuladoService.TransaccionPasarela::aprobado);
+        if (transaccion.isEmpty()) {
+            return marcar(zona, pedidoId, Caso.APROBADO_SIN_TRANSACCION,
+                    "Pedido APROBADO sin transacción aprobada en la pasarela");
+        }
+
+        return transactionTemplate.execute(status -> {
+            Pedido pedido = pedidoRepository.findById(pedidoId).orElse(null);
+            if (pedido == null || pedido.getEstadoPago() != EstadoPago.APROBADO || pedido.getTransaccionPagoId() != null) {
+                return Resultado.OMITIDO;
+            }
+            pedido.setTransaccionPagoId(transaccion.get().transaccionId());
+            pedidoRepository.save(pedido);
+            return Resultado.REPARADO;
+        });
+    }
+
+    private Resultado cancelarRechazado(Long pedidoId, Zona zona) {
+        if (pasarela.consultarTransaccion(pedidoId).filter(PagoSimuladoService.TransaccionPasarela::aprobado).isPresent()) {
+            return marcar(zona, pedidoId, Caso.RECHAZADO_PENDIENTE,
+                    "Pedido RECHAZADO con una transacción aprobada en la pasarela");
+        }
+
+        Pedido cancelado = transactionTemplate.execute(status -> {
+            Pedido pedido = pedidoRepository.findById(pedidoId).orElse(null);
+            if (pedido == null || pedido.getEstado() != EstadoPedido.PENDIENTE
+                    || pedido.getEstadoPago() != EstadoPago.RECHAZADO) {
+                return null;
+            }
+            EstadoPedido anterior = pedido.getEstado();
+            pedido.setEstado(EstadoPedido.CANCELADO);
+            pedidoRepository.save(pedido);
+            outboxPedidos.estadoCambiado(pedido, anterior);
+            ventasDiariasService.registrarCambioEstado(pedido, anterior);
+            return pedido;
+        });
+        if (cancelado == null) {
+            return Resultado.OMITIDO;
+        }
+
+        log.info("Conciliación: pedido {} cancelado, el pago seguía rechazado tras {}",
+                cancelado.getNumeroPedido(), plazoReintento);
+        if (cancelado.getReservaStockId() != null) {
+            try {
+                productoClientService.liberarReserva(cancelado.getReservaStockId());
+            } catch (Exception e) {
+                // La reserva expira sola si no se puede liberar ahora
+                log.warn("No se pudo liberar la reserva {}: {}", cancelado.getReservaStockId(), e.getMessage());
+            }
+        }
+        return Resultado.REPARADO;
+    }
+
+    /**
+     * Registra un pedido que requiere revisión manual. Si ya se marcó por el
+     * mismo motivo y el pedido no ha cambiado desde entonces, solo se anota
+     * que sigue pendiente, sin volver a reportarlo.
+     */
+    private Resultado marcar(Zona zona, Long pedidoId, Caso caso, String motivo) {
+        LocalDateTime ahora = LocalDateTime.now();
+        Long version = jdbcTemplate.query("SELECT version FROM pedidos WHERE id = ?",
+                rs -> rs.next() ? rs.getObject(1, Long.class) : null, pedidoId);
+
+        Optional<IncidenciaConciliacion> anterior = incidenciaRepository.findById(pedidoId);
+        if (anterior.isPresent() && anterior.get().getCaso().equals(caso.name())
+                && anterior.get().getMotivo().equals(motivo)
+                && Objects.equals(anterior.get().getVersionPedido(), version)) {
+            transactionTemplate.executeWithoutResult(status -> incidenciaRepository.marcarRevisada(pedidoId, ahora));
+            log.debug("Conciliación: pedido {} ({}) sigue pendiente de revisión", pedidoId, caso);
+            return Resultado.YA_MARCADO;
+        }
+
+        incidenciaRepository.save(IncidenciaConciliacion.builder()
+                .pedidoId(pedidoId)
+                .caso(caso.name())
+                .motivo(motivo)
+                .versionPedido(version)
+                .fechaDeteccion(ahora)
+                .fechaRevision(ahora)
+                .build());
+        log.warn("Conciliación: pedido {} ({}) - {}", pedidoId, caso, motivo);
+        if (zona.incidencias().size() < MAX_INCIDENCIAS) {
+            zona.incidencias().add(new Incidencia(pedidoId, zona.zonaId(), caso, motivo));
+        }
+        return Resultado.MARCADO;
+    }
+
+    /** Zona en curso y destino de las incidencias nuevas que requieren revisión manual. */
+    private record Zona(String zonaId, List<Incidencia> incidencias) {
+    }
+
+    public record Resumen(LocalDateTime inicio, long duracionMs, int revisados, int reparados, int marcados,
+                          int yaMarcados, int omitidos, List<ResumenZona> zonas, List<Incidencia> incidencias) {
+    }
+
+    public record ResumenZona(String zonaId, int revisados, int reparados, int marcados, int yaMarcados,
+                              int omitidos, long duracionMs) {
+    }
+
+    public record Incidencia(Long pedidoId, String zonaId, Caso caso, String motivo) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.agromercado.pedidos.application.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición opaca dentro de un listado de líneas ordenado por (pedido_id DESC, id DESC).
+ */
+record CursorLinea(Long pedidoId, Long lineaId) {
+
+    String codificar() {
+        String valor = pedidoId + "|" + lineaId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CursorLinea decodificar(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.indexOf('|');
+            return new CursorLinea(Long.parseLong(valor.substring(0, separador)),
+                    Long.parseLong(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor de paginación inválido");
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exportación de los pedidos de una zona, una fila por línea de pedido.
+ *
+ * Las filas se leen con un cursor JDBC de solo avance (fetch size acotado) y
+ * se escriben en la respuesta a medida que llegan, así que la memoria usada no
+ * depende de cuántos pedidos tenga la zona.
+ */
+@Service
+@Slf4j
+public class ExportacionPedidosService {
+
+    public enum Formato { CSV, NDJSON }
+
+    private static final String CONSULTA_BASE = """
+            SELECT p.id AS pedido_id, p.numero_pedido, p.cliente_id, p.estado, p.estado_pago,
+                   p.metodo_pago, p.fecha_creacion, p.fecha_pago, p.subtotal, p.impuestos, p.total,
+                   d.id AS detalle_id, d.producto_id, d.producto_nombre, d.productor_id,
+                   d.cantidad, d.precio_unitario, d.subtotal AS detalle_subtotal, d.unidad_medida
+            FROM pedidos p
+            LEFT JOIN detalles_pedido d ON d.pedido_id = p.id AND d.particion = p.particion
+            WHERE p.zona_id = ? AND p.estado <> 'CARRITO' AND p.particion > ?
+            """;
+
+    /** Encabezado del CSV: las columnas de CONSULTA_BASE, en el mismo orden. */
+    private static final List<String> COLUMNAS = List.of(
+            "pedido_id", "numero_pedido", "cliente_id", "estado", "estado_pago",
+            "metodo_pago", "fecha_creacion", "fecha_pago", "subtotal", "impuestos", "total",
+            "detalle_id", "producto_id", "producto_nombre", "productor_id",
+            "cantidad", "precio_unitario", "detalle_subtotal", "unidad_medida");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public ExportacionPedidosService(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     ObjectMapper objectMapper,
+                                     @Value("${pedidos.exportacion.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // PostgreSQL solo usa un cursor (en lugar de cargar todo el resultado) dentro de una transacción
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    public static Formato formato(String valor) {
+        try {
+            return Formato.valueOf(valor.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Formato de exportación no soportado: " + valor);
+        }
+    }
+
+    /**
+     * Escribe en {@code salida} los pedidos de la zona creados entre {@code desde} y
+     * {@code hasta} (ambos inclusive y opcionales), ordenados por fecha de creación.
+     */
+    public void exportarZona(String zonaId, Formato formato, LocalDate desde, LocalDate hasta, OutputStream salida) {
+        StringBuilder sql = new StringBuilder(CONSULTA_BASE);
+        List<Object> parametros = new ArrayList<>();
+        parametros.add(zonaId);
+        parametros.add(Date.valueOf(Pedido.PARTICION_CARRITOS));
+        // Las condiciones sobre particion limitan la lectura a los meses del rango
+        if (desde != null) {
+            sql.append(" AND p.fecha_creacion >= ? AND p.particion >= ?");
+            parametros.add(Timestamp.valueOf(desde.atStartOfDay()));
+            parametros.add(Date.valueOf(desde.withDayOfMonth(1)));
+        }
+        if (hasta != null) {
+            sql.append(" AND p.fecha_creacion < ? AND p.particion <= ?");
+            parametros.add(Timestamp.valueOf(hasta.plusDays(1).atStartOfDay()));
+            parametros.add(Date.valueOf(hasta.withDayOfMonth(1)));
+        }
+        sql.append(" ORDER BY p.fecha_creacion, p.id, d.id");
+
+        try {
+            EscritorFilas escritor = formato == Formato.CSV ? new EscritorCsv(salida) : new EscritorNdjson(salida);
+            // Antes de la consulta: una zona sin pedidos exporta igualmente el encabezado
+            escritor.iniciar();
+            long filas = transactionTemplate.execute(status -> {
+                ContadorFilas contador = new ContadorFilas(escritor);
+                jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(sql.toString(),
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(fetchSize);
+                    for (int i = 0; i < parametros.size(); i++) {
+                        ps.setObject(i + 1, parametros.get(i));
+                    }
+                    return ps;
+                }, contador);
+                return contador.filas;
+            });
+            escritor.cerrar();
+            log.info("Exportación de zona {} en {}: {} filas", zonaId, formato, filas);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class ContadorFilas implements RowCallbackHandler {
+        private final EscritorFilas escritor;
+        private long filas;
+
+        ContadorFilas(EscritorFilas escritor) {
+            this.escritor = escritor;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                escritor.escribir(rs);
+                filas++;
+            } catch (IOException e) {
+                // El cliente cortó la descarga: abortar la consulta
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private interface EscritorFilas {
+        default void iniciar() throws IOException {
+        }
+
+        void escribir(ResultSet rs) throws SQLException, IOException;
+
+        void cerrar() throws IOException;
+    }
+
+    private static final class EscritorCsv implements EscritorFilas {
+        private final Writer writer;
+
+        EscritorCsv(OutputStream salida) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void iniciar() throws IOException {
+            writer.write(String.join(",", COLUMNAS));
+            writer.write('\n');
+        }
+
+        @Override
+        public void escribir(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= COLUMNAS.size(); i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object valor = rs.getObject(i);
+                if (valor != null) {
+                    writer.write(escapar(valor.toString()));
+                }
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void cerrar() throws IOException {
+            writer.flush();
+        }
+
+        private static String escapar(String valor) {
+            if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+                return valor;
+            }
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private final class EscritorNdjson implements EscritorFilas {
+        private final JsonGenerator generator;
+
+        EscritorNdjson(OutputStream salida) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(salida, JsonEncoding.UTF8);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void escribir(ResultSet rs) throws SQLException, IOException {
+            ResultSetMetaData meta = rs.getMetaData();
+            generator.writeStartObject();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                generator.writeFieldName(meta.getColumnLabel(i).toLowerCase());
+                Object valor = rs.getObject(i);
+                if (valor instanceof Timestamp timestamp) {
+                    generator.writeString(timestamp.toLocalDateTime().toString());
+                } else {
+                    generator.writeObject(valor);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void cerrar() throws IOException {
+            generator.flush();
+        }
+    }
+}
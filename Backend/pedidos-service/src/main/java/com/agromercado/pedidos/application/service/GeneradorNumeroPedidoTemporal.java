@@ -0,0 +1,81 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.domain.model.GeneradorNumeroPedido;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Números de pedido ordenados por tiempo (estilo Snowflake).
+ *
+ * Cada ID de 63 bits se compone de 41 bits de milisegundos desde 2024-01-01,
+ * 10 bits de worker (instancia) y 12 bits de secuencia. El par
+ * (milisegundo, secuencia) vive en un único AtomicLong que se avanza con CAS,
+ * así que generar un número no toma locks. Si la secuencia se agota dentro de
+ * un milisegundo se toma prestado el siguiente, y si el reloj retrocede se
+ * sigue desde el último valor emitido: los números nunca retroceden.
+ *
+ * El texto es "PED-" más 13 caracteres en base32 de Crockford de ancho fijo,
+ * de modo que el orden alfabético coincide con el de creación.
+ *
+ * El worker id se consulta en cada número: si quien lo provee lanza excepción
+ * (arriendo perdido) no se genera ninguno.
+ */
+public class GeneradorNumeroPedidoTemporal implements GeneradorNumeroPedido {
+
+    public static final int BITS_WORKER = 10;
+    public static final int MAX_WORKER_ID = (1 << BITS_WORKER) - 1;
+
+    static final long EPOCA_MS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int BITS_SECUENCIA = 12;
+    private static final long MASCARA_SECUENCIA = (1L << BITS_SECUENCIA) - 1;
+
+    private static final String PREFIJO = "PED-";
+    private static final char[] ALFABETO = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LARGO_CODIGO = 13;
+
+    private final IntSupplier workerId;
+
+    /** Milisegundo (desde EPOCA_MS) y secuencia del último ID emitido: ms << 12 | secuencia */
+    private final AtomicLong ultimo = new AtomicLong();
+
+    public GeneradorNumeroPedidoTemporal(int workerId) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("El worker id debe estar entre 0 y " + MAX_WORKER_ID + ": " + workerId);
+        }
+        this.workerId = () -> workerId;
+    }
+
+    public GeneradorNumeroPedidoTemporal(IntSupplier workerId) {
+        this.workerId = workerId;
+    }
+
+    @Override
+    public String generar() {
+        return codificar(siguienteId());
+    }
+
+    /**
+     * Siguiente ID numérico, estrictamente mayor que los anteriores de esta instancia.
+     */
+    public long siguienteId() {
+        long workerBits = (long) workerId.getAsInt() << BITS_SECUENCIA;
+        long ahora = System.currentTimeMillis() - EPOCA_MS;
+        long estado = ultimo.updateAndGet(anterior ->
+                ahora > (anterior >>> BITS_SECUENCIA) ? ahora << BITS_SECUENCIA : anterior + 1);
+
+        long milisegundo = estado >>> BITS_SECUENCIA;
+        return (milisegundo << (BITS_WORKER + BITS_SECUENCIA)) | workerBits | (estado & MASCARA_SECUENCIA);
+    }
+
+    static String codificar(long id) {
+        char[] texto = new char[PREFIJO.length() + LARGO_CODIGO];
+        PREFIJO.getChars(0, PREFIJO.length(), texto, 0);
+        for (int i = texto.length - 1; i >= PREFIJO.length(); i--) {
+            texto[i] = ALFABETO[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(texto);
+    }
+}
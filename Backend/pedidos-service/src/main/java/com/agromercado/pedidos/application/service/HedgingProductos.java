@@ -0,0 +1,190 @@
+package com.agromercado.pedidos.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hedging de consultas idempotentes a productos-service.
+ *
+ * Si la llamada no responde dentro del p95 observado se lanza una segunda
+ * idéntica y se usa la primera que responda bien. El p95 se calcula con la
+ * latencia de la llamada primaria por sí sola (aunque responda después de
+ * la copia), no con la latencia ya recortada por el hedging: si no, cada
+ * copia ganada bajaría el umbral y el hedging se realimentaría. El RestTemplate balanceado
+ * reparte por turnos, así que la segunda llamada va a otra instancia cuando
+ * hay más de una registrada. Las copias están limitadas por un presupuesto:
+ * cada consulta suma {@code presupuesto} fichas (hasta {@code rafaga}) y cada
+ * copia gasta una, de modo que a lo sumo esa fracción de consultas se duplica.
+ */
+@Component
+public class HedgingProductos {
+
+    private static final int MINIMO_MUESTRAS = 20;
+
+    private final boolean habilitado;
+    private final long esperaInicialMs;
+    private final long esperaMinimaMs;
+    private final double presupuesto;
+    private final double rafaga;
+
+    private final Timer latencia;
+    private final Timer latenciaPrimaria;
+    private final Counter enviados;
+    private final Counter ganados;
+    private final Counter sinPresupuesto;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("productos-hedging-", 0).factory());
+
+    private double fichas;
+
+    public HedgingProductos(MeterRegistry registry,
+                            @Value("${productos.client.hedging.habilitado:false}") boolean habilitado,
+                            @Value("${productos.client.hedging.espera-inicial:PT0.05S}") Duration esperaInicial,
+                            @Value("${productos.client.hedging.espera-minima:PT0.005S}") Duration esperaMinima,
+                            @Value("${productos.client.hedging.presupuesto:0.05}") double presupuesto,
+                            @Value("${productos.client.hedging.rafaga:10}") int rafaga) {
+        this.habilitado = habilitado;
+        this.esperaInicialMs = esperaInicial.toMillis();
+        this.esperaMinimaMs = esperaMinima.toMillis();
+        this.presupuesto = presupuesto;
+        this.rafaga = rafaga;
+        this.fichas = rafaga;
+
+        this.latencia = Timer.builder("pedidos.productos.hedging.latencia")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        this.latenciaPrimaria = Timer.builder("pedidos.productos.hedging.latencia-primaria")
+                .publishPercentiles(0.95)
+                .register(registry);
+        this.enviados = Counter.builder("pedidos.productos.hedging.enviados").register(registry);
+        this.ganados = Counter.builder("pedidos.productos.hedging.ganados").register(registry);
+        this.sinPresupuesto = Counter.builder("pedidos.productos.hedging.sin-presupuesto").register(registry);
+    }
+
+    /**
+     * Ejecuta la consulta, duplicándola si tarda más que el p95. Solo debe
+     * usarse con llamadas idempotentes.
+     */
+    public <T> T ejecutar(Supplier<T> consulta) {
+        if (!habilitado) {
+            return consulta.get();
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            return ejecutarConCopia(consulta);
+        } finally {
+            latencia.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private <T> T ejecutarConCopia(Supplier<T> consulta) {
+        CompletableFuture<Respuesta<T>> resultado = new CompletableFuture<>();
+        AtomicInteger enCurso = new AtomicInteger(1);
+        recargarFichas();
+        lanzar(consulta, resultado, enCurso, false);
+
+        try {
+            return esperar(resultado, esperaHedgeMs()).valor();
+        } catch (TimeoutException e) {
+            if (consumirFicha()) {
+                enCurso.incrementAndGet();
+                enviados.increment();
+                lanzar(consulta, resultado, enCurso, true);
+            } else {
+                sinPresupuesto.increment();
+            }
+        }
+
+        try {
+            Respuesta<T> respuesta = esperar(resultado, Long.MAX_VALUE);
+            if (respuesta.copia()) {
+                ganados.increment();
+            }
+            return respuesta.valor();
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Consulta a productos-service sin respuesta");
+        }
+    }
+
+    private <T> void lanzar(Supplier<T> consulta, CompletableFuture<Respuesta<T>> resultado,
+                            AtomicInteger enCurso, boolean copia) {
+        executor.execute(() -> {
+            long inicio = System.nanoTime();
+            try {
+                T valor = consulta.get();
+                if (!copia) {
+                    latenciaPrimaria.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+                }
+                resultado.complete(new Respuesta<>(valor, copia));
+            } catch (RuntimeException e) {
+                // Solo se falla si también falló (o no se lanzó) la otra llamada
+                if (enCurso.decrementAndGet() == 0) {
+                    resultado.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    private static <T> T esperar(CompletableFuture<T> resultado, long esperaMs) throws TimeoutException {
+        try {
+            return resultado.get(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Consulta a productos-service interrumpida");
+        }
+    }
+
+    /**
+     * Espera antes de lanzar la copia: el p95 de las llamadas primarias
+     * recientes o, mientras no hay suficientes muestras, {@code espera-inicial}.
+     */
+    long esperaHedgeMs() {
+        if (latenciaPrimaria.count() < MINIMO_MUESTRAS) {
+            return esperaInicialMs;
+        }
+        for (ValueAtPercentile valor : latenciaPrimaria.takeSnapshot().percentileValues()) {
+            if (valor.percentile() == 0.95) {
+                return Math.max(esperaMinimaMs, (long) valor.value(TimeUnit.MILLISECONDS));
+            }
+        }
+        return esperaInicialMs;
+    }
+
+    private synchronized void recargarFichas() {
+        fichas = Math.min(rafaga, fichas + presupuesto);
+    }
+
+    private synchronized boolean consumirFicha() {
+        if (fichas < 1) {
+            return false;
+        }
+        fichas--;
+        return true;
+    }
+
+    @PreDestroy
+    void cerrar() {
+        executor.shutdownNow();
+    }
+
+    private record Respuesta<T>(T valor, boolean copia) {
+    }
+}
@@ -0,0 +1,296 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.domain.model.ClaveIdempotencia;
+import com.agromercado.pedidos.domain.repository.ClaveIdempotenciaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicación de peticiones con Idempotency-Key.
+ *
+ * La primera petición con una clave registra una fila EN_CURSO en
+ * claves_idempotencia, ejecuta la operación y guarda la respuesta. Los
+ * reintentos reciben esa respuesta sin volver a ejecutar la operación:
+ * - En la misma instancia se atienden desde memoria; si la primera sigue en
+ *   curso, esperan su resultado en lugar de ejecutarse en paralelo.
+ * - Desde otra instancia se lee la fila (esperando mientras siga EN_CURSO).
+ * Si la operación falla la clave se libera y el cliente puede reintentar.
+ * La fila EN_CURSO es un arriendo corto que la instancia renueva mientras la
+ * operación sigue ejecutándose; si la instancia cae, el arriendo caduca y otra
+ * petición puede retomar la clave.
+ * Reutilizar una clave con otro cuerpo de petición es un error.
+ */
+@Service
+@Slf4j
+public class IdempotenciaService {
+
+    public static final String HEADER_CLAVE = "Idempotency-Key";
+
+    private static final int LARGO_MAXIMO_CLAVE = 100;
+    private static final long INTERVALO_CONSULTA_MS = 50;
+
+    private final ClaveIdempotenciaRepository repository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate nuevaTransaccion;
+    private final Duration ttl;
+    private final Duration ttlMemoria;
+    private final Duration esperaMaxima;
+    private final Duration arriendo;
+    private final int maxEnMemoria;
+
+    private final ConcurrentHashMap<String, Entrada> enMemoria = new ConcurrentHashMap<>();
+    private final Set<String> enCurso = ConcurrentHashMap.newKeySet();
+
+    public IdempotenciaService(ClaveIdempotenciaRepository repository,
+                               ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${pedidos.idempotencia.ttl:PT24H}") Duration ttl,
+                               @Value("${pedidos.idempotencia.ttl-memoria:PT10M}") Duration ttlMemoria,
+                               @Value("${pedidos.idempotencia.espera-maxima:PT30S}") Duration esperaMaxima,
+                               @Value("${pedidos.idempotencia.arriendo:PT30S}") Duration arriendo,
+                               @Value("${pedidos.idempotencia.max-en-memoria:10000}") int maxEnMemoria) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttl = ttl;
+        this.ttlMemoria = ttlMemoria;
+        this.esperaMaxima = esperaMaxima;
+        this.arriendo = arriendo;
+        this.maxEnMemoria = maxEnMemoria;
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por (operación, cliente, clave).
+     * Sin clave la operación se ejecuta siempre.
+     *
+     * @param peticion cuerpo de la petición; se compara con el de la primera ejecución
+     * @param tipo     tipo de la respuesta, para reconstruirla desde el JSON guardado
+     */
+    public <T> T ejecutar(String operacion, String clienteId, String clave, Object peticion,
+                          Class<T> tipo, Supplier<T> accion) {
+        if (clave == null || clave.isBlank()) {
+            return accion.get();
+        }
+        if (clave.length() > LARGO_MAXIMO_CLAVE) {
+            throw new IllegalArgumentException("Idempotency-Key no puede superar " + LARGO_MAXIMO_CLAVE + " caracteres");
+        }
+
+        String id = operacion + ":" + clienteId + ":" + clave;
+        String huella = huella(peticion);
+
+        Entrada propia = new Entrada(huella);
+        Entrada existente;
+        while ((existente = enMemoria.putIfAbsent(id, propia)) != null) {
+            if (!existente.caducada()) {
+                validarHuella(existente.huella, huella);
+                log.debug("Petición repetida con Idempotency-Key {} atendida desde memoria", clave);
+                return leer(esperar(existente.respuesta), tipo);
+            }
+            enMemoria.remove(id, existente);
+        }
+
+        boolean registrada = false;
+        try {
+            Optional<String> guardada = registrar(id, huella);
+            if (guardada.isPresent()) {
+                log.debug("Petición repetida con Idempotency-Key {} atendida desde la BD", clave);
+                propia.completar(guardada.get(), ttlMemoria);
+                return leer(guardada.get(), tipo);
+            }
+            registrada = true;
+            enCurso.add(id);
+
+            T resultado = accion.get();
+            String json = escribir(resultado);
+            nuevaTransaccion.executeWithoutResult(status ->
+                    repository.actualizar(id, ClaveIdempotencia.Estado.COMPLETADA, json, LocalDateTime.now().plus(ttl)));
+            enCurso.remove(id);
+            propia.completar(json, ttlMemoria);
+            if (enMemoria.size() > maxEnMemoria) {
+                enMemoria.remove(id, propia);
+            }
+            return resultado;
+        } catch (RuntimeException e) {
+            enCurso.remove(id);
+            enMemoria.remove(id, propia);
+            if (registrada) {
+                liberar(id);
+            }
+            propia.respuesta.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Registra la clave como EN_CURSO. Si ya existe, devuelve la respuesta
+     * guardada, esperando mientras otra instancia la esté ejecutando.
+     */
+    private Optional<String> registrar(String id, String huella) {
+        long limite = System.nanoTime() + esperaMaxima.toNanos();
+        while (true) {
+            LocalDateTime ahora = LocalDateTime.now();
+            Optional<ClaveIdempotencia> fila = nuevaTransaccion.execute(status -> repository.findById(id));
+
+            if (fila.isEmpty()) {
+                try {
+                    nuevaTransaccion.executeWithoutResult(status ->
+                            repository.registrarEnCurso(id, huella, ahora, ahora.plus(arriendo)));
+                    return Optional.empty();
+                } catch (DataIntegrityViolationException e) {
+                    continue;  // Otra instancia la registró primero
+                }
+            }
+
+            ClaveIdempotencia existente = fila.get();
+            if (existente.getExpiraEn().isBefore(ahora)) {
+                // Respuesta caducada o ejecución abandonada (instancia caída)
+                nuevaTransaccion.executeWithoutResult(status -> repository.eliminarSiExpirada(id, ahora));
+                continue;
+            }
+            validarHuella(existente.getHuella(), huella);
+            if (existente.getEstado() == ClaveIdempotencia.Estado.COMPLETADA) {
+                return Optional.of(existente.getRespuesta());
+            }
+            if (System.nanoTime() > limite) {
+                throw new IllegalStateException("La petición con esta Idempotency-Key sigue en proceso, intente nuevamente");
+            }
+            dormir();
+        }
+    }
+
+    private void liberar(String id) {
+        try {
+            nuevaTransaccion.executeWithoutResult(status -> repository.liberar(id));
+        } catch (RuntimeException e) {
+            log.warn("No se pudo liberar la clave de idempotencia {}; caducará sola: {}", id, e.getMessage());
+        }
+    }
+
+    private String esperar(CompletableFuture<String> respuesta) {
+        try {
+            return respuesta.get(esperaMaxima.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("La petición con esta Idempotency-Key sigue en proceso, intente nuevamente");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Espera interrumpida");
+        }
+    }
+
+    private void dormir() {
+        try {
+            Thread.sleep(INTERVALO_CONSULTA_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Espera interrumpida");
+        }
+    }
+
+    private static void validarHuella(String esperada, String recibida) {
+        if (!esperada.equals(recibida)) {
+            throw new IllegalArgumentException("La Idempotency-Key ya se usó con una petición distinta");
+        }
+    }
+
+    private String huella(Object peticion) {
+        try {
+            byte[] cuerpo = peticion == null ? new byte[0] : objectMapper.writeValueAsBytes(peticion);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(cuerpo));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No se pudo calcular la huella de la petición", e);
+        }
+    }
+
+    private String escribir(Object respuesta) {
+        try {
+            return objectMapper.writeValueAsString(respuesta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la respuesta", e);
+        }
+    }
+
+    private <T> T leer(String json, Class<T> tipo) {
+        try {
+            return objectMapper.readValue(json.getBytes(StandardCharsets.UTF_8), tipo);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo leer la respuesta guardada", e);
+        }
+    }
+
+    /**
+     * Extiende el arriendo de las claves que esta instancia sigue ejecutando,
+     * para que una operación más larga que el arriendo no se dé por abandonada
+     * y otra petición la ejecute de nuevo.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.idempotencia.renovacion-ms:10000}")
+    public void renovarEnCurso() {
+        if (enCurso.isEmpty()) {
+            return;
+        }
+        Set<String> claves = Set.copyOf(enCurso);
+        int renovadas = nuevaTransaccion.execute(status ->
+                repository.renovar(claves, ClaveIdempotencia.Estado.EN_CURSO, LocalDateTime.now().plus(arriendo)));
+        if (renovadas < claves.size()) {
+            log.warn("Solo se renovaron {} de {} claves de idempotencia en curso", renovadas, claves.size());
+        }
+    }
+
+    /**
+     * Borra las claves caducadas de memoria y de la BD.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.idempotencia.limpieza-ms:300000}")
+    public void limpiarExpiradas() {
+        enMemoria.values().removeIf(Entrada::caducada);
+        int eliminadas = nuevaTransaccion.execute(status -> repository.eliminarExpiradas(LocalDateTime.now()));
+        if (eliminadas > 0) {
+            log.info("Eliminadas {} claves de idempotencia caducadas", eliminadas);
+        }
+    }
+
+    private static final class Entrada {
+
+        private final String huella;
+        private final CompletableFuture<String> respuesta = new CompletableFuture<>();
+        private volatile long expiraEnMs = Long.MAX_VALUE;  // En curso: no caduca
+
+        private Entrada(String huella) {
+            this.huella = huella;
+        }
+
+        void completar(String json, Duration ttl) {
+            expiraEnMs = System.currentTimeMillis() + ttl.toMillis();
+            respuesta.complete(json);
+        }
+
+        boolean caducada() {
+            return System.currentTimeMillis() > expiraEnMs;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.domain.model.Pedido;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Borra los carritos sin escrituras durante más de {@code pedidos.carrito.limpieza.inactividad}.
+ *
+ * Los carritos se recorren por (fecha_actualizacion, id) en lotes de
+ * {@code tamano-lote}, cada uno en su propia transacción corta: se bloquean
+ * las filas del lote (saltando las que otra transacción tenga tomadas), se
+ * borran sus líneas y luego las cabeceras. Los carritos que siguen en
+ * {@link CarritoStore} se respetan aunque su fecha sea antigua, porque pueden
+ * tener ediciones aún sin escribir.
+ */
+@Component
+@Slf4j
+public class LimpiezaCarritos {
+
+    private static final String SELECCIONAR_LOTE = """
+            SELECT id, cliente_id, fecha_actualizacion FROM pedidos
+            WHERE particion = ? AND estado = 'CARRITO' AND fecha_actualizacion < ?
+              AND (fecha_actualizacion > ? OR (fecha_actualizacion = ? AND id > ?))
+            ORDER BY fecha_actualizacion, id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final Posicion INICIO = new Posicion(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+    // Todos los carritos viven en esta partición; el resto de meses ni se mira
+    private static final Date CARRITOS = Date.valueOf(Pedido.PARTICION_CARRITOS);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CarritoStore carritoStore;
+    private final boolean habilitada;
+    private final Duration inactividad;
+    private final int tamanoLote;
+
+    private final Counter carritosEliminados;
+    private final Counter lineasEliminadas;
+
+    public LimpiezaCarritos(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            CarritoStore carritoStore,
+                            MeterRegistry registry,
+                            @Value("${pedidos.carrito.limpieza.habilitada:true}") boolean habilitada,
+                            @Value("${pedidos.carrito.limpieza.inactividad:P30D}") Duration inactividad,
+                            @Value("${pedidos.carrito.limpieza.tamano-lote:500}") int tamanoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.carritoStore = carritoStore;
+        this.habilitada = habilitada;
+        this.inactividad = inactividad;
+        this.tamanoLote = tamanoLote;
+
+        this.carritosEliminados = Counter.builder("pedidos.carrito.limpieza.eliminados")
+                .tag("tabla", "pedidos").register(registry);
+        this.lineasEliminadas = Counter.builder("pedidos.carrito.limpieza.eliminados")
+                .tag("tabla", "detalles_pedido").register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${pedidos.carrito.limpieza.intervalo-ms:3600000}",
+            initialDelayString = "${pedidos.carrito.limpieza.retraso-inicial-ms:600000}")
+    public void limpiarProgramado() {
+        if (habilitada) {
+            limpiar(LocalDateTime.now().minus(inactividad));
+        }
+    }
+
+    /**
+     * Borra los carritos cuya última escritura es anterior a {@code limite}.
+     *
+     * @return filas eliminadas (cabeceras de carrito y líneas)
+     */
+    public Resultado limpiar(LocalDateTime limite) {
+        long inicio = System.currentTimeMillis();
+        Posicion posicion = INICIO;
+        int carritos = 0;
+        int lineas = 0;
+        int lotes = 0;
+
+        while (posicion != null) {
+            Posicion desde = posicion;
+            Lote lote = transactionTemplate.execute(status -> borrarLote(limite, desde));
+            lotes++;
+            carritos += lote.carritos();
+            lineas += lote.lineas();
+            posicion = lote.siguiente();
+        }
+
+        carritosEliminados.increment(carritos);
+        lineasEliminadas.increment(lineas);
+        if (carritos > 0) {
+            log.info("Limpieza de carritos: {} carritos y {} líneas eliminados en {} lotes ({} ms)",
+                    carritos, lineas, lotes, System.currentTimeMillis() - inicio);
+        }
+        return new Resultado(carritos, lineas);
+    }
+
+    private Lote borrarLote(LocalDateTime limite, Posicion desde) {
+        Timestamp fechaDesde = Timestamp.valueOf(desde.fecha());
+        List<Candidato> candidatos = jdbcTemplate.query(SELECCIONAR_LOTE,
+                (rs, fila) -> new Candidato(rs.getLong(1), rs.getString(2), rs.getTimestamp(3).toLocalDateTime()),
+                CARRITOS, Timestamp.valueOf(limite), fechaDesde, fechaDesde, desde.id(), tamanoLote);
+        if (candidatos.isEmpty()) {
+            return new Lote(0, 0, null);
+        }
+
+        List<Object> ids = new ArrayList<>();
+        for (Candidato candidato : candidatos) {
+            if (!carritoStore.enMemoria(candidato.clienteId())) {
+                ids.add(candidato.id());
+            }
+        }
+
+        int lineas = 0;
+        int carritos = 0;
+        if (!ids.isEmpty()) {
+            String enLote = String.join(",", Collections.nCopies(ids.size(), "?"));
+            ids.add(0, CARRITOS);
+            lineas = jdbcTemplate.update("DELETE FROM detalles_pedido WHERE particion = ? AND pedido_id IN (" + enLote + ")",
+                    ids.toArray());
+            carritos = jdbcTemplate.update("DELETE FROM pedidos WHERE particion = ? AND id IN (" + enLote + ")", ids.toArray());
+        }
+
+        Candidato ultimo = candidatos.get(candidatos.size() - 1);
+        Posicion siguiente = candidatos.size() < tamanoLote ? null : new Posicion(ultimo.fecha(), ultimo.id());
+        return new Lote(carritos, lineas, siguiente);
+    }
+
+    public record Resultado(int carritos, int lineas) {
+    }
+
+    private record Candidato(long id, String clienteId, LocalDateTime fecha) {
+    }
+
+    private record Lote(int carritos, int lineas, Posicion siguiente) {
+    }
+
+    /** Última fila vista; el siguiente lote empieza después de ella. */
+    private record Posicion(LocalDateTime fecha, long id) {
+    }
+}
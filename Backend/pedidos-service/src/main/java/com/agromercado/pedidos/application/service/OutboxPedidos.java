@@ -0,0 +1,86 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.config.RabbitConfig;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.OutboxEvento;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.OutboxEventoRepository;
+import com.agromercado.pedidos.messaging.contracts.LineaPedidoMsg;
+import com.agromercado.pedidos.messaging.contracts.PedidoConfirmadoMsg;
+import com.agromercado.pedidos.messaging.contracts.PedidoEstadoCambiadoMsg;
+import com.agromercado.pedidos.messaging.contracts.PedidoPagadoMsg;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Registra los eventos de pedido en la tabla outbox. Exige una transacción
+ * activa: el evento se guarda o se descarta junto con el cambio de estado,
+ * y OutboxRelay lo publica después del commit.
+ */
+@Component
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxPedidos {
+
+    private final OutboxEventoRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    public void pedidoConfirmado(Pedido pedido) {
+        String eventId = UUID.randomUUID().toString();
+        Instant ahora = Instant.now();
+        registrar(eventId, ahora, RabbitConfig.RK_PEDIDO_CONFIRMADO, pedido,
+                new PedidoConfirmadoMsg(eventId, ahora, pedido.getId(), pedido.getNumeroPedido(),
+                        pedido.getClienteId(), pedido.getZonaId(), pedido.getTotal(), lineas(pedido)));
+    }
+
+    public void pedidoPagado(Pedido pedido) {
+        String eventId = UUID.randomUUID().toString();
+        Instant ahora = Instant.now();
+        registrar(eventId, ahora, RabbitConfig.RK_PEDIDO_PAGADO, pedido,
+                new PedidoPagadoMsg(eventId, ahora, pedido.getId(), pedido.getNumeroPedido(),
+                        pedido.getClienteId(), pedido.getZonaId(), pedido.getTotal(),
+                        pedido.getTransaccionPagoId(), lineas(pedido)));
+    }
+
+    public void estadoCambiado(Pedido pedido, EstadoPedido anterior) {
+        String eventId = UUID.randomUUID().toString();
+        Instant ahora = Instant.now();
+        registrar(eventId, ahora, RabbitConfig.RK_PEDIDO_ESTADO_CAMBIADO, pedido,
+                new PedidoEstadoCambiadoMsg(eventId, ahora, pedido.getId(), pedido.getNumeroPedido(),
+                        pedido.getClienteId(), pedido.getZonaId(),
+                        anterior != null ? anterior.name() : null, pedido.getEstado().name()));
+    }
+
+    private static List<LineaPedidoMsg> lineas(Pedido pedido) {
+        return pedido.getDetalles().stream()
+                .map(d -> new LineaPedidoMsg(d.getProductoId(), d.getProductorId(), d.getCantidad(),
+                        d.getPrecioUnitario(), d.getSubtotal()))
+                .toList();
+    }
+
+    private void registrar(String eventId, Instant ocurrido, String tipo, Pedido pedido, Object mensaje) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(mensaje);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento " + tipo, e);
+        }
+
+        outboxRepository.save(OutboxEvento.builder()
+                .eventId(eventId)
+                .eventType(tipo)
+                .payload(payload)
+                .aggregateId(String.valueOf(pedido.getId()))
+                .zonaId(pedido.getZonaId())
+                .occurredAt(ocurrido)
+                .build());
+    }
+}
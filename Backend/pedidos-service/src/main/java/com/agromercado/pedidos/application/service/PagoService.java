@@ -0,0 +1,420 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.application.dto.PagoResponse;
+import com.agromercado.pedidos.application.dto.ProcesarPagoRequest;
+import com.agromercado.pedidos.domain.model.DetallePedido;
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.Pago;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.PagoRepository;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Procesamiento asíncrono de pagos.
+ *
+ * El flujo se divide en tres pasos para no retener una conexión de BD mientras
+ * la pasarela responde:
+ * 1. Transacción corta: valida el pedido, lo pasa a PROCESANDO y registra el pago.
+ * 2. Llamada a la pasarela en un hilo virtual, fuera de cualquier transacción.
+ * 3. Transacción corta: aplica el resultado (APROBADO o RECHAZADO).
+ *
+ * Antes de cobrar se renueva la reserva de stock del pedido; si ya expiró se
+ * aparta el stock de nuevo y, si no alcanza, el pago se rechaza sin llegar a la
+ * pasarela. Un pago aprobado solo deja el pedido pagado después de confirmar
+ * la reserva: si para entonces el stock ya no está, el pedido se cancela y el
+ * cobro se encola para reembolso. Si productos-service no responde, el pago
+ * sigue en PROCESANDO y lo resuelve la conciliación.
+ * Si se rechaza, la reserva se mantiene para permitir reintentar el pago y expira sola.
+ * La aprobación registra PedidoPagado.v1 en el outbox dentro de la misma transacción.
+ */
+@Service
+@Slf4j
+public class PagoService {
+
+    private final PedidoRepository pedidoRepository;
+    private final PagoRepository pagoRepository;
+    private final PagoSimuladoService pagoSimuladoService;
+    private final ProductoClientService productoClientService;
+    private final OutboxPedidos outboxPedidos;
+    private final VentasDiariasService ventasDiariasService;
+    private final ProcesadorReembolsos procesadorReembolsos;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor pagosExecutor;
+    private final Semaphore pagosEnCurso;
+
+    public PagoService(PedidoRepository pedidoRepository,
+                       PagoRepository pagoRepository,
+                       PagoSimuladoService pagoSimuladoService,
+                       ProductoClientService productoClientService,
+                       OutboxPedidos outboxPedidos,
+                       VentasDiariasService ventasDiariasService,
+                       ProcesadorReembolsos procesadorReembolsos,
+                       PlatformTransactionManager transactionManager,
+                       @Qualifier("pagosExecutor") Executor pagosExecutor,
+                       @Value("${pagos.async.max-concurrentes:200}") int maxConcurrentes) {
+        this.pedidoRepository = pedidoRepository;
+        this.pagoRepository = pagoRepository;
+        this.pagoSimuladoService = pagoSimuladoService;
+        this.productoClientService = productoClientService;
+        this.outboxPedidos = outboxPedidos;
+        this.ventasDiariasService = ventasDiariasService;
+        this.procesadorReembolsos = procesadorReembolsos;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pagosExecutor = pagosExecutor;
+        this.pagosEnCurso = new Semaphore(maxConcurrentes);
+    }
+
+    /**
+     * Registra el pago en PROCESANDO y delega la llamada a la pasarela.
+     * Devuelve inmediatamente; el resultado se consulta con {@link #consultarPago}.
+     */
+    public PagoResponse iniciarPago(String clienteId, ProcesarPagoRequest request) {
+        if (!pagosEnCurso.tryAcquire()) {
+            throw new IllegalStateException("Hay demasiados pagos en curso, intente nuevamente en unos segundos");
+        }
+
+        Pago pago;
+        Pedido pedido;
+        try {
+            PagoIniciado iniciado = transactionTemplate.execute(status -> registrarPago(clienteId, request));
+            pago = iniciado.pago();
+            pedido = iniciado.pedido();
+        } catch (RuntimeException e) {
+            pagosEnCurso.release();
+            throw e;
+        }
+
+        try {
+            pagosExecutor.execute(() -> {
+                try {
+                    ejecutarPago(pago.getId(), pedido, request);
+                } finally {
+                    pagosEnCurso.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pagosEnCurso.release();
+            rechazarPago(pago.getId(), "Pago no procesado - servicio no disponible");
+            throw new IllegalStateException("No fue posible encolar el pago, intente nuevamente");
+        }
+
+        log.info("Pago {} encolado para pedido {} - ZonaId: {}",
+                pago.getId(), pedido.getNumeroPedido(), pedido.getZonaId());
+        return convertirAPagoResponse(pago, pedido.getNumeroPedido());
+    }
+
+    /**
+     * Resuelve un pago que quedó en PROCESANDO (p. ej. la instancia se reinició
+     * antes de recibir la respuesta) con la transacción consultada a la pasarela.
+     * Sin transacción el pago se rechaza: nunca llegó a la pasarela. Un pago
+     * aprobado pasa por la misma confirmación de stock que el flujo normal: para
+     * entonces la reserva suele haber expirado, así que se aparta el stock de
+     * nuevo o, si ya no alcanza, el pedido se cancela y se reembolsa.
+     *
+     * @return false si el pago sigue en PROCESANDO porque productos-service no respondió
+     */
+    public boolean resolverPagoPendiente(Long pagoId, PagoSimuladoService.TransaccionPasarela transaccion) {
+        PagoResponse resultado = null;
+        String mensaje = "Pago rechazado - no llegó a la pasarela (conciliación)";
+        if (transaccion != null) {
+            resultado = PagoResponse.builder()
+                    .aprobado(transaccion.aprobado())
+                    .transaccionId(transaccion.transaccionId())
+                    .build();
+            mensaje = transaccion.aprobado() ? "Pago aprobado (conciliación)" : "Pago rechazado (conciliación)";
+        }
+        Long pedidoId = transactionTemplate.execute(status -> pagoRepository.findById(pagoId)
+                .map(Pago::getPedidoId)
+                .orElseThrow(() -> new IllegalStateException("Pago no encontrado: " + pagoId)));
+        return aplicarResultadoConReserva(pagoId, pedidoId, resultado, mensaje);
+    }
+
+    /**
+     * Consulta el estado de un pago del cliente
+     */
+    @Transactional(readOnly = true)
+    public PagoResponse consultarPago(String clienteId, Long pagoId) {
+        Pago pago = pagoRepository.findById(pagoId)
+                .orElseThrow(() -> new IllegalArgumentException("Pago no encontrado"));
+
+        if (!pago.getClienteId().equals(clienteId)) {
+            throw new IllegalArgumentException("No tiene permiso para consultar este pago");
+        }
+
+        String numeroPedido = pedidoRepository.findById(pago.getPedidoId())
+                .map(Pedido::getNumeroPedido)
+                .orElse(null);
+        return convertirAPagoResponse(pago, numeroPedido);
+    }
+
+    private PagoIniciado registrarPago(String clienteId, ProcesarPagoRequest request) {
+        Pedido pedido = pedidoRepository.findById(request.getPedidoId())
+                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado"));
+
+        if (!pedido.getClienteId().equals(clienteId)) {
+            throw new IllegalArgumentException("No tiene permiso para pagar este pedido");
+        }
+
+        if (pedido.getEstado() != EstadoPedido.PENDIENTE) {
+            throw new IllegalArgumentException("El pedido no está en estado pendiente");
+        }
+
+        if (pedido.getEstadoPago() == EstadoPago.PROCESANDO) {
+            throw new IllegalArgumentException("El pedido ya tiene un pago en proceso");
+        }
+
+        pedido.setEstadoPago(EstadoPago.PROCESANDO);
+        pedidoRepository.save(pedido);
+
+        Pago pago = pagoRepository.save(Pago.builder()
+                .pedidoId(pedido.getId())
+                .clienteId(clienteId)
+                .estado(EstadoPago.PROCESANDO)
+                .metodoPago(request.getMetodoPago())
+                .monto(pedido.getTotal())
+                .build());
+
+        return new PagoIniciado(pago, pedido);
+    }
+
+    private void ejecutarPago(Long pagoId, Pedido pedido, ProcesarPagoRequest request) {
+        // La reserva tiene que cubrir la llamada a la pasarela: sin stock no se cobra
+        try {
+            if (!renovarReserva(pedido.getId())) {
+                rechazarPago(pagoId, "Pago rechazado - stock ya no disponible");
+                return;
+            }
+        } catch (Exception e) {
+            log.error("No se pudo verificar la reserva de stock del pago {}: {}", pagoId, e.getMessage());
+            rechazarPago(pagoId, "Pago rechazado - no se pudo verificar el stock");
+            return;
+        }
+
+        PagoResponse resultado;
+        try {
+            resultado = pagoSimuladoService.procesarPago(pedido, request);
+        } catch (Exception e) {
+            log.error("Error al procesar pago {}: {}", pagoId, e.getMessage());
+            rechazarPago(pagoId, "Pago rechazado - error en la pasarela");
+            return;
+        }
+        aplicarResultadoConReserva(pagoId, pedido.getId(), resultado, resultado.getMensaje());
+    }
+
+    /**
+     * Aplica el resultado de la pasarela. Si el pago fue aprobado, antes se
+     * confirma la reserva de stock del pedido (o una nueva si la anterior expiró).
+     *
+     * @return false si el pago sigue en PROCESANDO porque productos-service no respondió
+     */
+    private boolean aplicarResultadoConReserva(Long pagoId, Long pedidoId, PagoResponse resultado, String mensaje) {
+        if (resultado == null || !resultado.isAprobado()) {
+            aplicarResultado(pagoId, resultado, mensaje, false);
+            return true;
+        }
+
+        boolean stockConfirmado;
+        try {
+            stockConfirmado = sigueEnProceso(pagoId) && confirmarReservaOReservarDeNuevo(pedidoId);
+        } catch (RuntimeException e) {
+            log.error("Pago {} aprobado sin poder confirmar la reserva de stock, queda en PROCESANDO para la conciliación: {}",
+                    pagoId, e.getMessage());
+            return false;
+        }
+        aplicarResultado(pagoId, resultado, mensaje, stockConfirmado);
+        return true;
+    }
+
+    /**
+     * Amplía la reserva de stock del pedido o, si ya no está vigente, aparta el stock de nuevo.
+     *
+     * @return false si el stock ya no alcanza
+     */
+    private boolean renovarReserva(Long pedidoId) {
+        String reservaId = reservaDelPedido(pedidoId);
+        if (reservaId != null) {
+            try {
+                productoClientService.renovarReserva(reservaId);
+                return true;
+            } catch (HttpClientErrorException e) {
+                log.warn("La reserva {} del pedido {} ya no está vigente ({})", reservaId, pedidoId, e.getStatusCode());
+            }
+        }
+        return reservarDeNuevo(pedidoId, reservaId) != null;
+    }
+
+    /**
+     * Confirma la reserva de stock del pedido o, si ya no está vigente, una nueva.
+     *
+     * @return false si el stock ya no alcanza
+     */
+    private boolean confirmarReservaOReservarDeNuevo(Long pedidoId) {
+        String reservaId = reservaDelPedido(pedidoId);
+        if (reservaId != null) {
+            try {
+                productoClientService.confirmarReserva(reservaId);
+                return true;
+            } catch (HttpClientErrorException e) {
+                log.warn("La reserva {} del pedido {} ya no está vigente ({})", reservaId, pedidoId, e.getStatusCode());
+            }
+        }
+        String nueva = reservarDeNuevo(pedidoId, reservaId);
+        if (nueva == null) {
+            return false;
+        }
+        productoClientService.confirmarReserva(nueva);
+        return true;
+    }
+
+    /**
+     * Aparta de nuevo el stock de todas las líneas del pedido y reemplaza su reserva.
+     *
+     * @return la nueva reserva, o null si el stock ya no alcanza
+     */
+    private String reservarDeNuevo(Long pedidoId, String anterior) {
+        Reposicion reposicion = transactionTemplate.execute(status -> {
+            Pedido pedido = pedidoRepository.findById(pedidoId)
+                    .orElseThrow(() -> new IllegalStateException("Pedido no encontrado: " + pedidoId));
+            return new Reposicion(pedido.getNumeroPedido(), pedido.getDetalles().stream()
+                    .collect(Collectors.toMap(DetallePedido::getProductoId, DetallePedido::getCantidad, Integer::sum)));
+        });
+
+        String nueva;
+        try {
+            nueva = productoClientService.reservarStock(reposicion.numeroPedido(), reposicion.cantidades());
+        } catch (IllegalArgumentException e) {
+            log.warn("Pedido {}: el stock ya no alcanza para reservarlo de nuevo", reposicion.numeroPedido());
+            return null;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Pedido pedido = pedidoRepository.findById(pedidoId)
+                        .orElseThrow(() -> new IllegalStateException("Pedido no encontrado: " + pedidoId));
+                if (!Objects.equals(pedido.getReservaStockId(), anterior)) {
+                    throw new IllegalStateException("La reserva del pedido " + pedidoId + " cambió mientras se reemplazaba");
+                }
+                pedido.setReservaStockId(nueva);
+                pedidoRepository.save(pedido);
+            });
+        } catch (RuntimeException e) {
+            liberarReserva(nueva);
+            throw e;
+        }
+        log.info("Pedido {}: reserva {} reemplazada por {}", reposicion.numeroPedido(), anterior, nueva);
+        return nueva;
+    }
+
+    private String reservaDelPedido(Long pedidoId) {
+        return transactionTemplate.execute(status -> pedidoRepository.findById(pedidoId)
+                .map(Pedido::getReservaStockId)
+                .orElseThrow(() -> new IllegalStateException("Pedido no encontrado: " + pedidoId)));
+    }
+
+    private boolean sigueEnProceso(Long pagoId) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> pagoRepository.findById(pagoId)
+                .map(pago -> pago.getEstado() == EstadoPago.PROCESANDO)
+                .orElse(false)));
+    }
+
+    private void liberarReserva(String reservaId) {
+        try {
+            productoClientService.liberarReserva(reservaId);
+        } catch (Exception e) {
+            log.warn("No se pudo liberar la reserva {}; se liberará al expirar: {}", reservaId, e.getMessage());
+        }
+    }
+
+    private void rechazarPago(Long pagoId, String mensaje) {
+        aplicarResultado(pagoId, null, mensaje, false);
+    }
+
+    /**
+     * Aplica el resultado de la pasarela. Un pago aprobado sin
+     * {@code stockConfirmado} cancela el pedido y encola su reembolso.
+     */
+    private void aplicarResultado(Long pagoId, PagoResponse resultado, String mensaje, boolean stockConfirmado) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Pago pago = pagoRepository.findById(pagoId)
+                    .orElseThrow(() -> new IllegalStateException("Pago no encontrado: " + pagoId));
+            Pedido pedido = pedidoRepository.findById(pago.getPedidoId())
+                    .orElseThrow(() -> new IllegalStateException("Pedido no encontrado: " + pago.getPedidoId()));
+
+            if (pago.getEstado() != EstadoPago.PROCESANDO) {
+                // Ya lo resolvió la otra vía (respuesta tardía de la pasarela o conciliación)
+                log.warn("Pago {} ya resuelto como {}, se ignora el nuevo resultado", pagoId, pago.getEstado());
+                return;
+            }
+
+            if (resultado != null && resultado.isAprobado()) {
+                pago.aprobar(resultado.getTransaccionId(), mensaje);
+                pedido.marcarComoPagado(resultado.getTransaccionId());
+                pedido.setEstado(EstadoPedido.EN_PREPARACION);
+                outboxPedidos.pedidoPagado(pedido);
+                ventasDiariasService.registrarPago(pedido);
+                if (!stockConfirmado) {
+                    // La pasarela ya cobró pero el stock no está: el pedido no puede despacharse
+                    cancelarSinStock(pago, pedido);
+                    return;
+                }
+                log.info("Pago aprobado para pedido {} - ZonaId: {} - Estado: {}",
+                        pedido.getNumeroPedido(), pedido.getZonaId(), pedido.getEstado());
+            } else {
+                pago.rechazar(resultado != null ? resultado.getTransaccionId() : null, mensaje);
+                pedido.setEstadoPago(EstadoPago.RECHAZADO);
+                log.warn("Pago rechazado para pedido {} - ZonaId: {}",
+                        pedido.getNumeroPedido(), pedido.getZonaId());
+            }
+
+            pagoRepository.save(pago);
+            pedidoRepository.save(pedido);
+        });
+    }
+
+    private void cancelarSinStock(Pago pago, Pedido pedido) {
+        EstadoPedido anterior = pedido.getEstado();
+        pedido.setEstado(EstadoPedido.CANCELADO);
+        pagoRepository.save(pago);
+        pedidoRepository.save(pedido);
+        outboxPedidos.estadoCambiado(pedido, anterior);
+        ventasDiariasService.registrarCambioEstado(pedido, anterior);
+        procesadorReembolsos.encolar(pedido);
+        log.warn("Pedido {} cancelado: pago aprobado sin stock reservado, reembolso encolado", pedido.getNumeroPedido());
+    }
+
+    private PagoResponse convertirAPagoResponse(Pago pago, String numeroPedido) {
+        return PagoResponse.builder()
+                .pagoId(pago.getId())
+                .estado(pago.getEstado())
+                .transaccionId(pago.getTransaccionId())
+                .aprobado(pago.getEstado() == EstadoPago.APROBADO)
+                .mensaje(pago.getMensaje() != null ? pago.getMensaje() : "Pago en proceso")
+                .monto(pago.getMonto())
+                .metodoPago(pago.getMetodoPago().toString())
+                .pedidoId(pago.getPedidoId())
+                .numeroPedido(numeroPedido)
+                .build();
+    }
+
+    private record PagoIniciado(Pago pago, Pedido pedido) {
+    }
+
+    private record Reposicion(String numeroPedido, Map<Long, Integer> cantidades) {
+    }
+}
@@ -7,17 +7,28 @@ import com.agromercado.pedidos.domain.model.Pedido;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Servicio de pago simulado para desarrollo y pruebas
+ * Servicio de pago simulado para desarrollo y pruebas.
+ *
+ * Guarda en memoria la última transacción de cada pedido, como el registro de
+ * transacciones que una pasarela real permite consultar por referencia; la
+ * conciliación de pagos lo usa como fuente de verdad.
  */
 @Service
 @Slf4j
 public class PagoSimuladoService {
 
     private final Random random = new Random();
+    private final ConcurrentHashMap<Long, TransaccionPasarela> transacciones = new ConcurrentHashMap<>();
+    private final Set<String> reembolsosProcesados = ConcurrentHashMap.newKeySet();
 
     /**
      * Procesa un pago de manera simulada
@@ -44,6 +55,7 @@ public class PagoSimuladoService {
 
         log.info("Resultado del pago: {} - Transacción: {}",
                  aprobado ? "APROBADO" : "RECHAZADO", transaccionId);
+        registrar(new TransaccionPasarela(transaccionId, pedido.getId(), aprobado, pedido.getTotal(), LocalDateTime.now()));
 
         return PagoResponse.builder()
                 .transaccionId(transaccionId)
@@ -57,9 +69,15 @@ public class PagoSimuladoService {
     }
 
     /**
-     * Simula un reembolso
+     * Simula un reembolso. Como en una pasarela real, la clave de idempotencia
+     * hace que repetir la petición (reintento tras un timeout o una caída) no
+     * devuelva el dinero dos veces: responde lo mismo sin volver a pagar.
      */
-    public boolean procesarReembolso(String transaccionId) {
+    public boolean procesarReembolso(String transaccionId, String claveIdempotencia) {
+        if (!reembolsosProcesados.add(claveIdempotencia)) {
+            log.info("Reembolso {} ya procesado para transacción {}", claveIdempotencia, transaccionId);
+            return true;
+        }
         log.info("Procesando reembolso simulado para transacción {}", transaccionId);
 
         try {
@@ -72,6 +90,17 @@ public class PagoSimuladoService {
         return true;
     }
 
+    /**
+     * Consulta la última transacción registrada en la pasarela para el pedido
+     */
+    public Optional<TransaccionPasarela> consultarTransaccion(Long pedidoId) {
+        return Optional.ofNullable(transacciones.get(pedidoId));
+    }
+
+    void registrar(TransaccionPasarela transaccion) {
+        transacciones.put(transaccion.pedidoId(), transaccion);
+    }
+
     private String generarTransaccionId(MetodoPago metodoPago) {
         String prefix = switch (metodoPago) {
             case TARJETA_CREDITO -> "TDC";
@@ -82,4 +111,8 @@ public class PagoSimuladoService {
         };
         return prefix + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
     }
+
+    public record TransaccionPasarela(String transaccionId, Long pedidoId, boolean aprobado,
+                                      BigDecimal monto, LocalDateTime fecha) {
+    }
 }
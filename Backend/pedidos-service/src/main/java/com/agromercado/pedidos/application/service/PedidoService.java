@@ -2,15 +2,30 @@ package com.agromercado.pedidos.application.service;
 
 import com.agromercado.pedidos.application.dto.*;
 import com.agromercado.pedidos.domain.model.*;
-import com.agromercado.pedidos.domain.repository.DetallePedidoRepository;
+import com.agromercado.pedidos.domain.repository.NumeroPedidoRepository;
+import com.agromercado.pedidos.domain.repository.PedidoEscrituraRepository;
 import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import com.agromercado.pedidos.domain.repository.PedidoSpecifications;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,212 +33,357 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PedidoService {
 
+    private static final int LIMITE_POR_DEFECTO = 20;
+    private static final int LIMITE_MAXIMO = 100;
+
     private final PedidoRepository pedidoRepository;
-    private final DetallePedidoRepository detallePedidoRepository;
     private final ProductoClientService productoClientService;
-    private final PagoSimuladoService pagoSimuladoService;
+    private final CarritoStore carritoStore;
+    private final GeneradorNumeroPedido generadorNumeroPedido;
+    private final OutboxPedidos outboxPedidos;
+    private final VentasDiariasService ventasDiariasService;
+    private final ReintentosCarrito reintentosCarrito;
+    private final ProcesadorReembolsos procesadorReembolsos;
+    private final ArchivadorPedidos archivadorPedidos;
+    private final NumeroPedidoRepository numeroPedidoRepository;
+    private final PlatformTransactionManager transactionManager;
 
     /**
-     * Obtiene o crea el carrito de compras del cliente
+     * Obtiene el carrito de compras del cliente. Si todavía no tiene uno devuelve
+     * un carrito vacío sin guardarlo: la fila se crea con la primera edición.
      */
-    @Transactional
     public PedidoResponse obtenerCarrito(String clienteId, String clienteNombre, String clienteEmail) {
-        Pedido carrito = pedidoRepository.findByClienteIdAndEstado(clienteId, EstadoPedido.CARRITO)
-                .orElseGet(() -> {
-                    log.info("Creando nuevo carrito para cliente {}", clienteId);
-                    Pedido nuevoCarrito = Pedido.builder()
-                            .clienteId(clienteId)
-                            .clienteNombre(clienteNombre)
-                            .clienteEmail(clienteEmail)
-                            .estado(EstadoPedido.CARRITO)
-                            .estadoPago(EstadoPago.PENDIENTE)
-                            .total(BigDecimal.ZERO)
-                            .build();
-                    return pedidoRepository.save(nuevoCarrito);
-                });
-
-        return convertirAPedidoResponse(carrito);
+        return carritoStore.editar(clienteId, () -> convertirAPedidoResponse(
+                carritoStore.buscar(clienteId).orElseGet(() -> nuevoCarrito(clienteId, clienteNombre, clienteEmail))));
     }
 
     /**
      * Agrega un producto al carrito
      */
-    @Transactional
     public PedidoResponse agregarProductoAlCarrito(String clienteId, String clienteNombre,
                                                    String clienteEmail, AgregarProductoCarritoRequest request) {
-        // Obtener o crear carrito
-        Pedido carrito = pedidoRepository.findByClienteIdAndEstado(clienteId, EstadoPedido.CARRITO)
-                .orElseGet(() -> {
-                    Pedido nuevoCarrito = Pedido.builder()
-                            .clienteId(clienteId)
-                            .clienteNombre(clienteNombre)
-                            .clienteEmail(clienteEmail)
-                            .estado(EstadoPedido.CARRITO)
-                            .estadoPago(EstadoPago.PENDIENTE)
-                            .total(BigDecimal.ZERO)
-                            .build();
-                    return pedidoRepository.save(nuevoCarrito);
-                });
-
-        // Obtener información del producto
+        // Obtener información del producto (fuera del bloqueo del carrito)
         ProductoClientService.ProductoDTO producto = productoClientService.obtenerProducto(request.getProductoId());
 
-        // Validar disponibilidad (si el campo viene null, asumimos disponibilidad infinita por defecto)
+        return editarCarrito(clienteId, () -> {
+            // Obtener o crear carrito
+            Pedido carrito = carritoStore.buscarOCrear(clienteId, () -> nuevoCarrito(clienteId, clienteNombre, clienteEmail));
+
+            // Validar disponibilidad (si el campo viene null, asumimos disponibilidad infinita por defecto)
+            Integer stockDisponible = producto.getStockDisponible();
+            if (stockDisponible != null && stockDisponible < request.getCantidad()) {
+                throw new IllegalArgumentException("Cantidad solicitada no disponible. Disponible: " + stockDisponible);
+            }
+
+            validarZona(carrito, producto);
+
+            // Verificar si el producto ya está en el carrito
+            DetallePedido detalleExistente = carrito.getDetalles().stream()
+                    .filter(d -> d.getProductoId().equals(request.getProductoId()))
+                    .findFirst()
+                    .orElse(null);
+
+            if (detalleExistente != null) {
+                // Actualizar cantidad
+                carrito.cambiarCantidad(detalleExistente, detalleExistente.getCantidad() + request.getCantidad());
+            } else {
+                // Agregar nuevo detalle
+                carrito.agregarDetalle(nuevoDetalle(carrito, producto, request.getCantidad()));
+            }
+
+            // Una línea nueva se escribe ya porque el cliente necesita su ID
+            Pedido guardado = carritoStore.guardar(clienteId, carrito, detalleExistente == null);
+
+            log.info("Producto {} agregado al carrito del cliente {}", producto.getNombre(), clienteId);
+            return convertirAPedidoResponse(guardado);
+        });
+    }
+
+    /**
+     * Aplica varias operaciones (agregar, fijar cantidad, eliminar) sobre el carrito con una
+     * sola consulta de productos y una sola escritura. Cada operación se valida por separado:
+     * las inválidas se informan en su resultado y no impiden aplicar las demás.
+     */
+    public OperacionesCarritoResponse aplicarOperacionesCarrito(String clienteId, String clienteNombre,
+                                                                String clienteEmail,
+                                                                List<OperacionCarritoRequest> operaciones) {
+        // Los productos se consultan de una vez, fuera del bloqueo del carrito; las bajas no los necesitan
+        Set<Long> productoIds = operaciones.stream()
+                .filter(op -> !esBaja(op))
+                .map(OperacionCarritoRequest::getProductoId)
+                .collect(Collectors.toSet());
+        Map<Long, ProductoClientService.ProductoDTO> productos = productoIds.isEmpty()
+                ? Map.of() : productoClientService.obtenerProductos(productoIds);
+
+        return editarCarrito(clienteId, () -> {
+            Pedido carrito = carritoStore.buscarOCrear(clienteId, () -> nuevoCarrito(clienteId, clienteNombre, clienteEmail));
+
+            List<OperacionesCarritoResponse.ResultadoOperacion> resultados = new ArrayList<>();
+            boolean lineasNuevas = false;
+            for (int i = 0; i < operaciones.size(); i++) {
+                OperacionCarritoRequest operacion = operaciones.get(i);
+                String error = null;
+                try {
+                    lineasNuevas |= aplicarOperacion(carrito, operacion, productos.get(operacion.getProductoId()));
+                } catch (IllegalArgumentException e) {
+                    error = e.getMessage();
+                }
+                resultados.add(OperacionesCarritoResponse.ResultadoOperacion.builder()
+                        .indice(i)
+                        .productoId(operacion.getProductoId())
+                        .aplicada(error == null)
+                        .mensaje(error)
+                        .build());
+            }
+
+            Pedido guardado = carritoStore.guardar(clienteId, carrito, lineasNuevas);
+
+            log.info("{} operaciones aplicadas al carrito del cliente {}",
+                    resultados.stream().filter(OperacionesCarritoResponse.ResultadoOperacion::isAplicada).count(), clienteId);
+            return OperacionesCarritoResponse.builder()
+                    .carrito(convertirAPedidoResponse(guardado))
+                    .resultados(resultados)
+                    .build();
+        });
+    }
+
+    /**
+     * Aplica una operación al carrito o lanza IllegalArgumentException sin modificarlo.
+     * Devuelve true si se creó una línea nueva.
+     */
+    private boolean aplicarOperacion(Pedido carrito, OperacionCarritoRequest operacion,
+                                     ProductoClientService.ProductoDTO producto) {
+        DetallePedido detalle = carrito.getDetalles().stream()
+                .filter(d -> d.getProductoId().equals(operacion.getProductoId()))
+                .findFirst()
+                .orElse(null);
+
+        if (esBaja(operacion)) {
+            if (detalle == null) {
+                throw new IllegalArgumentException("Producto no encontrado en el carrito");
+            }
+            carrito.eliminarDetalle(detalle);
+            return false;
+        }
+
+        if (operacion.getCantidad() == null || operacion.getCantidad() < 1) {
+            throw new IllegalArgumentException("La cantidad debe ser al menos 1");
+        }
+        if (producto == null) {
+            throw new IllegalArgumentException("Producto no encontrado: " + operacion.getProductoId());
+        }
+
+        int cantidad = operacion.getTipo() == OperacionCarritoRequest.Tipo.AGREGAR && detalle != null
+                ? detalle.getCantidad() + operacion.getCantidad()
+                : operacion.getCantidad();
         Integer stockDisponible = producto.getStockDisponible();
-        if (stockDisponible != null && stockDisponible < request.getCantidad()) {
+        if (stockDisponible != null && stockDisponible < cantidad) {
             throw new IllegalArgumentException("Cantidad solicitada no disponible. Disponible: " + stockDisponible);
         }
+        validarZona(carrito, producto);
 
-        // Asignar zona del producto al carrito si es el primer producto
+        if (detalle != null) {
+            carrito.cambiarCantidad(detalle, cantidad);
+            return false;
+        }
+        carrito.agregarDetalle(nuevoDetalle(carrito, producto, cantidad));
+        return true;
+    }
+
+    private static boolean esBaja(OperacionCarritoRequest operacion) {
+        return operacion.getTipo() == OperacionCarritoRequest.Tipo.ELIMINAR
+                || (operacion.getTipo() == OperacionCarritoRequest.Tipo.FIJAR_CANTIDAD
+                    && Integer.valueOf(0).equals(operacion.getCantidad()));
+    }
+
+    /**
+     * Asigna al carrito la zona de su primer producto y rechaza productos de otras zonas
+     */
+    private void validarZona(Pedido carrito, ProductoClientService.ProductoDTO producto) {
         if (carrito.getZonaId() == null && producto.getZonaId() != null) {
             carrito.setZonaId(producto.getZonaId());
-            log.info("Zona {} asignada al carrito del cliente {}", producto.getZonaId(), clienteId);
+            log.info("Zona {} asignada al carrito del cliente {}", producto.getZonaId(), carrito.getClienteId());
         }
 
-        // Validar que el producto sea de la misma zona que el carrito
         if (carrito.getZonaId() != null && producto.getZonaId() != null
                 && !carrito.getZonaId().equals(producto.getZonaId())) {
             throw new IllegalArgumentException("No puedes agregar productos de diferentes zonas al mismo carrito. " +
                     "Este carrito es de la zona: " + carrito.getZonaId());
         }
+    }
 
-        // Verificar si el producto ya está en el carrito
-        DetallePedido detalleExistente = carrito.getDetalles().stream()
-                .filter(d -> d.getProductoId().equals(request.getProductoId()))
-                .findFirst()
-                .orElse(null);
-
-        if (detalleExistente != null) {
-            // Actualizar cantidad
-            detalleExistente.setCantidad(detalleExistente.getCantidad() + request.getCantidad());
-            detalleExistente.calcularSubtotal();
-        } else {
-            // Agregar nuevo detalle
-            DetallePedido nuevoDetalle = DetallePedido.builder()
-                    .pedido(carrito)
-                    .productoId(producto.getIdProducto() != null ? producto.getIdProducto().longValue() : null)
-                    .productoNombre(producto.getNombre())
-                    .productoDescripcion(producto.getDescripcion())
-                    .productorId(producto.getIdProductor())
-                    .productorNombre(producto.getNombreProductor())
-                    .cantidad(request.getCantidad())
-                    .precioUnitario(producto.getPrecioUnitario())
-                    .unidadMedida(producto.getUnidadMedida())
-                    .build();
-            nuevoDetalle.calcularSubtotal();
-            carrito.agregarDetalle(nuevoDetalle);
-        }
-
-        // Recalcular total
-        carrito.calcularTotal();
-        pedidoRepository.save(carrito);
-
-        log.info("Producto {} agregado al carrito del cliente {}", producto.getNombre(), clienteId);
-        return convertirAPedidoResponse(carrito);
+    private DetallePedido nuevoDetalle(Pedido carrito, ProductoClientService.ProductoDTO producto, int cantidad) {
+        return DetallePedido.builder()
+                .pedido(carrito)
+                .productoId(producto.getIdProducto() != null ? producto.getIdProducto().longValue() : null)
+                .productoNombre(producto.getNombre())
+                .productoDescripcion(producto.getDescripcion())
+                .productorId(producto.getIdProductor())
+                .productorNombre(producto.getNombreProductor())
+                .cantidad(cantidad)
+                .precioUnitario(producto.getPrecioUnitario())
+                .unidadMedida(producto.getUnidadMedida())
+                .build();
     }
 
     /**
      * Elimina un producto del carrito
      */
-    @Transactional
     public PedidoResponse eliminarProductoDelCarrito(String clienteId, Long detalleId) {
-        Pedido carrito = pedidoRepository.findByClienteIdAndEstado(clienteId, EstadoPedido.CARRITO)
-                .orElseThrow(() -> new IllegalArgumentException("No se encontró el carrito"));
-
-        DetallePedido detalle = carrito.getDetalles().stream()
-                .filter(d -> d.getId().equals(detalleId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado en el carrito"));
-
-        carrito.eliminarDetalle(detalle);
-        detallePedidoRepository.delete(detalle);
-
-        carrito.calcularTotal();
-        pedidoRepository.save(carrito);
-
-        log.info("Producto eliminado del carrito del cliente {}", clienteId);
-        return convertirAPedidoResponse(carrito);
+        return editarCarrito(clienteId, () -> {
+            Pedido carrito = carritoStore.buscar(clienteId)
+                    .orElseThrow(() -> new IllegalArgumentException("No se encontró el carrito"));
+
+            DetallePedido detalle = carrito.getDetalles().stream()
+                    .filter(d -> detalleId.equals(d.getId()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado en el carrito"));
+
+            // La línea se borra al escribir el carrito (orphanRemoval)
+            carrito.eliminarDetalle(detalle);
+            carritoStore.guardar(clienteId, carrito, false);
+
+            log.info("Producto eliminado del carrito del cliente {}", clienteId);
+            return convertirAPedidoResponse(carrito);
+        });
     }
 
     /**
      * Vacía el carrito
      */
-    @Transactional
     public void vaciarCarrito(String clienteId) {
-        Pedido carrito = pedidoRepository.findByClienteIdAndEstado(clienteId, EstadoPedido.CARRITO)
-                .orElseThrow(() -> new IllegalArgumentException("No se encontró el carrito"));
+        editarCarrito(clienteId, () -> {
+            Pedido carrito = carritoStore.buscar(clienteId)
+                    .orElseThrow(() -> new IllegalArgumentException("No se encontró el carrito"));
 
-        carrito.getDetalles().clear();
-        carrito.setTotal(BigDecimal.ZERO);
-        pedidoRepository.save(carrito);
+            carrito.vaciar();
+            carritoStore.guardar(clienteId, carrito, false);
 
-        log.info("Carrito vaciado para cliente {}", clienteId);
+            log.info("Carrito vaciado para cliente {}", clienteId);
+            return null;
+        });
     }
 
     /**
-     * Confirma el pedido (lo convierte de carrito a pedido)
+     * Edita el carrito en exclusión mutua con las demás ediciones de esta instancia
+     * y la repite si otra escritura del mismo carrito se adelantó (bloqueo optimista)
+     */
+    private <T> T editarCarrito(String clienteId, Supplier<T> edicion) {
+        return reintentosCarrito.ejecutar(clienteId, () -> carritoStore.editar(clienteId, edicion));
+    }
+
+    private Pedido nuevoCarrito(String clienteId, String clienteNombre, String clienteEmail) {
+        return Pedido.builder()
+                .clienteId(clienteId)
+                .clienteNombre(clienteNombre)
+                .clienteEmail(clienteEmail)
+                .estado(EstadoPedido.CARRITO)
+                .estadoPago(EstadoPago.PENDIENTE)
+                .subtotal(BigDecimal.ZERO)
+                .impuestos(BigDecimal.ZERO)
+                .total(BigDecimal.ZERO)
+                .build();
+    }
+
+    /**
+     * Confirma el pedido (lo convierte de carrito a pedido).
+     *
+     * La reserva de stock es una llamada remota y se hace entre dos transacciones
+     * cortas, sin conexión ni bloqueo de la fila del carrito abiertos mientras
+     * productos-service responde: la primera valida el carrito y registra su
+     * número, la segunda confirma y guarda. Si la segunda no llega a confirmarse
+     * la reserva se libera de inmediato en lugar de esperar al TTL.
      */
-    @Transactional
     public PedidoResponse confirmarPedido(String clienteId, ConfirmarPedidoRequest request) {
-        Pedido pedido = pedidoRepository.findByClienteIdAndEstado(clienteId, EstadoPedido.CARRITO)
-                .orElseThrow(() -> new IllegalArgumentException("No se encontró el carrito"));
+        // Las ediciones del carrito que aún estén en memoria deben estar en la BD antes de confirmar
+        carritoStore.descargar(clienteId);
+
+        String numeroPedido = generadorNumeroPedido.generar();
+        Map<Long, Integer> cantidades = transaccion().execute(status -> {
+            Pedido carrito = buscarCarritoAConfirmar(clienteId);
+            registrarNumero(numeroPedido, carrito.getId());
+            return cantidadesDe(carrito);
+        });
+
+        String reservaId = productoClientService.reservarStock(numeroPedido, cantidades);
+
+        return transaccion().execute(status -> {
+            liberarReservaSiFallaLaTransaccion(reservaId);
+            Pedido pedido = buscarCarritoAConfirmar(clienteId);
+            if (!cantidades.equals(cantidadesDe(pedido))) {
+                throw new IllegalStateException("El carrito cambió mientras se confirmaba, intente nuevamente");
+            }
+
+            log.info("Confirmando pedido - ZonaId antes de confirmar: {}", pedido.getZonaId());
+
+            // Actualizar información de entrega
+            pedido.setDireccionEntrega(request.getDireccionEntrega());
+            pedido.setTelefonoContacto(request.getTelefonoContacto());
+            pedido.setMetodoPago(request.getMetodoPago());
+            pedido.setNotas(request.getNotas());
+
+            // Confirmar pedido; la fila pasa a la partición del mes de creación del carrito
+            pedido.confirmar(() -> numeroPedido);
+            archivadorPedidos.asegurarParticion(pedido.getParticion());
+            pedido.setReservaStockId(reservaId);
+
+            pedidoRepository.save(pedido);
+            outboxPedidos.pedidoConfirmado(pedido);
+
+            log.info("Pedido {} confirmado para cliente {} - ZonaId: {}",
+                pedido.getNumeroPedido(), clienteId, pedido.getZonaId());
+            return convertirAPedidoResponse(pedido);
+        });
+    }
 
+    private Pedido buscarCarritoAConfirmar(String clienteId) {
+        Pedido pedido = pedidoRepository.buscarCarrito(clienteId)
+                .orElseThrow(() -> new IllegalArgumentException("No se encontró el carrito"));
         if (pedido.getDetalles().isEmpty()) {
             throw new IllegalArgumentException("El carrito está vacío");
         }
+        return pedido;
+    }
 
-        log.info("Confirmando pedido - ZonaId antes de confirmar: {}", pedido.getZonaId());
-
-        // Actualizar información de entrega
-        pedido.setDireccionEntrega(request.getDireccionEntrega());
-        pedido.setTelefonoContacto(request.getTelefonoContacto());
-        pedido.setMetodoPago(request.getMetodoPago());
-        pedido.setNotas(request.getNotas());
-
-        // Confirmar pedido
-        pedido.confirmar();
-        pedidoRepository.save(pedido);
+    private static Map<Long, Integer> cantidadesDe(Pedido pedido) {
+        return pedido.getDetalles().stream()
+                .collect(Collectors.toMap(DetallePedido::getProductoId, DetallePedido::getCantidad, Integer::sum));
+    }
 
-        log.info("Pedido {} confirmado para cliente {} - ZonaId: {}",
-            pedido.getNumeroPedido(), clienteId, pedido.getZonaId());
-        return convertirAPedidoResponse(pedido);
+    private TransactionTemplate transaccion() {
+        return new TransactionTemplate(transactionManager);
     }
 
     /**
-     * Procesa el pago del pedido
+     * El número de pedido debe ser único (V18). Se registra antes de reservar
+     * stock, así que si el generador repite uno la confirmación falla sin
+     * reservar; si la confirmación no termina el número queda sin usar.
      */
-    @Transactional
-    public PagoResponse procesarPago(String clienteId, ProcesarPagoRequest request) {
-        Pedido pedido = pedidoRepository.findById(request.getPedidoId())
-                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado"));
-
-        if (!pedido.getClienteId().equals(clienteId)) {
-            throw new IllegalArgumentException("No tiene permiso para pagar este pedido");
-        }
-
-        if (pedido.getEstado() != EstadoPedido.PENDIENTE) {
-            throw new IllegalArgumentException("El pedido no está en estado pendiente");
+    private void registrarNumero(String numeroPedido, Long pedidoId) {
+        try {
+            numeroPedidoRepository.registrar(numeroPedido, pedidoId, LocalDateTime.now());
+        } catch (DataIntegrityViolationException e) {
+            log.error("Número de pedido {} repetido al confirmar el pedido {}", numeroPedido, pedidoId);
+            throw new IllegalStateException("No se pudo asignar un número de pedido único, intente nuevamente");
         }
+    }
 
-        log.info("Procesando pago para pedido {} - ZonaId: {}", pedido.getNumeroPedido(), pedido.getZonaId());
-
-        // Procesar pago simulado
-        PagoResponse pagoResponse = pagoSimuladoService.procesarPago(pedido, request);
-
-        if (pagoResponse.isAprobado()) {
-            pedido.marcarComoPagado(pagoResponse.getTransaccionId());
-            pedido.setEstado(EstadoPedido.EN_PREPARACION);
-            pedidoRepository.save(pedido);
-            log.info("Pago aprobado para pedido {} - ZonaId: {} - Estado: {}",
-                pedido.getNumeroPedido(), pedido.getZonaId(), pedido.getEstado());
-        } else {
-            pedido.setEstadoPago(EstadoPago.RECHAZADO);
-            pedidoRepository.save(pedido);
-            log.warn("Pago rechazado para pedido {} - ZonaId: {}",
-                pedido.getNumeroPedido(), pedido.getZonaId());
+    private void liberarReservaSiFallaLaTransaccion(String reservaId) {
+        if (reservaId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
         }
-
-        return pagoResponse;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    try {
+                        productoClientService.liberarReserva(reservaId);
+                    } catch (Exception e) {
+                        log.warn("No se pudo liberar la reserva {}; se liberará al expirar: {}", reservaId, e.getMessage());
+                    }
+                }
+            }
+        });
     }
 
     /**
@@ -237,42 +397,111 @@ public class PedidoService {
     }
 
     /**
-     * Lista los pedidos de un cliente
+     * Lista los pedidos de un cliente, del más reciente al más antiguo, por páginas
      */
     @Transactional(readOnly = true)
-    public List<PedidoResponse> listarPedidosCliente(String clienteId) {
-        return pedidoRepository.findByClienteIdOrderByFechaCreacionDesc(clienteId).stream()
-                .filter(p -> p.getEstado() != EstadoPedido.CARRITO)
-                .map(this::convertirAPedidoResponse)
-                .collect(Collectors.toList());
+    public PaginaPedidosResponse listarPedidosCliente(String clienteId, FiltroPedidos filtro) {
+        return listarPagina(PedidoSpecifications.delCliente(clienteId), filtro);
     }
 
     /**
-     * Lista pedidos por zona
+     * Lista pedidos por zona, del más reciente al más antiguo, por páginas
      */
     @Transactional(readOnly = true)
-    public List<PedidoResponse> listarPedidosPorZona(String zonaId) {
-        log.info("Buscando pedidos para zona: {}", zonaId);
-        List<Pedido> pedidos = pedidoRepository.findPedidosByZona(zonaId);
-        log.info("Pedidos encontrados para zona {}: {}", zonaId, pedidos.size());
+    public PaginaPedidosResponse listarPedidosPorZona(String zonaId, FiltroPedidos filtro) {
+        PaginaPedidosResponse pagina = listarPagina(PedidoSpecifications.deLaZona(zonaId), filtro);
+        log.debug("Pedidos devueltos para zona {}: {}", zonaId, pagina.getPedidos().size());
+        return pagina;
+    }
 
-        // Log adicional para ver el detalle
-        pedidos.forEach(p -> log.info("Pedido ID: {}, Estado: {}, ZonaId: {}, ClienteId: {}",
-            p.getId(), p.getEstado(), p.getZonaId(), p.getClienteId()));
+    /**
+     * Lista las líneas de pedido de un productor, de la más reciente a la más antigua, por páginas.
+     * Solo lee las líneas del productor y las columnas de cabecera que necesita.
+     */
+    @Transactional(readOnly = true)
+    public PaginaLineasProductorResponse listarLineasProductor(String productorId, FiltroPedidos filtro) {
+        int limite = filtro.getLimite() == null ? LIMITE_POR_DEFECTO
+                : Math.max(1, Math.min(filtro.getLimite(), LIMITE_MAXIMO));
+        CursorLinea cursor = filtro.getCursor() != null && !filtro.getCursor().isBlank()
+                ? CursorLinea.decodificar(filtro.getCursor()) : null;
+
+        List<LineaProductorDTO> lineas = pedidoRepository.buscarLineasProductor(productorId, filtro.getEstado(),
+                filtro.getDesde() != null ? filtro.getDesde().atStartOfDay() : null,
+                filtro.getHasta() != null ? filtro.getHasta().plusDays(1).atStartOfDay() : null,
+                cursor != null ? cursor.pedidoId() : null,
+                cursor != null ? cursor.lineaId() : null,
+                limite + 1);
+
+        String siguienteCursor = null;
+        if (lineas.size() > limite) {
+            lineas = lineas.subList(0, limite);
+            LineaProductorDTO ultima = lineas.get(limite - 1);
+            siguienteCursor = new CursorLinea(ultima.getPedidoId(), ultima.getId()).codificar();
+        }
 
-        return pedidos.stream()
-                .map(this::convertirAPedidoResponse)
-                .collect(Collectors.toList());
+        return PaginaLineasProductorResponse.builder()
+                .lineas(lineas)
+                .siguienteCursor(siguienteCursor)
+                .build();
+    }
+
+    private PaginaPedidosResponse listarPagina(Specification<Pedido> base, FiltroPedidos filtro) {
+        int limite = filtro.getLimite() == null ? LIMITE_POR_DEFECTO
+                : Math.max(1, Math.min(filtro.getLimite(), LIMITE_MAXIMO));
+
+        // Los carritos nunca se listan, tampoco si se filtra por estado=CARRITO
+        Specification<Pedido> spec = base.and(PedidoSpecifications.noEsCarrito());
+        if (filtro.getEstado() != null) {
+            spec = spec.and(PedidoSpecifications.conEstado(filtro.getEstado()));
+        }
+        if (filtro.getDesde() != null) {
+            spec = spec.and(PedidoSpecifications.creadoDesde(filtro.getDesde().atStartOfDay()));
+        }
+        if (filtro.getHasta() != null) {
+            spec = spec.and(PedidoSpecifications.creadoAntesDe(filtro.getHasta().plusDays(1).atStartOfDay()));
+        }
+        if (filtro.getCursor() != null && !filtro.getCursor().isBlank()) {
+            CursorPedido cursor = CursorPedido.decodificar(filtro.getCursor());
+            spec = spec.and(PedidoSpecifications.despuesDe(cursor.fechaCreacion(), cursor.id()));
+        }
+
+        // Se pide un pedido de más para saber si existe una página siguiente sin contar filas.
+        // Cabeceras y líneas se leen con dos consultas sin importar el tamaño de la página
+        List<PedidoResponse> pedidos = pedidoRepository.buscarCabeceras(spec, limite + 1);
+
+        String siguienteCursor = null;
+        if (pedidos.size() > limite) {
+            pedidos = pedidos.subList(0, limite);
+            PedidoResponse ultimo = pedidos.get(limite - 1);
+            siguienteCursor = new CursorPedido(ultimo.getFechaCreacion(), ultimo.getId()).codificar();
+        }
+
+        Map<Long, List<DetallePedidoDTO>> detalles = pedidoRepository.buscarDetalles(
+                pedidos.stream().map(PedidoResponse::getId).toList(),
+                pedidos.stream().map(PedidoResponse::getParticion).collect(Collectors.toSet()));
+        pedidos.forEach(p -> p.setDetalles(detalles.getOrDefault(p.getId(), List.of())));
+
+        return PaginaPedidosResponse.builder()
+                .pedidos(pedidos)
+                .siguienteCursor(siguienteCursor)
+                .build();
     }
 
     /**
-     * Actualiza el estado del pedido
+     * Actualiza el estado del pedido. Solo se aplican las transiciones
+     * administrativas ({@link EstadoPedido#puedeCambiarA}); cancelar un pedido
+     * pasa por {@link #cancelarPedido}, que reembolsa el pago o libera la reserva.
      */
     @Transactional
     public PedidoResponse actualizarEstado(Long pedidoId, EstadoPedido nuevoEstado) {
         Pedido pedido = pedidoRepository.findById(pedidoId)
                 .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado"));
 
+        EstadoPedido anterior = pedido.getEstado();
+        if (anterior != nuevoEstado && !anterior.puedeCambiarA(nuevoEstado)) {
+            throw new IllegalArgumentException("No se permite pasar de " + anterior + " a " + nuevoEstado
+                    + (nuevoEstado == EstadoPedido.CANCELADO ? "; use POST /pedidos/{id}/cancelar" : ""));
+        }
         pedido.setEstado(nuevoEstado);
 
         if (nuevoEstado == EstadoPedido.ENTREGADO) {
@@ -280,11 +509,121 @@ public class PedidoService {
         }
 
         pedidoRepository.save(pedido);
+        if (anterior != nuevoEstado) {
+            outboxPedidos.estadoCambiado(pedido, anterior);
+            ventasDiariasService.registrarCambioEstado(pedido, anterior);
+        }
         log.info("Estado del pedido {} actualizado a {}", pedido.getNumeroPedido(), nuevoEstado);
 
         return convertirAPedidoResponse(pedido);
     }
 
+    /**
+     * Cancela el pedido del cliente. El cambio de estado es inmediato; si el
+     * pedido ya estaba pagado el reembolso queda encolado y se procesa en
+     * segundo plano (estado de pago REEMBOLSADO al terminar). Si no estaba
+     * pagado se libera su reserva de stock.
+     */
+    @Transactional
+    public PedidoResponse cancelarPedido(String clienteId, Long pedidoId) {
+        Pedido pedido = pedidoRepository.findById(pedidoId)
+                .orElseThrow(() -> new IllegalArgumentException("Pedido no encontrado"));
+
+        if (!pedido.getClienteId().equals(clienteId)) {
+            throw new IllegalArgumentException("No tiene permiso para cancelar este pedido");
+        }
+
+        if (!pedido.getEstado().esCancelable()) {
+            throw new IllegalArgumentException("No se puede cancelar un pedido en estado " + pedido.getEstado());
+        }
+
+        if (pedido.getEstadoPago() == EstadoPago.PROCESANDO) {
+            throw new IllegalArgumentException("El pedido tiene un pago en proceso, intente nuevamente en unos segundos");
+        }
+
+        EstadoPedido anterior = pedido.getEstado();
+        pedido.setEstado(EstadoPedido.CANCELADO);
+        pedidoRepository.save(pedido);
+        outboxPedidos.estadoCambiado(pedido, anterior);
+        ventasDiariasService.registrarCambioEstado(pedido, anterior);
+
+        if (pedido.getEstadoPago() == EstadoPago.APROBADO) {
+            procesadorReembolsos.encolar(pedido);
+        } else {
+            liberarReservaAlConfirmar(pedido.getReservaStockId());
+        }
+
+        log.info("Pedido {} cancelado por el cliente {} (estado anterior: {})",
+                pedido.getNumeroPedido(), clienteId, anterior);
+        return convertirAPedidoResponse(pedido);
+    }
+
+    private void liberarReservaAlConfirmar(String reservaId) {
+        if (reservaId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    productoClientService.liberarReserva(reservaId);
+                } catch (Exception e) {
+                    log.warn("No se pudo liberar la reserva {}; se liberará al expirar: {}", reservaId, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Cambia el estado de varios pedidos en una transacción con un solo UPDATE.
+     * Los pedidos inexistentes, ya en ese estado o cuya transición no está
+     * permitida ({@link EstadoPedido#puedeCambiarA}) se devuelven como rechazados.
+     */
+    @Transactional
+    public CambioEstadoLoteResponse cambiarEstadoPorLote(List<Long> pedidoIds, EstadoPedido nuevoEstado) {
+        Set<Long> ids = new LinkedHashSet<>(pedidoIds);
+        Map<Long, PedidoEscrituraRepository.EstadoBloqueado> bloqueados = pedidoRepository.bloquearEstados(ids);
+
+        List<Long> aCambiar = new ArrayList<>();
+        List<CambioEstadoLoteResponse.PedidoRechazado> rechazados = new ArrayList<>();
+        for (Long id : ids) {
+            EstadoPedido actual = bloqueados.containsKey(id) ? bloqueados.get(id).estado() : null;
+            if (actual == null) {
+                rechazados.add(new CambioEstadoLoteResponse.PedidoRechazado(id, null, "Pedido no encontrado"));
+            } else if (actual == nuevoEstado) {
+                rechazados.add(new CambioEstadoLoteResponse.PedidoRechazado(id, actual,
+                        "El pedido ya está en estado " + nuevoEstado));
+            } else if (!actual.puedeCambiarA(nuevoEstado)) {
+                rechazados.add(new CambioEstadoLoteResponse.PedidoRechazado(id, actual,
+                        "No se permite pasar de " + actual + " a " + nuevoEstado));
+            } else {
+                aCambiar.add(id);
+            }
+        }
+
+        if (!aCambiar.isEmpty()) {
+            Set<LocalDate> particiones = aCambiar.stream()
+                    .map(id -> bloqueados.get(id).particion())
+                    .collect(Collectors.toSet());
+            LocalDateTime ahora = LocalDateTime.now();
+            pedidoRepository.cambiarEstado(aCambiar, particiones, nuevoEstado, ahora,
+                    nuevoEstado == EstadoPedido.ENTREGADO ? ahora : null);
+            for (Pedido pedido : pedidoRepository.buscarConDetalles(aCambiar, particiones)) {
+                EstadoPedido anterior = bloqueados.get(pedido.getId()).estado();
+                outboxPedidos.estadoCambiado(pedido, anterior);
+                ventasDiariasService.registrarCambioEstado(pedido, anterior);
+            }
+        }
+        log.info("Cambio de estado por lote a {}: {} actualizados, {} rechazados",
+                nuevoEstado, aCambiar.size(), rechazados.size());
+
+        return CambioEstadoLoteResponse.builder()
+                .estado(nuevoEstado)
+                .actualizados(aCambiar.size())
+                .rechazados(rechazados)
+                .build();
+    }
+
     // Método auxiliar de conversión
     private PedidoResponse convertirAPedidoResponse(Pedido pedido) {
         List<DetallePedidoDTO> detallesDTO = pedido.getDetalles().stream()
@@ -324,6 +663,7 @@ public class PedidoService {
                 .fechaEntrega(pedido.getFechaEntrega())
                 .transaccionPagoId(pedido.getTransaccionPagoId())
                 .detalles(detallesDTO)
+                .particion(pedido.getParticion())
                 .build();
     }
 }
@@ -0,0 +1,284 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.Pago;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.model.Reembolso;
+import com.agromercado.pedidos.domain.repository.PagoRepository;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import com.agromercado.pedidos.domain.repository.ReembolsoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Cola de reembolsos de pedidos cancelados.
+ *
+ * La cancelación solo inserta la fila ({@link #encolar}) en su transacción; la
+ * llamada a la pasarela la hace después un pool de {@code workers} hilos, sin
+ * transacción ni conexión de BD abiertas. Cada ciclo toma un lote con
+ * FOR UPDATE SKIP LOCKED y le corre {@code siguiente_intento} por la duración de
+ * {@code visibilidad}: si la instancia cae a mitad, otro worker lo retoma al
+ * vencer ese plazo. Los fallos se reintentan con espera exponencial hasta
+ * {@code max-intentos}; después el reembolso queda FALLIDO para revisión manual.
+ *
+ * Un reintento nunca paga dos veces: la pasarela recibe el ID del reembolso como
+ * clave de idempotencia y, en cuanto aprueba, {@code fecha_aprobacion_pasarela}
+ * queda guardada y los intentos siguientes solo terminan el resto (devolver el
+ * stock confirmado y marcar pedido y pago REEMBOLSADO).
+ */
+@Component
+@Slf4j
+public class ProcesadorReembolsos {
+
+    private final ReembolsoRepository reembolsoRepository;
+    private final PedidoRepository pedidoRepository;
+    private final PagoRepository pagoRepository;
+    private final PagoSimuladoService pasarela;
+    private final ProductoClientService productoClientService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry registry;
+    private final boolean habilitado;
+    private final int tamanoLote;
+    private final int maxIntentos;
+    private final Duration visibilidad;
+    private final Duration esperaInicial;
+    private final Duration esperaMaxima;
+    private final ExecutorService workers;
+
+    public ProcesadorReembolsos(ReembolsoRepository reembolsoRepository,
+                                PedidoRepository pedidoRepository,
+                                PagoRepository pagoRepository,
+                                PagoSimuladoService pasarela,
+                                ProductoClientService productoClientService,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry registry,
+                                @Value("${pagos.reembolsos.habilitado:true}") boolean habilitado,
+                                @Value("${pagos.reembolsos.workers:4}") int workers,
+                                @Value("${pagos.reembolsos.tamano-lote:20}") int tamanoLote,
+                                @Value("${pagos.reembolsos.max-intentos:8}") int maxIntentos,
+                                @Value("${pagos.reembolsos.visibilidad:PT2M}") Duration visibilidad,
+                                @Value("${pagos.reembolsos.espera-inicial:PT10S}") Duration esperaInicial,
+                                @Value("${pagos.reembolsos.espera-maxima:PT10M}") Duration esperaMaxima) {
+        this.reembolsoRepository = reembolsoRepository;
+        this.pedidoRepository = pedidoRepository;
+        this.pagoRepository = pagoRepository;
+        this.pasarela = pasarela;
+        this.productoClientService = productoClientService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.registry = registry;
+        this.habilitado = habilitado;
+        this.tamanoLote = tamanoLote;
+        this.maxIntentos = maxIntentos;
+        this.visibilidad = visibilidad;
+        this.esperaInicial = esperaInicial;
+        this.esperaMaxima = esperaMaxima;
+        this.workers = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("reembolsos-", 0).factory());
+    }
+
+    /**
+     * Registra el reembolso del pedido. Debe llamarse dentro de la transacción
+     * que lo cancela, para que no quede un pedido cancelado sin su reembolso.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void encolar(Pedido pedido) {
+        Pago pago = pagoRepository.findByPedidoIdOrderByFechaCreacionDesc(pedido.getId()).stream()
+                .filter(p -> p.getEstado() == EstadoPago.APROBADO)
+                .findFirst()
+                .orElse(null);
+        BigDecimal monto = pago != null ? pago.getMonto() : pedido.getTotal();
+        String transaccionId = pago != null && pago.getTransaccionId() != null
+                ? pago.getTransaccionId() : pedido.getTransaccionPagoId();
+
+        reembolsoRepository.save(Reembolso.builder()
+                .pedidoId(pedido.getId())
+                .pagoId(pago != null ? pago.getId() : null)
+                .transaccionId(transaccionId)
+                .monto(monto)
+                .build());
+        log.info("Reembolso de {} encolado para pedido {}", monto, pedido.getNumeroPedido());
+    }
+
+    @Scheduled(fixedDelayString = "${pagos.reembolsos.intervalo-ms:1000}")
+    public void procesarProgramado() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            procesarPendientes();
+        } catch (RuntimeException e) {
+            log.error("Error procesando reembolsos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Procesa lotes mientras haya reembolsos pendientes cuyo turno ya llegó.
+     *
+     * @return número de reembolsos intentados
+     */
+    public int procesarPendientes() {
+        int procesados = 0;
+        List<Reembolso> lote;
+        do {
+            lote = transactionTemplate.execute(status -> reclamarLote());
+            List<Future<?>> tareas = new ArrayList<>(lote.size());
+            for (Reembolso reembolso : lote) {
+                tareas.add(workers.submit(() -> procesar(reembolso)));
+            }
+            for (Future<?> tarea : tareas) {
+                esperar(tarea);
+            }
+            procesados += lote.size();
+        } while (lote.size() == tamanoLote);
+        return procesados;
+    }
+
+    /**
+     * Toma el lote y lo oculta a otros workers durante {@code visibilidad}.
+     */
+    private List<Reembolso> reclamarLote() {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Reembolso> lote = reembolsoRepository.bloquearPendientes(ahora, tamanoLote);
+        for (Reembolso reembolso : lote) {
+            reembolso.setIntentos(reembolso.getIntentos() + 1);
+            reembolso.setSiguienteIntento(ahora.plus(visibilidad));
+            if (reembolso.getTransaccionId() == null) {
+                // El pago se aprobó sin ID de transacción; la conciliación puede haberlo completado
+                pedidoRepository.findById(reembolso.getPedidoId())
+                        .map(Pedido::getTransaccionPagoId)
+                        .ifPresent(reembolso::setTransaccionId);
+            }
+        }
+        return lote;
+    }
+
+    private void procesar(Reembolso reembolso) {
+        String error = null;
+        try {
+            if (reembolso.getFechaAprobacionPasarela() == null) {
+                error = reembolsarEnPasarela(reembolso);
+            }
+            if (error == null) {
+                devolverStock(reembolso.getPedidoId());
+            }
+        } catch (RuntimeException e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+
+        String resultado = error == null ? completar(reembolso.getId()) : registrarFallo(reembolso.getId(), error);
+        registry.counter("pedidos.reembolsos", "resultado", resultado).increment();
+    }
+
+    /**
+     * Pide el reembolso con el ID del reembolso como clave de idempotencia y,
+     * si la pasarela lo aprueba, lo deja registrado en una transacción propia
+     * antes de cualquier otro efecto.
+     *
+     * @return el error, o null si la pasarela aprobó
+     */
+    private String reembolsarEnPasarela(Reembolso reembolso) {
+        if (reembolso.getTransaccionId() == null) {
+            return "El pago no tiene ID de transacción";
+        }
+        if (!pasarela.procesarReembolso(reembolso.getTransaccionId(), claveIdempotencia(reembolso.getId()))) {
+            return "La pasarela rechazó el reembolso";
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                reembolsoRepository.marcarAprobadoEnPasarela(reembolso.getId(), LocalDateTime.now()));
+        return null;
+    }
+
+    static String claveIdempotencia(Long reembolsoId) {
+        return "reembolso-" + reembolsoId;
+    }
+
+    /**
+     * Devuelve al inventario el stock confirmado del pedido. productos-service
+     * solo repone las líneas que siguen CONFIRMADA, así que repetirlo es seguro.
+     */
+    private void devolverStock(Long pedidoId) {
+        pedidoRepository.findById(pedidoId)
+                .map(Pedido::getReservaStockId)
+                .ifPresent(productoClientService::devolverReserva);
+    }
+
+    /**
+     * Cierra el reembolso con UPDATE dirigidos al pedido y al pago en lugar de
+     * guardar las entidades: un conflicto de versión con otra edición del pedido
+     * no puede dejar el reembolso pendiente después de pagado.
+     */
+    private String completar(Long reembolsoId) {
+        return transactionTemplate.execute(status -> {
+            Reembolso reembolso = reembolsoRepository.findById(reembolsoId).orElseThrow();
+            pedidoRepository.cambiarEstadoPago(reembolso.getPedidoId(), EstadoPago.REEMBOLSADO, LocalDateTime.now());
+            if (reembolso.getPagoId() != null) {
+                pagoRepository.cambiarEstado(reembolso.getPagoId(), EstadoPago.REEMBOLSADO,
+                        "Pago reembolsado por cancelación del pedido");
+            }
+            reembolso = reembolsoRepository.findById(reembolsoId).orElseThrow();
+            reembolso.completar();
+            log.info("Reembolso de {} completado para pedido {}", reembolso.getMonto(), reembolso.getPedidoId());
+            return "completado";
+        });
+    }
+
+    private String registrarFallo(Long reembolsoId, String error) {
+        return transactionTemplate.execute(status -> {
+            Reembolso reembolso = reembolsoRepository.findById(reembolsoId).orElseThrow();
+            if (reembolso.getIntentos() >= maxIntentos) {
+                reembolso.marcarFallido(error);
+                log.error("Reembolso del pedido {} fallido tras {} intentos: {}",
+                        reembolso.getPedidoId(), reembolso.getIntentos(), error);
+                return "fallido";
+            }
+            reembolso.registrarFallo(error, LocalDateTime.now().plus(espera(reembolso.getIntentos())));
+            log.warn("Reembolso del pedido {} falló (intento {}), se reintentará a las {}: {}",
+                    reembolso.getPedidoId(), reembolso.getIntentos(), reembolso.getSiguienteIntento(), error);
+            return "reintento";
+        });
+    }
+
+    /**
+     * Espera antes del siguiente intento: {@code espera-inicial} duplicada en
+     * cada fallo, hasta {@code espera-maxima}.
+     */
+    Duration espera(int intentos) {
+        long factor = 1L << Math.min(Math.max(0, intentos - 1), 20);
+        Duration espera = esperaInicial.multipliedBy(factor);
+        return espera.compareTo(esperaMaxima) > 0 ? esperaMaxima : espera;
+    }
+
+    private static void esperar(Future<?> tarea) {
+        try {
+            tarea.get();
+        } catch (ExecutionException e) {
+            // El reembolso sigue pendiente y se retoma al vencer su visibilidad
+            log.error("Error procesando un reembolso: {}", e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Procesamiento de reembolsos interrumpido");
+        }
+    }
+
+    @PreDestroy
+    void cerrar() {
+        workers.shutdownNow();
+    }
+}
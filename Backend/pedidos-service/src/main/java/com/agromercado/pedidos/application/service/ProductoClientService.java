@@ -1,18 +1,37 @@
 package com.agromercado.pedidos.application.service;
 
+import jakarta.annotation.PreDestroy;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 /**
- * Cliente para comunicarse con el microservicio de productos
+ * Cliente para comunicarse con el microservicio de productos.
+ *
+ * Antes de salir a la red se consulta la réplica local del catálogo
+ * ({@link CatalogoProductosReplica}); solo los fallos llegan a productos-service.
+ * Las consultas individuales que llegan dentro de una ventana corta se agrupan
+ * en una sola llamada a GET /productos/batch, de modo que N consultas
+ * concurrentes cuestan un único viaje de red.
+ * Todas las llamadas pasan por {@link CircuitoProductos}: si productos-service
+ * está caído o saturado fallan al instante en lugar de ocupar hilos.
+ * Las consultas GET de productos pueden duplicarse con {@link HedgingProductos}.
  */
 @Service
 @Slf4j
@@ -20,21 +39,229 @@ import java.math.BigDecimal;
 public class ProductoClientService {
 
     private final RestTemplate restTemplate;
+    private final CatalogoProductosReplica replica;
+    private final CircuitoProductos circuito;
+    private final HedgingProductos hedging;
 
     @Value("${productos.service.url:http://PRODUCTOS-SERVICE}")
     private String productosServiceUrl;
 
+    @Value("${productos.client.batch.ventana-ms:5}")
+    private long ventanaMs;
+
+    @Value("${productos.client.batch.max-ids:100}")
+    private int maxIdsPorLote;
+
+    @Value("${productos.client.http.timeout-respuesta:PT2S}")
+    private Duration timeoutRespuesta;
+
+    private final Object lock = new Object();
+    private Map<Long, CompletableFuture<ProductoDTO>> pendientes = new HashMap<>();
+    private final ScheduledExecutorService planificador = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("productos-batch").daemon().factory());
+
+    /**
+     * Obtiene un producto. Si la agrupación está activa, la consulta se combina
+     * con las demás que lleguen en la misma ventana. La espera por el lote está
+     * acotada a la ventana más el timeout de respuesta, para no dejar colgado
+     * al llamador si el lote nunca se completa.
+     */
     public ProductoDTO obtenerProducto(Long productoId) {
+        Optional<ProductoDTO> replicado = replica.buscar(productoId);
+        if (replicado.isPresent()) {
+            return replicado.get();
+        }
+
+        if (ventanaMs <= 0) {
+            ProductoDTO producto = obtenerProductoDirecto(productoId);
+            replica.guardar(producto);
+            return producto;
+        }
+
+        CompletableFuture<ProductoDTO> futuro;
+        boolean primero;
+        boolean loteLleno;
+        synchronized (lock) {
+            futuro = pendientes.computeIfAbsent(productoId, id -> new CompletableFuture<>());
+            primero = pendientes.size() == 1;
+            loteLleno = pendientes.size() >= maxIdsPorLote;
+        }
+
+        if (loteLleno) {
+            despacharLote();
+        } else if (primero) {
+            planificador.schedule(() -> Thread.ofVirtual().start(this::despacharLote),
+                    ventanaMs, TimeUnit.MILLISECONDS);
+        }
+
+        long esperaMs = ventanaMs + timeoutRespuesta.toMillis();
+        try {
+            return futuro.get(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof NoSuchElementException noEncontrado) {
+                throw new RuntimeException("No se pudo obtener la información del producto: " + noEncontrado.getMessage());
+            }
+            throw e.getCause() instanceof RuntimeException causa ? causa : new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            log.error("Sin respuesta del lote para el producto {} tras {} ms", productoId, esperaMs);
+            throw new RuntimeException("No se pudo obtener la información del producto: sin respuesta tras "
+                    + esperaMs + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("No se pudo obtener la información del producto: consulta interrumpida");
+        }
+    }
+
+    /**
+     * Obtiene varios productos con una sola llamada. Los IDs inexistentes no
+     * aparecen en el mapa resultante.
+     */
+    public Map<Long, ProductoDTO> obtenerProductos(Collection<Long> productoIds) {
+        Map<Long, ProductoDTO> resultado = new HashMap<>();
+        List<Long> faltantes = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(productoIds)) {
+            replica.buscar(id).ifPresentOrElse(p -> resultado.put(id, p), () -> faltantes.add(id));
+        }
+        resultado.putAll(obtenerProductosRemotos(faltantes));
+        return resultado;
+    }
+
+    /**
+     * Descarga el catálogo completo para inicializar la réplica local.
+     * GET /productos solo responde a peticiones marcadas como internas.
+     */
+    public List<ProductoDTO> obtenerCatalogo() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Gateway-Passed", "true");
+        ProductoDTO[] productos = circuito.ejecutar("catalogo", () -> restTemplate.exchange(productosServiceUrl + "/productos",
+                HttpMethod.GET, new HttpEntity<>(headers), ProductoDTO[].class).getBody());
+        return productos != null ? Arrays.asList(productos) : List.of();
+    }
+
+    /**
+     * Aparta stock para las líneas indicadas (productoId -> cantidad).
+     * Es todo o nada: si algún producto no alcanza no se reserva ninguno.
+     *
+     * @return ID de la reserva, necesario para confirmarla o liberarla
+     */
+    public String reservarStock(String referencia, Map<Long, Integer> cantidades) {
+        List<ItemReservaDTO> items = cantidades.entrySet().stream()
+                .map(e -> new ItemReservaDTO(e.getKey().intValue(), e.getValue()))
+                .collect(Collectors.toList());
+        try {
+            ReservaStockDTO reserva = circuito.ejecutar("reservar", () -> restTemplate.postForObject(
+                    productosServiceUrl + "/productos/reservas", new ReservaStockRequestDTO(referencia, items), ReservaStockDTO.class));
+            log.info("Stock reservado para {}: reserva {}", referencia, reserva != null ? reserva.getReservaId() : null);
+            return reserva != null ? reserva.getReservaId() : null;
+        } catch (HttpClientErrorException.Conflict e) {
+            throw new IllegalArgumentException("Stock insuficiente para uno o más productos del carrito");
+        } catch (Exception e) {
+            log.error("Error al reservar stock para {}: {}", referencia, e.getMessage());
+            throw new RuntimeException("No se pudo reservar el stock: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Consolida una reserva de stock (el pedido quedó pagado)
+     */
+    public void confirmarReserva(String reservaId) {
+        circuito.ejecutar("confirmar-reserva", () ->
+                restTemplate.postForLocation(productosServiceUrl + "/productos/reservas/" + reservaId + "/confirmar", null));
+    }
+
+    /**
+     * Amplía el TTL de una reserva pendiente. Si ya expiró o se cerró,
+     * productos-service responde 409 (HttpClientErrorException.Conflict).
+     */
+    public void renovarReserva(String reservaId) {
+        circuito.ejecutar("renovar-reserva", () ->
+                restTemplate.postForLocation(productosServiceUrl + "/productos/reservas/" + reservaId + "/renovar", null));
+    }
+
+    /**
+     * Devuelve al inventario el stock de una reserva
+     */
+    public void liberarReserva(String reservaId) {
+        circuito.ejecutar("liberar-reserva", () ->
+                restTemplate.postForLocation(productosServiceUrl + "/productos/reservas/" + reservaId + "/liberar", null));
+    }
+
+    /**
+     * Devuelve al inventario el stock de una reserva ya confirmada (pedido
+     * pagado y después cancelado). Repetirla no repone el stock dos veces.
+     */
+    public void devolverReserva(String reservaId) {
+        circuito.ejecutar("devolver-reserva", () ->
+                restTemplate.postForLocation(productosServiceUrl + "/productos/reservas/" + reservaId + "/devolver", null));
+    }
+
+    private Map<Long, ProductoDTO> obtenerProductosRemotos(Collection<Long> productoIds) {
+        if (productoIds.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            String ids = productoIds.stream().distinct().map(String::valueOf).collect(Collectors.joining(","));
+            String url = productosServiceUrl + "/productos/batch?ids=" + ids;
+            log.debug("Obteniendo {} productos desde {}", productoIds.size(), url);
+            ProductoDTO[] productos = hedging.ejecutar(() ->
+                    circuito.ejecutar("batch", () -> restTemplate.getForObject(url, ProductoDTO[].class)));
+
+            Map<Long, ProductoDTO> resultado = new HashMap<>();
+            if (productos != null) {
+                for (ProductoDTO producto : productos) {
+                    resultado.put(producto.getIdProducto().longValue(), producto);
+                    replica.guardar(producto);
+                }
+            }
+            return resultado;
+        } catch (Exception e) {
+            log.error("Error al obtener productos {}: {}", productoIds, e.getMessage());
+            throw new RuntimeException("No se pudo obtener la información de los productos: " + e.getMessage());
+        }
+    }
+
+    private ProductoDTO obtenerProductoDirecto(Long productoId) {
         try {
             String url = productosServiceUrl + "/productos/" + productoId;
             log.info("Obteniendo producto {} desde {}", productoId, url);
-            return restTemplate.getForObject(url, ProductoDTO.class);
+            return hedging.ejecutar(() ->
+                    circuito.ejecutar("producto", () -> restTemplate.getForObject(url, ProductoDTO.class)));
         } catch (Exception e) {
             log.error("Error al obtener producto {}: {}", productoId, e.getMessage());
             throw new RuntimeException("No se pudo obtener la información del producto: " + e.getMessage());
         }
     }
 
+    private void despacharLote() {
+        Map<Long, CompletableFuture<ProductoDTO>> lote;
+        synchronized (lock) {
+            if (pendientes.isEmpty()) {
+                return;
+            }
+            lote = pendientes;
+            pendientes = new HashMap<>();
+        }
+
+        try {
+            Map<Long, ProductoDTO> productos = obtenerProductosRemotos(lote.keySet());
+            lote.forEach((id, futuro) -> {
+                ProductoDTO producto = productos.get(id);
+                if (producto != null) {
+                    futuro.complete(producto);
+                } else {
+                    futuro.completeExceptionally(new NoSuchElementException("Producto no encontrado: " + id));
+                }
+            });
+        } catch (RuntimeException e) {
+            lote.values().forEach(futuro -> futuro.completeExceptionally(e));
+        }
+    }
+
+    @PreDestroy
+    void cerrar() {
+        planificador.shutdownNow();
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -48,7 +275,32 @@ public class ProductoClientService {
         private Boolean disponible;  // Coincide con el DTO del productos-service
         private String idProductor;
         private String zonaId;
+        private Instant updatedAt;  // Versión del producto, usada por la réplica local
         // Campos adicionales que no vienen del servicio pero pueden ser útiles
         private String nombreProductor;
     }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemReservaDTO {
+        private Integer idProducto;
+        private Integer cantidad;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReservaStockRequestDTO {
+        private String referencia;
+        private List<ItemReservaDTO> items;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class ReservaStockDTO {
+        private String reservaId;
+        private String estado;
+        private Instant expiraEn;
+    }
 }
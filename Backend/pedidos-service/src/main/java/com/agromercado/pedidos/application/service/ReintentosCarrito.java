@@ -0,0 +1,79 @@
+package com.agromercado.pedidos.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Reintenta ediciones de carrito que fallan por bloqueo optimista.
+ *
+ * Cada intento vuelve a leer el carrito, así que la edición se aplica sobre la
+ * versión que ganó. Entre intentos se espera un tiempo aleatorio entre 0 y
+ * {@code espera-base} x 2^intento (jitter completo) para que los clientes en
+ * conflicto no vuelvan a chocar a la vez.
+ */
+@Component
+@Slf4j
+public class ReintentosCarrito {
+
+    private final int maxIntentos;
+    private final long esperaBaseMs;
+    private final long esperaMaximaMs;
+
+    private final Counter conflictos;
+    private final Counter reintentos;
+    private final Counter agotados;
+
+    public ReintentosCarrito(MeterRegistry registry,
+                             @Value("${pedidos.carrito.reintentos.max-intentos:5}") int maxIntentos,
+                             @Value("${pedidos.carrito.reintentos.espera-base-ms:5}") long esperaBaseMs,
+                             @Value("${pedidos.carrito.reintentos.espera-maxima-ms:200}") long esperaMaximaMs) {
+        this.maxIntentos = Math.max(1, maxIntentos);
+        this.esperaBaseMs = esperaBaseMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+
+        this.conflictos = Counter.builder("pedidos.carrito.conflictos").register(registry);
+        this.reintentos = Counter.builder("pedidos.carrito.reintentos").register(registry);
+        this.agotados = Counter.builder("pedidos.carrito.reintentos.agotados").register(registry);
+    }
+
+    /**
+     * Ejecuta la edición y la repite mientras choque con otra escritura del mismo carrito.
+     */
+    public <T> T ejecutar(String clienteId, Supplier<T> edicion) {
+        for (int intento = 1; ; intento++) {
+            try {
+                return edicion.get();
+            } catch (OptimisticLockingFailureException e) {
+                conflictos.increment();
+                if (intento >= maxIntentos) {
+                    agotados.increment();
+                    log.warn("Carrito del cliente {} en conflicto tras {} intentos", clienteId, intento);
+                    throw new IllegalStateException("El carrito se modificó al mismo tiempo desde otra sesión, intente nuevamente");
+                }
+                log.debug("Conflicto al editar el carrito del cliente {} (intento {}), reintentando", clienteId, intento);
+                reintentos.increment();
+                esperar(intento);
+            }
+        }
+    }
+
+    private void esperar(int intento) {
+        long tope = Math.min(esperaMaximaMs, esperaBaseMs << Math.min(intento, 20));
+        if (tope <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(tope + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Edición del carrito interrumpida");
+        }
+    }
+}
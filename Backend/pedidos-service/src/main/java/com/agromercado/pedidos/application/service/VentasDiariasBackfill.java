@@ -0,0 +1,171 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.domain.model.Pedido;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reconstruye ventas_diarias desde pedidos y detalles_pedido.
+ *
+ * El rango se parte en lotes de {@code dias-por-lote} días que se procesan en
+ * paralelo. Cada lote, en su propia transacción, borra sus días y los vuelve a
+ * insertar con un único INSERT ... SELECT agregado. Los pagos o cambios de
+ * estado que ocurran mientras se reconstruye un lote pueden quedar fuera, así
+ * que conviene ejecutarlo con poco tráfico.
+ *
+ * Los pedidos que ArchivadorPedidos movió a pedidos_archivo ya no están en la
+ * fuente: el rango empieza al día siguiente del último pago archivado y los
+ * días anteriores conservan los acumulados que tenían.
+ */
+@Component
+@Slf4j
+public class VentasDiariasBackfill {
+
+    private static final String REEMPLAZAR_LOTE = """
+            INSERT INTO ventas_diarias (productor_id, zona_id, producto_id, dia,
+                unidades_vendidas, ingresos, unidades_entregadas, unidades_canceladas)
+            SELECT COALESCE(d.productor_id, ''), COALESCE(p.zona_id, ''), d.producto_id, CAST(p.fecha_pago AS DATE),
+                   SUM(CASE WHEN p.estado <> 'CANCELADO' THEN d.cantidad ELSE 0 END),
+                   SUM(CASE WHEN p.estado <> 'CANCELADO' THEN d.subtotal ELSE 0 END),
+                   SUM(CASE WHEN p.estado = 'ENTREGADO' THEN d.cantidad ELSE 0 END),
+                   SUM(CASE WHEN p.estado = 'CANCELADO' THEN d.cantidad ELSE 0 END)
+            FROM pedidos p
+            JOIN detalles_pedido d ON d.pedido_id = p.id AND d.particion = p.particion
+            WHERE p.fecha_pago >= ? AND p.fecha_pago < ?
+              AND p.particion > ? AND p.particion <= ?
+            GROUP BY COALESCE(d.productor_id, ''), COALESCE(p.zona_id, ''), d.producto_id, CAST(p.fecha_pago AS DATE)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int paralelismo;
+    private final int diasPorLote;
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+
+    public VentasDiariasBackfill(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${pedidos.ventas.backfill.paralelismo:4}") int paralelismo,
+                                 @Value("${pedidos.ventas.backfill.dias-por-lote:7}") int diasPorLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.paralelismo = paralelismo;
+        this.diasPorLote = diasPorLote;
+    }
+
+    /**
+     * Lanza la reconstrucción en segundo plano. Sin fechas se toma todo el historial de pagos.
+     */
+    public void iniciar(LocalDate desde, LocalDate hasta) {
+        if (!enCurso.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una reconstrucción de ventas en curso");
+        }
+        Thread.ofVirtual().name("ventas-backfill").start(() -> {
+            try {
+                reconstruir(desde, hasta);
+            } catch (RuntimeException e) {
+                log.error("Falló la reconstrucción de ventas diarias: {}", e.getMessage());
+            } finally {
+                enCurso.set(false);
+            }
+        });
+    }
+
+    /**
+     * Reconstruye los días [desde, hasta] y devuelve las filas escritas.
+     */
+    public int reconstruir(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null) {
+            LocalDate[] rango = rangoHistorial();
+            if (rango == null) {
+                log.info("No hay pedidos pagados: nada que reconstruir");
+                return 0;
+            }
+            desde = desde != null ? desde : rango[0];
+            hasta = hasta != null ? hasta : rango[1];
+        }
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("Rango de fechas inválido");
+        }
+        LocalDate ultimoPagoArchivado = ultimoPagoArchivado();
+        if (ultimoPagoArchivado != null && !desde.isAfter(ultimoPagoArchivado)) {
+            log.warn("Ventas diarias: hay pagos archivados hasta el {}, la reconstrucción empieza el día siguiente",
+                    ultimoPagoArchivado);
+            desde = ultimoPagoArchivado.plusDays(1);
+            if (hasta.isBefore(desde)) {
+                return 0;
+            }
+        }
+
+        long inicio = System.currentTimeMillis();
+        List<LocalDate> inicios = new ArrayList<>();
+        for (LocalDate dia = desde; !dia.isAfter(hasta); dia = dia.plusDays(diasPorLote)) {
+            inicios.add(dia);
+        }
+
+        int filas = 0;
+        LocalDate finExclusivo = hasta.plusDays(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(paralelismo,
+                Thread.ofPlatform().name("ventas-backfill-", 0).factory())) {
+            List<Future<Integer>> lotes = new ArrayList<>();
+            for (LocalDate inicioLote : inicios) {
+                LocalDate finLote = inicioLote.plusDays(diasPorLote).isBefore(finExclusivo)
+                        ? inicioLote.plusDays(diasPorLote) : finExclusivo;
+                lotes.add(executor.submit(() -> reconstruirLote(inicioLote, finLote)));
+            }
+            for (Future<Integer> lote : lotes) {
+                filas += lote.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconstrucción interrumpida");
+        }
+
+        log.info("Ventas diarias reconstruidas del {} al {}: {} lotes, {} filas en {} ms",
+                desde, hasta, inicios.size(), filas, System.currentTimeMillis() - inicio);
+        return filas;
+    }
+
+    private int reconstruirLote(LocalDate desde, LocalDate hastaExclusivo) {
+        // Un pedido se paga después de crearse: solo pueden aportar las particiones hasta el fin del lote
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update("DELETE FROM ventas_diarias WHERE dia >= ? AND dia < ?",
+                    Date.valueOf(desde), Date.valueOf(hastaExclusivo));
+            return jdbcTemplate.update(REEMPLAZAR_LOTE,
+                    Timestamp.valueOf(desde.atStartOfDay()), Timestamp.valueOf(hastaExclusivo.atStartOfDay()),
+                    Date.valueOf(Pedido.PARTICION_CARRITOS), Date.valueOf(hastaExclusivo.withDayOfMonth(1)));
+        });
+    }
+
+    private LocalDate ultimoPagoArchivado() {
+        Timestamp ultimo = jdbcTemplate.queryForObject("SELECT MAX(fecha_pago) FROM pedidos_archivo", Timestamp.class);
+        return ultimo != null ? ultimo.toLocalDateTime().toLocalDate() : null;
+    }
+
+    private LocalDate[] rangoHistorial() {
+        return jdbcTemplate.query("SELECT MIN(fecha_pago), MAX(fecha_pago) FROM pedidos WHERE fecha_pago IS NOT NULL",
+                rs -> {
+                    if (!rs.next() || rs.getTimestamp(1) == null) {
+                        return null;
+                    }
+                    return new LocalDate[]{rs.getTimestamp(1).toLocalDateTime().toLocalDate(),
+                            rs.getTimestamp(2).toLocalDateTime().toLocalDate()};
+                });
+    }
+}
@@ -0,0 +1,227 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.application.dto.ResumenVentasResponse;
+import com.agromercado.pedidos.application.dto.VentasAgregadasDTO;
+import com.agromercado.pedidos.domain.model.DetallePedido;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.Pedido;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mantiene y consulta la tabla ventas_diarias.
+ *
+ * Cada pedido pagado aporta sus líneas al día de pago según su estado:
+ * vendidas si no está cancelado, además entregadas si está ENTREGADO, y solo
+ * canceladas si está CANCELADO. Al pagar o cambiar de estado se aplica la
+ * diferencia entre el aporte nuevo y el anterior con incrementos atómicos, en
+ * la misma transacción del cambio; así la tabla coincide siempre con lo que
+ * calcula {@link VentasDiariasBackfill} desde el historial.
+ */
+@Service
+@Slf4j
+public class VentasDiariasService {
+
+    static final String SIN_VALOR = "";
+
+    private static final String UPSERT_POSTGRES = """
+            INSERT INTO ventas_diarias (productor_id, zona_id, producto_id, dia,
+                unidades_vendidas, ingresos, unidades_entregadas, unidades_canceladas)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (productor_id, zona_id, producto_id, dia) DO UPDATE SET
+                unidades_vendidas = ventas_diarias.unidades_vendidas + EXCLUDED.unidades_vendidas,
+                ingresos = ventas_diarias.ingresos + EXCLUDED.ingresos,
+                unidades_entregadas = ventas_diarias.unidades_entregadas + EXCLUDED.unidades_entregadas,
+                unidades_canceladas = ventas_diarias.unidades_canceladas + EXCLUDED.unidades_canceladas
+            """;
+
+    // MERGE estándar para otras bases (H2 en los tests)
+    private static final String UPSERT_ESTANDAR = """
+            MERGE INTO ventas_diarias v
+            USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS BIGINT), CAST(? AS DATE),
+                           CAST(? AS BIGINT), CAST(? AS DECIMAL(14, 2)), CAST(? AS BIGINT), CAST(? AS BIGINT)))
+                AS n(productor_id, zona_id, producto_id, dia,
+                     unidades_vendidas, ingresos, unidades_entregadas, unidades_canceladas)
+            ON v.productor_id = n.productor_id AND v.zona_id = n.zona_id
+               AND v.producto_id = n.producto_id AND v.dia = n.dia
+            WHEN MATCHED THEN UPDATE SET
+                unidades_vendidas = v.unidades_vendidas + n.unidades_vendidas,
+                ingresos = v.ingresos + n.ingresos,
+                unidades_entregadas = v.unidades_entregadas + n.unidades_entregadas,
+                unidades_canceladas = v.unidades_canceladas + n.unidades_canceladas
+            WHEN NOT MATCHED THEN INSERT (productor_id, zona_id, producto_id, dia,
+                unidades_vendidas, ingresos, unidades_entregadas, unidades_canceladas)
+                VALUES (n.productor_id, n.zona_id, n.producto_id, n.dia,
+                        n.unidades_vendidas, n.ingresos, n.unidades_entregadas, n.unidades_canceladas)
+            """;
+
+    private static final String MEDIDAS = "SUM(unidades_vendidas), SUM(ingresos), " +
+            "SUM(unidades_entregadas), SUM(unidades_canceladas)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String sqlUpsert;
+
+    public VentasDiariasService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * El pedido acaba de pagarse: suma sus líneas según su estado actual.
+     */
+    public void registrarPago(Pedido pedido) {
+        aplicar(pedido, Aporte.NINGUNO, Aporte.de(pedido.getEstado()));
+    }
+
+    /**
+     * Ajusta las ventas de un pedido ya pagado que cambió de estado.
+     */
+    public void registrarCambioEstado(Pedido pedido, EstadoPedido anterior) {
+        aplicar(pedido, Aporte.de(anterior), Aporte.de(pedido.getEstado()));
+    }
+
+    private void aplicar(Pedido pedido, Aporte anterior, Aporte nuevo) {
+        if (pedido.getFechaPago() == null || anterior.equals(nuevo)) {
+            return;
+        }
+        int vendidas = nuevo.vendidas() - anterior.vendidas();
+        int entregadas = nuevo.entregadas() - anterior.entregadas();
+        int canceladas = nuevo.canceladas() - anterior.canceladas();
+
+        // Orden fijo de filas: dos pedidos con los mismos productos no se bloquean en orden inverso
+        Map<String, Object[]> filas = new TreeMap<>();
+        Date dia = Date.valueOf(pedido.getFechaPago().toLocalDate());
+        String zonaId = pedido.getZonaId() != null ? pedido.getZonaId() : SIN_VALOR;
+        for (DetallePedido detalle : pedido.getDetalles()) {
+            String productorId = detalle.getProductorId() != null ? detalle.getProductorId() : SIN_VALOR;
+            long unidades = detalle.getCantidad();
+            BigDecimal subtotal = detalle.getSubtotal() != null ? detalle.getSubtotal() : BigDecimal.ZERO;
+            filas.merge(productorId + "|" + detalle.getProductoId(),
+                    new Object[]{productorId, zonaId, detalle.getProductoId(), dia,
+                            unidades * vendidas, subtotal.multiply(BigDecimal.valueOf(vendidas)),
+                            unidades * entregadas, unidades * canceladas},
+                    VentasDiariasService::sumarFilas);
+        }
+
+        jdbcTemplate.batchUpdate(sqlUpsert(), new ArrayList<>(filas.values()));
+        log.debug("Ventas diarias ajustadas para pedido {}: {} filas", pedido.getNumeroPedido(), filas.size());
+    }
+
+    private static Object[] sumarFilas(Object[] a, Object[] b) {
+        return new Object[]{a[0], a[1], a[2], a[3],
+                (long) a[4] + (long) b[4], ((BigDecimal) a[5]).add((BigDecimal) b[5]),
+                (long) a[6] + (long) b[6], (long) a[7] + (long) b[7]};
+    }
+
+    private String sqlUpsert() {
+        if (sqlUpsert == null) {
+            String baseDeDatos = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            sqlUpsert = "PostgreSQL".equalsIgnoreCase(baseDeDatos) ? UPSERT_POSTGRES : UPSERT_ESTANDAR;
+        }
+        return sqlUpsert;
+    }
+
+    @Transactional(readOnly = true)
+    public ResumenVentasResponse resumenProductor(String productorId, String zonaId, LocalDate desde, LocalDate hasta) {
+        String filtro = "productor_id = ?";
+        List<Object> args = new ArrayList<>(List.of(productorId));
+        if (zonaId != null && !zonaId.isBlank()) {
+            filtro += " AND zona_id = ?";
+            args.add(zonaId);
+        }
+        return resumen(filtro, args, false, desde, hasta);
+    }
+
+    @Transactional(readOnly = true)
+    public ResumenVentasResponse resumenZona(String zonaId, LocalDate desde, LocalDate hasta) {
+        return resumen("zona_id = ?", List.of(zonaId), true, desde, hasta);
+    }
+
+    /**
+     * Lee solo las filas del rango: como mucho (días x productos), sin tocar las líneas de pedido.
+     */
+    private ResumenVentasResponse resumen(String filtro, List<Object> args, boolean porProductor,
+                                          LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null || hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("Rango de fechas inválido");
+        }
+        List<Object> argsRango = new ArrayList<>(args);
+        argsRango.add(Date.valueOf(desde));
+        argsRango.add(Date.valueOf(hasta));
+        String where = " FROM ventas_diarias WHERE " + filtro + " AND dia BETWEEN ? AND ?";
+
+        List<VentasAgregadasDTO> porDia = jdbcTemplate.query(
+                "SELECT dia, " + MEDIDAS + where + " GROUP BY dia ORDER BY dia",
+                (rs, fila) -> conMedidas(rs, 2, VentasAgregadasDTO.builder()
+                        .dia(rs.getDate(1).toLocalDate()).build()),
+                argsRango.toArray());
+
+        List<VentasAgregadasDTO> porProducto = porProductor
+                ? jdbcTemplate.query(
+                        "SELECT productor_id, producto_id, " + MEDIDAS + where +
+                                " GROUP BY productor_id, producto_id ORDER BY SUM(ingresos) DESC",
+                        (rs, fila) -> conMedidas(rs, 3, VentasAgregadasDTO.builder()
+                                .productorId(rs.getString(1)).productoId(rs.getLong(2)).build()),
+                        argsRango.toArray())
+                : jdbcTemplate.query(
+                        "SELECT producto_id, " + MEDIDAS + where +
+                                " GROUP BY producto_id ORDER BY SUM(ingresos) DESC",
+                        (rs, fila) -> conMedidas(rs, 2, VentasAgregadasDTO.builder()
+                                .productoId(rs.getLong(1)).build()),
+                        argsRango.toArray());
+
+        ResumenVentasResponse resumen = ResumenVentasResponse.builder()
+                .desde(desde)
+                .hasta(hasta)
+                .ingresos(BigDecimal.ZERO)
+                .porDia(porDia)
+                .porProducto(porProducto)
+                .build();
+        for (VentasAgregadasDTO dia : porDia) {
+            resumen.setUnidadesVendidas(resumen.getUnidadesVendidas() + dia.getUnidadesVendidas());
+            resumen.setIngresos(resumen.getIngresos().add(dia.getIngresos()));
+            resumen.setUnidadesEntregadas(resumen.getUnidadesEntregadas() + dia.getUnidadesEntregadas());
+            resumen.setUnidadesCanceladas(resumen.getUnidadesCanceladas() + dia.getUnidadesCanceladas());
+        }
+        return resumen;
+    }
+
+    /** Completa las cuatro medidas, que empiezan en la columna indicada. */
+    private static VentasAgregadasDTO conMedidas(ResultSet rs, int primera, VentasAgregadasDTO dto) throws SQLException {
+        dto.setUnidadesVendidas(rs.getLong(primera));
+        BigDecimal ingresos = rs.getBigDecimal(primera + 1);
+        dto.setIngresos(ingresos != null ? ingresos : BigDecimal.ZERO);
+        dto.setUnidadesEntregadas(rs.getLong(primera + 2));
+        dto.setUnidadesCanceladas(rs.getLong(primera + 3));
+        return dto;
+    }
+
+    /** Aporte de un pedido pagado a cada medida según su estado. */
+    private record Aporte(int vendidas, int entregadas, int canceladas) {
+
+        static final Aporte NINGUNO = new Aporte(0, 0, 0);
+
+        static Aporte de(EstadoPedido estado) {
+            if (estado == null) {
+                return NINGUNO;
+            }
+            return switch (estado) {
+                case CANCELADO -> new Aporte(0, 0, 1);
+                case ENTREGADO -> new Aporte(1, 1, 0);
+                default -> new Aporte(1, 0, 0);
+            };
+        }
+    }
+}
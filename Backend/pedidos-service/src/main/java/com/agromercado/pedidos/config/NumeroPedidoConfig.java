@@ -0,0 +1,21 @@
+package com.agromercado.pedidos.config;
+
+import com.agromercado.pedidos.application.service.AsignadorWorkerId;
+import com.agromercado.pedidos.application.service.GeneradorNumeroPedidoTemporal;
+import com.agromercado.pedidos.domain.model.GeneradorNumeroPedido;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Generador de números de pedido: ordenado por tiempo, con el worker id que
+ * {@link AsignadorWorkerId} asignó a esta instancia. Sin arriendo vigente no
+ * se generan números.
+ */
+@Configuration
+public class NumeroPedidoConfig {
+
+    @Bean
+    public GeneradorNumeroPedido generadorNumeroPedido(AsignadorWorkerId asignador) {
+        return new GeneradorNumeroPedidoTemporal(asignador::workerIdVigente);
+    }
+}
@@ -0,0 +1,20 @@
+package com.agromercado.pedidos.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor para las llamadas a la pasarela de pagos. Usa hilos virtuales para no
+ * bloquear hilos de Tomcat; la concurrencia la acota PagoService.
+ */
+@Configuration
+public class PagoAsyncConfig {
+
+    @Bean(name = "pagosExecutor", destroyMethod = "close")
+    public ExecutorService pagosExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("pago-", 0).factory());
+    }
+}
@@ -0,0 +1,48 @@
+package com.agromercado.pedidos.config;
+
+import org.springframework.amqp.core.*;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RabbitConfig {
+
+    // Exchange de eventos compartido por todos los microservicios
+    public static final String EVENTS_EXCHANGE = "agromercado.events.exchange";
+
+    // Cola con los cambios de producto que alimentan la réplica local del catálogo
+    public static final String PRODUCTOS_QUEUE = "agromercado.pedidos.productos";
+
+    // Routing keys publicadas por productos-service
+    public static final String RK_PRODUCTO_ACTUALIZADO = "ProductoActualizado.v1";
+    public static final String RK_PRODUCTO_ELIMINADO = "ProductoEliminado.v1";
+
+    // Routing keys publicadas por pedidos-service (vía outbox)
+    public static final String RK_PEDIDO_CONFIRMADO = "PedidoConfirmado.v1";
+    public static final String RK_PEDIDO_PAGADO = "PedidoPagado.v1";
+    public static final String RK_PEDIDO_ESTADO_CAMBIADO = "PedidoEstadoCambiado.v1";
+
+    @Bean("eventsExchange")
+    public TopicExchange eventsExchange() {
+        // durable=true, autoDelete=false
+        return new TopicExchange(EVENTS_EXCHANGE, true, false);
+    }
+
+    @Bean("productosQueue")
+    public Queue productosQueue() {
+        return QueueBuilder.durable(PRODUCTOS_QUEUE).build();
+    }
+
+    @Bean
+    public Binding bindingProductoActualizado(@Qualifier("eventsExchange") TopicExchange exchange,
+                                              @Qualifier("productosQueue") Queue queue) {
+        return BindingBuilder.bind(queue).to(exchange).with(RK_PRODUCTO_ACTUALIZADO);
+    }
+
+    @Bean
+    public Binding bindingProductoEliminado(@Qualifier("eventsExchange") TopicExchange exchange,
+                                            @Qualifier("productosQueue") Queue queue) {
+        return BindingBuilder.bind(queue).to(exchange).with(RK_PRODUCTO_ELIMINADO);
+    }
+}
@@ -1,16 +1,68 @@
 package com.agromercado.pedidos.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
+/**
+ * Cliente HTTP hacia productos-service: pool de conexiones acotado y timeouts
+ * de conexión, de espera por el pool y de respuesta, para que una instancia
+ * lenta no retenga indefinidamente los hilos de pedidos-service.
+ */
 @Configuration
 public class RestTemplateConfig {
 
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager productosConnectionManager(
+            MeterRegistry registry,
+            @Value("${productos.client.http.max-conexiones:50}") int maxConexiones,
+            @Value("${productos.client.http.timeout-conexion:PT1S}") Duration timeoutConexion) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConexiones)
+                .setMaxConnPerRoute(maxConexiones)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(timeoutConexion))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+                        .build())
+                .build();
+        // Expone httpcomponents.httpclient.pool.{total.max,total.connections,route.max.default,total.pending}
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "productos").bindTo(registry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient productosHttpClient(
+            PoolingHttpClientConnectionManager productosConnectionManager,
+            @Value("${productos.client.http.timeout-pool:PT0.5S}") Duration timeoutPool,
+            @Value("${productos.client.http.timeout-respuesta:PT2S}") Duration timeoutRespuesta) {
+        return HttpClients.custom()
+                .setConnectionManager(productosConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(timeoutPool))
+                        .setResponseTimeout(Timeout.of(timeoutRespuesta))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+    }
+
     @Bean
     @LoadBalanced
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(CloseableHttpClient productosHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(productosHttpClient));
     }
 }
@@ -0,0 +1,47 @@
+package com.agromercado.pedidos.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resultado de una petición identificada con Idempotency-Key. Los reintentos
+ * con la misma clave reciben la respuesta guardada en lugar de ejecutarse otra vez.
+ */
+@Entity
+@Table(name = "claves_idempotencia")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClaveIdempotencia {
+
+    public enum Estado {
+        EN_CURSO,
+        COMPLETADA
+    }
+
+    @Id
+    @Column(length = 250)
+    private String clave;  // operación:cliente:Idempotency-Key
+
+    @Column(nullable = false, length = 64)
+    private String huella;  // SHA-256 del cuerpo de la petición original
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Estado estado;
+
+    @Column(columnDefinition = "TEXT")
+    private String respuesta;  // JSON de la respuesta
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "expira_en", nullable = false)
+    private LocalDateTime expiraEn;
+}
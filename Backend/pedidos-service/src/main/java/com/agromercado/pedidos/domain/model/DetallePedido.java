@@ -6,8 +6,10 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.PartitionKey;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 
 @Entity
 @Table(name = "detalles_pedido")
@@ -53,11 +55,32 @@ public class DetallePedido {
     @Column(name = "unidad_medida")
     private String unidadMedida;
 
-    @PrePersist
-    @PreUpdate
+    /**
+     * La misma partición que su pedido. Solo se escribe al insertar: cuando el
+     * pedido cambia de partición la BD mueve sus líneas (FK con ON UPDATE CASCADE).
+     */
+    @PartitionKey
+    @Column(name = "particion", nullable = false, updatable = false)
+    @JsonIgnore
+    private LocalDate particion;
+
+    /**
+     * Recalcula el subtotal de la línea. Pedido lo llama al agregar la línea o
+     * cambiar su cantidad, así que no hace falta repetirlo en cada UPDATE.
+     */
     public void calcularSubtotal() {
         if (cantidad != null && precioUnitario != null) {
-            this.subtotal = precioUnitario.multiply(new BigDecimal(cantidad));
+            this.subtotal = Dinero.de(precioUnitario).por(cantidad).aBigDecimal();
+        }
+    }
+
+    @PrePersist
+    void asegurarSubtotal() {
+        if (subtotal == null) {
+            calcularSubtotal();
+        }
+        if (particion == null && pedido != null) {
+            particion = pedido.getParticion();
         }
     }
 }
@@ -0,0 +1,54 @@
+package com.agromercado.pedidos.domain.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Importe en centavos. Las columnas de dinero siguen siendo DECIMAL(10,2);
+ * este tipo solo evita operar con BigDecimal al recalcular totales.
+ */
+public record Dinero(long centavos) {
+
+    public static final Dinero CERO = new Dinero(0);
+
+    private static final int DECIMALES = 2;
+    private static final long ESCALA_TASA = 10_000;
+
+    public static Dinero de(BigDecimal valor) {
+        if (valor == null) {
+            return CERO;
+        }
+        return new Dinero(valor.setScale(DECIMALES, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Convierte una tasa decimal ("0.19") a diezmilésimas (1900) para aplicarla
+     * con {@link #porTasa(long)} sin volver a interpretarla.
+     */
+    public static long tasaEnDiezmilesimas(String tasa) {
+        return new BigDecimal(tasa).movePointRight(4).longValueExact();
+    }
+
+    public Dinero mas(Dinero otro) {
+        return new Dinero(Math.addExact(centavos, otro.centavos));
+    }
+
+    public Dinero menos(Dinero otro) {
+        return new Dinero(Math.subtractExact(centavos, otro.centavos));
+    }
+
+    public Dinero por(int cantidad) {
+        return new Dinero(Math.multiplyExact(centavos, cantidad));
+    }
+
+    /**
+     * Aplica una tasa en diezmilésimas, redondeando el centavo hacia arriba desde la mitad.
+     */
+    public Dinero porTasa(long diezmilesimas) {
+        return new Dinero(Math.floorDiv(Math.multiplyExact(centavos, diezmilesimas) + ESCALA_TASA / 2, ESCALA_TASA));
+    }
+
+    public BigDecimal aBigDecimal() {
+        return BigDecimal.valueOf(centavos, DECIMALES);
+    }
+}
@@ -1,5 +1,10 @@
 package com.agromercado.pedidos.domain.model;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum EstadoPedido {
     CARRITO,           // En el carrito de compras (no confirmado)
     PENDIENTE,         // Pedido confirmado, esperando pago
@@ -7,5 +12,29 @@ public enum EstadoPedido {
     EN_PREPARACION,    // En preparación
     ENVIADO,           // Enviado al cliente
     ENTREGADO,         // Entregado
-    CANCELADO          // Cancelado
+    CANCELADO;         // Cancelado
+
+    // Transiciones que un administrador puede aplicar directamente. Confirmar,
+    // pagar y cancelar tienen sus propios flujos (stock, pasarela, reembolsos).
+    private static final Map<EstadoPedido, Set<EstadoPedido>> TRANSICIONES = new EnumMap<>(EstadoPedido.class);
+
+    static {
+        for (EstadoPedido estado : values()) {
+            TRANSICIONES.put(estado, EnumSet.noneOf(EstadoPedido.class));
+        }
+        TRANSICIONES.put(PAGADO, EnumSet.of(EN_PREPARACION));
+        TRANSICIONES.put(EN_PREPARACION, EnumSet.of(ENVIADO, ENTREGADO));
+        TRANSICIONES.put(ENVIADO, EnumSet.of(ENTREGADO));
+    }
+
+    // El cliente puede cancelar mientras el pedido no haya salido; si ya pagó se reembolsa
+    private static final Set<EstadoPedido> CANCELABLES = EnumSet.of(PENDIENTE, PAGADO, EN_PREPARACION);
+
+    public boolean puedeCambiarA(EstadoPedido destino) {
+        return TRANSICIONES.get(this).contains(destino);
+    }
+
+    public boolean esCancelable() {
+        return CANCELABLES.contains(this);
+    }
 }
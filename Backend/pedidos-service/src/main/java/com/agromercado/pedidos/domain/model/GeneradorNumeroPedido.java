@@ -0,0 +1,11 @@
+package com.agromercado.pedidos.domain.model;
+
+/**
+ * Genera el número visible de un pedido al confirmarlo.
+ * Las implementaciones deben ser seguras entre hilos y no repetir números.
+ */
+@FunctionalInterface
+public interface GeneradorNumeroPedido {
+
+    String generar();
+}
@@ -0,0 +1,42 @@
+package com.agromercado.pedidos.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pedido que la conciliación de pagos no pudo reparar solo. Guarda la versión
+ * del pedido con la que se marcó: mientras el pedido y el motivo no cambien,
+ * las pasadas siguientes no lo vuelven a reportar.
+ */
+@Entity
+@Table(name = "incidencias_conciliacion")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IncidenciaConciliacion {
+
+    @Id
+    @Column(name = "pedido_id")
+    private Long pedidoId;
+
+    @Column(nullable = false, length = 40)
+    private String caso;
+
+    @Column(nullable = false, length = 500)
+    private String motivo;
+
+    @Column(name = "version_pedido")
+    private Long versionPedido;
+
+    @Column(name = "fecha_deteccion", nullable = false)
+    private LocalDateTime fechaDeteccion;
+
+    @Column(name = "fecha_revision", nullable = false)
+    private LocalDateTime fechaRevision;  // Última pasada que lo encontró
+}
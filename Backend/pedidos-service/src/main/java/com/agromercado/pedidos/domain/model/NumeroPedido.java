@@ -0,0 +1,33 @@
+package com.agromercado.pedidos.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Número de pedido ya asignado. pedidos está particionada y no puede tener un
+ * índice único sobre numero_pedido; esta tabla lo garantiza para todos los
+ * pedidos, archivados incluidos.
+ */
+@Entity
+@Table(name = "numeros_pedido")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NumeroPedido {
+
+    @Id
+    @Column(name = "numero_pedido", length = 50)
+    private String numeroPedido;
+
+    @Column(name = "pedido_id", nullable = false)
+    private Long pedidoId;
+
+    @Column(name = "fecha_asignacion", nullable = false)
+    private LocalDateTime fechaAsignacion;
+}
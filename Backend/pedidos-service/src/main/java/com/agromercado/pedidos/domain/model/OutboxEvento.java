@@ -0,0 +1,92 @@
+package com.agromercado.pedidos.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Evento de dominio pendiente de publicar en RabbitMQ (patrón outbox).
+ * Mientras está PENDING, {@code siguienteIntento} indica desde cuándo puede
+ * volver a publicarse; tras agotar los intentos queda FAILED para revisión.
+ */
+@Entity
+@Table(name = "outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvento {
+
+    public static final String PENDIENTE = "PENDING";
+    public static final String ENVIADO = "SENT";
+    public static final String FALLIDO = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id", nullable = false, unique = true, length = 50)
+    private String eventId;
+
+    @Column(name = "event_type", nullable = false, length = 120)
+    private String eventType;  // Routing key, p. ej. PedidoConfirmado.v1
+
+    @Column(name = "payload", columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Column(name = "aggregate_id", length = 50)
+    private String aggregateId;  // ID del pedido
+
+    @Column(name = "zona_id", length = 50)
+    private String zonaId;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "occurred_at", nullable = false)
+    private Instant occurredAt;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "sent_at")
+    private Instant sentAt;
+
+    @Column(name = "intentos", nullable = false)
+    private int intentos;
+
+    @Column(name = "next_attempt_at")
+    private Instant siguienteIntento;  // null: se puede publicar ya
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        if (status == null) {
+            status = PENDIENTE;
+        }
+    }
+
+    public void marcarEnviado() {
+        this.status = ENVIADO;
+        this.sentAt = Instant.now();
+        this.lastError = null;
+    }
+
+    public void registrarFallo(String error, Instant siguienteIntento) {
+        this.intentos++;
+        this.lastError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        this.siguienteIntento = siguienteIntento;
+    }
+
+    public void marcarFallido(String error) {
+        registrarFallo(error, null);
+        this.status = FALLIDO;
+    }
+}
@@ -0,0 +1,83 @@
+package com.agromercado.pedidos.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Intento de pago de un pedido. Se crea en PROCESANDO y se resuelve de forma
+ * asíncrona cuando la pasarela responde.
+ */
+@Entity
+@Table(name = "pagos")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Pago {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pedido_id", nullable = false)
+    private Long pedidoId;
+
+    @Column(name = "cliente_id", nullable = false)
+    private String clienteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoPago estado;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "metodo_pago", nullable = false)
+    private MetodoPago metodoPago;
+
+    @Column(name = "monto", precision = 10, scale = 2, nullable = false)
+    private BigDecimal monto;
+
+    @Column(name = "transaccion_id")
+    private String transaccionId;  // ID devuelto por la pasarela
+
+    @Column(name = "mensaje", length = 500)
+    private String mensaje;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_resolucion")
+    private LocalDateTime fechaResolucion;
+
+    @PrePersist
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+        if (estado == null) {
+            estado = EstadoPago.PROCESANDO;
+        }
+    }
+
+    public void aprobar(String transaccionId, String mensaje) {
+        this.estado = EstadoPago.APROBADO;
+        this.transaccionId = transaccionId;
+        this.mensaje = mensaje;
+        this.fechaResolucion = LocalDateTime.now();
+    }
+
+    public void rechazar(String transaccionId, String mensaje) {
+        this.estado = EstadoPago.RECHAZADO;
+        this.transaccionId = transaccionId;
+        this.mensaje = mensaje;
+        this.fechaResolucion = LocalDateTime.now();
+    }
+
+    public void reembolsar(String mensaje) {
+        this.estado = EstadoPago.REEMBOLSADO;
+        this.mensaje = mensaje;
+    }
+}
@@ -1,13 +1,21 @@
 package com.agromercado.pedidos.domain.model;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.PartitionKey;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -19,6 +27,12 @@ import java.util.List;
 @Builder
 public class Pedido {
 
+    /** IVA (19%) en diezmilésimas */
+    private static final long TASA_IVA = Dinero.tasaEnDiezmilesimas("0.19");
+
+    /** Partición de todos los carritos; al confirmarse pasan a la del mes de su creación */
+    public static final LocalDate PARTICION_CARRITOS = LocalDate.of(1970, 1, 1);
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -35,8 +49,8 @@ public class Pedido {
     @Column(name = "zona_id")
     private String zonaId;  // Zona desde donde se compran los productos
 
-    @Column(name = "numero_pedido", unique = true)
-    private String numeroPedido;  // Número único del pedido
+    @Column(name = "numero_pedido")
+    private String numeroPedido;  // Número único del pedido; la unicidad la garantiza numeros_pedido (V18)
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -71,6 +85,9 @@ public class Pedido {
     @Column(name = "fecha_creacion", nullable = false)
     private LocalDateTime fechaCreacion;
 
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;  // Última escritura; la limpieza de carritos abandonados la usa
+
     @Column(name = "fecha_confirmacion")
     private LocalDateTime fechaConfirmacion;
 
@@ -83,55 +100,126 @@ public class Pedido {
     @Column(name = "transaccion_pago_id")
     private String transaccionPagoId;  // ID de la transacción de pago simulado
 
+    @Column(name = "reserva_stock_id", length = 50)
+    private String reservaStockId;  // Reserva de stock en productos-service
+
+    @Version
+    @Column(name = "version")
+    private Long version;  // Bloqueo optimista: dos ediciones concurrentes no se pisan
+
+    @PartitionKey
+    @Column(name = "particion", nullable = false)
+    private LocalDate particion;  // Clave de partición mensual (V15); Hibernate la agrega al WHERE de cada escritura
+
     @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<DetallePedido> detalles = new ArrayList<>();
 
+    /**
+     * Suma de los subtotales de las líneas, mantenida al agregar, quitar o
+     * cambiar líneas. Null hasta la primera edición tras cargar el pedido.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Dinero subtotalAcumulado;
+
     @PrePersist
     protected void onCreate() {
-        fechaCreacion = LocalDateTime.now();
+        // Precisión de la columna TIMESTAMP: el cursor de paginación compara este valor exacto
+        fechaCreacion = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        fechaActualizacion = fechaCreacion;
         if (estado == null) {
             estado = EstadoPedido.CARRITO;
         }
         if (estadoPago == null) {
             estadoPago = EstadoPago.PENDIENTE;
         }
+        particion = estado == EstadoPedido.CARRITO ? PARTICION_CARRITOS : particionDelMes(fechaCreacion);
+        detalles.forEach(detalle -> detalle.setParticion(particion));
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        fechaActualizacion = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
     }
 
-    // Métodos de utilidad
+    // Métodos de utilidad: los totales se ajustan con la diferencia de la línea tocada
     public void agregarDetalle(DetallePedido detalle) {
+        if (detalle.getSubtotal() == null) {
+            detalle.calcularSubtotal();
+        }
         detalles.add(detalle);
         detalle.setPedido(this);
+        ajustarSubtotal(Dinero.de(detalle.getSubtotal()));
     }
 
     public void eliminarDetalle(DetallePedido detalle) {
-        detalles.remove(detalle);
+        if (detalles.remove(detalle)) {
+            ajustarSubtotal(Dinero.CERO.menos(Dinero.de(detalle.getSubtotal())));
+        }
         detalle.setPedido(null);
     }
 
+    public void cambiarCantidad(DetallePedido detalle, int cantidad) {
+        Dinero anterior = Dinero.de(detalle.getSubtotal());
+        detalle.setCantidad(cantidad);
+        detalle.calcularSubtotal();
+        ajustarSubtotal(Dinero.de(detalle.getSubtotal()).menos(anterior));
+    }
+
+    public void vaciar() {
+        detalles.forEach(detalle -> detalle.setPedido(null));
+        detalles.clear();
+        aplicarSubtotal(Dinero.CERO);
+    }
+
+    /**
+     * Recalcula los totales desde cero recorriendo todas las líneas.
+     */
     public void calcularTotal() {
-        // Asegurar que todos los detalles tengan su subtotal calculado
-        detalles.forEach(detalle -> {
+        Dinero suma = Dinero.CERO;
+        for (DetallePedido detalle : detalles) {
             if (detalle.getSubtotal() == null) {
                 detalle.calcularSubtotal();
             }
-        });
+            suma = suma.mas(Dinero.de(detalle.getSubtotal()));
+        }
+        aplicarSubtotal(suma);
+    }
 
-        // Sumar subtotales (filtrar nulls por seguridad)
-        this.subtotal = detalles.stream()
-            .map(DetallePedido::getSubtotal)
-            .filter(subtotal -> subtotal != null)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private void ajustarSubtotal(Dinero diferencia) {
+        if (subtotalAcumulado == null) {
+            // Recién cargado: las líneas ya incluyen el cambio
+            calcularTotal();
+        } else {
+            aplicarSubtotal(subtotalAcumulado.mas(diferencia));
+        }
+    }
 
-        // Calcular impuestos (IVA 19%)
-        this.impuestos = subtotal.multiply(new BigDecimal("0.19"));
-        this.total = subtotal.add(impuestos);
+    private void aplicarSubtotal(Dinero nuevoSubtotal) {
+        Dinero iva = nuevoSubtotal.porTasa(TASA_IVA);
+        this.subtotalAcumulado = nuevoSubtotal;
+        this.subtotal = nuevoSubtotal.aBigDecimal();
+        this.impuestos = iva.aBigDecimal();
+        this.total = nuevoSubtotal.mas(iva).aBigDecimal();
     }
 
-    public void confirmar() {
+    public void confirmar(GeneradorNumeroPedido generador) {
         this.estado = EstadoPedido.PENDIENTE;
         this.fechaConfirmacion = LocalDateTime.now();
-        this.numeroPedido = generarNumeroPedido();
+        this.numeroPedido = generador.generar();
+        // La fila pasa de la partición de carritos a la de su mes; las líneas la siguen por la FK
+        this.particion = particionDelMes(fechaCreacion != null ? fechaCreacion : fechaConfirmacion);
+    }
+
+    /**
+     * Partición mensual de un pedido creado en {@code fecha}: el primer día de su mes.
+     */
+    public static LocalDate particionDelMes(LocalDateTime fecha) {
+        return fecha.toLocalDate().withDayOfMonth(1);
     }
 
     public void marcarComoPagado(String transaccionId) {
@@ -140,8 +228,4 @@ public class Pedido {
         this.fechaPago = LocalDateTime.now();
         this.transaccionPagoId = transaccionId;
     }
-
-    private String generarNumeroPedido() {
-        return "PED-" + System.currentTimeMillis();
-    }
 }
@@ -0,0 +1,52 @@
+package com.agromercado.pedidos.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.Length;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pedido entregado o cancelado que {@code ArchivadorPedidos} sacó de la tabla
+ * particionada. Solo las columnas de búsqueda van aparte; {@code datos} guarda
+ * el pedido completo con sus líneas en JSON, tal como lo devolvía GET /pedidos/{id}.
+ */
+@Entity
+@Table(name = "pedidos_archivo")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PedidoArchivado {
+
+    @Id
+    private Long id;  // El mismo id que tenía en pedidos
+
+    @Column(name = "cliente_id", nullable = false)
+    private String clienteId;
+
+    @Column(name = "zona_id")
+    private String zonaId;
+
+    @Column(name = "numero_pedido")
+    private String numeroPedido;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false, length = 20)
+    private EstadoPedido estado;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_pago")
+    private LocalDateTime fechaPago;  // Límite de la reconstrucción de ventas_diarias
+
+    @Column(name = "fecha_archivo", nullable = false)
+    private LocalDateTime fechaArchivo;
+
+    @Column(name = "datos", nullable = false, length = Length.LONG32)
+    private String datos;
+}
@@ -0,0 +1,92 @@
+package com.agromercado.pedidos.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Reembolso pendiente de un pedido cancelado (cola de trabajo en BD).
+ * Mientras está PENDIENTE, {@code siguienteIntento} indica cuándo puede tomarlo un worker.
+ */
+@Entity
+@Table(name = "reembolsos")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Reembolso {
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String COMPLETADO = "COMPLETADO";
+    public static final String FALLIDO = "FALLIDO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pedido_id", nullable = false, unique = true)
+    private Long pedidoId;
+
+    @Column(name = "pago_id")
+    private Long pagoId;  // Pago aprobado que se devuelve, si existe
+
+    @Column(name = "transaccion_id")
+    private String transaccionId;  // Transacción de la pasarela a reembolsar
+
+    @Column(name = "monto", precision = 10, scale = 2, nullable = false)
+    private BigDecimal monto;
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado;
+
+    @Column(name = "intentos", nullable = false)
+    private int intentos;
+
+    @Column(name = "siguiente_intento", nullable = false)
+    private LocalDateTime siguienteIntento;
+
+    @Column(name = "fecha_aprobacion_pasarela")
+    private LocalDateTime fechaAprobacionPasarela;  // La pasarela ya devolvió el dinero; los reintentos no la vuelven a llamar
+
+    @Column(name = "ultimo_error", length = 500)
+    private String ultimoError;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_resolucion")
+    private LocalDateTime fechaResolucion;
+
+    @PrePersist
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+        if (estado == null) {
+            estado = PENDIENTE;
+        }
+        if (siguienteIntento == null) {
+            siguienteIntento = fechaCreacion;
+        }
+    }
+
+    public void completar() {
+        this.estado = COMPLETADO;
+        this.ultimoError = null;
+        this.fechaResolucion = LocalDateTime.now();
+    }
+
+    public void registrarFallo(String error, LocalDateTime siguienteIntento) {
+        this.ultimoError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        this.siguienteIntento = siguienteIntento;
+    }
+
+    public void marcarFallido(String error) {
+        registrarFallo(error, this.siguienteIntento);
+        this.estado = FALLIDO;
+        this.fechaResolucion = LocalDateTime.now();
+    }
+}
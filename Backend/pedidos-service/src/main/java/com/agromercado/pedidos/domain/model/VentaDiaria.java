@@ -0,0 +1,58 @@
+package com.agromercado.pedidos.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Ventas acumuladas de un producto de un productor en una zona y día de pago.
+ * Solo se modifica con incrementos atómicos desde VentasDiariasService.
+ */
+@Entity
+@Table(name = "ventas_diarias")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VentaDiaria {
+
+    @EmbeddedId
+    private Clave clave;
+
+    @Column(name = "unidades_vendidas", nullable = false)
+    private long unidadesVendidas;  // Unidades de pedidos pagados no cancelados
+
+    @Column(name = "ingresos", precision = 14, scale = 2, nullable = false)
+    private BigDecimal ingresos;  // Subtotales (sin IVA) de esas unidades
+
+    @Column(name = "unidades_entregadas", nullable = false)
+    private long unidadesEntregadas;
+
+    @Column(name = "unidades_canceladas", nullable = false)
+    private long unidadesCanceladas;  // Unidades de pedidos pagados y luego cancelados
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+
+        @Column(name = "productor_id", nullable = false)
+        private String productorId;
+
+        @Column(name = "zona_id", nullable = false)
+        private String zonaId;
+
+        @Column(name = "producto_id", nullable = false)
+        private Long productoId;
+
+        @Column(name = "dia", nullable = false)
+        private LocalDate dia;
+    }
+}
@@ -0,0 +1,57 @@
+package com.agromercado.pedidos.domain.repository;
+
+import com.agromercado.pedidos.domain.model.ClaveIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Repository
+public interface ClaveIdempotenciaRepository extends JpaRepository<ClaveIdempotencia, String> {
+
+    /**
+     * Registra la clave como EN_CURSO. Falla con una violación de clave primaria
+     * si otra petición (de esta u otra instancia) ya la registró.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO claves_idempotencia (clave, huella, estado, fecha_creacion, expira_en) " +
+            "VALUES (:clave, :huella, 'EN_CURSO', :ahora, :expiraEn)", nativeQuery = true)
+    void registrarEnCurso(@Param("clave") String clave,
+                          @Param("huella") String huella,
+                          @Param("ahora") LocalDateTime ahora,
+                          @Param("expiraEn") LocalDateTime expiraEn);
+
+    @Modifying
+    @Query("UPDATE ClaveIdempotencia c SET c.estado = :estado, c.respuesta = :respuesta, c.expiraEn = :expiraEn " +
+            "WHERE c.clave = :clave")
+    int actualizar(@Param("clave") String clave,
+                   @Param("estado") ClaveIdempotencia.Estado estado,
+                   @Param("respuesta") String respuesta,
+                   @Param("expiraEn") LocalDateTime expiraEn);
+
+    /**
+     * Extiende el arriendo de las claves que siguen en el estado indicado
+     * (EN_CURSO). Las que ya se completaron o liberaron no se tocan.
+     */
+    @Modifying
+    @Query("UPDATE ClaveIdempotencia c SET c.expiraEn = :expiraEn WHERE c.clave IN :claves AND c.estado = :estado")
+    int renovar(@Param("claves") Collection<String> claves,
+                @Param("estado") ClaveIdempotencia.Estado estado,
+                @Param("expiraEn") LocalDateTime expiraEn);
+
+    @Modifying
+    @Query("DELETE FROM ClaveIdempotencia c WHERE c.clave = :clave")
+    int liberar(@Param("clave") String clave);
+
+    @Modifying
+    @Query("DELETE FROM ClaveIdempotencia c WHERE c.clave = :clave AND c.expiraEn < :ahora")
+    int eliminarSiExpirada(@Param("clave") String clave, @Param("ahora") LocalDateTime ahora);
+
+    @Modifying
+    @Query("DELETE FROM ClaveIdempotencia c WHERE c.expiraEn < :ahora")
+    int eliminarExpiradas(@Param("ahora") LocalDateTime ahora);
+}
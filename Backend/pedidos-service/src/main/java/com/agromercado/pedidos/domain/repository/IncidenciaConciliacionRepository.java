@@ -0,0 +1,26 @@
+package com.agromercado.pedidos.domain.repository;
+
+import com.agromercado.pedidos.domain.model.IncidenciaConciliacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IncidenciaConciliacionRepository extends JpaRepository<IncidenciaConciliacion, Long> {
+
+    @Modifying
+    @Query("UPDATE IncidenciaConciliacion i SET i.fechaRevision = :ahora WHERE i.pedidoId = :pedidoId")
+    int marcarRevisada(@Param("pedidoId") Long pedidoId, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Borra las incidencias que la última pasada ya no encontró: el pedido se
+     * reparó o cambió y dejó de ser inconsistente.
+     */
+    @Modifying
+    @Query("DELETE FROM IncidenciaConciliacion i WHERE i.fechaRevision < :inicio")
+    int eliminarNoRevisadas(@Param("inicio") LocalDateTime inicio);
+}
@@ -0,0 +1,25 @@
+package com.agromercado.pedidos.domain.repository;
+
+import com.agromercado.pedidos.domain.model.NumeroPedido;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface NumeroPedidoRepository extends JpaRepository<NumeroPedido, String> {
+
+    /**
+     * Registra el número asignado al pedido. Falla con una violación de clave
+     * primaria si ya se asignó a otro pedido.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO numeros_pedido (numero_pedido, pedido_id, fecha_asignacion) " +
+            "VALUES (:numeroPedido, :pedidoId, :ahora)", nativeQuery = true)
+    void registrar(@Param("numeroPedido") String numeroPedido,
+                   @Param("pedidoId") Long pedidoId,
+                   @Param("ahora") LocalDateTime ahora);
+}
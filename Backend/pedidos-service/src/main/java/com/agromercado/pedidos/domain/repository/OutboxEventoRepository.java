@@ -0,0 +1,32 @@
+package com.agromercado.pedidos.domain.repository;
+
+import com.agromercado.pedidos.domain.model.OutboxEvento;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface OutboxEventoRepository extends JpaRepository<OutboxEvento, Long> {
+
+    /**
+     * Bloquea el siguiente lote de pendientes cuyo turno ya llegó. Con SKIP LOCKED
+     * varias instancias pueden publicar a la vez sin tomar los mismos eventos.
+     */
+    @Query(value = """
+            SELECT * FROM outbox
+            WHERE status = 'PENDING' AND (next_attempt_at IS NULL OR next_attempt_at <= :ahora)
+            ORDER BY id
+            LIMIT :limite
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<OutboxEvento> bloquearPendientes(@Param("ahora") Instant ahora, @Param("limite") int limite);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvento e WHERE e.status = 'SENT' AND e.sentAt < :antesDe")
+    int eliminarEnviados(@Param("antesDe") Instant antesDe);
+}
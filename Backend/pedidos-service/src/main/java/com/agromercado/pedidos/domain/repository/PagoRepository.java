@@ -0,0 +1,21 @@
+package com.agromercado.pedidos.domain.repository;
+
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.Pago;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PagoRepository extends JpaRepository<Pago, Long> {
+
+    List<Pago> findByPedidoIdOrderByFechaCreacionDesc(Long pedidoId);
+
+    @Modifying
+    @Query("UPDATE Pago p SET p.estado = :estado, p.mensaje = :mensaje WHERE p.id = :id")
+    int cambiarEstado(@Param("id") Long pagoId, @Param("estado") EstadoPago estado, @Param("mensaje") String mensaje);
+}
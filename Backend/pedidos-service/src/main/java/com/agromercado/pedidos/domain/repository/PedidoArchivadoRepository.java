@@ -0,0 +1,32 @@
+package com.agromercado.pedidos.domain.repository;
+
+import com.agromercado.pedidos.domain.model.PedidoArchivado;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PedidoArchivadoRepository extends JpaRepository<PedidoArchivado, Long> {
+
+    /**
+     * Primera página de los pedidos archivados del cliente, del más reciente al más antiguo
+     */
+    @Query("SELECT a FROM PedidoArchivado a WHERE a.clienteId = :clienteId ORDER BY a.fechaCreacion DESC, a.id DESC")
+    List<PedidoArchivado> buscarDelCliente(@Param("clienteId") String clienteId, Limit limite);
+
+    /**
+     * Páginas siguientes: pedidos posteriores al cursor en el orden (fecha_creacion DESC, id DESC)
+     */
+    @Query("SELECT a FROM PedidoArchivado a WHERE a.clienteId = :clienteId " +
+            "AND (a.fechaCreacion < :fechaCreacion OR (a.fechaCreacion = :fechaCreacion AND a.id < :id)) " +
+            "ORDER BY a.fechaCreacion DESC, a.id DESC")
+    List<PedidoArchivado> buscarDelClienteDespuesDe(@Param("clienteId") String clienteId,
+                                                    @Param("fechaCreacion") LocalDateTime fechaCreacion,
+                                                    @Param("id") Long id,
+                                                    Limit limite);
+}
@@ -0,0 +1,33 @@
+package com.agromercado.pedidos.domain.repository;
+
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Escrituras de pedidos que no se expresan bien con save().
+ */
+public interface PedidoEscrituraRepository {
+
+    /**
+     * Crea el carrito vacío del cliente si todavía no tiene uno. Es seguro ante
+     * peticiones concurrentes: el índice único parcial sobre (cliente_id) de los
+     * carritos garantiza que solo una inserción gana.
+     *
+     * @return 1 si se creó el carrito, 0 si ya existía
+     */
+    int crearCarritoSiNoExiste(String clienteId, String clienteNombre, String clienteEmail);
+
+    /**
+     * Bloquea (SELECT ... FOR UPDATE, en orden de ID) los pedidos indicados y
+     * devuelve su estado actual y su partición, para que las consultas siguientes
+     * sobre esos pedidos filtren por ella. Los carritos no se bloquean y, como los
+     * IDs inexistentes, no aparecen en el mapa. Requiere una transacción activa.
+     */
+    Map<Long, EstadoBloqueado> bloquearEstados(Collection<Long> pedidoIds);
+
+    record EstadoBloqueado(EstadoPedido estado, LocalDate particion) {
+    }
+}
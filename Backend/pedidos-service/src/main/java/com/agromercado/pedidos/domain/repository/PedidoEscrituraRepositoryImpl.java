@@ -0,0 +1,87 @@
+package com.agromercado.pedidos.domain.repository;
+
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.Pedido;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class PedidoEscrituraRepositoryImpl implements PedidoEscrituraRepository {
+
+    private static final String COLUMNAS_CARRITO = """
+            INSERT INTO pedidos (cliente_id, cliente_nombre, cliente_email, estado, estado_pago,
+                                 subtotal, impuestos, total, fecha_creacion, fecha_actualizacion, version, particion)
+            """;
+
+    private static final String CREAR_CARRITO_POSTGRES = COLUMNAS_CARRITO + """
+            VALUES (:clienteId, :clienteNombre, :clienteEmail, 'CARRITO', 'PENDIENTE', 0, 0, 0, :ahora, :ahora, 0, :carritos)
+            ON CONFLICT (cliente_id, particion) WHERE estado = 'CARRITO' DO NOTHING
+            """;
+
+    // Otras bases (H2 en los tests) no tienen el índice parcial: basta con no duplicar en el caso secuencial
+    private static final String CREAR_CARRITO_ESTANDAR = COLUMNAS_CARRITO + """
+            SELECT :clienteId, :clienteNombre, :clienteEmail, 'CARRITO', 'PENDIENTE', 0, 0, 0, :ahora, :ahora, 0, :carritos
+            FROM (VALUES (1)) AS uno(x)
+            WHERE NOT EXISTS (SELECT 1 FROM pedidos WHERE cliente_id = :clienteId AND estado = 'CARRITO'
+                              AND particion = :carritos)
+            """;
+
+    // Sin la partición de cada pedido solo se puede descartar la de carritos
+    private static final String BLOQUEAR_ESTADOS =
+            "SELECT id, estado, particion FROM pedidos WHERE id IN (:ids) AND particion > :carritos ORDER BY id FOR UPDATE";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile String sqlCrearCarrito;
+
+    @Override
+    public int crearCarritoSiNoExiste(String clienteId, String clienteNombre, String clienteEmail) {
+        return entityManager.createNativeQuery(sqlCrearCarrito())
+                .setParameter("clienteId", clienteId)
+                .setParameter("clienteNombre", clienteNombre)
+                .setParameter("clienteEmail", clienteEmail)
+                .setParameter("ahora", LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
+                .setParameter("carritos", Pedido.PARTICION_CARRITOS)
+                .executeUpdate();
+    }
+
+    @Override
+    public Map<Long, EstadoBloqueado> bloquearEstados(Collection<Long> pedidoIds) {
+        Map<Long, EstadoBloqueado> estados = new HashMap<>();
+        if (pedidoIds.isEmpty()) {
+            return estados;
+        }
+        @SuppressWarnings("unchecked")
+        List<Object[]> filas = entityManager.createNativeQuery(BLOQUEAR_ESTADOS)
+                .setParameter("ids", pedidoIds)
+                .setParameter("carritos", Pedido.PARTICION_CARRITOS)
+                .getResultList();
+        for (Object[] fila : filas) {
+            estados.put(((Number) fila[0]).longValue(), new EstadoBloqueado(
+                    EstadoPedido.valueOf((String) fila[1]), aFecha(fila[2])));
+        }
+        return estados;
+    }
+
+    private static LocalDate aFecha(Object valor) {
+        return valor instanceof java.sql.Date fecha ? fecha.toLocalDate() : (LocalDate) valor;
+    }
+
+    private String sqlCrearCarrito() {
+        if (sqlCrearCarrito == null) {
+            String baseDeDatos = entityManager.unwrap(Session.class)
+                    .doReturningWork(c -> c.getMetaData().getDatabaseProductName());
+            sqlCrearCarrito = "PostgreSQL".equalsIgnoreCase(baseDeDatos) ? CREAR_CARRITO_POSTGRES : CREAR_CARRITO_ESTANDAR;
+        }
+        return sqlCrearCarrito;
+    }
+}
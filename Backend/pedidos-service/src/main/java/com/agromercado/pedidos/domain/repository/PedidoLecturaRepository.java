@@ -0,0 +1,44 @@
+package com.agromercado.pedidos.domain.repository;
+
+import com.agromercado.pedidos.application.dto.DetallePedidoDTO;
+import com.agromercado.pedidos.application.dto.LineaProductorDTO;
+import com.agromercado.pedidos.application.dto.PedidoResponse;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.Pedido;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas de solo lectura para los listados de pedidos. Devuelven DTOs
+ * directamente (sin entidades administradas) y cargan las líneas de todos los
+ * pedidos de una página con una sola consulta.
+ */
+public interface PedidoLecturaRepository {
+
+    /**
+     * Cabeceras de pedido que cumplen la especificación, en orden
+     * {@link PedidoSpecifications#ORDEN_RECIENTES}. Los detalles quedan en null.
+     */
+    List<PedidoResponse> buscarCabeceras(Specification<Pedido> spec, int limite);
+
+    /**
+     * Líneas de los pedidos indicados, agrupadas por ID de pedido. {@code particiones}
+     * son las de esos pedidos ({@link PedidoResponse#getParticion()}): PostgreSQL solo
+     * recorre esas particiones de detalles_pedido en lugar de todos los meses.
+     */
+    Map<Long, List<DetallePedidoDTO>> buscarDetalles(Collection<Long> pedidoIds, Collection<LocalDate> particiones);
+
+    /**
+     * Líneas de un productor en orden (pedido_id DESC, id DESC), empezando
+     * después de la posición (antesDePedido, antesDeLinea) si se indica.
+     * Sin estado se excluyen los carritos; las fechas filtran fecha_creacion en [desde, hasta).
+     */
+    List<LineaProductorDTO> buscarLineasProductor(String productorId, EstadoPedido estado,
+                                                  LocalDateTime desde, LocalDateTime hasta,
+                                                  Long antesDePedido, Long antesDeLinea, int limite);
+}
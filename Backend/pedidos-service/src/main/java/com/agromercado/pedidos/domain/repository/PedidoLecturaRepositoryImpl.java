@@ -0,0 +1,187 @@
+package com.agromercado.pedidos.domain.repository;
+
+import com.agromercado.pedidos.application.dto.DetallePedidoDTO;
+import com.agromercado.pedidos.application.dto.LineaProductorDTO;
+import com.agromercado.pedidos.application.dto.PedidoResponse;
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.MetodoPago;
+import com.agromercado.pedidos.domain.model.Pedido;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+class PedidoLecturaRepositoryImpl implements PedidoLecturaRepository {
+
+    private static final List<String> CAMPOS_CABECERA = List.of(
+            "id", "clienteId", "clienteNombre", "clienteEmail", "zonaId", "numeroPedido", "estado",
+            "estadoPago", "metodoPago", "subtotal", "impuestos", "total", "direccionEntrega",
+            "telefonoContacto", "notas", "fechaCreacion", "fechaConfirmacion", "fechaPago",
+            "fechaEntrega", "transaccionPagoId", "particion");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<PedidoResponse> buscarCabeceras(Specification<Pedido> spec, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Pedido> pedido = query.from(Pedido.class);
+
+        List<Selection<?>> columnas = new ArrayList<>();
+        CAMPOS_CABECERA.forEach(campo -> columnas.add(pedido.get(campo).alias(campo)));
+        query.multiselect(columnas)
+                .where(spec.toPredicate(pedido, query, cb))
+                .orderBy(cb.desc(pedido.get("fechaCreacion")), cb.desc(pedido.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limite)
+                .getResultStream()
+                .map(PedidoLecturaRepositoryImpl::aCabecera)
+                .toList();
+    }
+
+    @Override
+    public Map<Long, List<DetallePedidoDTO>> buscarDetalles(Collection<Long> pedidoIds, Collection<LocalDate> particiones) {
+        if (pedidoIds.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Tuple> filas = entityManager.createQuery("""
+                        SELECT d.pedido.id AS pedidoId, d.id AS id, d.productoId AS productoId,
+                               d.productoNombre AS productoNombre, d.productoDescripcion AS productoDescripcion,
+                               d.productorId AS productorId, d.productorNombre AS productorNombre,
+                               d.cantidad AS cantidad, d.precioUnitario AS precioUnitario,
+                               d.subtotal AS subtotal, d.unidadMedida AS unidadMedida
+                        FROM DetallePedido d
+                        WHERE d.pedido.id IN :pedidoIds AND d.particion IN :particiones
+                        ORDER BY d.id""", Tuple.class)
+                .setParameter("pedidoIds", pedidoIds)
+                .setParameter("particiones", particiones)
+                .getResultList();
+
+        Map<Long, List<DetallePedidoDTO>> detalles = new HashMap<>();
+        for (Tuple fila : filas) {
+            detalles.computeIfAbsent(fila.get("pedidoId", Long.class), id -> new ArrayList<>())
+                    .add(DetallePedidoDTO.builder()
+                            .id(fila.get("id", Long.class))
+                            .productoId(fila.get("productoId", Long.class))
+                            .productoNombre(fila.get("productoNombre", String.class))
+                            .productoDescripcion(fila.get("productoDescripcion", String.class))
+                            .productorId(fila.get("productorId", String.class))
+                            .productorNombre(fila.get("productorNombre", String.class))
+                            .cantidad(fila.get("cantidad", Integer.class))
+                            .precioUnitario(fila.get("precioUnitario", BigDecimal.class))
+                            .subtotal(fila.get("subtotal", BigDecimal.class))
+                            .unidadMedida(fila.get("unidadMedida", String.class))
+                            .build());
+        }
+        return detalles;
+    }
+
+    @Override
+    public List<LineaProductorDTO> buscarLineasProductor(String productorId, EstadoPedido estado,
+                                                         LocalDateTime desde, LocalDateTime hasta,
+                                                         Long antesDePedido, Long antesDeLinea, int limite) {
+        // Se recorre el índice (productor_id, pedido_id, id) y solo se une la cabecera de cada línea.
+        // Las líneas de carritos nunca se devuelven, tampoco con estado=CARRITO. Las condiciones
+        // sobre particion dejan fuera los meses (y los carritos) que no pueden coincidir
+        StringBuilder jpql = new StringBuilder("""
+                SELECT d.id AS id, p.id AS pedidoId, p.numeroPedido AS numeroPedido, p.estado AS estado,
+                       p.zonaId AS zonaId, p.fechaCreacion AS fechaCreacion,
+                       p.direccionEntrega AS direccionEntrega, p.telefonoContacto AS telefonoContacto,
+                       d.productoId AS productoId, d.productoNombre AS productoNombre,
+                       d.cantidad AS cantidad, d.unidadMedida AS unidadMedida,
+                       d.precioUnitario AS precioUnitario, d.subtotal AS subtotal
+                FROM DetallePedido d JOIN d.pedido p
+                WHERE d.productorId = :productorId AND p.particion = d.particion
+                  AND p.estado <> :carrito AND d.particion > :particionCarritos""");
+        if (estado != null) {
+            jpql.append(" AND p.estado = :estado");
+        }
+        if (desde != null) {
+            jpql.append(" AND p.fechaCreacion >= :desde AND d.particion >= :particionDesde");
+        }
+        if (hasta != null) {
+            jpql.append(" AND p.fechaCreacion < :hasta AND d.particion <= :particionHasta");
+        }
+        if (antesDePedido != null) {
+            jpql.append(" AND (p.id < :antesDePedido OR (p.id = :antesDePedido AND d.id < :antesDeLinea))");
+        }
+        jpql.append(" ORDER BY p.id DESC, d.id DESC");
+
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class)
+                .setParameter("productorId", productorId)
+                .setParameter("carrito", EstadoPedido.CARRITO)
+                .setParameter("particionCarritos", Pedido.PARTICION_CARRITOS)
+                .setMaxResults(limite);
+        if (estado != null) {
+            query.setParameter("estado", estado);
+        }
+        if (desde != null) {
+            query.setParameter("desde", desde).setParameter("particionDesde", Pedido.particionDelMes(desde));
+        }
+        if (hasta != null) {
+            query.setParameter("hasta", hasta).setParameter("particionHasta", Pedido.particionDelMes(hasta));
+        }
+        if (antesDePedido != null) {
+            query.setParameter("antesDePedido", antesDePedido).setParameter("antesDeLinea", antesDeLinea);
+        }
+
+        return query.getResultStream()
+                .map(fila -> LineaProductorDTO.builder()
+                        .id(fila.get("id", Long.class))
+                        .pedidoId(fila.get("pedidoId", Long.class))
+                        .numeroPedido(fila.get("numeroPedido", String.class))
+                        .estado(fila.get("estado", EstadoPedido.class))
+                        .zonaId(fila.get("zonaId", String.class))
+                        .fechaCreacion(fila.get("fechaCreacion", LocalDateTime.class))
+                        .direccionEntrega(fila.get("direccionEntrega", String.class))
+                        .telefonoContacto(fila.get("telefonoContacto", String.class))
+                        .productoId(fila.get("productoId", Long.class))
+                        .productoNombre(fila.get("productoNombre", String.class))
+                        .cantidad(fila.get("cantidad", Integer.class))
+                        .unidadMedida(fila.get("unidadMedida", String.class))
+                        .precioUnitario(fila.get("precioUnitario", BigDecimal.class))
+                        .subtotal(fila.get("subtotal", BigDecimal.class))
+                        .build())
+                .toList();
+    }
+
+    private static PedidoResponse aCabecera(Tuple fila) {
+        return PedidoResponse.builder()
+                .id(fila.get("id", Long.class))
+                .clienteId(fila.get("clienteId", String.class))
+                .clienteNombre(fila.get("clienteNombre", String.class))
+                .clienteEmail(fila.get("clienteEmail", String.class))
+                .zonaId(fila.get("zonaId", String.class))
+                .numeroPedido(fila.get("numeroPedido", String.class))
+                .estado(fila.get("estado", EstadoPedido.class))
+                .estadoPago(fila.get("estadoPago", EstadoPago.class))
+                .metodoPago(fila.get("metodoPago", MetodoPago.class))
+                .subtotal(fila.get("subtotal", BigDecimal.class))
+                .impuestos(fila.get("impuestos", BigDecimal.class))
+                .total(fila.get("total", BigDecimal.class))
+                .direccionEntrega(fila.get("direccionEntrega", String.class))
+                .telefonoContacto(fila.get("telefonoContacto", String.class))
+                .notas(fila.get("notas", String.class))
+                .fechaCreacion(fila.get("fechaCreacion", LocalDateTime.class))
+                .fechaConfirmacion(fila.get("fechaConfirmacion", LocalDateTime.class))
+                .fechaPago(fila.get("fechaPago", LocalDateTime.class))
+                .fechaEntrega(fila.get("fechaEntrega", LocalDateTime.class))
+                .transaccionPagoId(fila.get("transaccionPagoId", String.class))
+                .particion(fila.get("particion", LocalDate.class))
+                .build();
+    }
+}
@@ -1,29 +1,72 @@
 package com.agromercado.pedidos.domain.repository;
 
+import com.agromercado.pedidos.domain.model.EstadoPago;
 import com.agromercado.pedidos.domain.model.EstadoPedido;
 import com.agromercado.pedidos.domain.model.Pedido;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PedidoRepository extends JpaRepository<Pedido, Long> {
+public interface PedidoRepository extends JpaRepository<Pedido, Long>, JpaSpecificationExecutor<Pedido>,
+        PedidoLecturaRepository, PedidoEscrituraRepository {
 
-    Optional<Pedido> findByClienteIdAndEstado(String clienteId, EstadoPedido estado);
+    Optional<Pedido> findByClienteIdAndEstadoAndParticion(String clienteId, EstadoPedido estado, LocalDate particion);
 
-    List<Pedido> findByClienteIdOrderByFechaCreacionDesc(String clienteId);
+    /**
+     * Carrito del cliente. La condición sobre la partición hace que PostgreSQL
+     * solo mire la de carritos en lugar de todos los meses.
+     */
+    default Optional<Pedido> buscarCarrito(String clienteId) {
+        return findByClienteIdAndEstadoAndParticion(clienteId, EstadoPedido.CARRITO, Pedido.PARTICION_CARRITOS);
+    }
 
     List<Pedido> findByEstadoOrderByFechaCreacionDesc(EstadoPedido estado);
 
     Optional<Pedido> findByNumeroPedido(String numeroPedido);
 
-    @Query("SELECT p FROM Pedido p WHERE p.zonaId = :zonaId AND p.estado != 'CARRITO' ORDER BY p.fechaCreacion DESC")
-    List<Pedido> findPedidosByZona(@Param("zonaId") String zonaId);
+    /**
+     * Pedidos confirmados con sus líneas en una sola consulta. El filtro por
+     * partición en ambas tablas deja a PostgreSQL recorrer solo esas particiones;
+     * el JOIN es interno porque un pedido confirmado siempre tiene líneas.
+     */
+    @Query("SELECT DISTINCT p FROM Pedido p JOIN FETCH p.detalles d " +
+            "WHERE p.id IN :ids AND p.particion IN :particiones AND d.particion IN :particiones")
+    List<Pedido> buscarConDetalles(@Param("ids") Collection<Long> pedidoIds,
+                                   @Param("particiones") Collection<LocalDate> particiones);
 
-    @Query("SELECT p FROM Pedido p JOIN p.detalles d WHERE d.productorId = :productorId AND p.estado != 'CARRITO' ORDER BY p.fechaCreacion DESC")
-    List<Pedido> findPedidosByProductor(@Param("productorId") String productorId);
+    /**
+     * Cambia el estado de los pedidos indicados con un solo UPDATE. Incrementa la
+     * versión para que las ediciones en curso sobre esos pedidos fallen por bloqueo
+     * optimista; fechaEntrega solo se escribe si no es null.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Pedido p SET p.estado = :estado, p.version = p.version + 1, p.fechaActualizacion = :ahora, " +
+            "p.fechaEntrega = COALESCE(:fechaEntrega, p.fechaEntrega) WHERE p.id IN :ids AND p.particion IN :particiones")
+    int cambiarEstado(@Param("ids") Collection<Long> pedidoIds,
+                      @Param("particiones") Collection<LocalDate> particiones,
+                      @Param("estado") EstadoPedido estado,
+                      @Param("ahora") LocalDateTime ahora,
+                      @Param("fechaEntrega") LocalDateTime fechaEntrega);
+
+    /**
+     * Cambia solo el estado de pago, sin leer ni guardar la entidad: no falla por
+     * bloqueo optimista, pero incrementa la versión para que una edición en curso
+     * con el estado de pago anterior no lo pise.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Pedido p SET p.estadoPago = :estadoPago, p.version = p.version + 1, p.fechaActualizacion = :ahora " +
+            "WHERE p.id = :id")
+    int cambiarEstadoPago(@Param("id") Long pedidoId,
+                          @Param("estadoPago") EstadoPago estadoPago,
+                          @Param("ahora") LocalDateTime ahora);
 }
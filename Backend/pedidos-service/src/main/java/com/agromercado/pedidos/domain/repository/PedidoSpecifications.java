@@ -0,0 +1,71 @@
+package com.agromercado.pedidos.domain.repository;
+
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.Pedido;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Predicados para los listados paginados de pedidos. Solo se agregan los
+ * filtros presentes, de modo que cada consulta usa el índice compuesto
+ * (cliente_id|zona_id, fecha_creacion DESC, id DESC) correspondiente.
+ *
+ * Los listados siempre incluyen {@link #noEsCarrito()}; {@link #conEstado}
+ * solo se agrega encima, así que filtrar por CARRITO no devuelve carritos.
+ *
+ * Los filtros de carrito y fecha repiten la condición sobre la columna
+ * particion (mes de creación, o la partición de carritos): no cambian el
+ * resultado, pero permiten a PostgreSQL descartar las particiones que no
+ * pueden tener filas en lugar de recorrer los índices de todos los meses.
+ */
+public final class PedidoSpecifications {
+
+    /** Orden del listado; debe coincidir con el de los índices y el cursor. */
+    public static final Sort ORDEN_RECIENTES = Sort.by(Sort.Order.desc("fechaCreacion"), Sort.Order.desc("id"));
+
+    private PedidoSpecifications() {
+    }
+
+    public static Specification<Pedido> delCliente(String clienteId) {
+        return (root, query, cb) -> cb.equal(root.get("clienteId"), clienteId);
+    }
+
+    public static Specification<Pedido> deLaZona(String zonaId) {
+        return (root, query, cb) -> cb.equal(root.get("zonaId"), zonaId);
+    }
+
+    public static Specification<Pedido> noEsCarrito() {
+        return (root, query, cb) -> cb.and(
+                cb.notEqual(root.get("estado"), EstadoPedido.CARRITO),
+                cb.greaterThan(root.get("particion"), Pedido.PARTICION_CARRITOS));
+    }
+
+    public static Specification<Pedido> conEstado(EstadoPedido estado) {
+        return (root, query, cb) -> cb.equal(root.get("estado"), estado);
+    }
+
+    public static Specification<Pedido> creadoDesde(LocalDateTime desde) {
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(root.get("fechaCreacion"), desde),
+                cb.greaterThanOrEqualTo(root.get("particion"), Pedido.particionDelMes(desde)));
+    }
+
+    public static Specification<Pedido> creadoAntesDe(LocalDateTime hasta) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThan(root.get("fechaCreacion"), hasta),
+                cb.lessThanOrEqualTo(root.get("particion"), Pedido.particionDelMes(hasta)));
+    }
+
+    /**
+     * Pedidos posteriores al cursor en el orden (fecha_creacion DESC, id DESC)
+     */
+    public static Specification<Pedido> despuesDe(LocalDateTime fechaCreacion, Long id) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.get("particion"), Pedido.particionDelMes(fechaCreacion)),
+                cb.or(
+                        cb.lessThan(root.get("fechaCreacion"), fechaCreacion),
+                        cb.and(cb.equal(root.get("fechaCreacion"), fechaCreacion), cb.lessThan(root.get("id"), id))));
+    }
+}
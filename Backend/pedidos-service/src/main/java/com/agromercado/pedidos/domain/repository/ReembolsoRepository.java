@@ -0,0 +1,39 @@
+package com.agromercado.pedidos.domain.repository;
+
+import com.agromercado.pedidos.domain.model.Reembolso;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReembolsoRepository extends JpaRepository<Reembolso, Long> {
+
+    /**
+     * Bloquea el siguiente lote de reembolsos pendientes cuyo turno ya llegó.
+     * Con SKIP LOCKED varias instancias pueden procesar a la vez sin tomar los mismos.
+     */
+    @Query(value = """
+            SELECT * FROM reembolsos
+            WHERE estado = 'PENDIENTE' AND siguiente_intento <= :ahora
+            ORDER BY siguiente_intento, id
+            LIMIT :limite
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Reembolso> bloquearPendientes(@Param("ahora") LocalDateTime ahora, @Param("limite") int limite);
+
+    Optional<Reembolso> findByPedidoId(Long pedidoId);
+
+    /**
+     * Deja constancia de que la pasarela aprobó el reembolso, antes de tocar el
+     * pedido o el stock: si algo falla después, el reintento no vuelve a pagar.
+     */
+    @Modifying
+    @Query("UPDATE Reembolso r SET r.fechaAprobacionPasarela = :ahora WHERE r.id = :id AND r.fechaAprobacionPasarela IS NULL")
+    int marcarAprobadoEnPasarela(@Param("id") Long id, @Param("ahora") LocalDateTime ahora);
+}
@@ -0,0 +1,199 @@
+package com.agromercado.pedidos.messaging;
+
+import com.agromercado.pedidos.config.RabbitConfig;
+import com.agromercado.pedidos.domain.model.OutboxEvento;
+import com.agromercado.pedidos.domain.repository.OutboxEventoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publica los eventos del outbox en agromercado.events.exchange.
+ *
+ * Cada lote se bloquea con FOR UPDATE SKIP LOCKED, se envía completo y luego
+ * se esperan las confirmaciones del broker (publisher confirms); solo los
+ * eventos confirmados pasan a SENT. Los que fallan siguen pendientes y se
+ * reintentan con espera exponencial (de {@code espera-inicial} a
+ * {@code espera-maxima}), así que la entrega es "al menos una vez": los
+ * consumidores deben ignorar eventId repetidos. Tras {@code max-intentos} el
+ * evento queda FAILED para revisión manual y cuenta en
+ * {@code pedidos.outbox.fallidos}.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventoRepository outboxRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean habilitado;
+    private final int tamanoLote;
+    private final Duration esperaConfirmacion;
+    private final Duration retencion;
+    private final int maxIntentos;
+    private final Duration esperaInicial;
+    private final Duration esperaMaxima;
+    private final Counter fallidos;
+
+    public OutboxRelay(OutboxEventoRepository outboxRepository,
+                       RabbitTemplate rabbitTemplate,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry registry,
+                       @Value("${pedidos.outbox.relay.habilitado:true}") boolean habilitado,
+                       @Value("${pedidos.outbox.relay.tamano-lote:100}") int tamanoLote,
+                       @Value("${pedidos.outbox.relay.espera-confirmacion:PT5S}") Duration esperaConfirmacion,
+                       @Value("${pedidos.outbox.retencion:P7D}") Duration retencion,
+                       @Value("${pedidos.outbox.relay.max-intentos:10}") int maxIntentos,
+                       @Value("${pedidos.outbox.relay.espera-inicial:PT1S}") Duration esperaInicial,
+                       @Value("${pedidos.outbox.relay.espera-maxima:PT5M}") Duration esperaMaxima) {
+        this.outboxRepository = outboxRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.habilitado = habilitado;
+        this.tamanoLote = tamanoLote;
+        this.esperaConfirmacion = esperaConfirmacion;
+        this.retencion = retencion;
+        this.maxIntentos = maxIntentos;
+        this.esperaInicial = esperaInicial;
+        this.esperaMaxima = esperaMaxima;
+        this.fallidos = Counter.builder("pedidos.outbox.fallidos")
+                .description("Eventos que agotaron los intentos de publicación")
+                .register(registry);
+    }
+
+    /**
+     * Publica lotes mientras haya pendientes y el broker los confirme todos.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.outbox.relay.intervalo-ms:500}")
+    public void publicarPendientes() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> publicarLote()))) {
+                // Lote completo y sin fallos: puede haber más
+            }
+        } catch (RuntimeException e) {
+            log.error("Error publicando eventos del outbox: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return true si el lote estaba lleno y todos los eventos se confirmaron
+     */
+    boolean publicarLote() {
+        List<OutboxEvento> lote = outboxRepository.bloquearPendientes(Instant.now(), tamanoLote);
+        if (lote.isEmpty()) {
+            return false;
+        }
+
+        List<Envio> enviados = new ArrayList<>(lote.size());
+        for (OutboxEvento evento : lote) {
+            CorrelationData correlacion = new CorrelationData(evento.getEventId());
+            try {
+                rabbitTemplate.send(RabbitConfig.EVENTS_EXCHANGE, evento.getEventType(), mensaje(evento), correlacion);
+                enviados.add(new Envio(evento, correlacion));
+            } catch (RuntimeException e) {
+                registrarFallo(evento, e.getMessage());
+            }
+        }
+
+        long limite = System.nanoTime() + esperaConfirmacion.toNanos();
+        int confirmados = 0;
+        for (Envio enviado : enviados) {
+            OutboxEvento evento = enviado.evento();
+            try {
+                CorrelationData.Confirm confirmacion = enviado.correlacion().getFuture()
+                        .get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (confirmacion.isAck()) {
+                    evento.marcarEnviado();
+                    confirmados++;
+                } else {
+                    registrarFallo(evento, "nack del broker: " + confirmacion.getReason());
+                }
+            } catch (TimeoutException e) {
+                registrarFallo(evento, "Sin confirmación del broker en " + esperaConfirmacion);
+            } catch (ExecutionException e) {
+                registrarFallo(evento, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                registrarFallo(evento, "Publicación interrumpida");
+            }
+        }
+
+        if (confirmados < lote.size()) {
+            log.warn("Outbox: {} de {} eventos confirmados; el resto se reintentará", confirmados, lote.size());
+        } else {
+            log.debug("Outbox: {} eventos publicados", confirmados);
+        }
+        return confirmados == tamanoLote;
+    }
+
+    private void registrarFallo(OutboxEvento evento, String error) {
+        if (evento.getIntentos() + 1 >= maxIntentos) {
+            evento.marcarFallido(error);
+            fallidos.increment();
+            log.error("Outbox: evento {} ({}) descartado tras {} intentos: {}",
+                    evento.getEventId(), evento.getEventType(), evento.getIntentos(), error);
+            return;
+        }
+        evento.registrarFallo(error, Instant.now().plus(espera(evento.getIntentos() + 1)));
+    }
+
+    /**
+     * Espera antes del siguiente intento: {@code espera-inicial} duplicada en
+     * cada fallo, hasta {@code espera-maxima}.
+     */
+    Duration espera(int intentos) {
+        long factor = 1L << Math.min(Math.max(0, intentos - 1), 20);
+        Duration espera = esperaInicial.multipliedBy(factor);
+        return espera.compareTo(esperaMaxima) > 0 ? esperaMaxima : espera;
+    }
+
+    private static Message mensaje(OutboxEvento evento) {
+        return MessageBuilder.withBody(evento.getPayload().getBytes(StandardCharsets.UTF_8))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setMessageId(evento.getEventId())
+                .setType(evento.getEventType())
+                .setTimestamp(Date.from(evento.getOccurredAt()))
+                .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                .build();
+    }
+
+    /**
+     * Borra los eventos ya publicados más antiguos que la retención.
+     */
+    @Scheduled(fixedDelayString = "${pedidos.outbox.limpieza-ms:3600000}")
+    public void eliminarEnviados() {
+        int eliminados = transactionTemplate.execute(status ->
+                outboxRepository.eliminarEnviados(Instant.now().minus(retencion)));
+        if (eliminados > 0) {
+            log.info("Outbox: eliminados {} eventos ya publicados", eliminados);
+        }
+    }
+
+    private record Envio(OutboxEvento evento, CorrelationData correlacion) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.agromercado.pedidos.messaging;
+
+import com.agromercado.pedidos.application.service.CatalogoProductosReplica;
+import com.agromercado.pedidos.application.service.ProductoClientService;
+import com.agromercado.pedidos.config.RabbitConfig;
+import com.agromercado.pedidos.messaging.contracts.ProductoActualizadoMsg;
+import com.agromercado.pedidos.messaging.contracts.ProductoEliminadoMsg;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mantiene la réplica local del catálogo al día con los cambios publicados
+ * por productos-service.
+ *
+ * Un mensaje ilegible o con una routing key desconocida nunca se podrá
+ * procesar: se descarta en lugar de volver a la cola. La recarga periódica de
+ * la réplica corrige lo que se pierda así.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ProductoEventSubscriber {
+
+    private final ObjectMapper mapper;
+    private final CatalogoProductosReplica replica;
+
+    @RabbitListener(queues = RabbitConfig.PRODUCTOS_QUEUE)
+    public void onMessage(Message<String> message) {
+        final String json = message.getPayload();
+        final String rk = (String) message.getHeaders()
+                .getOrDefault(AmqpHeaders.RECEIVED_ROUTING_KEY, "");
+
+        try {
+            if (RabbitConfig.RK_PRODUCTO_ACTUALIZADO.equals(rk)) {
+                ProductoActualizadoMsg msg = mapper.readValue(json, ProductoActualizadoMsg.class);
+                replica.aplicarActualizacion(toProductoDTO(msg));
+                return;
+            }
+
+            if (RabbitConfig.RK_PRODUCTO_ELIMINADO.equals(rk)) {
+                ProductoEliminadoMsg msg = mapper.readValue(json, ProductoEliminadoMsg.class);
+                replica.eliminar(msg.idProducto());
+                return;
+            }
+
+            throw new IllegalArgumentException("Routing key no soportada o vacía: '" + rk + "'");
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            log.warn("Mensaje de producto descartado ({}): {}", rk, e.getMessage());
+            throw new AmqpRejectAndDontRequeueException("Mensaje de producto inválido (" + rk + "): " + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new RuntimeException("Error procesando mensaje (" + rk + "): " + e.getMessage(), e);
+        }
+    }
+
+    private static ProductoClientService.ProductoDTO toProductoDTO(ProductoActualizadoMsg msg) {
+        ProductoClientService.ProductoDTO dto = new ProductoClientService.ProductoDTO();
+        dto.setIdProducto(msg.idProducto());
+        dto.setIdProductor(msg.idProductor());
+        dto.setZonaId(msg.zonaId());
+        dto.setNombre(msg.nombre());
+        dto.setDescripcion(msg.descripcion());
+        dto.setPrecioUnitario(msg.precioUnitario());
+        dto.setUnidadMedida(msg.unidadMedida());
+        dto.setStockDisponible(msg.stockDisponible());
+        dto.setDisponible(msg.disponible());
+        dto.setUpdatedAt(msg.updatedAt());
+        return dto;
+    }
+}
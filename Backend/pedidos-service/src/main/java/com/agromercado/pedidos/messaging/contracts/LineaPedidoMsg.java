@@ -0,0 +1,12 @@
+package com.agromercado.pedidos.messaging.contracts;
+
+import java.math.BigDecimal;
+
+/** Línea de pedido incluida en PedidoConfirmado.v1 y PedidoPagado.v1. */
+public record LineaPedidoMsg(
+        Long productoId,
+        String productorId,
+        Integer cantidad,
+        BigDecimal precioUnitario,
+        BigDecimal subtotal
+) {}
@@ -0,0 +1,17 @@
+package com.agromercado.pedidos.messaging.contracts;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/** Contrato de PedidoConfirmado.v1: el carrito pasó a pedido PENDIENTE con stock reservado. */
+public record PedidoConfirmadoMsg(
+        String eventId,
+        Instant occurredAt,
+        Long pedidoId,
+        String numeroPedido,
+        String clienteId,
+        String zonaId,
+        BigDecimal total,
+        List<LineaPedidoMsg> lineas
+) {}
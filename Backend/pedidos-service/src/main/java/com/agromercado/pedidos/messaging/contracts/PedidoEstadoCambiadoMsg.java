@@ -0,0 +1,15 @@
+package com.agromercado.pedidos.messaging.contracts;
+
+import java.time.Instant;
+
+/** Contrato de PedidoEstadoCambiado.v1. */
+public record PedidoEstadoCambiadoMsg(
+        String eventId,
+        Instant occurredAt,
+        Long pedidoId,
+        String numeroPedido,
+        String clienteId,
+        String zonaId,
+        String estadoAnterior,
+        String estadoNuevo
+) {}
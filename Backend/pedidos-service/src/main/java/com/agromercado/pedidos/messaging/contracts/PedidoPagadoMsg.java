@@ -0,0 +1,18 @@
+package com.agromercado.pedidos.messaging.contracts;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/** Contrato de PedidoPagado.v1: el pago del pedido fue aprobado. */
+public record PedidoPagadoMsg(
+        String eventId,
+        Instant occurredAt,
+        Long pedidoId,
+        String numeroPedido,
+        String clienteId,
+        String zonaId,
+        BigDecimal total,
+        String transaccionPagoId,
+        List<LineaPedidoMsg> lineas
+) {}
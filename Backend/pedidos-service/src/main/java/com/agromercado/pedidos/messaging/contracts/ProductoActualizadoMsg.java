@@ -0,0 +1,20 @@
+package com.agromercado.pedidos.messaging.contracts;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/** Contrato de ProductoActualizado.v1 publicado por productos-service. */
+public record ProductoActualizadoMsg(
+        String eventId,
+        Instant occurredAt,
+        Integer idProducto,
+        String idProductor,
+        String zonaId,
+        String nombre,
+        String descripcion,
+        BigDecimal precioUnitario,
+        String unidadMedida,
+        Integer stockDisponible,
+        Boolean disponible,
+        Instant updatedAt
+) {}
@@ -0,0 +1,10 @@
+package com.agromercado.pedidos.messaging.contracts;
+
+import java.time.Instant;
+
+/** Contrato de ProductoEliminado.v1 publicado por productos-service. */
+public record ProductoEliminadoMsg(
+        String eventId,
+        Instant occurredAt,
+        Integer idProducto
+) {}
@@ -0,0 +1,3 @@
+-- Bloqueo optimista: cada escritura de un pedido o carrito incrementa version
+-- y falla si otra escritura se adelantó desde que se leyó.
+ALTER TABLE pedidos ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
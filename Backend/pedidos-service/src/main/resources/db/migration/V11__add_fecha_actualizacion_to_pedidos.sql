@@ -0,0 +1,9 @@
+-- Última escritura del pedido o carrito. La limpieza de carritos abandonados
+-- recorre los carritos por (fecha_actualizacion, id) y borra los más antiguos.
+ALTER TABLE pedidos ADD COLUMN fecha_actualizacion TIMESTAMP;
+
+UPDATE pedidos SET fecha_actualizacion = COALESCE(fecha_confirmacion, fecha_creacion);
+
+CREATE INDEX idx_pedidos_carritos_inactivos
+    ON pedidos (fecha_actualizacion, id)
+    WHERE estado = 'CARRITO';
@@ -0,0 +1,18 @@
+-- Un solo carrito por cliente: la creación del carrito es un
+-- INSERT ... ON CONFLICT contra este índice, sin carreras entre peticiones.
+-- Si ya hay duplicados se conserva el carrito escrito más recientemente.
+CREATE TEMPORARY TABLE carritos_duplicados AS
+SELECT id FROM (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY cliente_id ORDER BY fecha_actualizacion DESC, id DESC) AS n
+    FROM pedidos
+    WHERE estado = 'CARRITO'
+) c
+WHERE n > 1;
+
+DELETE FROM detalles_pedido WHERE pedido_id IN (SELECT id FROM carritos_duplicados);
+DELETE FROM pedidos WHERE id IN (SELECT id FROM carritos_duplicados);
+DROP TABLE carritos_duplicados;
+
+CREATE UNIQUE INDEX uq_pedidos_carrito_por_cliente
+    ON pedidos (cliente_id)
+    WHERE estado = 'CARRITO';
@@ -0,0 +1,7 @@
+-- La conciliación de pagos recorre por zona y en orden de id solo los pedidos
+-- con un pago posiblemente inconsistente; el índice parcial deja fuera el
+-- resto (la gran mayoría: pagados con transacción o pendientes de pago).
+CREATE INDEX idx_pedidos_conciliacion_pagos
+    ON pedidos (zona_id, id)
+    WHERE estado_pago IN ('PROCESANDO', 'RECHAZADO')
+       OR (estado_pago = 'APROBADO' AND transaccion_pago_id IS NULL);
@@ -0,0 +1,21 @@
+-- Cola de reembolsos de pedidos cancelados después de pagar. La cancelación inserta
+-- la fila en su misma transacción y ProcesadorReembolsos llama a la pasarela fuera
+-- de ella, reintentando con espera creciente hasta COMPLETADO o FALLIDO.
+CREATE TABLE reembolsos (
+    id BIGSERIAL PRIMARY KEY,
+    pedido_id BIGINT NOT NULL,
+    pago_id BIGINT,
+    transaccion_id VARCHAR(100),
+    monto DECIMAL(10, 2) NOT NULL,
+    estado VARCHAR(20) NOT NULL,
+    intentos INTEGER NOT NULL DEFAULT 0,
+    siguiente_intento TIMESTAMP NOT NULL,
+    ultimo_error VARCHAR(500),
+    fecha_creacion TIMESTAMP NOT NULL,
+    fecha_resolucion TIMESTAMP,
+    CONSTRAINT fk_reembolso_pedido FOREIGN KEY (pedido_id) REFERENCES pedidos(id) ON DELETE CASCADE,
+    CONSTRAINT uq_reembolso_pedido UNIQUE (pedido_id)
+);
+
+-- El worker solo busca pendientes cuyo turno ya llegó
+CREATE INDEX idx_reembolsos_pendientes ON reembolsos(siguiente_intento) WHERE estado = 'PENDIENTE';
@@ -0,0 +1,205 @@
+-- Particiona pedidos y detalles_pedido por mes (requiere PostgreSQL 15 o superior).
+--
+-- La clave es la columna particion: el primer día del mes en que se creó el
+-- pedido. Todos los carritos van a la partición 1970-01 (Pedido.PARTICION_CARRITOS)
+-- y al confirmarse el UPDATE mueve la fila a la de su mes; las líneas la siguen
+-- por el ON UPDATE CASCADE de la FK compuesta. Así el índice único de un carrito
+-- por cliente, que debe incluir la clave de partición, sigue siendo global.
+--
+-- Las claves primarias pasan a ser (id, particion). numero_pedido deja de tener
+-- restricción UNIQUE (tendría que incluir particion); su generador ya garantiza
+-- que no se repite. pagos y reembolsos pierden la FK hacia pedidos por la misma
+-- razón: conservan el pedido_id, que sigue siendo válido en pedidos_archivo.
+--
+-- ArchivadorPedidos crea las particiones de los meses siguientes, mueve a
+-- pedidos_archivo los pedidos entregados o cancelados antiguos y elimina las
+-- particiones que quedan vacías: los índices de pedidos solo cubren los meses
+-- recientes y su tamaño no crece con el historial.
+
+ALTER TABLE pedidos RENAME TO pedidos_sin_particionar;
+ALTER TABLE detalles_pedido RENAME TO detalles_pedido_sin_particionar;
+ALTER TABLE pagos DROP CONSTRAINT fk_pago_pedido;
+ALTER TABLE reembolsos DROP CONSTRAINT fk_reembolso_pedido;
+
+CREATE TABLE pedidos (
+    id BIGINT NOT NULL DEFAULT nextval('pedidos_id_seq'),
+    cliente_id VARCHAR(100) NOT NULL,
+    cliente_nombre VARCHAR(255),
+    cliente_email VARCHAR(255),
+    zona_id VARCHAR(100),
+    numero_pedido VARCHAR(50),
+    estado VARCHAR(20) NOT NULL,
+    estado_pago VARCHAR(20) NOT NULL,
+    metodo_pago VARCHAR(20),
+    subtotal DECIMAL(10, 2),
+    impuestos DECIMAL(10, 2),
+    total DECIMAL(10, 2) NOT NULL,
+    direccion_entrega VARCHAR(500),
+    telefono_contacto VARCHAR(20),
+    notas VARCHAR(1000),
+    fecha_creacion TIMESTAMP NOT NULL,
+    fecha_actualizacion TIMESTAMP,
+    fecha_confirmacion TIMESTAMP,
+    fecha_pago TIMESTAMP,
+    fecha_entrega TIMESTAMP,
+    transaccion_pago_id VARCHAR(100),
+    reserva_stock_id VARCHAR(50),
+    version BIGINT NOT NULL DEFAULT 0,
+    particion DATE NOT NULL
+) PARTITION BY RANGE (particion);
+
+CREATE TABLE detalles_pedido (
+    id BIGINT NOT NULL DEFAULT nextval('detalles_pedido_id_seq'),
+    pedido_id BIGINT NOT NULL,
+    producto_id BIGINT NOT NULL,
+    producto_nombre VARCHAR(255) NOT NULL,
+    producto_descripcion TEXT,
+    productor_id VARCHAR(100),
+    productor_nombre VARCHAR(255),
+    cantidad INTEGER NOT NULL,
+    precio_unitario DECIMAL(10, 2) NOT NULL,
+    subtotal DECIMAL(10, 2) NOT NULL,
+    unidad_medida VARCHAR(50),
+    particion DATE NOT NULL
+) PARTITION BY RANGE (particion);
+
+ALTER SEQUENCE pedidos_id_seq OWNED BY pedidos.id;
+ALTER SEQUENCE detalles_pedido_id_seq OWNED BY detalles_pedido.id;
+
+CREATE TABLE pedidos_carritos PARTITION OF pedidos FOR VALUES FROM ('1970-01-01') TO ('1970-02-01');
+CREATE TABLE detalles_pedido_carritos PARTITION OF detalles_pedido FOR VALUES FROM ('1970-01-01') TO ('1970-02-01');
+
+-- Crea (si no existen) las particiones de pedidos y detalles_pedido del mes de la fecha dada
+CREATE FUNCTION crear_particion_pedidos(mes DATE) RETURNS VOID AS $$
+DECLARE
+    inicio DATE := date_trunc('month', mes)::date;
+    fin DATE := (date_trunc('month', mes) + INTERVAL '1 month')::date;
+    sufijo TEXT := to_char(mes, 'YYYYMM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF pedidos FOR VALUES FROM (%L) TO (%L)',
+                   'pedidos_' || sufijo, inicio, fin);
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF detalles_pedido FOR VALUES FROM (%L) TO (%L)',
+                   'detalles_pedido_' || sufijo, inicio, fin);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Elimina las particiones mensuales anteriores a la fecha dada que ya no tienen
+-- pedidos (el archivador se los llevó). Devuelve cuántos meses eliminó.
+CREATE FUNCTION eliminar_particiones_vacias_pedidos(antes DATE) RETURNS INTEGER AS $$
+DECLARE
+    tabla TEXT;
+    sufijo TEXT;
+    ocupada BOOLEAN;
+    eliminadas INTEGER := 0;
+BEGIN
+    FOR tabla IN
+        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'pedidos'::regclass AND c.relname ~ '^pedidos_[0-9]{6}$'
+        ORDER BY c.relname
+    LOOP
+        sufijo := substr(tabla, length('pedidos_') + 1);
+        CONTINUE WHEN to_date(sufijo, 'YYYYMM') >= antes;
+        EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I)', tabla) INTO ocupada;
+        CONTINUE WHEN ocupada;
+        -- Primero las líneas: la partición de pedidos no se puede separar mientras otra la referencia
+        EXECUTE format('ALTER TABLE detalles_pedido DETACH PARTITION %I', 'detalles_pedido_' || sufijo);
+        EXECUTE format('DROP TABLE %I', 'detalles_pedido_' || sufijo);
+        EXECUTE format('ALTER TABLE pedidos DETACH PARTITION %I', tabla);
+        EXECUTE format('DROP TABLE %I', tabla);
+        eliminadas := eliminadas + 1;
+    END LOOP;
+    RETURN eliminadas;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Particiones desde el pedido más antiguo hasta tres meses por delante
+DO $$
+DECLARE
+    mes DATE;
+BEGIN
+    SELECT date_trunc('month', COALESCE(MIN(fecha_creacion), now()))::date INTO mes
+    FROM pedidos_sin_particionar WHERE estado <> 'CARRITO';
+    WHILE mes <= date_trunc('month', now() + INTERVAL '3 months')::date LOOP
+        PERFORM crear_particion_pedidos(mes);
+        mes := (mes + INTERVAL '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO pedidos (id, cliente_id, cliente_nombre, cliente_email, zona_id, numero_pedido, estado, estado_pago,
+                     metodo_pago, subtotal, impuestos, total, direccion_entrega, telefono_contacto, notas,
+                     fecha_creacion, fecha_actualizacion, fecha_confirmacion, fecha_pago, fecha_entrega,
+                     transaccion_pago_id, reserva_stock_id, version, particion)
+SELECT id, cliente_id, cliente_nombre, cliente_email, zona_id, numero_pedido, estado, estado_pago,
+       metodo_pago, subtotal, impuestos, total, direccion_entrega, telefono_contacto, notas,
+       fecha_creacion, fecha_actualizacion, fecha_confirmacion, fecha_pago, fecha_entrega,
+       transaccion_pago_id, reserva_stock_id, version,
+       CASE WHEN estado = 'CARRITO' THEN DATE '1970-01-01' ELSE date_trunc('month', fecha_creacion)::date END
+FROM pedidos_sin_particionar;
+
+INSERT INTO detalles_pedido (id, pedido_id, producto_id, producto_nombre, producto_descripcion, productor_id,
+                             productor_nombre, cantidad, precio_unitario, subtotal, unidad_medida, particion)
+SELECT d.id, d.pedido_id, d.producto_id, d.producto_nombre, d.producto_descripcion, d.productor_id,
+       d.productor_nombre, d.cantidad, d.precio_unitario, d.subtotal, d.unidad_medida, p.particion
+FROM detalles_pedido_sin_particionar d
+JOIN pedidos p ON p.id = d.pedido_id;
+
+DROP TABLE detalles_pedido_sin_particionar;
+DROP TABLE pedidos_sin_particionar;
+
+-- Claves e índices después de copiar: se crean en cada partición, actual o futura
+ALTER TABLE pedidos ADD CONSTRAINT pedidos_pkey PRIMARY KEY (id, particion);
+ALTER TABLE detalles_pedido ADD CONSTRAINT detalles_pedido_pkey PRIMARY KEY (id, particion);
+ALTER TABLE detalles_pedido ADD CONSTRAINT fk_detalle_pedido FOREIGN KEY (pedido_id, particion)
+    REFERENCES pedidos (id, particion) ON DELETE CASCADE ON UPDATE CASCADE;
+
+CREATE INDEX idx_pedidos_cliente_id ON pedidos (cliente_id);
+CREATE INDEX idx_pedidos_estado ON pedidos (estado);
+CREATE INDEX idx_pedidos_numero_pedido ON pedidos (numero_pedido);
+CREATE INDEX idx_pedidos_fecha_creacion ON pedidos (fecha_creacion DESC);
+CREATE INDEX idx_pedidos_cliente_recientes
+    ON pedidos (cliente_id, fecha_creacion DESC, id DESC)
+    WHERE estado <> 'CARRITO';
+CREATE INDEX idx_pedidos_zona_recientes
+    ON pedidos (zona_id, fecha_creacion DESC, id DESC)
+    WHERE estado <> 'CARRITO';
+CREATE INDEX idx_pedidos_zona_estado_recientes
+    ON pedidos (zona_id, estado, fecha_creacion DESC, id DESC);
+CREATE INDEX idx_pedidos_carritos_inactivos
+    ON pedidos (fecha_actualizacion, id)
+    WHERE estado = 'CARRITO';
+CREATE UNIQUE INDEX uq_pedidos_carrito_por_cliente
+    ON pedidos (cliente_id, particion)
+    WHERE estado = 'CARRITO';
+CREATE INDEX idx_pedidos_conciliacion_pagos
+    ON pedidos (zona_id, id)
+    WHERE estado_pago IN ('PROCESANDO', 'RECHAZADO')
+       OR (estado_pago = 'APROBADO' AND transaccion_pago_id IS NULL);
+
+CREATE INDEX idx_detalles_pedido_pedido_id ON detalles_pedido (pedido_id);
+CREATE INDEX idx_detalles_pedido_producto_id ON detalles_pedido (producto_id);
+CREATE INDEX idx_detalles_pedido_productor_pedido
+    ON detalles_pedido (productor_id, pedido_id DESC, id DESC);
+
+COMMENT ON TABLE pedidos IS 'Tabla principal que almacena los pedidos y carritos de compra, particionada por mes de creación';
+COMMENT ON TABLE detalles_pedido IS 'Detalles de los productos en cada pedido, en la misma partición que su pedido';
+COMMENT ON COLUMN pedidos.estado IS 'Estados: CARRITO, PENDIENTE, PAGADO, EN_PREPARACION, ENVIADO, ENTREGADO, CANCELADO';
+COMMENT ON COLUMN pedidos.estado_pago IS 'Estados de pago: PENDIENTE, PROCESANDO, APROBADO, RECHAZADO, REEMBOLSADO';
+COMMENT ON COLUMN pedidos.particion IS 'Primer día del mes de creación; 1970-01-01 para los carritos';
+
+-- Pedidos archivados: una fila por pedido con las columnas por las que se
+-- consulta y el pedido completo (líneas incluidas) como JSON, tal como lo
+-- devuelve GET /pedidos/{id}. Sin índices por zona, estado ni producto.
+CREATE TABLE pedidos_archivo (
+    id BIGINT PRIMARY KEY,
+    cliente_id VARCHAR(100) NOT NULL,
+    zona_id VARCHAR(100),
+    numero_pedido VARCHAR(50),
+    estado VARCHAR(20) NOT NULL,
+    fecha_creacion TIMESTAMP NOT NULL,
+    fecha_archivo TIMESTAMP NOT NULL,
+    datos TEXT NOT NULL
+);
+
+CREATE INDEX idx_pedidos_archivo_cliente ON pedidos_archivo (cliente_id, fecha_creacion DESC, id DESC);
+
+COMMENT ON TABLE pedidos_archivo IS 'Pedidos entregados o cancelados movidos fuera de pedidos por ArchivadorPedidos';
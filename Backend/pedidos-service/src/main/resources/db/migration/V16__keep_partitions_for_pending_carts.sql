@@ -0,0 +1,54 @@
+-- Un carrito confirmado se mueve a la partición del mes en que se creó (V15).
+-- V15 solo creó particiones desde el pedido confirmado más antiguo, y
+-- eliminar_particiones_vacias_pedidos podía borrar un mes vacío que todavía
+-- tenía carritos: al confirmarlos fallaba con "no partition of relation
+-- pedidos found for row".
+--
+-- Se crean las particiones de todos los meses con carritos y la eliminación
+-- pasa a saltarse esos meses. Los carritos nuevos siempre son del mes actual,
+-- así que un mes sin carritos no vuelve a necesitarse.
+
+DO $$
+DECLARE
+    mes DATE;
+BEGIN
+    FOR mes IN
+        SELECT DISTINCT date_trunc('month', fecha_creacion)::date FROM pedidos_carritos
+    LOOP
+        PERFORM crear_particion_pedidos(mes);
+    END LOOP;
+END $$;
+
+-- Elimina las particiones mensuales anteriores a la fecha dada que ya no tienen
+-- pedidos ni carritos creados ese mes. Devuelve cuántos meses eliminó.
+CREATE OR REPLACE FUNCTION eliminar_particiones_vacias_pedidos(antes DATE) RETURNS INTEGER AS $$
+DECLARE
+    tabla TEXT;
+    sufijo TEXT;
+    inicio DATE;
+    ocupada BOOLEAN;
+    eliminadas INTEGER := 0;
+BEGIN
+    FOR tabla IN
+        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'pedidos'::regclass AND c.relname ~ '^pedidos_[0-9]{6}$'
+        ORDER BY c.relname
+    LOOP
+        sufijo := substr(tabla, length('pedidos_') + 1);
+        inicio := to_date(sufijo, 'YYYYMM');
+        CONTINUE WHEN inicio >= antes;
+        -- Primero los carritos: uno que se confirme después de esta consulta ya aparece en la partición
+        CONTINUE WHEN EXISTS (SELECT 1 FROM pedidos_carritos
+                              WHERE fecha_creacion >= inicio AND fecha_creacion < inicio + INTERVAL '1 month');
+        EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I)', tabla) INTO ocupada;
+        CONTINUE WHEN ocupada;
+        -- Primero las líneas: la partición de pedidos no se puede separar mientras otra la referencia
+        EXECUTE format('ALTER TABLE detalles_pedido DETACH PARTITION %I', 'detalles_pedido_' || sufijo);
+        EXECUTE format('DROP TABLE %I', 'detalles_pedido_' || sufijo);
+        EXECUTE format('ALTER TABLE pedidos DETACH PARTITION %I', tabla);
+        EXECUTE format('DROP TABLE %I', tabla);
+        eliminadas := eliminadas + 1;
+    END LOOP;
+    RETURN eliminadas;
+END;
+$$ LANGUAGE plpgsql;
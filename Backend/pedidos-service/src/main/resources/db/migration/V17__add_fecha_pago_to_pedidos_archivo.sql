@@ -0,0 +1,10 @@
+-- Fecha de pago de los pedidos archivados. VentasDiariasBackfill reconstruye
+-- ventas_diarias solo desde pedidos: no debe borrar los días con ventas que
+-- ya están en pedidos_archivo, y con esta columna sabe hasta cuándo llegan.
+ALTER TABLE pedidos_archivo ADD COLUMN fecha_pago TIMESTAMP;
+
+UPDATE pedidos_archivo
+SET fecha_pago = (datos::json ->> 'fechaPago')::timestamp
+WHERE datos::json ->> 'fechaPago' IS NOT NULL;
+
+CREATE INDEX idx_pedidos_archivo_fecha_pago ON pedidos_archivo (fecha_pago) WHERE fecha_pago IS NOT NULL;
@@ -0,0 +1,25 @@
+-- Unicidad de numero_pedido. V15 quitó la restricción UNIQUE de pedidos (en
+-- una tabla particionada tendría que incluir particion) y el número también
+-- debe seguir siendo único cuando el pedido pasa a pedidos_archivo. Cada
+-- confirmación registra aquí su número en la misma transacción: si el
+-- generador repitiera uno (p. ej. dos instancias con el mismo worker id) la
+-- confirmación falla en lugar de duplicarlo.
+CREATE TABLE numeros_pedido (
+    numero_pedido VARCHAR(50) PRIMARY KEY,
+    pedido_id BIGINT NOT NULL,
+    fecha_asignacion TIMESTAMP NOT NULL
+);
+
+INSERT INTO numeros_pedido (numero_pedido, pedido_id, fecha_asignacion)
+SELECT numero_pedido, id, COALESCE(fecha_confirmacion, fecha_creacion)
+FROM pedidos
+WHERE numero_pedido IS NOT NULL
+ON CONFLICT (numero_pedido) DO NOTHING;
+
+INSERT INTO numeros_pedido (numero_pedido, pedido_id, fecha_asignacion)
+SELECT numero_pedido, id, fecha_creacion
+FROM pedidos_archivo
+WHERE numero_pedido IS NOT NULL
+ON CONFLICT (numero_pedido) DO NOTHING;
+
+COMMENT ON TABLE numeros_pedido IS 'Números de pedido asignados, en pedidos o en pedidos_archivo; la PK impide repetirlos';
@@ -0,0 +1,4 @@
+-- Momento en que la pasarela aprobó el reembolso. Se guarda en su propia transacción
+-- antes de actualizar el pedido y devolver el stock, para que un reintento posterior
+-- (conflicto o caída a mitad) no vuelva a pedir el reembolso a la pasarela.
+ALTER TABLE reembolsos ADD COLUMN fecha_aprobacion_pasarela TIMESTAMP;
@@ -0,0 +1,6 @@
+-- Reintentos del outbox con espera exponencial: un evento que falla no vuelve a
+-- publicarse antes de next_attempt_at y, tras agotar los intentos, pasa a FAILED
+-- para revisión manual en lugar de reintentarse en cada ciclo.
+ALTER TABLE outbox ADD COLUMN next_attempt_at TIMESTAMPTZ;
+
+COMMENT ON COLUMN outbox.status IS 'PENDING, SENT o FAILED (intentos agotados)';
@@ -0,0 +1,14 @@
+-- Incidencias abiertas de la conciliación de pagos. Un pedido que no se puede
+-- reparar solo se reporta una vez; mientras su versión y el motivo no cambien,
+-- las pasadas siguientes solo actualizan fecha_revision. Las filas que una
+-- pasada completa no vuelve a encontrar se borran.
+CREATE TABLE incidencias_conciliacion (
+    pedido_id BIGINT PRIMARY KEY,
+    caso VARCHAR(40) NOT NULL,
+    motivo VARCHAR(500) NOT NULL,
+    version_pedido BIGINT,
+    fecha_deteccion TIMESTAMP NOT NULL,
+    fecha_revision TIMESTAMP NOT NULL
+);
+
+COMMENT ON TABLE incidencias_conciliacion IS 'Pedidos marcados por la conciliación de pagos y pendientes de revisión manual';
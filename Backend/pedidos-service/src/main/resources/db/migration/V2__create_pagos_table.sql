@@ -0,0 +1,20 @@
+-- Intentos de pago procesados de forma asíncrona
+CREATE TABLE pagos (
+    id BIGSERIAL PRIMARY KEY,
+    pedido_id BIGINT NOT NULL,
+    cliente_id VARCHAR(100) NOT NULL,
+    estado VARCHAR(20) NOT NULL,
+    metodo_pago VARCHAR(20) NOT NULL,
+    monto DECIMAL(10, 2) NOT NULL,
+    transaccion_id VARCHAR(100),
+    mensaje VARCHAR(500),
+    fecha_creacion TIMESTAMP NOT NULL,
+    fecha_resolucion TIMESTAMP,
+    CONSTRAINT fk_pago_pedido FOREIGN KEY (pedido_id) REFERENCES pedidos(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_pagos_pedido_id ON pagos(pedido_id);
+CREATE INDEX idx_pagos_estado ON pagos(estado);
+
+COMMENT ON TABLE pagos IS 'Intentos de pago de pedidos; se crean en PROCESANDO y se resuelven asíncronamente';
+COMMENT ON COLUMN pagos.estado IS 'Estados: PROCESANDO, APROBADO, RECHAZADO, REEMBOLSADO';
@@ -0,0 +1,2 @@
+-- Reserva de stock tomada en productos-service al confirmar el pedido
+ALTER TABLE pedidos ADD COLUMN reserva_stock_id VARCHAR(50);
@@ -0,0 +1,16 @@
+-- Índices para los listados paginados por cursor (fecha_creacion DESC, id DESC).
+-- Los listados nunca devuelven carritos, por eso los índices son parciales.
+CREATE INDEX idx_pedidos_cliente_recientes
+    ON pedidos (cliente_id, fecha_creacion DESC, id DESC)
+    WHERE estado <> 'CARRITO';
+
+CREATE INDEX idx_pedidos_zona_recientes
+    ON pedidos (zona_id, fecha_creacion DESC, id DESC)
+    WHERE estado <> 'CARRITO';
+
+-- Listado de zona filtrado por estado (p. ej. solo EN_PREPARACION)
+CREATE INDEX idx_pedidos_zona_estado_recientes
+    ON pedidos (zona_id, estado, fecha_creacion DESC, id DESC);
+
+-- Los nuevos índices cubren las búsquedas por zona que hacía este
+DROP INDEX IF EXISTS idx_pedidos_zona_id;
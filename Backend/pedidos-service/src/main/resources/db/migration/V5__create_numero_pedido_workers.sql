@@ -0,0 +1,8 @@
+-- Worker ids del generador de números de pedido (uno por instancia viva).
+-- Cada instancia toma un id libre o caducado al arrancar y renueva su fila
+-- periódicamente; al apagarse la borra.
+CREATE TABLE numero_pedido_workers (
+    worker_id SMALLINT PRIMARY KEY,
+    instancia VARCHAR(100) NOT NULL,
+    renovado_en TIMESTAMP NOT NULL
+);
@@ -0,0 +1,14 @@
+-- Respuestas guardadas por Idempotency-Key (POST /pedidos/confirmar, POST /pagos/procesar).
+-- clave = operación:cliente:Idempotency-Key. Mientras la primera ejecución está en curso
+-- la fila queda EN_CURSO con una caducidad corta; al terminar guarda la respuesta
+-- y caduca según pedidos.idempotencia.ttl.
+CREATE TABLE claves_idempotencia (
+    clave VARCHAR(250) PRIMARY KEY,
+    huella VARCHAR(64) NOT NULL,
+    estado VARCHAR(20) NOT NULL,
+    respuesta TEXT,
+    fecha_creacion TIMESTAMP NOT NULL,
+    expira_en TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_claves_idempotencia_expira_en ON claves_idempotencia(expira_en);
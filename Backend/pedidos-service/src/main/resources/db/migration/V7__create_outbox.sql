@@ -0,0 +1,20 @@
+-- Outbox de eventos de pedido (PedidoConfirmado.v1, PedidoPagado.v1, PedidoEstadoCambiado.v1).
+-- Se escribe en la misma transacción que el cambio de estado y OutboxRelay lo publica
+-- en agromercado.events.exchange. Mismo esquema que el outbox de accounts-service.
+CREATE TABLE outbox (
+    id           BIGSERIAL PRIMARY KEY,
+    event_id     VARCHAR(50)  NOT NULL UNIQUE,
+    event_type   VARCHAR(120) NOT NULL,
+    payload      TEXT         NOT NULL,
+    aggregate_id VARCHAR(50),
+    zona_id      VARCHAR(50),
+    status       VARCHAR(20)  NOT NULL DEFAULT 'PENDING',
+    occurred_at  TIMESTAMPTZ  NOT NULL,
+    created_at   TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    sent_at      TIMESTAMPTZ,
+    intentos     INTEGER      NOT NULL DEFAULT 0,
+    last_error   VARCHAR(500)
+);
+
+-- El relay solo busca pendientes, en orden de inserción
+CREATE INDEX idx_outbox_pendientes ON outbox(id) WHERE status = 'PENDING';
@@ -0,0 +1,20 @@
+-- Ventas pre-agregadas por productor, zona, producto y día de pago.
+-- Se actualizan en la misma transacción que el pago o el cambio de estado del
+-- pedido; los pedidos sin productor o sin zona se agrupan con ''.
+CREATE TABLE ventas_diarias (
+    productor_id VARCHAR(255) NOT NULL,
+    zona_id VARCHAR(255) NOT NULL,
+    producto_id BIGINT NOT NULL,
+    dia DATE NOT NULL,
+    unidades_vendidas BIGINT NOT NULL DEFAULT 0,
+    ingresos DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    unidades_entregadas BIGINT NOT NULL DEFAULT 0,
+    unidades_canceladas BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (productor_id, zona_id, producto_id, dia)
+);
+
+-- Consultas por rango de fechas de un productor (la PK) y de una zona
+CREATE INDEX idx_ventas_diarias_zona_dia ON ventas_diarias(zona_id, dia);
+
+-- Backfill: pedidos pagados por fecha de pago
+CREATE INDEX idx_pedidos_fecha_pago ON pedidos(fecha_pago) WHERE fecha_pago IS NOT NULL;
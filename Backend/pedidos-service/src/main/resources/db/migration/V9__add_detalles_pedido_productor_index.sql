@@ -0,0 +1,7 @@
+-- Líneas de un productor ordenadas por pedido (GET /pedidos/productor/{id}/lineas).
+-- El id final permite paginar por cursor sin ordenar en memoria.
+CREATE INDEX idx_detalles_pedido_productor_pedido
+    ON detalles_pedido (productor_id, pedido_id DESC, id DESC);
+
+-- El nuevo índice cubre las búsquedas por productor que hacía este
+DROP INDEX IF EXISTS idx_detalles_pedido_productor_id;
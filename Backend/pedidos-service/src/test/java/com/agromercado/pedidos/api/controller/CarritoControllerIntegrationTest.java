@@ -1,6 +1,8 @@
 package com.agromercado.pedidos.api.controller;
 
 import com.agromercado.pedidos.application.dto.AgregarProductoCarritoRequest;
+import com.agromercado.pedidos.application.service.ProductoClientService;
+import com.agromercado.pedidos.domain.model.DetallePedido;
 import com.agromercado.pedidos.domain.model.EstadoPedido;
 import com.agromercado.pedidos.domain.model.Pedido;
 import com.agromercado.pedidos.domain.repository.PedidoRepository;
@@ -11,13 +13,19 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -37,6 +45,9 @@ class CarritoControllerIntegrationTest {
     @Autowired
     private PedidoRepository pedidoRepository;
 
+    @MockBean
+    private ProductoClientService productoClientService;
+
     private static final String CLIENT_ID = "cliente-integration-test";
     private static final String CLIENT_NAME = "Test User";
     private static final String CLIENT_EMAIL = "test@test.com";
@@ -47,9 +58,20 @@ class CarritoControllerIntegrationTest {
         pedidoRepository.deleteAll();
     }
 
+    private static ProductoClientService.ProductoDTO producto(int id, int stock) {
+        ProductoClientService.ProductoDTO producto = new ProductoClientService.ProductoDTO();
+        producto.setIdProducto(id);
+        producto.setNombre("Producto " + id);
+        producto.setPrecioUnitario(new BigDecimal("1000"));
+        producto.setStockDisponible(stock);
+        producto.setIdProductor("productor-1");
+        producto.setZonaId("zona-1");
+        return producto;
+    }
+
     @Test
-    @DisplayName("GET /carrito - Debe obtener o crear un carrito para el cliente")
-    void debeObtenerOCrearCarrito() throws Exception {
+    @DisplayName("GET /carrito - Debe devolver un carrito vacío sin crearlo en la BD")
+    void debeObtenerCarritoSinCrearlo() throws Exception {
         mockMvc.perform(get("/carrito")
                         .header("X-User-Id", CLIENT_ID)
                         .header("X-User-Name", CLIENT_NAME)
@@ -59,6 +81,8 @@ class CarritoControllerIntegrationTest {
                 .andExpect(jsonPath("$.estado").value("CARRITO"))
                 .andExpect(jsonPath("$.total").value(0))
                 .andExpect(jsonPath("$.detalles").isEmpty());
+
+        assertEquals(0, pedidoRepository.count());
     }
 
     @Test
@@ -67,6 +91,7 @@ class CarritoControllerIntegrationTest {
         AgregarProductoCarritoRequest request = new AgregarProductoCarritoRequest();
         request.setProductoId(1L);
         request.setCantidad(3);
+        when(productoClientService.obtenerProducto(1L)).thenReturn(producto(1, 50));
 
         mockMvc.perform(post("/carrito/agregar")
                         .header("X-User-Id", CLIENT_ID)
@@ -121,4 +146,79 @@ class CarritoControllerIntegrationTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    @DisplayName("POST /carrito/items:batch - Debe devolver un resultado por operación")
+    void debeAplicarOperacionesPorLote() throws Exception {
+        mockMvc.perform(post("/carrito/items:batch")
+                        .header("X-User-Id", CLIENT_ID)
+                        .header("X-User-Name", CLIENT_NAME)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"operaciones": [
+                                  {"tipo": "ELIMINAR", "productoId": 1},
+                                  {"tipo": "FIJAR_CANTIDAD", "productoId": 2, "cantidad": 0}
+                                ]}"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.carrito.clienteId").value(CLIENT_ID))
+                .andExpect(jsonPath("$.resultados.length()").value(2))
+                .andExpect(jsonPath("$.resultados[0].aplicada").value(false))
+                .andExpect(jsonPath("$.resultados[1].indice").value(1));
+    }
+
+    @Test
+    @DisplayName("POST /carrito/items:batch - Debe aplicar las operaciones válidas e informar la que falla")
+    void debeAplicarLoteConUnaOperacionFallida() throws Exception {
+        Pedido carrito = Pedido.builder()
+                .clienteId(CLIENT_ID)
+                .clienteNombre(CLIENT_NAME)
+                .zonaId("zona-1")
+                .estado(EstadoPedido.CARRITO)
+                .total(BigDecimal.ZERO)
+                .build();
+        carrito.agregarDetalle(DetallePedido.builder()
+                .productoId(1L)
+                .productoNombre("Producto 1")
+                .cantidad(2)
+                .precioUnitario(new BigDecimal("1000"))
+                .build());
+        pedidoRepository.save(carrito);
+        when(productoClientService.obtenerProductos(Set.of(1L, 2L, 3L)))
+                .thenReturn(Map.of(1L, producto(1, 50), 2L, producto(2, 50), 3L, producto(3, 5)));
+
+        mockMvc.perform(post("/carrito/items:batch")
+                        .header("X-User-Id", CLIENT_ID)
+                        .header("X-User-Name", CLIENT_NAME)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"operaciones": [
+                                  {"tipo": "AGREGAR", "productoId": 1, "cantidad": 3},
+                                  {"tipo": "FIJAR_CANTIDAD", "productoId": 2, "cantidad": 4},
+                                  {"tipo": "AGREGAR", "productoId": 3, "cantidad": 10}
+                                ]}"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resultados.length()").value(3))
+                .andExpect(jsonPath("$.resultados[0].aplicada").value(true))
+                .andExpect(jsonPath("$.resultados[1].aplicada").value(true))
+                .andExpect(jsonPath("$.resultados[2].aplicada").value(false))
+                .andExpect(jsonPath("$.resultados[2].productoId").value(3))
+                .andExpect(jsonPath("$.resultados[2].mensaje").value("Cantidad solicitada no disponible. Disponible: 5"))
+                .andExpect(jsonPath("$.carrito.detalles.length()").value(2))
+                .andExpect(jsonPath("$.carrito.subtotal").value(9000));
+
+        Pedido guardado = pedidoRepository.buscarCarrito(CLIENT_ID).orElseThrow();
+        Map<Long, Integer> cantidades = guardado.getDetalles().stream()
+                .collect(Collectors.toMap(DetallePedido::getProductoId, DetallePedido::getCantidad));
+        assertEquals(Map.of(1L, 5, 2L, 4), cantidades);
+    }
+
+    @Test
+    @DisplayName("POST /carrito/items:batch - Debe validar que haya operaciones")
+    void debeValidarOperacionesPorLote() throws Exception {
+        mockMvc.perform(post("/carrito/items:batch")
+                        .header("X-User-Id", CLIENT_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"operaciones\": [{\"productoId\": 1}]}"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,258 @@
+package com.agromercado.pedidos.api.controller;
+
+import com.agromercado.pedidos.config.RabbitConfig;
+import com.agromercado.pedidos.domain.model.DetallePedido;
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.OutboxEvento;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.OutboxEventoRepository;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+@DisplayName("PedidoController - Pruebas de Integración")
+class PedidoControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private OutboxEventoRepository outboxRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final String CLIENT_ID = "cliente-paginacion-test";
+    private static final String ZONA_ID = "zona-paginacion-test";
+
+    @BeforeEach
+    void setUp() {
+        pedidoRepository.deleteAll();
+        for (int i = 0; i < 5; i++) {
+            guardarPedido(i < 2 ? EstadoPedido.ENTREGADO : EstadoPedido.PENDIENTE);
+        }
+        guardarPedido(EstadoPedido.CARRITO);
+    }
+
+    private Pedido guardarPedido(EstadoPedido estado) {
+        Pedido pedido = Pedido.builder()
+                .clienteId(CLIENT_ID)
+                .zonaId(ZONA_ID)
+                .estado(estado)
+                .estadoPago(EstadoPago.PENDIENTE)
+                .total(BigDecimal.TEN)
+                .build();
+        for (long producto = 1; producto <= 2; producto++) {
+            DetallePedido detalle = DetallePedido.builder()
+                    .productoId(producto)
+                    .productoNombre("Producto " + producto)
+                    .productorId("productor-" + producto)
+                    .cantidad(1)
+                    .precioUnitario(BigDecimal.ONE)
+                    .build();
+            detalle.calcularSubtotal();
+            pedido.agregarDetalle(detalle);
+        }
+        return pedidoRepository.save(pedido);
+    }
+
+    @Test
+    @DisplayName("GET /pedidos/mis-pedidos - Debe recorrer todas las páginas sin repetir ni incluir carritos")
+    void debePaginarMisPedidos() throws Exception {
+        MvcResult primera = mockMvc.perform(get("/pedidos/mis-pedidos")
+                        .header("X-User-Id", CLIENT_ID)
+                        .param("limite", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn();
+
+        MvcResult segunda = mockMvc.perform(get("/pedidos/mis-pedidos")
+                        .header("X-User-Id", CLIENT_ID)
+                        .param("limite", "2")
+                        .param("cursor", primera.getResponse().getHeader("X-Next-Cursor")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn();
+
+        mockMvc.perform(get("/pedidos/mis-pedidos")
+                        .header("X-User-Id", CLIENT_ID)
+                        .param("limite", "2")
+                        .param("cursor", segunda.getResponse().getHeader("X-Next-Cursor")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].estado").value("ENTREGADO"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    @DisplayName("GET /pedidos/zona/{zonaId} - Debe leer cabeceras y líneas con dos consultas")
+    void debeListarSinConsultasPorPedido() throws Exception {
+        pedidoRepository.flush();
+        entityManager.clear();
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        mockMvc.perform(get("/pedidos/zona/{zonaId}", ZONA_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(5)))
+                .andExpect(jsonPath("$[0].detalles", hasSize(2)))
+                .andExpect(jsonPath("$[4].detalles", hasSize(2)));
+
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("GET /pedidos/zona/{zonaId} - Debe filtrar por estado en la consulta")
+    void debeFiltrarPedidosDeZonaPorEstado() throws Exception {
+        mockMvc.perform(get("/pedidos/zona/{zonaId}", ZONA_ID)
+                        .param("estado", "ENTREGADO"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    @DisplayName("GET /pedidos/zona/{zonaId} - No debe listar carritos aunque se filtre por estado CARRITO")
+    void noDebeListarCarritosDeZona() throws Exception {
+        mockMvc.perform(get("/pedidos/zona/{zonaId}", ZONA_ID)
+                        .param("estado", "CARRITO"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+        mockMvc.perform(get("/pedidos/mis-pedidos")
+                        .header("X-User-Id", CLIENT_ID)
+                        .param("estado", "CARRITO"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    @DisplayName("GET /pedidos/productor/{productorId}/lineas - Debe paginar solo las líneas del productor")
+    void debePaginarLineasDelProductor() throws Exception {
+        MvcResult primera = mockMvc.perform(get("/pedidos/productor/{productorId}/lineas", "productor-1")
+                        .param("limite", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[*].productoId", everyItem(is(1))))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn();
+
+        mockMvc.perform(get("/pedidos/productor/{productorId}/lineas", "productor-1")
+                        .param("limite", "3")
+                        .param("cursor", primera.getResponse().getHeader("X-Next-Cursor")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[*].estado", everyItem(is("ENTREGADO"))))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    @DisplayName("GET /pedidos/productor/{productorId}/lineas - Debe filtrar por estado del pedido")
+    void debeFiltrarLineasDelProductorPorEstado() throws Exception {
+        mockMvc.perform(get("/pedidos/productor/{productorId}/lineas", "productor-2")
+                        .param("estado", "PENDIENTE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].zonaId").value(ZONA_ID))
+                .andExpect(jsonPath("$[0].cantidad").value(1))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    @DisplayName("GET /pedidos/productor/{productorId}/lineas - No debe devolver líneas de carritos")
+    void noDebeListarLineasDeCarritos() throws Exception {
+        mockMvc.perform(get("/pedidos/productor/{productorId}/lineas", "productor-1")
+                        .param("estado", "CARRITO"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    @DisplayName("PATCH /pedidos/estado:batch - Debe cambiar los pedidos válidos y rechazar el resto")
+    void debeCambiarEstadoPorLote() throws Exception {
+        Pedido primero = guardarPedido(EstadoPedido.EN_PREPARACION);
+        Pedido segundo = guardarPedido(EstadoPedido.ENVIADO);
+        Pedido pendiente = guardarPedido(EstadoPedido.PENDIENTE);
+        Long versionAnterior = primero.getVersion();
+
+        mockMvc.perform(patch("/pedidos/estado:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"pedidoIds\": [%d, %d, %d, 999999], \"estado\": \"ENTREGADO\"}"
+                                .formatted(primero.getId(), segundo.getId(), pendiente.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.actualizados").value(2))
+                .andExpect(jsonPath("$.rechazados", hasSize(2)))
+                .andExpect(jsonPath("$.rechazados[0].pedidoId").value(pendiente.getId()))
+                .andExpect(jsonPath("$.rechazados[0].estadoActual").value("PENDIENTE"))
+                .andExpect(jsonPath("$.rechazados[1].pedidoId").value(999999))
+                .andExpect(jsonPath("$.rechazados[1].estadoActual").doesNotExist());
+
+        Pedido entregado = pedidoRepository.findById(primero.getId()).orElseThrow();
+        assertEquals(EstadoPedido.ENTREGADO, entregado.getEstado());
+        assertNotNull(entregado.getFechaEntrega());
+        assertEquals(versionAnterior + 1, entregado.getVersion());
+        Pedido sinCambios = pedidoRepository.findById(pendiente.getId()).orElseThrow();
+        assertEquals(EstadoPedido.PENDIENTE, sinCambios.getEstado());
+        assertNull(sinCambios.getFechaEntrega());
+
+        Set<String> cambiados = Set.of(String.valueOf(primero.getId()), String.valueOf(segundo.getId()),
+                String.valueOf(pendiente.getId()));
+        List<String> eventos = outboxRepository.findAll().stream()
+                .filter(e -> RabbitConfig.RK_PEDIDO_ESTADO_CAMBIADO.equals(e.getEventType()))
+                .map(OutboxEvento::getAggregateId)
+                .filter(cambiados::contains)
+                .toList();
+        assertEquals(Set.of(String.valueOf(primero.getId()), String.valueOf(segundo.getId())), Set.copyOf(eventos));
+        assertEquals(2, eventos.size());
+    }
+
+    @Test
+    @DisplayName("PATCH /pedidos/estado:batch - Debe validar que se indiquen pedidos")
+    void debeValidarCambioEstadoPorLote() throws Exception {
+        mockMvc.perform(patch("/pedidos/estado:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"pedidoIds\": [], \"estado\": \"ENVIADO\"}"))
+                .andExpect(status().isBadRequest());
+    }
+}
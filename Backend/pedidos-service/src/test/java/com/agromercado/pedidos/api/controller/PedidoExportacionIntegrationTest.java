@@ -0,0 +1,126 @@
+package com.agromercado.pedidos.api.controller;
+
+import com.agromercado.pedidos.domain.model.DetallePedido;
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Sin @Transactional: la exportación se escribe desde otro hilo con su propia
+ * conexión y debe ver los datos ya confirmados.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("Exportación de pedidos de zona - Pruebas de Integración")
+class PedidoExportacionIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    private static final String ZONA_ID = "zona-exportacion-test";
+
+    @BeforeEach
+    void setUp() {
+        pedidoRepository.deleteAll();
+
+        Pedido pedido = Pedido.builder()
+                .clienteId("cliente-exportacion")
+                .zonaId(ZONA_ID)
+                .numeroPedido("PED-EXP-1")
+                .estado(EstadoPedido.PAGADO)
+                .estadoPago(EstadoPago.APROBADO)
+                .total(new BigDecimal("11900"))
+                .build();
+        DetallePedido tomate = DetallePedido.builder()
+                .productoId(1L).productoNombre("Tomate, chonto").cantidad(2).precioUnitario(new BigDecimal("2500")).build();
+        DetallePedido papa = DetallePedido.builder()
+                .productoId(2L).productoNombre("Papa \"criolla\"").cantidad(1).precioUnitario(new BigDecimal("5000")).build();
+        tomate.calcularSubtotal();
+        papa.calcularSubtotal();
+        pedido.agregarDetalle(tomate);
+        pedido.agregarDetalle(papa);
+        pedidoRepository.save(pedido);
+
+        pedidoRepository.save(Pedido.builder()
+                .clienteId("cliente-exportacion")
+                .zonaId(ZONA_ID)
+                .estado(EstadoPedido.CARRITO)
+                .estadoPago(EstadoPago.PENDIENTE)
+                .total(BigDecimal.ZERO)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pedidoRepository.deleteAll();
+    }
+
+    private String exportar(String formato) throws Exception {
+        return exportar(ZONA_ID, formato);
+    }
+
+    private String exportar(String zonaId, String formato) throws Exception {
+        MvcResult inicio = mockMvc.perform(get("/pedidos/zona/{zonaId}/export", zonaId).param("format", formato))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(inicio))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"pedidos-" + zonaId + "." + formato + "\""))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Debe exportar una fila CSV por línea de pedido, sin carritos")
+    void debeExportarCsv() throws Exception {
+        String[] filas = exportar("csv").split("\n");
+
+        assertEquals(3, filas.length);
+        assertTrue(filas[0].startsWith("pedido_id,numero_pedido,cliente_id,estado"));
+        assertTrue(filas[1].contains("\"Tomate, chonto\""));
+        assertTrue(filas[2].contains("\"Papa \"\"criolla\"\"\""));
+    }
+
+    @Test
+    @DisplayName("Una zona sin pedidos debe exportar solo el encabezado CSV")
+    void debeExportarEncabezadoSinPedidos() throws Exception {
+        String csv = exportar("zona-sin-pedidos", "csv");
+
+        assertEquals("pedido_id,numero_pedido,cliente_id,estado,estado_pago,metodo_pago,fecha_creacion,fecha_pago,"
+                + "subtotal,impuestos,total,detalle_id,producto_id,producto_nombre,productor_id,cantidad,"
+                + "precio_unitario,detalle_subtotal,unidad_medida\n", csv);
+    }
+
+    @Test
+    @DisplayName("Debe exportar un objeto JSON por línea en NDJSON")
+    void debeExportarNdjson() throws Exception {
+        String[] filas = exportar("ndjson").split("\n");
+
+        assertEquals(2, filas.length);
+        assertTrue(filas[0].startsWith("{\"pedido_id\":"));
+        assertTrue(filas[0].contains("\"numero_pedido\":\"PED-EXP-1\""));
+        assertTrue(filas[1].contains("\"producto_nombre\":\"Papa \\\"criolla\\\"\""));
+    }
+}
@@ -0,0 +1,181 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.application.dto.PaginaPedidosResponse;
+import com.agromercado.pedidos.application.dto.PedidoResponse;
+import com.agromercado.pedidos.domain.model.DetallePedido;
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.model.Reembolso;
+import com.agromercado.pedidos.domain.repository.PedidoArchivadoRepository;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import com.agromercado.pedidos.domain.repository.ReembolsoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("ArchivadorPedidos - Pruebas de Integración")
+class ArchivadorPedidosIntegrationTest {
+
+    private static final String CLIENTE = "cliente-archivo";
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private PedidoArchivadoRepository pedidoArchivadoRepository;
+
+    @Autowired
+    private ReembolsoRepository reembolsoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ArchivoPedidosService archivoPedidosService;
+
+    @Autowired
+    private VentasDiariasBackfill ventasDiariasBackfill;
+
+    private ArchivadorPedidos archivador;
+
+    @BeforeEach
+    void setUp() {
+        pedidoArchivadoRepository.deleteAll();
+        reembolsoRepository.deleteAll();
+        pedidoRepository.deleteAll();
+        // Lotes de 2 para recorrer varias páginas con pocos datos
+        archivador = new ArchivadorPedidos(jdbcTemplate, transactionManager, pedidoRepository, objectMapper,
+                new SimpleMeterRegistry(), true, 12, 3, 2);
+    }
+
+    /**
+     * Guarda un pedido con una línea y lo lleva, con sus líneas, a la partición de hace {@code meses} meses
+     */
+    private Long guardar(EstadoPedido estado, EstadoPago estadoPago, int meses) {
+        Pedido pedido = Pedido.builder()
+                .clienteId(CLIENTE)
+                .zonaId("zona-archivo")
+                .numeroPedido("PED-ARCHIVO-" + System.nanoTime())
+                .estado(estado)
+                .estadoPago(estadoPago)
+                .total(BigDecimal.ZERO)
+                .build();
+        pedido.agregarDetalle(DetallePedido.builder()
+                .productoId(1L)
+                .productoNombre("Producto 1")
+                .productorId("productor-archivo")
+                .cantidad(2)
+                .precioUnitario(new BigDecimal("1500.00"))
+                .build());
+        Long id = pedidoRepository.save(pedido).getId();
+
+        LocalDateTime fecha = LocalDateTime.now().minusMonths(meses).truncatedTo(ChronoUnit.MICROS);
+        Date particion = Date.valueOf(Pedido.particionDelMes(fecha));
+        jdbcTemplate.update("UPDATE pedidos SET fecha_creacion = ?, fecha_actualizacion = ?, particion = ? WHERE id = ?",
+                Timestamp.valueOf(fecha), Timestamp.valueOf(fecha), particion, id);
+        jdbcTemplate.update("UPDATE detalles_pedido SET particion = ? WHERE pedido_id = ?", particion, id);
+        return id;
+    }
+
+    @Test
+    @DisplayName("Debe archivar por lotes solo los entregados y cancelados antiguos, con sus líneas")
+    void debeArchivarPedidosAntiguosPorLotes() {
+        List<Long> archivables = List.of(
+                guardar(EstadoPedido.ENTREGADO, EstadoPago.APROBADO, 14),
+                guardar(EstadoPedido.ENTREGADO, EstadoPago.APROBADO, 15),
+                guardar(EstadoPedido.ENTREGADO, EstadoPago.APROBADO, 20),
+                guardar(EstadoPedido.CANCELADO, EstadoPago.PENDIENTE, 13));
+        Long reciente = guardar(EstadoPedido.ENTREGADO, EstadoPago.APROBADO, 2);
+        Long enCurso = guardar(EstadoPedido.PAGADO, EstadoPago.APROBADO, 14);
+        Long conReembolso = guardar(EstadoPedido.CANCELADO, EstadoPago.APROBADO, 14);
+        reembolsoRepository.save(Reembolso.builder().pedidoId(conReembolso).monto(BigDecimal.TEN).build());
+
+        int archivados = archivador.archivar(LocalDateTime.now().minusMonths(12));
+
+        assertEquals(4, archivados);
+        archivables.forEach(id -> {
+            assertFalse(pedidoRepository.existsById(id));
+            assertTrue(pedidoArchivadoRepository.existsById(id));
+        });
+        List.of(reciente, enCurso, conReembolso).forEach(id -> assertTrue(pedidoRepository.existsById(id)));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM detalles_pedido", Integer.class));
+        assertEquals(0, archivador.archivar(LocalDateTime.now().minusMonths(12)));
+    }
+
+    @Test
+    @DisplayName("El pedido archivado debe consultarse igual que antes de archivarlo")
+    void debeConsultarPedidosArchivados() {
+        Long masAntiguo = guardar(EstadoPedido.ENTREGADO, EstadoPago.APROBADO, 24);
+        Long intermedio = guardar(EstadoPedido.CANCELADO, EstadoPago.PENDIENTE, 18);
+        Long masReciente = guardar(EstadoPedido.ENTREGADO, EstadoPago.APROBADO, 13);
+        PedidoResponse antes = pedidoService.obtenerPedido(intermedio);
+
+        assertEquals(3, archivador.archivar(LocalDateTime.now().minusMonths(12)));
+
+        assertThrows(IllegalArgumentException.class, () -> pedidoService.obtenerPedido(intermedio));
+        PedidoResponse archivado = archivoPedidosService.obtenerPedido(intermedio);
+        assertEquals(antes, archivado);
+        assertEquals(1, archivado.getDetalles().size());
+        assertEquals("productor-archivo", archivado.getDetalles().get(0).getProductorId());
+
+        PaginaPedidosResponse primera = archivoPedidosService.listarPedidosCliente(CLIENTE, null, 2);
+        assertEquals(List.of(masReciente, intermedio), primera.getPedidos().stream().map(PedidoResponse::getId).toList());
+        assertNotNull(primera.getSiguienteCursor());
+
+        PaginaPedidosResponse segunda = archivoPedidosService.listarPedidosCliente(CLIENTE, primera.getSiguienteCursor(), 2);
+        assertEquals(List.of(masAntiguo), segunda.getPedidos().stream().map(PedidoResponse::getId).toList());
+        assertNull(segunda.getSiguienteCursor());
+    }
+
+    @Test
+    @DisplayName("Reconstruir ventas no debe borrar los días de pedidos archivados")
+    void noDebeReconstruirVentasDePedidosArchivados() {
+        Long id = guardar(EstadoPedido.ENTREGADO, EstadoPago.APROBADO, 14);
+        LocalDateTime fechaPago = LocalDateTime.now().minusMonths(14).truncatedTo(ChronoUnit.MICROS);
+        jdbcTemplate.update("UPDATE pedidos SET fecha_pago = ? WHERE id = ?", Timestamp.valueOf(fechaPago), id);
+        LocalDate dia = fechaPago.toLocalDate();
+        jdbcTemplate.update("DELETE FROM ventas_diarias WHERE productor_id = 'productor-archivo'");
+        jdbcTemplate.update("""
+                INSERT INTO ventas_diarias (productor_id, zona_id, producto_id, dia, unidades_vendidas, ingresos,
+                                            unidades_entregadas, unidades_canceladas)
+                VALUES ('productor-archivo', 'zona-archivo', 1, ?, 2, 3000.00, 2, 0)""", Date.valueOf(dia));
+
+        assertEquals(1, archivador.archivar(LocalDateTime.now().minusMonths(12)));
+        assertEquals(fechaPago, pedidoArchivadoRepository.findById(id).orElseThrow().getFechaPago());
+
+        ventasDiariasBackfill.reconstruir(dia.minusDays(3), dia.plusDays(3));
+
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT unidades_vendidas FROM ventas_diarias WHERE productor_id = 'productor-archivo' AND dia = ?",
+                Long.class, Date.valueOf(dia)));
+    }
+}
@@ -0,0 +1,77 @@
+package com.agromercado.pedidos.application.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("AsignadorWorkerId - Pruebas Unitarias")
+class AsignadorWorkerIdTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:workers-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("""
+                CREATE TABLE numero_pedido_workers (
+                    worker_id SMALLINT PRIMARY KEY,
+                    instancia VARCHAR(100) NOT NULL,
+                    renovado_en TIMESTAMP NOT NULL
+                )""");
+    }
+
+    private void robar(int workerId) {
+        jdbcTemplate.update("UPDATE numero_pedido_workers SET instancia = 'otra' WHERE worker_id = ?", workerId);
+    }
+
+    @Test
+    @DisplayName("Debe dejar de generar si el arriendo caduca sin renovarse")
+    void noDebeGenerarConArriendoCaducado() throws Exception {
+        AsignadorWorkerId asignador = new AsignadorWorkerId(jdbcTemplate, -1, Duration.ofMillis(50));
+        GeneradorNumeroPedidoTemporal generador = new GeneradorNumeroPedidoTemporal(asignador::workerIdVigente);
+        assertNotNull(generador.generar());
+
+        Thread.sleep(80);
+        assertThrows(IllegalStateException.class, generador::generar);
+
+        asignador.renovar();
+        assertNotNull(generador.generar());
+    }
+
+    @Test
+    @DisplayName("Debe suspender la generación si otra instancia tomó el id y arrendar otro en cuanto haya uno libre")
+    void debeSuspenderYArrendarOtroIdAlPerderElArriendo() {
+        AsignadorWorkerId asignador = new AsignadorWorkerId(jdbcTemplate, -1, Duration.ofMinutes(5));
+        GeneradorNumeroPedidoTemporal generador = new GeneradorNumeroPedidoTemporal(asignador::workerIdVigente);
+        assertEquals(0, asignador.workerIdVigente());
+
+        // Los demás ids están ocupados y vigentes
+        List<Object[]> filas = new ArrayList<>();
+        for (int id = 1; id <= GeneradorNumeroPedidoTemporal.MAX_WORKER_ID; id++) {
+            filas.add(new Object[]{id, "otra", Timestamp.from(Instant.now())});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO numero_pedido_workers (worker_id, instancia, renovado_en) VALUES (?, ?, ?)", filas);
+        robar(0);
+
+        asignador.renovar();
+        assertThrows(IllegalStateException.class, generador::generar);
+
+        jdbcTemplate.update("DELETE FROM numero_pedido_workers WHERE worker_id = 5");
+        asignador.renovar();
+        assertEquals(5, asignador.workerIdVigente());
+        assertNotNull(generador.generar());
+    }
+}
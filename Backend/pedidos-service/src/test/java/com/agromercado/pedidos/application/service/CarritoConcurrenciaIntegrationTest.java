@@ -0,0 +1,131 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.application.dto.AgregarProductoCarritoRequest;
+import com.agromercado.pedidos.application.dto.DetallePedidoDTO;
+import com.agromercado.pedidos.application.dto.PedidoResponse;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Carrito - Pruebas de Concurrencia")
+class CarritoConcurrenciaIntegrationTest {
+
+    private static final String ZONA_ID = "zona-concurrencia";
+    private static final int HILOS = 8;
+    private static final int AGREGADOS_POR_HILO = 10;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private CatalogoProductosReplica replica;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private String clienteId;
+
+    @BeforeEach
+    void setUp() {
+        clienteId = "cliente-" + UUID.randomUUID();
+        // Productos servidos por la réplica local: no se llama a productos-service
+        replica.guardar(producto(901));
+        replica.guardar(producto(902));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status ->
+                pedidoRepository.crearCarritoSiNoExiste(clienteId, "Cliente", null));
+    }
+
+    private static ProductoClientService.ProductoDTO producto(int id) {
+        ProductoClientService.ProductoDTO producto = new ProductoClientService.ProductoDTO();
+        producto.setIdProducto(id);
+        producto.setNombre("Producto " + id);
+        producto.setPrecioUnitario(new BigDecimal("1500"));
+        producto.setIdProductor("productor-concurrencia");
+        producto.setZonaId(ZONA_ID);
+        producto.setUpdatedAt(Instant.now());
+        return producto;
+    }
+
+    private static AgregarProductoCarritoRequest agregar(long productoId) {
+        return new AgregarProductoCarritoRequest(productoId, 1);
+    }
+
+    @Test
+    @DisplayName("Agregados concurrentes al mismo carrito no deben perder cantidades")
+    void agregadosConcurrentesNoDebenPerderCantidades() throws Exception {
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int hilo = 0; hilo < HILOS; hilo++) {
+                long productoId = hilo % 2 == 0 ? 901L : 902L;
+                tareas.add(executor.submit(() -> {
+                    salida.await();
+                    for (int i = 0; i < AGREGADOS_POR_HILO; i++) {
+                        pedidoService.agregarProductoAlCarrito(clienteId, "Cliente", null, agregar(productoId));
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        PedidoResponse carrito = pedidoService.obtenerCarrito(clienteId, "Cliente", null);
+        Map<Long, Integer> cantidades = carrito.getDetalles().stream()
+                .collect(Collectors.toMap(DetallePedidoDTO::getProductoId, DetallePedidoDTO::getCantidad));
+        int esperadas = HILOS / 2 * AGREGADOS_POR_HILO;
+        assertEquals(Map.of(901L, esperadas, 902L, esperadas), cantidades);
+        assertEquals(0, new BigDecimal("1500").multiply(BigDecimal.valueOf(2L * esperadas))
+                .compareTo(carrito.getSubtotal()));
+
+        // Una versión por agregado: ningún reintento tras un conflicto se aplicó dos veces ni se perdió
+        Pedido guardado = pedidoRepository.buscarCarrito(clienteId).orElseThrow();
+        assertEquals(HILOS * AGREGADOS_POR_HILO, guardado.getVersion());
+    }
+
+    @Test
+    @DisplayName("Crear un carrito que ya existe no debe insertar otra fila")
+    void crearCarritoExistenteNoDebeDuplicarlo() {
+        Long id = pedidoRepository.buscarCarrito(clienteId).orElseThrow().getId();
+
+        Integer insertadas = transactionTemplate.execute(status ->
+                pedidoRepository.crearCarritoSiNoExiste(clienteId, "Cliente", null));
+        PedidoResponse carrito = pedidoService.agregarProductoAlCarrito(clienteId, "Cliente", null, agregar(901L));
+
+        assertEquals(0, insertadas);
+        assertEquals(id, carrito.getId());
+    }
+}
@@ -0,0 +1,201 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.domain.model.DetallePedido;
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CarritoStore - Pruebas Unitarias")
+class CarritoStoreTest {
+
+    @Mock
+    private PedidoRepository pedidoRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CarritoStore carritoStore;
+    private Pedido carrito;
+    private static final String CLIENT_ID = "cliente-test-123";
+
+    @BeforeEach
+    void setUp() {
+        carritoStore = new CarritoStore(pedidoRepository, transactionManager,
+                new SimpleMeterRegistry(), true, 200, 10000, Duration.ofMinutes(30));
+
+        DetallePedido detalle = DetallePedido.builder()
+                .id(7L)
+                .productoId(100L)
+                .productoNombre("Tomate")
+                .cantidad(1)
+                .precioUnitario(new BigDecimal("5000"))
+                .build();
+        detalle.calcularSubtotal();
+        carrito = Pedido.builder()
+                .id(1L)
+                .clienteId(CLIENT_ID)
+                .estado(EstadoPedido.CARRITO)
+                .estadoPago(EstadoPago.PENDIENTE)
+                .total(BigDecimal.ZERO)
+                .detalles(new ArrayList<>())
+                .build();
+        carrito.getDetalles().add(detalle);
+
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
+                .thenReturn(Optional.of(carrito));
+        lenient().when(pedidoRepository.save(any(Pedido.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    private void sumarUnidad() {
+        carritoStore.editar(CLIENT_ID, () -> {
+            Pedido enMemoria = carritoStore.buscar(CLIENT_ID).orElseThrow();
+            DetallePedido detalle = enMemoria.getDetalles().get(0);
+            enMemoria.cambiarCantidad(detalle, detalle.getCantidad() + 1);
+            return carritoStore.guardar(CLIENT_ID, enMemoria, false);
+        });
+    }
+
+    @Test
+    @DisplayName("Debe agrupar varias ediciones en una sola escritura diferida")
+    void debeAgruparEdiciones() {
+        for (int i = 0; i < 5; i++) {
+            sumarUnidad();
+        }
+
+        verify(pedidoRepository, times(1)).buscarCarrito(CLIENT_ID);
+        verify(pedidoRepository, never()).save(any(Pedido.class));
+
+        carritoStore.escribirPendientes();
+        carritoStore.escribirPendientes();
+
+        verify(pedidoRepository, times(1)).save(carrito);
+        assertEquals(6, carrito.getDetalles().get(0).getCantidad());
+    }
+
+    @Test
+    @DisplayName("Debe escribir y desalojar el carrito al descargarlo")
+    void debeEscribirAlDescargar() {
+        sumarUnidad();
+
+        carritoStore.descargar(CLIENT_ID);
+        verify(pedidoRepository, times(1)).save(carrito);
+
+        // La siguiente lectura vuelve a la BD
+        carritoStore.editar(CLIENT_ID, () -> carritoStore.buscar(CLIENT_ID));
+        verify(pedidoRepository, times(2)).buscarCarrito(CLIENT_ID);
+    }
+
+    @Test
+    @DisplayName("Debe escribir los carritos pendientes al apagar")
+    void debeEscribirAlApagar() {
+        sumarUnidad();
+
+        carritoStore.escribirAlApagar();
+
+        verify(pedidoRepository, times(1)).save(carrito);
+    }
+
+    @Test
+    @DisplayName("Debe reintentar individualmente si falla la escritura por lotes")
+    void debeReintentarSiLaEscrituraFalla() {
+        sumarUnidad();
+        when(pedidoRepository.save(any(Pedido.class)))
+                .thenThrow(new RuntimeException("BD no disponible"))
+                .thenReturn(carrito);
+
+        carritoStore.escribirPendientes();
+        carritoStore.escribirPendientes();
+
+        // Lote fallido + reintento individual; la segunda pasada ya no tiene pendientes
+        verify(pedidoRepository, times(2)).save(carrito);
+    }
+
+    /**
+     * Copia del carrito tal como la dejó otra instancia, con la línea en {@code cantidad} unidades
+     */
+    private static Pedido carritoEnBd(int cantidad) {
+        DetallePedido detalle = DetallePedido.builder()
+                .id(7L)
+                .productoId(100L)
+                .productoNombre("Tomate")
+                .cantidad(cantidad)
+                .precioUnitario(new BigDecimal("5000"))
+                .build();
+        detalle.calcularSubtotal();
+        Pedido actual = Pedido.builder()
+                .id(1L)
+                .clienteId(CLIENT_ID)
+                .estado(EstadoPedido.CARRITO)
+                .estadoPago(EstadoPago.PENDIENTE)
+                .total(BigDecimal.ZERO)
+                .detalles(new ArrayList<>())
+                .build();
+        actual.getDetalles().add(detalle);
+        return actual;
+    }
+
+    @Test
+    @DisplayName("Debe repetir las ediciones pendientes sobre el carrito actual si otra instancia lo escribió")
+    void debeReaplicarEdicionesSobreCarritoActual() {
+        sumarUnidad();
+        sumarUnidad();
+
+        Pedido actual = carritoEnBd(10);
+        when(pedidoRepository.buscarCarrito(CLIENT_ID)).thenReturn(Optional.of(actual));
+        when(pedidoRepository.save(any(Pedido.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Pedido.class, 1L))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Pedido.class, 1L))
+                .thenAnswer(inv -> inv.getArgument(0));
+
+        carritoStore.escribirPendientes();
+
+        // Lote fallido + reintento individual + escritura de la versión actual con las dos ediciones
+        verify(pedidoRepository, times(1)).save(actual);
+        assertEquals(12, actual.getDetalles().get(0).getCantidad());
+
+        // Ya no quedan ediciones pendientes
+        carritoStore.escribirPendientes();
+        verify(pedidoRepository, times(3)).save(any(Pedido.class));
+    }
+
+    @Test
+    @DisplayName("Una escritura inmediata debe cerrar las ediciones diferidas anteriores")
+    void noDebeRepetirEdicionesYaEscritas() {
+        sumarUnidad();
+        carritoStore.editar(CLIENT_ID, () -> carritoStore.guardar(CLIENT_ID,
+                carritoStore.buscar(CLIENT_ID).orElseThrow(), true));
+        sumarUnidad();
+
+        Pedido actual = carritoEnBd(2);
+        when(pedidoRepository.buscarCarrito(CLIENT_ID)).thenReturn(Optional.of(actual));
+        when(pedidoRepository.save(any(Pedido.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Pedido.class, 1L))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Pedido.class, 1L))
+                .thenAnswer(inv -> inv.getArgument(0));
+
+        carritoStore.escribirPendientes();
+
+        // Solo la edición posterior a la escritura inmediata se repite
+        assertEquals(3, actual.getDetalles().get(0).getCantidad());
+    }
+}
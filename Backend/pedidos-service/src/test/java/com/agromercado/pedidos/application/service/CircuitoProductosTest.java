@@ -0,0 +1,175 @@
+package com.agromercado.pedidos.application.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CircuitoProductos - Pruebas Unitarias")
+class CircuitoProductosTest {
+
+    private final AtomicLong ahora = new AtomicLong(1_000);
+    private final AtomicInteger llamadas = new AtomicInteger();
+    private SimpleMeterRegistry registry;
+    private CircuitoProductos circuito;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        circuito = new CircuitoProductos(registry, 1, 1, Duration.ofMillis(500), 4, 4, 0.5, Duration.ofSeconds(30), ahora::get);
+    }
+
+    private String falla() {
+        llamadas.incrementAndGet();
+        throw new ResourceAccessException("Read timed out");
+    }
+
+    private String responde() {
+        llamadas.incrementAndGet();
+        return "ok";
+    }
+
+    @Test
+    @DisplayName("Debe abrirse tras superar el umbral de fallos y rechazar sin llamar")
+    void debeAbrirseYRechazarSinLlamar() {
+        assertEquals("ok", circuito.ejecutar("producto", this::responde));
+        assertEquals("ok", circuito.ejecutar("producto", this::responde));
+        assertThrows(ResourceAccessException.class, () -> circuito.ejecutar("producto", this::falla));
+        assertThrows(ResourceAccessException.class, () -> circuito.ejecutar("producto", this::falla));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> circuito.ejecutar("producto", this::responde));
+
+        assertTrue(error.getMessage().contains("no está disponible"));
+        assertEquals(4, llamadas.get());
+        assertEquals(CircuitoProductos.Estado.ABIERTO, circuito.getEstado());
+        assertEquals(1.0, registry.get("pedidos.productos.rechazadas").tag("motivo", "circuito").counter().count());
+    }
+
+    @Test
+    @DisplayName("Debe cerrarse si la llamada de prueba tras el tiempo de apertura responde")
+    void debeCerrarseTrasPruebaExitosa() {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ResourceAccessException.class, () -> circuito.ejecutar("producto", this::falla));
+        }
+
+        ahora.addAndGet(30_000);
+        assertEquals(CircuitoProductos.Estado.SEMIABIERTO, circuito.getEstado());
+        assertEquals("ok", circuito.ejecutar("producto", this::responde));
+
+        assertEquals(CircuitoProductos.Estado.CERRADO, circuito.getEstado());
+    }
+
+    @Test
+    @DisplayName("Debe volver a abrirse si la llamada de prueba falla")
+    void debeReabrirseSiPruebaFalla() {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ResourceAccessException.class, () -> circuito.ejecutar("producto", this::falla));
+        }
+
+        ahora.addAndGet(30_000);
+        assertThrows(ResourceAccessException.class, () -> circuito.ejecutar("producto", this::falla));
+
+        assertEquals(CircuitoProductos.Estado.ABIERTO, circuito.getEstado());
+        assertThrows(IllegalStateException.class, () -> circuito.ejecutar("producto", this::responde));
+    }
+
+    @Test
+    @DisplayName("Las respuestas 4xx no deben abrir el circuito")
+    void respuestasClienteNoAbrenCircuito() {
+        for (int i = 0; i < 8; i++) {
+            assertThrows(HttpClientErrorException.class, () -> circuito.ejecutar("reservar", () -> {
+                throw new HttpClientErrorException(HttpStatus.CONFLICT);
+            }));
+        }
+
+        assertEquals(CircuitoProductos.Estado.CERRADO, circuito.getEstado());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar al instante las llamadas que superan el bulkhead")
+    void debeRechazarCuandoNoHayCupo() throws Exception {
+        CountDownLatch enCurso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Thread ocupada = Thread.ofVirtual().start(() -> circuito.ejecutar("producto", () -> {
+            enCurso.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "ok";
+        }));
+
+        enCurso.await();
+        assertThrows(IllegalStateException.class, () -> circuito.ejecutar("producto", this::responde));
+        liberar.countDown();
+        ocupada.join();
+
+        assertEquals(0, llamadas.get());
+        assertEquals(1.0, registry.get("pedidos.productos.rechazadas").tag("motivo", "bulkhead").counter().count());
+        assertEquals("ok", circuito.ejecutar("producto", this::responde));
+    }
+
+    @Test
+    @DisplayName("Las operaciones de reserva deben esperar cupo y no competir con las consultas")
+    void reservasDebenEsperarCupoPropio() throws Exception {
+        CountDownLatch enCurso = new CountDownLatch(2);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Thread consulta = Thread.ofVirtual().start(() -> circuito.ejecutar("producto", () -> ocupar(enCurso, liberar)));
+        Thread reserva = Thread.ofVirtual().start(() -> circuito.ejecutar("confirmar-reserva", () -> ocupar(enCurso, liberar)));
+        enCurso.await();
+
+        // La consulta no ocupa cupos de reserva; la liberación espera a que termine la confirmación
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            liberar.countDown();
+        });
+        assertEquals("ok", circuito.ejecutar("liberar-reserva", this::responde));
+        consulta.join();
+        reserva.join();
+
+        assertEquals(1, llamadas.get());
+        assertEquals(0.0, registry.get("pedidos.productos.rechazadas").tag("motivo", "bulkhead").counter().count());
+    }
+
+    @Test
+    @DisplayName("Las operaciones de reserva deben rechazarse si el cupo no se libera a tiempo")
+    void reservasDebenRechazarseTrasLaEspera() throws Exception {
+        CountDownLatch enCurso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Thread reserva = Thread.ofVirtual().start(() -> circuito.ejecutar("confirmar-reserva", () -> ocupar(enCurso, liberar)));
+        enCurso.await();
+
+        assertThrows(IllegalStateException.class, () -> circuito.ejecutar("liberar-reserva", this::responde));
+        liberar.countDown();
+        reserva.join();
+
+        assertEquals(0, llamadas.get());
+        assertEquals(1.0, registry.get("pedidos.productos.rechazadas").tag("motivo", "bulkhead").counter().count());
+    }
+
+    private static String ocupar(CountDownLatch enCurso, CountDownLatch liberar) {
+        enCurso.countDown();
+        try {
+            liberar.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "ok";
+    }
+}
@@ -0,0 +1,207 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.MetodoPago;
+import com.agromercado.pedidos.domain.model.Pago;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.IncidenciaConciliacionRepository;
+import com.agromercado.pedidos.domain.repository.PagoRepository;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import com.agromercado.pedidos.domain.repository.ReembolsoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("ConciliacionPagos - Pruebas de Integración")
+class ConciliacionPagosIntegrationTest {
+
+    private static final BigDecimal MONTO = new BigDecimal("11900.00");
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private PagoRepository pagoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PagoSimuladoService pasarela;
+
+    @Autowired
+    private ConciliacionPagos conciliacion;
+
+    @Autowired
+    private ReembolsoRepository reembolsoRepository;
+
+    @Autowired
+    private IncidenciaConciliacionRepository incidenciaRepository;
+
+    @MockBean
+    private ProductoClientService productoClientService;
+
+    @BeforeEach
+    void setUp() {
+        reembolsoRepository.deleteAll();
+        incidenciaRepository.deleteAll();
+        pagoRepository.deleteAll();
+        pedidoRepository.deleteAll();
+    }
+
+    private Pedido guardar(String zonaId, EstadoPedido estado, EstadoPago estadoPago, int horasSinCambios) {
+        Pedido pedido = pedidoRepository.save(Pedido.builder()
+                .clienteId("cliente-" + zonaId)
+                .zonaId(zonaId)
+                .numeroPedido("PED-" + zonaId + "-" + estadoPago)
+                .estado(estado)
+                .estadoPago(estadoPago)
+                .total(MONTO)
+                .reservaStockId("reserva-" + zonaId)
+                .build());
+        jdbcTemplate.update("UPDATE pedidos SET fecha_actualizacion = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusHours(horasSinCambios)), pedido.getId());
+        return pedido;
+    }
+
+    private Pago pagoEnProceso(Pedido pedido) {
+        return pagoRepository.save(Pago.builder()
+                .pedidoId(pedido.getId())
+                .clienteId(pedido.getClienteId())
+                .metodoPago(MetodoPago.TARJETA_CREDITO)
+                .monto(MONTO)
+                .build());
+    }
+
+    @Test
+    @DisplayName("Debe resolver con la pasarela los pagos que se quedaron en proceso")
+    void debeResolverPagoEnProceso() {
+        Pedido pedido = guardar("zona-1", EstadoPedido.PENDIENTE, EstadoPago.PROCESANDO, 1);
+        Pago pago = pagoEnProceso(pedido);
+        pasarela.registrar(new PagoSimuladoService.TransaccionPasarela(
+                "TDC-123", pedido.getId(), true, MONTO, LocalDateTime.now()));
+
+        ConciliacionPagos.Resumen resumen = conciliacion.conciliar();
+
+        assertEquals(1, resumen.reparados());
+        Pedido conciliado = pedidoRepository.findById(pedido.getId()).orElseThrow();
+        assertEquals(EstadoPago.APROBADO, conciliado.getEstadoPago());
+        assertEquals(EstadoPedido.EN_PREPARACION, conciliado.getEstado());
+        assertEquals("TDC-123", conciliado.getTransaccionPagoId());
+        assertEquals(EstadoPago.APROBADO, pagoRepository.findById(pago.getId()).orElseThrow().getEstado());
+        verify(productoClientService).confirmarReserva("reserva-zona-1");
+    }
+
+    @Test
+    @DisplayName("Debe cancelar y reembolsar el pago aprobado si su reserva expiró y el stock ya no alcanza")
+    void debeCancelarPagoEnProcesoSinStock() {
+        Pedido pedido = guardar("zona-1", EstadoPedido.PENDIENTE, EstadoPago.PROCESANDO, 1);
+        Pago pago = pagoEnProceso(pedido);
+        pasarela.registrar(new PagoSimuladoService.TransaccionPasarela(
+                "TDC-456", pedido.getId(), true, MONTO, LocalDateTime.now()));
+        doThrow(HttpClientErrorException.create(HttpStatus.CONFLICT, "Conflict", HttpHeaders.EMPTY, null, null))
+                .when(productoClientService).confirmarReserva("reserva-zona-1");
+        when(productoClientService.reservarStock(anyString(), anyMap()))
+                .thenThrow(new IllegalArgumentException("Stock insuficiente"));
+
+        conciliacion.conciliar();
+
+        assertEquals(EstadoPedido.CANCELADO, pedidoRepository.findById(pedido.getId()).orElseThrow().getEstado());
+        assertEquals(EstadoPago.APROBADO, pagoRepository.findById(pago.getId()).orElseThrow().getEstado());
+        assertEquals(1, reembolsoRepository.count());
+    }
+
+    @Test
+    @DisplayName("Debe dejar el pago en proceso si no puede confirmar el stock")
+    void noDebeAprobarPagoEnProcesoSinConfirmarStock() {
+        Pedido pedido = guardar("zona-1", EstadoPedido.PENDIENTE, EstadoPago.PROCESANDO, 1);
+        Pago pago = pagoEnProceso(pedido);
+        pasarela.registrar(new PagoSimuladoService.TransaccionPasarela(
+                "TDC-789", pedido.getId(), true, MONTO, LocalDateTime.now()));
+        doThrow(new RuntimeException("productos-service no disponible"))
+                .when(productoClientService).confirmarReserva("reserva-zona-1");
+
+        ConciliacionPagos.Resumen resumen = conciliacion.conciliar();
+
+        assertEquals(0, resumen.reparados());
+        assertEquals(EstadoPago.PROCESANDO, pagoRepository.findById(pago.getId()).orElseThrow().getEstado());
+        assertEquals(EstadoPedido.PENDIENTE, pedidoRepository.findById(pedido.getId()).orElseThrow().getEstado());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar el pago en proceso si nunca llegó a la pasarela")
+    void debeRechazarPagoSinTransaccion() {
+        Pedido pedido = guardar("zona-1", EstadoPedido.PENDIENTE, EstadoPago.PROCESANDO, 1);
+        pagoEnProceso(pedido);
+
+        conciliacion.conciliar();
+
+        assertEquals(EstadoPago.RECHAZADO, pedidoRepository.findById(pedido.getId()).orElseThrow().getEstadoPago());
+    }
+
+    @Test
+    @DisplayName("Debe cancelar los pedidos rechazados sin reintento y marcar lo que no puede reparar")
+    void debeCancelarRechazadosYMarcarIncidencias() {
+        Pedido rechazado = guardar("zona-1", EstadoPedido.PENDIENTE, EstadoPago.RECHAZADO, 72);
+        Pedido reciente = guardar("zona-2", EstadoPedido.PENDIENTE, EstadoPago.RECHAZADO, 1);
+        Pedido sinTransaccion = guardar("zona-2", EstadoPedido.EN_PREPARACION, EstadoPago.APROBADO, 1);
+
+        ConciliacionPagos.Resumen resumen = conciliacion.conciliar();
+
+        assertEquals(2, resumen.revisados());
+        assertEquals(1, resumen.reparados());
+        assertEquals(1, resumen.marcados());
+        assertEquals(2, resumen.zonas().size());
+        assertEquals(EstadoPedido.CANCELADO, pedidoRepository.findById(rechazado.getId()).orElseThrow().getEstado());
+        assertEquals(EstadoPedido.PENDIENTE, pedidoRepository.findById(reciente.getId()).orElseThrow().getEstado());
+        assertEquals(1, resumen.incidencias().size());
+        assertEquals(sinTransaccion.getId(), resumen.incidencias().get(0).pedidoId());
+        assertEquals(ConciliacionPagos.Caso.APROBADO_SIN_TRANSACCION, resumen.incidencias().get(0).caso());
+    }
+
+    @Test
+    @DisplayName("Debe reportar una incidencia una sola vez mientras el pedido no cambie")
+    void debeReportarIncidenciaUnaSolaVez() {
+        Pedido sinTransaccion = guardar("zona-1", EstadoPedido.EN_PREPARACION, EstadoPago.APROBADO, 1);
+
+        ConciliacionPagos.Resumen primera = conciliacion.conciliar();
+        ConciliacionPagos.Resumen segunda = conciliacion.conciliar();
+
+        assertEquals(1, primera.marcados());
+        assertEquals(1, primera.incidencias().size());
+        assertEquals(0, segunda.marcados());
+        assertEquals(1, segunda.yaMarcados());
+        assertTrue(segunda.incidencias().isEmpty());
+        assertTrue(incidenciaRepository.existsById(sinTransaccion.getId()));
+
+        // El pedido cambia pero sigue inconsistente: se vuelve a reportar
+        Pedido editado = pedidoRepository.findById(sinTransaccion.getId()).orElseThrow();
+        editado.setEstado(EstadoPedido.ENVIADO);
+        pedidoRepository.save(editado);
+        assertEquals(1, conciliacion.conciliar().marcados());
+
+        // Reparado a mano: la incidencia deja de estar abierta
+        jdbcTemplate.update("UPDATE pedidos SET transaccion_pago_id = 'TDC-MANUAL' WHERE id = ?", sinTransaccion.getId());
+        conciliacion.conciliar();
+        assertFalse(incidenciaRepository.existsById(sinTransaccion.getId()));
+    }
+}
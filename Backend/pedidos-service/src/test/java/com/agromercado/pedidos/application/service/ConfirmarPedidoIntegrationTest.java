@@ -0,0 +1,122 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.application.dto.ConfirmarPedidoRequest;
+import com.agromercado.pedidos.application.dto.PedidoResponse;
+import com.agromercado.pedidos.domain.model.DetallePedido;
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.MetodoPago;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.NumeroPedidoRepository;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Confirmación de pedidos - Pruebas de Integración")
+class ConfirmarPedidoIntegrationTest {
+
+    private static final String CLIENTE_ID = "cliente-confirmacion";
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private NumeroPedidoRepository numeroPedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private ProductoClientService productoClientService;
+
+    @BeforeEach
+    void setUp() {
+        pedidoRepository.deleteAll();
+    }
+
+    private Long guardarCarrito() {
+        Pedido carrito = Pedido.builder()
+                .clienteId(CLIENTE_ID)
+                .zonaId("zona-1")
+                .estado(EstadoPedido.CARRITO)
+                .estadoPago(EstadoPago.PENDIENTE)
+                .total(BigDecimal.ZERO)
+                .build();
+        carrito.agregarDetalle(DetallePedido.builder()
+                .productoId(10L)
+                .productoNombre("Papa")
+                .cantidad(3)
+                .precioUnitario(new BigDecimal("2000"))
+                .build());
+        return pedidoRepository.save(carrito).getId();
+    }
+
+    private ConfirmarPedidoRequest solicitud() {
+        ConfirmarPedidoRequest request = new ConfirmarPedidoRequest();
+        request.setDireccionEntrega("Calle 5 # 10-20");
+        request.setTelefonoContacto("3001234567");
+        request.setMetodoPago(MetodoPago.TARJETA_CREDITO);
+        return request;
+    }
+
+    @Test
+    @DisplayName("Debe confirmar un carrito creado meses atrás y moverlo a la partición de su mes")
+    void debeConfirmarCarritoAntiguo() {
+        Long id = guardarCarrito();
+        LocalDateTime creacion = LocalDateTime.now().minusMonths(14);
+        jdbcTemplate.update("UPDATE pedidos SET fecha_creacion = ? WHERE id = ?", Timestamp.valueOf(creacion), id);
+        when(productoClientService.reservarStock(anyString(), anyMap())).thenReturn("reserva-1");
+
+        PedidoResponse respuesta = pedidoService.confirmarPedido(CLIENTE_ID, solicitud());
+
+        assertEquals(id, respuesta.getId());
+        assertEquals(EstadoPedido.PENDIENTE, respuesta.getEstado());
+        assertNotNull(respuesta.getNumeroPedido());
+        verify(productoClientService).reservarStock(respuesta.getNumeroPedido(), Map.of(10L, 3));
+
+        Pedido confirmado = pedidoRepository.findById(id).orElseThrow();
+        assertEquals(EstadoPedido.PENDIENTE, confirmado.getEstado());
+        assertEquals(Pedido.particionDelMes(creacion), confirmado.getParticion());
+        assertEquals("reserva-1", confirmado.getReservaStockId());
+        assertTrue(pedidoRepository.buscarCarrito(CLIENTE_ID).isEmpty());
+        assertEquals(id, numeroPedidoRepository.findById(respuesta.getNumeroPedido()).orElseThrow().getPedidoId());
+    }
+
+    @Test
+    @DisplayName("Debe liberar la reserva si el carrito cambia mientras se reserva el stock")
+    void debeLiberarReservaSiElCarritoCambia() {
+        Long id = guardarCarrito();
+        // La reserva remota corre fuera de la transacción: otra petición edita el carrito mientras tanto
+        when(productoClientService.reservarStock(anyString(), anyMap())).thenAnswer(invocacion -> {
+            jdbcTemplate.update("UPDATE detalles_pedido SET cantidad = 5 WHERE pedido_id = ?", id);
+            return "reserva-2";
+        });
+
+        assertThrows(IllegalStateException.class, () -> pedidoService.confirmarPedido(CLIENTE_ID, solicitud()));
+
+        verify(productoClientService).liberarReserva("reserva-2");
+        Pedido carrito = pedidoRepository.buscarCarrito(CLIENTE_ID).orElseThrow();
+        assertEquals(id, carrito.getId());
+        assertNull(carrito.getReservaStockId());
+    }
+}
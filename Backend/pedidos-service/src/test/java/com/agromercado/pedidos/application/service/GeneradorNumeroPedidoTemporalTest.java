@@ -0,0 +1,91 @@
+package com.agromercado.pedidos.application.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("GeneradorNumeroPedidoTemporal - Pruebas Unitarias")
+class GeneradorNumeroPedidoTemporalTest {
+
+    @Test
+    @DisplayName("No debe repetir números con muchos hilos generando a la vez")
+    void noDebeRepetirNumerosEntreHilos() throws Exception {
+        GeneradorNumeroPedidoTemporal generador = new GeneradorNumeroPedidoTemporal(7);
+        int hilos = 8;
+        int porHilo = 100_000;
+        Set<String> numeros = ConcurrentHashMap.newKeySet(hilos * porHilo);
+        CountDownLatch salida = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                tareas.add(executor.submit(() -> {
+                    salida.await();
+                    String anterior = "";
+                    for (int i = 0; i < porHilo; i++) {
+                        String numero = generador.generar();
+                        // Dentro de un hilo los números siempre crecen
+                        assertTrue(numero.compareTo(anterior) > 0, numero + " <= " + anterior);
+                        numeros.add(numero);
+                        anterior = numero;
+                    }
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(hilos * porHilo, numeros.size());
+    }
+
+    @Test
+    @DisplayName("Instancias con distinto worker id no deben coincidir")
+    void workersDistintosNoDebenCoincidir() {
+        GeneradorNumeroPedidoTemporal a = new GeneradorNumeroPedidoTemporal(1);
+        GeneradorNumeroPedidoTemporal b = new GeneradorNumeroPedidoTemporal(2);
+        Set<Long> ids = new java.util.HashSet<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            assertTrue(ids.add(a.siguienteId()));
+            assertTrue(ids.add(b.siguienteId()));
+        }
+    }
+
+    @Test
+    @DisplayName("El texto debe tener ancho fijo y respetar el orden numérico")
+    void debeCodificarConAnchoFijoYOrden() {
+        String menor = GeneradorNumeroPedidoTemporal.codificar(31);
+        String mayor = GeneradorNumeroPedidoTemporal.codificar(32);
+        String maximo = GeneradorNumeroPedidoTemporal.codificar(Long.MAX_VALUE);
+
+        assertEquals("PED-000000000000Z", menor);
+        assertEquals("PED-0000000000010", mayor);
+        assertEquals(menor.length(), maximo.length());
+        assertTrue(menor.compareTo(mayor) < 0);
+        assertTrue(mayor.compareTo(maximo) < 0);
+    }
+
+    @Test
+    @DisplayName("Debe rechazar worker ids fuera de rango")
+    void debeRechazarWorkerIdFueraDeRango() {
+        assertThrows(IllegalArgumentException.class, () -> new GeneradorNumeroPedidoTemporal(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new GeneradorNumeroPedidoTemporal(GeneradorNumeroPedidoTemporal.MAX_WORKER_ID + 1));
+    }
+}
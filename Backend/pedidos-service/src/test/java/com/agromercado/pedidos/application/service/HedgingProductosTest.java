@@ -0,0 +1,138 @@
+package com.agromercado.pedidos.application.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HedgingProductos - Pruebas Unitarias")
+class HedgingProductosTest {
+
+    private final AtomicInteger llamadas = new AtomicInteger();
+    private final CountDownLatch liberarLenta = new CountDownLatch(1);
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        liberarLenta.countDown();
+    }
+
+    private HedgingProductos hedging(double presupuesto, int rafaga) {
+        return new HedgingProductos(registry, true, Duration.ofMillis(20), Duration.ofMillis(5), presupuesto, rafaga);
+    }
+
+    /** La primera llamada se queda colgada hasta el final de la prueba; las demás responden al instante. */
+    private String primeraLenta() {
+        if (llamadas.incrementAndGet() == 1) {
+            try {
+                liberarLenta.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "lenta";
+        }
+        return "rapida";
+    }
+
+    @Test
+    @DisplayName("Debe lanzar una copia si la consulta tarda y usar la que responda primero")
+    void debeUsarLaCopiaSiResponderPrimero() {
+        String resultado = hedging(0.05, 10).ejecutar(this::primeraLenta);
+
+        assertEquals("rapida", resultado);
+        assertEquals(2, llamadas.get());
+        assertEquals(1.0, registry.get("pedidos.productos.hedging.enviados").counter().count());
+        assertEquals(1.0, registry.get("pedidos.productos.hedging.ganados").counter().count());
+    }
+
+    @Test
+    @DisplayName("El umbral debe salir de la latencia de la llamada primaria y no de la recortada por las copias")
+    void umbralDebeUsarLatenciaPrimaria() throws Exception {
+        HedgingProductos hedging = hedging(1, 100);
+        int consultas = 20;
+        for (int i = 0; i < consultas; i++) {
+            AtomicInteger intentos = new AtomicInteger();
+            // La primaria tarda 60 ms; la copia responde al instante
+            assertEquals("rapida", hedging.ejecutar(() -> {
+                if (intentos.incrementAndGet() == 1) {
+                    dormir(60);
+                    return "lenta";
+                }
+                return "rapida";
+            }));
+        }
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("pedidos.productos.hedging.latencia-primaria").timer().count() < consultas
+                && System.nanoTime() < limite) {
+            dormir(10);
+        }
+
+        // Con copias ganadas la latencia observada queda en ~20 ms, pero el umbral sigue a la primaria
+        assertTrue(registry.get("pedidos.productos.hedging.latencia").timer()
+                .max(TimeUnit.MILLISECONDS) < 60);
+        assertTrue(hedging.esperaHedgeMs() >= 50, "umbral: " + hedging.esperaHedgeMs());
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    @DisplayName("No debe lanzar copias si se agotó el presupuesto")
+    void noDebeDuplicarSinPresupuesto() {
+        String resultado = hedging(0, 0).ejecutar(() -> {
+            llamadas.incrementAndGet();
+            try {
+                Thread.sleep(60);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "unica";
+        });
+
+        assertEquals("unica", resultado);
+        assertEquals(1, llamadas.get());
+        assertEquals(0.0, registry.get("pedidos.productos.hedging.enviados").counter().count());
+        assertEquals(1.0, registry.get("pedidos.productos.hedging.sin-presupuesto").counter().count());
+    }
+
+    @Test
+    @DisplayName("Debe propagar el error de una consulta que falla antes de la espera")
+    void debePropagarErrorSinDuplicar() {
+        assertThrows(ResourceAccessException.class, () -> hedging(0.05, 10).ejecutar(() -> {
+            llamadas.incrementAndGet();
+            throw new ResourceAccessException("Connection refused");
+        }));
+
+        assertEquals(1, llamadas.get());
+        assertEquals(0.0, registry.get("pedidos.productos.hedging.enviados").counter().count());
+    }
+
+    @Test
+    @DisplayName("Deshabilitado debe ejecutar la consulta en el mismo hilo")
+    void deshabilitadoNoDebeDuplicar() {
+        HedgingProductos hedging = new HedgingProductos(registry, false,
+                Duration.ofMillis(20), Duration.ofMillis(5), 0.05, 10);
+        Thread llamador = Thread.currentThread();
+
+        assertTrue(hedging.ejecutar(() -> Thread.currentThread() == llamador));
+    }
+}
@@ -0,0 +1,175 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.application.dto.PagoResponse;
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.repository.ClaveIdempotenciaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("IdempotenciaService - Pruebas de Integración")
+class IdempotenciaServiceIntegrationTest {
+
+    private static final String CLIENT_ID = "cliente-idempotencia";
+
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
+    @Autowired
+    private ClaveIdempotenciaRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicInteger ejecuciones = new AtomicInteger();
+
+    private Supplier<PagoResponse> pago(long pagoId) {
+        return () -> {
+            ejecuciones.incrementAndGet();
+            return PagoResponse.builder().pagoId(pagoId).estado(EstadoPago.PROCESANDO).build();
+        };
+    }
+
+    @Test
+    @DisplayName("Duplicados concurrentes deben esperar a la primera ejecución")
+    void duplicadosConcurrentesDebenEsperarALaPrimera() throws Exception {
+        String clave = UUID.randomUUID().toString();
+        int peticiones = 16;
+        CountDownLatch salida = new CountDownLatch(1);
+        Supplier<PagoResponse> lenta = () -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return pago(ejecuciones.get() + 1L).get();
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(peticiones);
+        try {
+            List<Future<PagoResponse>> respuestas = new ArrayList<>();
+            for (int i = 0; i < peticiones; i++) {
+                respuestas.add(executor.submit(() -> {
+                    salida.await();
+                    return idempotenciaService.ejecutar("pagos.procesar", CLIENT_ID, clave,
+                            Map.of("pedidoId", 1), PagoResponse.class, lenta);
+                }));
+            }
+            salida.countDown();
+            for (Future<PagoResponse> respuesta : respuestas) {
+                assertEquals(1L, respuesta.get().getPagoId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Otra instancia debe responder con la respuesta guardada en la BD")
+    void otraInstanciaDebeResponderDesdeLaBd() {
+        String clave = UUID.randomUUID().toString();
+        IdempotenciaService otraInstancia = new IdempotenciaService(repository, objectMapper, transactionManager,
+                Duration.ofHours(24), Duration.ofMinutes(10), Duration.ofSeconds(5), Duration.ofSeconds(30), 100);
+
+        PagoResponse primera = idempotenciaService.ejecutar("pagos.procesar", CLIENT_ID, clave,
+                Map.of("pedidoId", 1), PagoResponse.class, pago(10L));
+        PagoResponse repetida = otraInstancia.ejecutar("pagos.procesar", CLIENT_ID, clave,
+                Map.of("pedidoId", 1), PagoResponse.class, pago(11L));
+
+        assertEquals(1, ejecuciones.get());
+        assertEquals(primera, repetida);
+    }
+
+    @Test
+    @DisplayName("Debe renovar el arriendo de una operación en curso más larga que el arriendo")
+    void debeRenovarArriendoDeOperacionEnCurso() {
+        String clave = UUID.randomUUID().toString();
+        String id = "pagos.procesar:" + CLIENT_ID + ":" + clave;
+        IdempotenciaService otraInstancia = new IdempotenciaService(repository, objectMapper, transactionManager,
+                Duration.ofHours(24), Duration.ofMinutes(10), Duration.ofSeconds(5), Duration.ofMillis(200), 100);
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        Supplier<LocalDateTime> expiracion = () ->
+                transaccion.execute(status -> repository.findById(id).orElseThrow().getExpiraEn());
+
+        otraInstancia.ejecutar("pagos.procesar", CLIENT_ID, clave, Map.of("pedidoId", 1), PagoResponse.class, () -> {
+            LocalDateTime inicial = expiracion.get();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            otraInstancia.renovarEnCurso();
+
+            // Sin la renovación el arriendo ya habría caducado y otra petición volvería a ejecutarla
+            assertTrue(expiracion.get().isAfter(inicial.plus(Duration.ofMillis(250))));
+            assertTrue(expiracion.get().isAfter(LocalDateTime.now()));
+            return pago(40L).get();
+        });
+
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Si la operación falla la clave debe quedar libre para reintentar")
+    void debeLiberarClaveSiFalla() {
+        String clave = UUID.randomUUID().toString();
+
+        assertThrows(IllegalArgumentException.class, () -> idempotenciaService.ejecutar("pedidos.confirmar",
+                CLIENT_ID, clave, Map.of(), PagoResponse.class, () -> {
+                    throw new IllegalArgumentException("No se encontró el carrito");
+                }));
+        PagoResponse reintento = idempotenciaService.ejecutar("pedidos.confirmar", CLIENT_ID, clave,
+                Map.of(), PagoResponse.class, pago(20L));
+
+        assertEquals(20L, reintento.getPagoId());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar una clave reutilizada con otra petición")
+    void debeRechazarClaveConOtraPeticion() {
+        String clave = UUID.randomUUID().toString();
+        idempotenciaService.ejecutar("pagos.procesar", CLIENT_ID, clave,
+                Map.of("pedidoId", 1), PagoResponse.class, pago(30L));
+
+        assertThrows(IllegalArgumentException.class, () -> idempotenciaService.ejecutar("pagos.procesar",
+                CLIENT_ID, clave, Map.of("pedidoId", 2), PagoResponse.class, pago(31L)));
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Sin clave la operación debe ejecutarse siempre")
+    void sinClaveDebeEjecutarSiempre() {
+        idempotenciaService.ejecutar("pagos.procesar", CLIENT_ID, null, Map.of(), PagoResponse.class, pago(1L));
+        idempotenciaService.ejecutar("pagos.procesar", CLIENT_ID, null, Map.of(), PagoResponse.class, pago(1L));
+
+        assertEquals(2, ejecuciones.get());
+    }
+}
@@ -0,0 +1,101 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.domain.model.DetallePedido;
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("LimpiezaCarritos - Pruebas de Integración")
+class LimpiezaCarritosIntegrationTest {
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CarritoStore carritoStore;
+
+    private LimpiezaCarritos limpieza;
+
+    @BeforeEach
+    void setUp() {
+        pedidoRepository.deleteAll();
+        // Lotes de 2 para recorrer varias páginas con pocos datos
+        limpieza = new LimpiezaCarritos(jdbcTemplate, transactionManager, carritoStore,
+                new SimpleMeterRegistry(), true, Duration.ofDays(30), 2);
+    }
+
+    private Long guardar(String clienteId, EstadoPedido estado, int diasInactivo) {
+        Pedido pedido = Pedido.builder()
+                .clienteId(clienteId)
+                .estado(estado)
+                .estadoPago(EstadoPago.PENDIENTE)
+                .total(BigDecimal.ZERO)
+                .build();
+        pedido.agregarDetalle(DetallePedido.builder()
+                .productoId(1L)
+                .productoNombre("Producto 1")
+                .cantidad(1)
+                .precioUnitario(BigDecimal.ONE)
+                .build());
+        Long id = pedidoRepository.save(pedido).getId();
+        jdbcTemplate.update("UPDATE pedidos SET fecha_actualizacion = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(diasInactivo)), id);
+        return id;
+    }
+
+    @Test
+    @DisplayName("Debe borrar por lotes solo los carritos inactivos, con sus líneas")
+    void debeBorrarCarritosInactivosPorLotes() {
+        List<Long> abandonados = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            abandonados.add(guardar("cliente-abandonado-" + i, EstadoPedido.CARRITO, 40 + i));
+        }
+        Long activo = guardar("cliente-activo", EstadoPedido.CARRITO, 1);
+        Long pedidoAntiguo = guardar("cliente-pedido", EstadoPedido.ENTREGADO, 90);
+
+        LimpiezaCarritos.Resultado resultado = limpieza.limpiar(LocalDateTime.now().minusDays(30));
+
+        assertEquals(5, resultado.carritos());
+        assertEquals(5, resultado.lineas());
+        abandonados.forEach(id -> assertFalse(pedidoRepository.existsById(id)));
+        assertTrue(pedidoRepository.existsById(activo));
+        assertTrue(pedidoRepository.existsById(pedidoAntiguo));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM detalles_pedido", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Una segunda pasada no debe encontrar nada que borrar")
+    void segundaPasadaNoDebeBorrarNada() {
+        guardar("cliente-abandonado", EstadoPedido.CARRITO, 60);
+
+        assertEquals(1, limpieza.limpiar(LocalDateTime.now().minusDays(30)).carritos());
+        assertEquals(0, limpieza.limpiar(LocalDateTime.now().minusDays(30)).carritos());
+    }
+}
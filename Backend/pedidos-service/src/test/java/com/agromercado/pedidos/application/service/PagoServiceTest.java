@@ -0,0 +1,227 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.application.dto.PagoResponse;
+import com.agromercado.pedidos.application.dto.ProcesarPagoRequest;
+import com.agromercado.pedidos.domain.model.*;
+import com.agromercado.pedidos.domain.repository.PagoRepository;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PagoService - Pruebas Unitarias")
+class PagoServiceTest {
+
+    @Mock
+    private PedidoRepository pedidoRepository;
+
+    @Mock
+    private PagoRepository pagoRepository;
+
+    @Mock
+    private PagoSimuladoService pagoSimuladoService;
+
+    @Mock
+    private ProductoClientService productoClientService;
+
+    @Mock
+    private OutboxPedidos outboxPedidos;
+
+    @Mock
+    private VentasDiariasService ventasDiariasService;
+
+    @Mock
+    private ProcesadorReembolsos procesadorReembolsos;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Runnable> tareasEncoladas = new ArrayList<>();
+
+    private PagoService pagoService;
+    private Pedido pedidoMock;
+    private Pago pagoGuardado;
+    private static final String CLIENT_ID = "cliente-test-123";
+
+    @BeforeEach
+    void setUp() {
+        pagoService = new PagoService(pedidoRepository, pagoRepository, pagoSimuladoService,
+                productoClientService, outboxPedidos, ventasDiariasService, procesadorReembolsos, transactionManager, tareasEncoladas::add, 1);
+
+        pedidoMock = Pedido.builder()
+                .id(1L)
+                .clienteId(CLIENT_ID)
+                .numeroPedido("PED-1")
+                .estado(EstadoPedido.PENDIENTE)
+                .estadoPago(EstadoPago.PENDIENTE)
+                .total(new BigDecimal("11900"))
+                .reservaStockId("reserva-1")
+                .build();
+
+        when(pedidoRepository.findById(1L)).thenReturn(Optional.of(pedidoMock));
+        when(pagoRepository.save(any(Pago.class))).thenAnswer(inv -> {
+            Pago pago = inv.getArgument(0);
+            if (pago.getId() == null) {
+                pago.setId(10L);
+            }
+            pagoGuardado = pago;
+            return pago;
+        });
+    }
+
+    private static HttpClientErrorException conflicto() {
+        return HttpClientErrorException.create(HttpStatus.CONFLICT, "Conflict", HttpHeaders.EMPTY, null, null);
+    }
+
+    private void pasarelaAprueba() {
+        when(pagoSimuladoService.procesarPago(any(Pedido.class), any(ProcesarPagoRequest.class)))
+                .thenReturn(PagoResponse.builder().aprobado(true).transaccionId("TDC-1").mensaje("ok").build());
+    }
+
+    private void ejecutarPagoEncolado() {
+        pagoService.iniciarPago(CLIENT_ID, request());
+        when(pagoRepository.findById(10L)).thenReturn(Optional.of(pagoGuardado));
+        tareasEncoladas.get(0).run();
+    }
+
+    private ProcesarPagoRequest request() {
+        ProcesarPagoRequest request = new ProcesarPagoRequest();
+        request.setPedidoId(1L);
+        request.setMetodoPago(MetodoPago.TARJETA_CREDITO);
+        return request;
+    }
+
+    @Test
+    @DisplayName("Debe responder PROCESANDO sin llamar a la pasarela en el hilo de la petición")
+    void debeIniciarPagoSinEsperarPasarela() {
+        PagoResponse respuesta = pagoService.iniciarPago(CLIENT_ID, request());
+
+        assertEquals(10L, respuesta.getPagoId());
+        assertEquals(EstadoPago.PROCESANDO, respuesta.getEstado());
+        assertEquals(EstadoPago.PROCESANDO, pedidoMock.getEstadoPago());
+        assertEquals(1, tareasEncoladas.size());
+        verifyNoInteractions(pagoSimuladoService);
+    }
+
+    @Test
+    @DisplayName("Debe aplicar el pago aprobado en una segunda transacción")
+    void debeAplicarPagoAprobado() {
+        when(pagoSimuladoService.procesarPago(any(Pedido.class), any(ProcesarPagoRequest.class)))
+                .thenReturn(PagoResponse.builder().aprobado(true).transaccionId("TDC-1").mensaje("ok").build());
+
+        pagoService.iniciarPago(CLIENT_ID, request());
+        when(pagoRepository.findById(10L)).thenReturn(Optional.of(pagoGuardado));
+        tareasEncoladas.get(0).run();
+
+        assertEquals(EstadoPago.APROBADO, pagoGuardado.getEstado());
+        assertEquals(EstadoPago.APROBADO, pedidoMock.getEstadoPago());
+        assertEquals(EstadoPedido.EN_PREPARACION, pedidoMock.getEstado());
+        assertEquals("TDC-1", pedidoMock.getTransaccionPagoId());
+        InOrder orden = inOrder(productoClientService, pagoSimuladoService);
+        orden.verify(productoClientService).renovarReserva("reserva-1");
+        orden.verify(pagoSimuladoService).procesarPago(any(Pedido.class), any(ProcesarPagoRequest.class));
+        orden.verify(productoClientService).confirmarReserva("reserva-1");
+        verify(outboxPedidos).pedidoPagado(pedidoMock);
+        verify(ventasDiariasService).registrarPago(pedidoMock);
+    }
+
+    @Test
+    @DisplayName("Debe marcar el pago como rechazado si la pasarela falla")
+    void debeRechazarSiPasarelaFalla() {
+        when(pagoSimuladoService.procesarPago(any(Pedido.class), any(ProcesarPagoRequest.class)))
+                .thenThrow(new RuntimeException("timeout"));
+
+        pagoService.iniciarPago(CLIENT_ID, request());
+        when(pagoRepository.findById(10L)).thenReturn(Optional.of(pagoGuardado));
+        tareasEncoladas.get(0).run();
+
+        assertEquals(EstadoPago.RECHAZADO, pagoGuardado.getEstado());
+        assertEquals(EstadoPago.RECHAZADO, pedidoMock.getEstadoPago());
+        assertEquals(EstadoPedido.PENDIENTE, pedidoMock.getEstado());
+        verify(productoClientService, never()).confirmarReserva(anyString());
+        verifyNoInteractions(outboxPedidos);
+    }
+
+    @Test
+    @DisplayName("Debe rechazar nuevos pagos cuando se alcanza el límite de concurrencia")
+    void debeRechazarCuandoNoHayCupo() {
+        pagoService.iniciarPago(CLIENT_ID, request());
+
+        assertThrows(IllegalStateException.class, () -> pagoService.iniciarPago(CLIENT_ID, request()));
+    }
+
+    @Test
+    @DisplayName("Debe rechazar sin cobrar si la reserva expiró y el stock ya no alcanza")
+    void debeRechazarSinCobrarSiNoHayStock() {
+        doThrow(conflicto()).when(productoClientService).renovarReserva("reserva-1");
+        when(productoClientService.reservarStock(eq("PED-1"), anyMap()))
+                .thenThrow(new IllegalArgumentException("Stock insuficiente"));
+
+        ejecutarPagoEncolado();
+
+        assertEquals(EstadoPago.RECHAZADO, pagoGuardado.getEstado());
+        assertEquals(EstadoPedido.PENDIENTE, pedidoMock.getEstado());
+        verifyNoInteractions(pagoSimuladoService);
+    }
+
+    @Test
+    @DisplayName("Debe reservar de nuevo el stock si la reserva expiró antes de cobrar")
+    void debeReservarDeNuevoSiLaReservaExpiro() {
+        doThrow(conflicto()).when(productoClientService).renovarReserva("reserva-1");
+        when(productoClientService.reservarStock(eq("PED-1"), anyMap())).thenReturn("reserva-2");
+        pasarelaAprueba();
+
+        ejecutarPagoEncolado();
+
+        assertEquals(EstadoPedido.EN_PREPARACION, pedidoMock.getEstado());
+        assertEquals("reserva-2", pedidoMock.getReservaStockId());
+        verify(productoClientService).confirmarReserva("reserva-2");
+    }
+
+    @Test
+    @DisplayName("Debe cancelar y reembolsar un pago aprobado si la reserva ya no puede confirmarse")
+    void debeReembolsarSiElStockSePerdioTrasAprobar() {
+        pasarelaAprueba();
+        doThrow(conflicto()).when(productoClientService).confirmarReserva("reserva-1");
+        when(productoClientService.reservarStock(eq("PED-1"), anyMap()))
+                .thenThrow(new IllegalArgumentException("Stock insuficiente"));
+
+        ejecutarPagoEncolado();
+
+        assertEquals(EstadoPago.APROBADO, pagoGuardado.getEstado());
+        assertEquals(EstadoPedido.CANCELADO, pedidoMock.getEstado());
+        verify(procesadorReembolsos).encolar(pedidoMock);
+        verify(outboxPedidos).estadoCambiado(pedidoMock, EstadoPedido.EN_PREPARACION);
+    }
+
+    @Test
+    @DisplayName("Debe dejar el pago en PROCESANDO si productos-service no responde al confirmar la reserva")
+    void debeDejarEnProcesoSiNoSePuedeConfirmarLaReserva() {
+        pasarelaAprueba();
+        doThrow(new IllegalStateException("circuito abierto")).when(productoClientService).confirmarReserva("reserva-1");
+
+        ejecutarPagoEncolado();
+
+        assertEquals(EstadoPago.PROCESANDO, pagoGuardado.getEstado());
+        assertEquals(EstadoPedido.PENDIENTE, pedidoMock.getEstado());
+        verifyNoInteractions(procesadorReembolsos, outboxPedidos);
+    }
+}
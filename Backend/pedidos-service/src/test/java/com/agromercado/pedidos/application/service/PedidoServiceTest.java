@@ -2,20 +2,28 @@ package com.agromercado.pedidos.application.service;
 
 import com.agromercado.pedidos.application.dto.AgregarProductoCarritoRequest;
 import com.agromercado.pedidos.application.dto.ConfirmarPedidoRequest;
+import com.agromercado.pedidos.application.dto.OperacionCarritoRequest;
+import com.agromercado.pedidos.application.dto.OperacionesCarritoResponse;
 import com.agromercado.pedidos.application.dto.PedidoResponse;
 import com.agromercado.pedidos.domain.model.*;
-import com.agromercado.pedidos.domain.repository.DetallePedidoRepository;
+import com.agromercado.pedidos.domain.repository.NumeroPedidoRepository;
 import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -29,16 +37,30 @@ class PedidoServiceTest {
     @Mock
     private PedidoRepository pedidoRepository;
 
-    @Mock
-    private DetallePedidoRepository detallePedidoRepository;
-
     @Mock
     private ProductoClientService productoClientService;
 
     @Mock
     private PagoSimuladoService pagoSimuladoService;
 
-    @InjectMocks
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private OutboxPedidos outboxPedidos;
+
+    @Mock
+    private VentasDiariasService ventasDiariasService;
+
+    @Mock
+    private ProcesadorReembolsos procesadorReembolsos;
+
+    @Mock
+    private ArchivadorPedidos archivadorPedidos;
+
+    @Mock
+    private NumeroPedidoRepository numeroPedidoRepository;
+
     private PedidoService pedidoService;
 
     private Pedido carritoMock;
@@ -50,6 +72,13 @@ class PedidoServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Sin write-behind: cada edición del carrito se escribe en el repositorio
+        CarritoStore carritoStore = new CarritoStore(pedidoRepository, transactionManager,
+                new SimpleMeterRegistry(), false, 200, 10000, Duration.ofMinutes(30));
+        pedidoService = new PedidoService(pedidoRepository, productoClientService, carritoStore, () -> "PED-TEST",
+                outboxPedidos, ventasDiariasService, new ReintentosCarrito(new SimpleMeterRegistry(), 3, 0, 0),
+                procesadorReembolsos, archivadorPedidos, numeroPedidoRepository, transactionManager);
+
         // Mock de carrito
         carritoMock = Pedido.builder()
                 .id(1L)
@@ -76,20 +105,23 @@ class PedidoServiceTest {
     }
 
     @Test
-    @DisplayName("Debe obtener o crear un carrito nuevo para el cliente")
-    void debeObtenerOCrearCarrito() {
+    @DisplayName("Debe devolver un carrito vacío sin guardarlo si el cliente no tiene uno")
+    void debeObtenerCarritoVacioSinGuardar() {
         // Arrange
-        when(pedidoRepository.findByClienteIdAndEstado(CLIENT_ID, EstadoPedido.CARRITO))
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
                 .thenReturn(Optional.empty());
-        when(pedidoRepository.save(any(Pedido.class))).thenReturn(carritoMock);
 
         // Act
         PedidoResponse resultado = pedidoService.obtenerCarrito(CLIENT_ID, CLIENT_NAME, CLIENT_EMAIL);
 
         // Assert
         assertNotNull(resultado);
+        assertNull(resultado.getId());
         assertEquals(CLIENT_ID, resultado.getClienteId());
-        verify(pedidoRepository).save(any(Pedido.class));
+        assertEquals(EstadoPedido.CARRITO, resultado.getEstado());
+        assertEquals(0, BigDecimal.ZERO.compareTo(resultado.getTotal()));
+        verify(pedidoRepository, never()).save(any(Pedido.class));
+        verify(pedidoRepository, never()).crearCarritoSiNoExiste(anyString(), anyString(), anyString());
     }
 
     @Test
@@ -100,7 +132,7 @@ class PedidoServiceTest {
         request.setProductoId(100L);
         request.setCantidad(5);
 
-        when(pedidoRepository.findByClienteIdAndEstado(CLIENT_ID, EstadoPedido.CARRITO))
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
                 .thenReturn(Optional.of(carritoMock));
         when(productoClientService.obtenerProducto(100L)).thenReturn(productoMock);
         when(pedidoRepository.save(any(Pedido.class))).thenReturn(carritoMock);
@@ -124,7 +156,7 @@ class PedidoServiceTest {
         request.setProductoId(100L);
         request.setCantidad(10);
 
-        when(pedidoRepository.findByClienteIdAndEstado(CLIENT_ID, EstadoPedido.CARRITO))
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
                 .thenReturn(Optional.of(carritoMock));
         when(productoClientService.obtenerProducto(100L)).thenReturn(productoMock);
 
@@ -143,7 +175,7 @@ class PedidoServiceTest {
         request.setProductoId(100L);
         request.setCantidad(2);
 
-        when(pedidoRepository.findByClienteIdAndEstado(CLIENT_ID, EstadoPedido.CARRITO))
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
                 .thenReturn(Optional.of(carritoMock));
         when(productoClientService.obtenerProducto(100L)).thenReturn(productoMock);
         when(pedidoRepository.save(any(Pedido.class))).thenReturn(carritoMock);
@@ -166,7 +198,7 @@ class PedidoServiceTest {
         request.setProductoId(100L);
         request.setCantidad(2);
 
-        when(pedidoRepository.findByClienteIdAndEstado(CLIENT_ID, EstadoPedido.CARRITO))
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
                 .thenReturn(Optional.of(carritoMock));
         when(productoClientService.obtenerProducto(100L)).thenReturn(productoMock);
 
@@ -176,6 +208,76 @@ class PedidoServiceTest {
         );
     }
 
+    @Test
+    @DisplayName("Debe aplicar operaciones por lote con una consulta de productos y una escritura")
+    void debeAplicarOperacionesPorLote() {
+        // Arrange
+        DetallePedido existente = DetallePedido.builder()
+                .id(7L).productoId(200L).productoNombre("Papa").cantidad(2)
+                .precioUnitario(new BigDecimal("1000")).build();
+        carritoMock.agregarDetalle(existente);
+
+        ProductoClientService.ProductoDTO papa = new ProductoClientService.ProductoDTO();
+        papa.setIdProducto(200);
+        papa.setPrecioUnitario(new BigDecimal("1000"));
+        papa.setStockDisponible(50);
+        papa.setZonaId(ZONA_ID);
+
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
+                .thenReturn(Optional.of(carritoMock));
+        when(productoClientService.obtenerProductos(anyCollection()))
+                .thenReturn(Map.of(100L, productoMock, 200L, papa));
+        when(pedidoRepository.save(any(Pedido.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        OperacionesCarritoResponse respuesta = pedidoService.aplicarOperacionesCarrito(CLIENT_ID, CLIENT_NAME, CLIENT_EMAIL,
+                List.of(new OperacionCarritoRequest(OperacionCarritoRequest.Tipo.AGREGAR, 100L, 3),
+                        new OperacionCarritoRequest(OperacionCarritoRequest.Tipo.AGREGAR, 100L, 1),
+                        new OperacionCarritoRequest(OperacionCarritoRequest.Tipo.FIJAR_CANTIDAD, 200L, 5)));
+
+        // Assert
+        assertTrue(respuesta.getResultados().stream().allMatch(OperacionesCarritoResponse.ResultadoOperacion::isAplicada));
+        assertEquals(2, carritoMock.getDetalles().size());
+        assertEquals(4, carritoMock.getDetalles().get(1).getCantidad());
+        assertEquals(5, existente.getCantidad());
+        assertEquals(0, new BigDecimal("25000").compareTo(respuesta.getCarrito().getSubtotal()));
+        verify(productoClientService).obtenerProductos(anyCollection());
+        verify(productoClientService, never()).obtenerProducto(anyLong());
+        verify(pedidoRepository, times(1)).save(any(Pedido.class));
+    }
+
+    @Test
+    @DisplayName("Debe informar las operaciones inválidas del lote sin impedir las demás")
+    void debeInformarOperacionesInvalidasDelLote() {
+        // Arrange
+        ProductoClientService.ProductoDTO otraZona = new ProductoClientService.ProductoDTO();
+        otraZona.setIdProducto(300);
+        otraZona.setPrecioUnitario(BigDecimal.ONE);
+        otraZona.setZonaId("zona-diferente");
+
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
+                .thenReturn(Optional.of(carritoMock));
+        when(productoClientService.obtenerProductos(anyCollection()))
+                .thenReturn(Map.of(100L, productoMock, 300L, otraZona));
+        when(pedidoRepository.save(any(Pedido.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        OperacionesCarritoResponse respuesta = pedidoService.aplicarOperacionesCarrito(CLIENT_ID, CLIENT_NAME, CLIENT_EMAIL,
+                List.of(new OperacionCarritoRequest(OperacionCarritoRequest.Tipo.AGREGAR, 300L, 1),
+                        new OperacionCarritoRequest(OperacionCarritoRequest.Tipo.AGREGAR, 999L, 1),
+                        new OperacionCarritoRequest(OperacionCarritoRequest.Tipo.ELIMINAR, 400L, null),
+                        new OperacionCarritoRequest(OperacionCarritoRequest.Tipo.AGREGAR, 100L, 500),
+                        new OperacionCarritoRequest(OperacionCarritoRequest.Tipo.AGREGAR, 100L, 2)));
+
+        // Assert
+        List<Boolean> aplicadas = respuesta.getResultados().stream()
+                .map(OperacionesCarritoResponse.ResultadoOperacion::isAplicada).toList();
+        assertEquals(List.of(false, false, false, false, true), aplicadas);
+        assertTrue(respuesta.getResultados().get(0).getMensaje().contains("diferentes zonas"));
+        assertEquals(1, carritoMock.getDetalles().size());
+        assertEquals(ZONA_ID, carritoMock.getZonaId());
+    }
+
     @Test
     @DisplayName("Debe confirmar el pedido correctamente")
     void debeConfirmarPedido() {
@@ -194,19 +296,85 @@ class PedidoServiceTest {
         request.setTelefonoContacto("3001234567");
         request.setMetodoPago(MetodoPago.TARJETA_CREDITO);
 
-        when(pedidoRepository.findByClienteIdAndEstado(CLIENT_ID, EstadoPedido.CARRITO))
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
                 .thenReturn(Optional.of(carritoMock));
         when(pedidoRepository.save(any(Pedido.class))).thenReturn(carritoMock);
 
+        when(productoClientService.reservarStock("PED-TEST", Map.of(100L, 5))).thenReturn("reserva-1");
+
         // Act
         PedidoResponse resultado = pedidoService.confirmarPedido(CLIENT_ID, request);
 
         // Assert
         assertNotNull(resultado);
         assertEquals("Calle 123", resultado.getDireccionEntrega());
+        assertEquals("reserva-1", carritoMock.getReservaStockId());
+        assertEquals("PED-TEST", carritoMock.getNumeroPedido());
+        verify(outboxPedidos).pedidoConfirmado(carritoMock);
         verify(pedidoRepository).save(any(Pedido.class));
     }
 
+    @Test
+    @DisplayName("No debe confirmar el pedido si no hay stock para reservar")
+    void noDebeConfirmarSinStock() {
+        // Arrange
+        DetallePedido detalle = DetallePedido.builder()
+                .productoId(100L)
+                .productoNombre("Tomate")
+                .cantidad(5)
+                .precioUnitario(new BigDecimal("5000"))
+                .build();
+        detalle.calcularSubtotal();
+        carritoMock.getDetalles().add(detalle);
+
+        ConfirmarPedidoRequest request = new ConfirmarPedidoRequest();
+        request.setDireccionEntrega("Calle 123");
+        request.setTelefonoContacto("3001234567");
+        request.setMetodoPago(MetodoPago.TARJETA_CREDITO);
+
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
+                .thenReturn(Optional.of(carritoMock));
+        when(productoClientService.reservarStock(anyString(), anyMap()))
+                .thenThrow(new IllegalArgumentException("Stock insuficiente para uno o más productos del carrito"));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () ->
+                pedidoService.confirmarPedido(CLIENT_ID, request)
+        );
+        verify(pedidoRepository, never()).save(any(Pedido.class));
+    }
+
+    @Test
+    @DisplayName("No debe confirmar el pedido si el número ya se asignó a otro")
+    void noDebeConfirmarConNumeroRepetido() {
+        // Arrange
+        DetallePedido detalle = DetallePedido.builder()
+                .productoId(100L)
+                .productoNombre("Tomate")
+                .cantidad(5)
+                .precioUnitario(new BigDecimal("5000"))
+                .build();
+        detalle.calcularSubtotal();
+        carritoMock.getDetalles().add(detalle);
+
+        ConfirmarPedidoRequest request = new ConfirmarPedidoRequest();
+        request.setDireccionEntrega("Calle 123");
+        request.setTelefonoContacto("3001234567");
+        request.setMetodoPago(MetodoPago.TARJETA_CREDITO);
+
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
+                .thenReturn(Optional.of(carritoMock));
+        doThrow(new DataIntegrityViolationException("numeros_pedido_pkey"))
+                .when(numeroPedidoRepository).registrar(eq("PED-TEST"), any(), any());
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () ->
+                pedidoService.confirmarPedido(CLIENT_ID, request)
+        );
+        verify(productoClientService, never()).reservarStock(anyString(), anyMap());
+        verify(pedidoRepository, never()).save(any(Pedido.class));
+    }
+
     @Test
     @DisplayName("Debe lanzar excepción al confirmar carrito vacío")
     void debeLanzarExcepcionAlConfirmarCarritoVacio() {
@@ -216,7 +384,7 @@ class PedidoServiceTest {
         request.setTelefonoContacto("3001234567");
         request.setMetodoPago(MetodoPago.TARJETA_CREDITO);
 
-        when(pedidoRepository.findByClienteIdAndEstado(CLIENT_ID, EstadoPedido.CARRITO))
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
                 .thenReturn(Optional.of(carritoMock));
 
         // Act & Assert
@@ -236,7 +404,7 @@ class PedidoServiceTest {
                 .build();
         carritoMock.getDetalles().add(detalle);
 
-        when(pedidoRepository.findByClienteIdAndEstado(CLIENT_ID, EstadoPedido.CARRITO))
+        when(pedidoRepository.buscarCarrito(CLIENT_ID))
                 .thenReturn(Optional.of(carritoMock));
         when(pedidoRepository.save(any(Pedido.class))).thenReturn(carritoMock);
 
@@ -245,10 +413,61 @@ class PedidoServiceTest {
 
         // Assert
         assertTrue(carritoMock.getDetalles().isEmpty());
-        assertEquals(BigDecimal.ZERO, carritoMock.getTotal());
+        assertEquals(new BigDecimal("0.00"), carritoMock.getTotal());
         verify(pedidoRepository).save(any(Pedido.class));
     }
 
+    @Test
+    @DisplayName("Debe cancelar un pedido pagado al instante y encolar su reembolso")
+    void debeCancelarPedidoPagadoYEncolarReembolso() {
+        // Arrange
+        carritoMock.setEstado(EstadoPedido.EN_PREPARACION);
+        carritoMock.setEstadoPago(EstadoPago.APROBADO);
+        carritoMock.setReservaStockId("RES-1");
+        when(pedidoRepository.findById(1L)).thenReturn(Optional.of(carritoMock));
+
+        // Act
+        PedidoResponse resultado = pedidoService.cancelarPedido(CLIENT_ID, 1L);
+
+        // Assert
+        assertEquals(EstadoPedido.CANCELADO, resultado.getEstado());
+        assertEquals(EstadoPago.APROBADO, resultado.getEstadoPago());
+        verify(procesadorReembolsos).encolar(carritoMock);
+        verify(outboxPedidos).estadoCambiado(carritoMock, EstadoPedido.EN_PREPARACION);
+        verify(ventasDiariasService).registrarCambioEstado(carritoMock, EstadoPedido.EN_PREPARACION);
+        verify(productoClientService, never()).liberarReserva(anyString());
+    }
+
+    @Test
+    @DisplayName("No debe cancelar un pedido ya enviado")
+    void noDebeCancelarPedidoEnviado() {
+        // Arrange
+        carritoMock.setEstado(EstadoPedido.ENVIADO);
+        carritoMock.setEstadoPago(EstadoPago.APROBADO);
+        when(pedidoRepository.findById(1L)).thenReturn(Optional.of(carritoMock));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> pedidoService.cancelarPedido(CLIENT_ID, 1L));
+        assertEquals(EstadoPedido.ENVIADO, carritoMock.getEstado());
+        verifyNoInteractions(procesadorReembolsos, outboxPedidos);
+    }
+
+    @Test
+    @DisplayName("No debe cancelar un pedido pagado con el cambio de estado administrativo")
+    void noDebeCancelarPedidoPagadoAlActualizarEstado() {
+        // Arrange
+        carritoMock.setEstado(EstadoPedido.EN_PREPARACION);
+        carritoMock.setEstadoPago(EstadoPago.APROBADO);
+        when(pedidoRepository.findById(1L)).thenReturn(Optional.of(carritoMock));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> pedidoService.actualizarEstado(1L, EstadoPedido.CANCELADO));
+        assertEquals(EstadoPedido.EN_PREPARACION, carritoMock.getEstado());
+        verify(pedidoRepository, never()).save(any(Pedido.class));
+        verifyNoInteractions(procesadorReembolsos, outboxPedidos);
+    }
+
     @Test
     @DisplayName("Debe calcular el total del pedido correctamente")
     void debeCalcularTotalCorrectamente() {
@@ -274,8 +493,9 @@ class PedidoServiceTest {
         carritoMock.calcularTotal();
 
         // Assert
-        BigDecimal subtotalEsperado = new BigDecimal("34000"); // (5*5000) + (3*3000)
-        BigDecimal impuestosEsperados = subtotalEsperado.multiply(new BigDecimal("0.19"));
+        BigDecimal subtotalEsperado = new BigDecimal("34000.00"); // (5*5000) + (3*3000)
+        // Los importes salen con la escala de la columna DECIMAL(10,2)
+        BigDecimal impuestosEsperados = subtotalEsperado.multiply(new BigDecimal("0.19")).setScale(2, RoundingMode.HALF_UP);
         BigDecimal totalEsperado = subtotalEsperado.add(impuestosEsperados);
 
         assertEquals(subtotalEsperado, carritoMock.getSubtotal());
@@ -0,0 +1,167 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.MetodoPago;
+import com.agromercado.pedidos.domain.model.Pago;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.model.Reembolso;
+import com.agromercado.pedidos.domain.repository.PagoRepository;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import com.agromercado.pedidos.domain.repository.ReembolsoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("ProcesadorReembolsos - Pruebas de Integración")
+class ProcesadorReembolsosIntegrationTest {
+
+    private static final String CLIENTE = "cliente-reembolso";
+    private static final BigDecimal MONTO = new BigDecimal("11900.00");
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private PagoRepository pagoRepository;
+
+    @Autowired
+    private ReembolsoRepository reembolsoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ProcesadorReembolsos procesadorReembolsos;
+
+    @BeforeEach
+    void setUp() {
+        reembolsoRepository.deleteAll();
+        pagoRepository.deleteAll();
+        pedidoRepository.deleteAll();
+    }
+
+    private Pedido pedidoPagado() {
+        return pedidoPagado(null);
+    }
+
+    private Pedido pedidoPagado(String reservaStockId) {
+        Pedido pedido = Pedido.builder()
+                .clienteId(CLIENTE)
+                .numeroPedido("PED-REEMBOLSO")
+                .estado(EstadoPedido.PENDIENTE)
+                .total(MONTO)
+                .reservaStockId(reservaStockId)
+                .build();
+        pedido.marcarComoPagado("TDC-REEMBOLSO");
+        pedido = pedidoRepository.save(pedido);
+
+        Pago pago = Pago.builder()
+                .pedidoId(pedido.getId())
+                .clienteId(CLIENTE)
+                .metodoPago(MetodoPago.TARJETA_CREDITO)
+                .monto(MONTO)
+                .build();
+        pago.aprobar("TDC-REEMBOLSO", "Pago procesado exitosamente");
+        pagoRepository.save(pago);
+        return pedido;
+    }
+
+    @Test
+    @DisplayName("Debe cancelar al instante y dejar el pago REEMBOLSADO cuando el worker procesa la cola")
+    void debeCancelarYReembolsarEnSegundoPlano() {
+        Pedido pedido = pedidoPagado();
+
+        assertEquals(EstadoPedido.CANCELADO, pedidoService.cancelarPedido(CLIENTE, pedido.getId()).getEstado());
+        Reembolso encolado = reembolsoRepository.findByPedidoId(pedido.getId()).orElseThrow();
+        assertEquals(Reembolso.PENDIENTE, encolado.getEstado());
+        assertEquals("TDC-REEMBOLSO", encolado.getTransaccionId());
+        assertEquals(EstadoPago.APROBADO, pedidoRepository.findById(pedido.getId()).orElseThrow().getEstadoPago());
+
+        assertEquals(1, procesadorReembolsos.procesarPendientes());
+
+        assertEquals(Reembolso.COMPLETADO, reembolsoRepository.findById(encolado.getId()).orElseThrow().getEstado());
+        Pedido reembolsado = pedidoRepository.findById(pedido.getId()).orElseThrow();
+        assertEquals(EstadoPedido.CANCELADO, reembolsado.getEstado());
+        assertEquals(EstadoPago.REEMBOLSADO, reembolsado.getEstadoPago());
+        assertEquals(EstadoPago.REEMBOLSADO, pagoRepository.findById(encolado.getPagoId()).orElseThrow().getEstado());
+        assertEquals(0, procesadorReembolsos.procesarPendientes());
+    }
+
+    @Test
+    @DisplayName("Debe reintentar los reembolsos fallidos y marcarlos FALLIDO al agotar los intentos")
+    void debeReintentarYMarcarFallido() {
+        Pedido pedido = pedidoPagado();
+        pedidoService.cancelarPedido(CLIENTE, pedido.getId());
+
+        PagoSimuladoService pasarela = mock(PagoSimuladoService.class);
+        when(pasarela.procesarReembolso(eq("TDC-REEMBOLSO"), anyString())).thenThrow(new ResourceAccessException("Read timed out"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // Sin esperas y lotes de 1: los dos intentos ocurren en la misma llamada
+        ProcesadorReembolsos procesador = new ProcesadorReembolsos(reembolsoRepository, pedidoRepository,
+                pagoRepository, pasarela, mock(ProductoClientService.class), transactionManager, registry, true, 1, 1, 2,
+                Duration.ZERO, Duration.ZERO, Duration.ZERO);
+        try {
+            procesador.procesarPendientes();
+        } finally {
+            procesador.cerrar();
+        }
+
+        Reembolso reembolso = reembolsoRepository.findByPedidoId(pedido.getId()).orElseThrow();
+        assertEquals(Reembolso.FALLIDO, reembolso.getEstado());
+        assertEquals(2, reembolso.getIntentos());
+        assertEquals("Read timed out", reembolso.getUltimoError());
+        assertEquals(EstadoPago.APROBADO, pedidoRepository.findById(pedido.getId()).orElseThrow().getEstadoPago());
+        verify(pasarela, times(2)).procesarReembolso(eq("TDC-REEMBOLSO"), anyString());
+        assertEquals(1.0, registry.get("pedidos.reembolsos").tag("resultado", "reintento").counter().count());
+        assertEquals(1.0, registry.get("pedidos.reembolsos").tag("resultado", "fallido").counter().count());
+    }
+
+    @Test
+    @DisplayName("No debe volver a pedir el reembolso a la pasarela si falla un paso posterior")
+    void noDebeReembolsarDosVecesAlReintentar() {
+        Pedido pedido = pedidoPagado("reserva-reembolso");
+        pedidoService.cancelarPedido(CLIENTE, pedido.getId());
+        Long reembolsoId = reembolsoRepository.findByPedidoId(pedido.getId()).orElseThrow().getId();
+
+        PagoSimuladoService pasarela = mock(PagoSimuladoService.class);
+        when(pasarela.procesarReembolso(anyString(), anyString())).thenReturn(true);
+        ProductoClientService productos = mock(ProductoClientService.class);
+        doThrow(new ResourceAccessException("Read timed out")).doNothing()
+                .when(productos).devolverReserva("reserva-reembolso");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ProcesadorReembolsos procesador = new ProcesadorReembolsos(reembolsoRepository, pedidoRepository,
+                pagoRepository, pasarela, productos, transactionManager, registry, true, 1, 1, 3,
+                Duration.ZERO, Duration.ZERO, Duration.ZERO);
+        try {
+            procesador.procesarPendientes();
+        } finally {
+            procesador.cerrar();
+        }
+
+        Reembolso reembolso = reembolsoRepository.findById(reembolsoId).orElseThrow();
+        assertEquals(Reembolso.COMPLETADO, reembolso.getEstado());
+        assertNotNull(reembolso.getFechaAprobacionPasarela());
+        assertEquals(2, reembolso.getIntentos());
+        verify(pasarela, times(1)).procesarReembolso("TDC-REEMBOLSO", ProcesadorReembolsos.claveIdempotencia(reembolsoId));
+        verify(productos, times(2)).devolverReserva("reserva-reembolso");
+        assertEquals(EstadoPago.REEMBOLSADO, pedidoRepository.findById(pedido.getId()).orElseThrow().getEstadoPago());
+    }
+}
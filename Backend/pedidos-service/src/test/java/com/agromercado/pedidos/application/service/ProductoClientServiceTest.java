@@ -0,0 +1,149 @@
+package com.agromercado.pedidos.application.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProductoClientService - Pruebas Unitarias")
+class ProductoClientServiceTest {
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private CatalogoProductosReplica replica;
+    private ProductoClientService productoClientService;
+
+    @BeforeEach
+    void setUp() {
+        replica = new CatalogoProductosReplica(new SimpleMeterRegistry(), true, Duration.ofMinutes(10));
+        CircuitoProductos circuito = new CircuitoProductos(new SimpleMeterRegistry(), 20, 10, Duration.ofSeconds(1),
+                20, 10, 0.5, Duration.ofSeconds(30));
+        HedgingProductos hedging = new HedgingProductos(new SimpleMeterRegistry(), false,
+                Duration.ofMillis(50), Duration.ofMillis(5), 0.05, 10);
+        productoClientService = new ProductoClientService(restTemplate, replica, circuito, hedging);
+        ReflectionTestUtils.setField(productoClientService, "productosServiceUrl", "http://PRODUCTOS-SERVICE");
+        ReflectionTestUtils.setField(productoClientService, "ventanaMs", 50L);
+        ReflectionTestUtils.setField(productoClientService, "maxIdsPorLote", 100);
+        ReflectionTestUtils.setField(productoClientService, "timeoutRespuesta", Duration.ofSeconds(2));
+    }
+
+    private static ProductoClientService.ProductoDTO producto(int id) {
+        ProductoClientService.ProductoDTO dto = new ProductoClientService.ProductoDTO();
+        dto.setIdProducto(id);
+        dto.setNombre("Producto " + id);
+        return dto;
+    }
+
+    @Test
+    @DisplayName("Debe agrupar consultas concurrentes en una sola llamada batch")
+    void debeAgruparConsultasConcurrentes() throws Exception {
+        when(restTemplate.getForObject(startsWith("http://PRODUCTOS-SERVICE/productos/batch?ids="),
+                eq(ProductoClientService.ProductoDTO[].class)))
+                .thenReturn(new ProductoClientService.ProductoDTO[]{producto(1), producto(2), producto(3)});
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<ProductoClientService.ProductoDTO>> resultados = new ArrayList<>();
+            for (long id = 1; id <= 3; id++) {
+                long productoId = id;
+                resultados.add(executor.submit(() -> productoClientService.obtenerProducto(productoId)));
+            }
+
+            for (int i = 0; i < 3; i++) {
+                assertEquals(i + 1, resultados.get(i).get().getIdProducto());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(ProductoClientService.ProductoDTO[].class));
+    }
+
+    @Test
+    @DisplayName("Debe fallar solo la consulta del producto inexistente")
+    void debeFallarSiProductoNoExiste() {
+        when(restTemplate.getForObject(anyString(), eq(ProductoClientService.ProductoDTO[].class)))
+                .thenReturn(new ProductoClientService.ProductoDTO[0]);
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> productoClientService.obtenerProducto(99L));
+        assertTrue(error.getMessage().contains("99"));
+    }
+
+    @Test
+    @DisplayName("No debe esperar el lote más que la ventana y el timeout de respuesta")
+    void debeAcotarEsperaDelLote() {
+        ReflectionTestUtils.setField(productoClientService, "timeoutRespuesta", Duration.ofMillis(100));
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(restTemplate.getForObject(anyString(), eq(ProductoClientService.ProductoDTO[].class)))
+                .thenAnswer(invocacion -> {
+                    liberar.await(5, TimeUnit.SECONDS);
+                    return new ProductoClientService.ProductoDTO[]{producto(6)};
+                });
+
+        try {
+            long inicio = System.nanoTime();
+            RuntimeException error = assertThrows(RuntimeException.class,
+                    () -> productoClientService.obtenerProducto(6L));
+
+            assertTrue(error.getMessage().contains("sin respuesta"));
+            assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(2));
+        } finally {
+            liberar.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Debe responder desde la réplica sin llamar a productos-service")
+    void debeResponderDesdeReplica() {
+        replica.aplicarActualizacion(producto(7));
+
+        assertEquals(7, productoClientService.obtenerProducto(7L).getIdProducto());
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    @DisplayName("Debe guardar en la réplica lo obtenido por HTTP")
+    void debeGuardarEnReplicaTrasFallo() {
+        when(restTemplate.getForObject(anyString(), eq(ProductoClientService.ProductoDTO[].class)))
+                .thenReturn(new ProductoClientService.ProductoDTO[]{producto(5)});
+
+        productoClientService.obtenerProducto(5L);
+        productoClientService.obtenerProducto(5L);
+
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(ProductoClientService.ProductoDTO[].class));
+    }
+
+    @Test
+    @DisplayName("La réplica no debe conservar el stock, que las reservas cambian sin eventos")
+    void noDebeReplicarStock() {
+        ProductoClientService.ProductoDTO conStock = producto(8);
+        conStock.setStockDisponible(40);
+        when(restTemplate.getForObject(anyString(), eq(ProductoClientService.ProductoDTO[].class)))
+                .thenReturn(new ProductoClientService.ProductoDTO[]{conStock});
+
+        assertEquals(40, productoClientService.obtenerProducto(8L).getStockDisponible());
+        assertNull(productoClientService.obtenerProducto(8L).getStockDisponible());
+        assertEquals(40, conStock.getStockDisponible());
+    }
+}
@@ -0,0 +1,151 @@
+package com.agromercado.pedidos.application.service;
+
+import com.agromercado.pedidos.application.dto.ResumenVentasResponse;
+import com.agromercado.pedidos.application.dto.VentasAgregadasDTO;
+import com.agromercado.pedidos.domain.model.DetallePedido;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("VentasDiariasService - Pruebas de Integración")
+class VentasDiariasIntegrationTest {
+
+    private static final String ZONA_ID = "zona-ventas";
+
+    @Autowired
+    private VentasDiariasService ventasDiariasService;
+
+    @Autowired
+    private VentasDiariasBackfill ventasDiariasBackfill;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private String productorId;
+    private LocalDate hoy;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        productorId = "productor-" + UUID.randomUUID();
+        hoy = LocalDate.now();
+    }
+
+    private Long pedidoPagado(long productoId, int cantidad, String precio) {
+        return tx.execute(status -> {
+            Pedido pedido = Pedido.builder()
+                    .clienteId("cliente-ventas")
+                    .zonaId(ZONA_ID)
+                    .estado(EstadoPedido.PENDIENTE)
+                    .total(BigDecimal.ZERO)
+                    .build();
+            pedido.agregarDetalle(DetallePedido.builder()
+                    .productoId(productoId)
+                    .productoNombre("Producto " + productoId)
+                    .productorId(productorId)
+                    .cantidad(cantidad)
+                    .precioUnitario(new BigDecimal(precio))
+                    .build());
+            pedido.calcularTotal();
+            pedido.marcarComoPagado("TX-" + productoId);
+            pedido.setEstado(EstadoPedido.EN_PREPARACION);
+            Pedido guardado = pedidoRepository.save(pedido);
+            ventasDiariasService.registrarPago(guardado);
+            return guardado.getId();
+        });
+    }
+
+    private void cambiarEstado(Long pedidoId, EstadoPedido nuevo) {
+        tx.executeWithoutResult(status -> {
+            Pedido pedido = pedidoRepository.findById(pedidoId).orElseThrow();
+            EstadoPedido anterior = pedido.getEstado();
+            pedido.setEstado(nuevo);
+            ventasDiariasService.registrarCambioEstado(pedido, anterior);
+        });
+    }
+
+    private ResumenVentasResponse resumen() {
+        return ventasDiariasService.resumenProductor(productorId, null, hoy, hoy);
+    }
+
+    @Test
+    @DisplayName("El pago suma unidades e ingresos y los cambios de estado los ajustan")
+    void debeAcumularPagosYAjustarPorEstado() {
+        Long primero = pedidoPagado(1001L, 3, "1000");
+        Long segundo = pedidoPagado(1001L, 2, "1000");
+        pedidoPagado(1002L, 1, "6000");
+
+        ResumenVentasResponse inicial = resumen();
+        assertEquals(6, inicial.getUnidadesVendidas());
+        assertEquals(0, new BigDecimal("11000").compareTo(inicial.getIngresos()));
+        assertEquals(1, inicial.getPorDia().size());
+        assertEquals(2, inicial.getPorProducto().size());
+        assertEquals(1002L, inicial.getPorProducto().get(0).getProductoId());
+
+        cambiarEstado(primero, EstadoPedido.ENTREGADO);
+        cambiarEstado(segundo, EstadoPedido.CANCELADO);
+
+        ResumenVentasResponse ajustado = resumen();
+        assertEquals(4, ajustado.getUnidadesVendidas());
+        assertEquals(0, new BigDecimal("9000").compareTo(ajustado.getIngresos()));
+        assertEquals(3, ajustado.getUnidadesEntregadas());
+        assertEquals(2, ajustado.getUnidadesCanceladas());
+    }
+
+    @Test
+    @DisplayName("La reconstrucción desde el historial debe coincidir con los acumulados incrementales")
+    void reconstruccionDebeCoincidirConIncrementales() {
+        Long entregado = pedidoPagado(2001L, 4, "2500");
+        Long cancelado = pedidoPagado(2002L, 1, "700");
+        pedidoPagado(2001L, 1, "2500");
+        cambiarEstado(entregado, EstadoPedido.ENVIADO);
+        cambiarEstado(entregado, EstadoPedido.ENTREGADO);
+        cambiarEstado(cancelado, EstadoPedido.CANCELADO);
+
+        ResumenVentasResponse incremental = resumen();
+        ventasDiariasBackfill.reconstruir(hoy, hoy);
+        ResumenVentasResponse reconstruido = resumen();
+
+        assertEquals(incremental.getUnidadesVendidas(), reconstruido.getUnidadesVendidas());
+        assertEquals(0, incremental.getIngresos().compareTo(reconstruido.getIngresos()));
+        assertEquals(incremental.getUnidadesEntregadas(), reconstruido.getUnidadesEntregadas());
+        assertEquals(incremental.getUnidadesCanceladas(), reconstruido.getUnidadesCanceladas());
+        assertEquals(incremental.getPorProducto().size(), reconstruido.getPorProducto().size());
+        for (int i = 0; i < incremental.getPorProducto().size(); i++) {
+            VentasAgregadasDTO esperado = incremental.getPorProducto().get(i);
+            VentasAgregadasDTO obtenido = reconstruido.getPorProducto().get(i);
+            assertEquals(esperado.getProductoId(), obtenido.getProductoId());
+            assertEquals(esperado.getUnidadesVendidas(), obtenido.getUnidadesVendidas());
+        }
+        assertEquals(5, reconstruido.getUnidadesVendidas());
+        assertEquals(4, reconstruido.getUnidadesEntregadas());
+        assertEquals(1, reconstruido.getUnidadesCanceladas());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar rangos de fechas invertidos")
+    void debeRechazarRangoInvalido() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ventasDiariasService.resumenZona(ZONA_ID, hoy, hoy.minusDays(1)));
+    }
+}
@@ -0,0 +1,59 @@
+package com.agromercado.pedidos.benchmark;
+
+import com.agromercado.pedidos.application.service.GeneradorNumeroPedidoTemporal;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendimiento del generador de números de pedido con 1 y 8 hilos.
+ * {@code actual} es el formato anterior ("PED-" + milisegundos), que repite
+ * números en cuanto dos pedidos se confirman en el mismo milisegundo.
+ *
+ * Ejecutar con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.agromercado.pedidos.benchmark.GeneradorNumeroPedidoBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneradorNumeroPedidoBenchmark {
+
+    private final GeneradorNumeroPedidoTemporal generador = new GeneradorNumeroPedidoTemporal(1);
+
+    @Benchmark
+    @Threads(1)
+    public String temporalUnHilo() {
+        return generador.generar();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String temporalOchoHilos() {
+        return generador.generar();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long soloIdUnHilo() {
+        return generador.siguienteId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String actual() {
+        return "PED-" + System.currentTimeMillis();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GeneradorNumeroPedidoBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,94 @@
+package com.agromercado.pedidos.benchmark;
+
+import com.agromercado.pedidos.domain.model.DetallePedido;
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.Pedido;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de una edición del carrito (cambiar la cantidad de una línea) con
+ * 1, 20 y 200 líneas: ajuste incremental frente a recalcular todo, y frente
+ * al cálculo anterior con streams y BigDecimal.
+ *
+ * Ejecutar con:
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.agromercado.pedidos.benchmark.PedidoTotalesBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class PedidoTotalesBenchmark {
+
+    @Param({"1", "20", "200"})
+    private int lineas;
+
+    private Pedido pedido;
+    private DetallePedido editada;
+    private int cantidad;
+
+    @Setup
+    public void preparar() {
+        pedido = Pedido.builder()
+                .clienteId("cliente-bench")
+                .estado(EstadoPedido.CARRITO)
+                .estadoPago(EstadoPago.PENDIENTE)
+                .total(BigDecimal.ZERO)
+                .build();
+        for (int i = 0; i < lineas; i++) {
+            pedido.agregarDetalle(DetallePedido.builder()
+                    .productoId((long) i)
+                    .productoNombre("Producto " + i)
+                    .cantidad(1 + i % 5)
+                    .precioUnitario(new BigDecimal("1250.50").add(BigDecimal.valueOf(i)))
+                    .build());
+        }
+        editada = pedido.getDetalles().get(lineas / 2);
+    }
+
+    private int siguienteCantidad() {
+        cantidad = cantidad == 9 ? 1 : cantidad + 1;
+        return cantidad;
+    }
+
+    @Benchmark
+    public BigDecimal incremental() {
+        pedido.cambiarCantidad(editada, siguienteCantidad());
+        return pedido.getTotal();
+    }
+
+    @Benchmark
+    public BigDecimal recalculoCompleto() {
+        editada.setCantidad(siguienteCantidad());
+        editada.calcularSubtotal();
+        pedido.calcularTotal();
+        return pedido.getTotal();
+    }
+
+    @Benchmark
+    public BigDecimal calculoAnterior() {
+        editada.setCantidad(siguienteCantidad());
+        editada.setSubtotal(editada.getPrecioUnitario().multiply(new BigDecimal(editada.getCantidad())));
+        BigDecimal subtotal = pedido.getDetalles().stream()
+                .map(DetallePedido::getSubtotal)
+                .filter(s -> s != null)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal impuestos = subtotal.multiply(new BigDecimal("0.19"));
+        return subtotal.add(impuestos);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PedidoTotalesBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
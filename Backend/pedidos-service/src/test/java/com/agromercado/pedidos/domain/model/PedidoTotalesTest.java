@@ -0,0 +1,104 @@
+package com.agromercado.pedidos.domain.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Pedido - Totales incrementales")
+class PedidoTotalesTest {
+
+    private static DetallePedido linea(long productoId, int cantidad, String precio) {
+        return DetallePedido.builder()
+                .productoId(productoId)
+                .productoNombre("Producto " + productoId)
+                .cantidad(cantidad)
+                .precioUnitario(new BigDecimal(precio))
+                .build();
+    }
+
+    private static Pedido carrito() {
+        return Pedido.builder()
+                .clienteId("cliente-1")
+                .estado(EstadoPedido.CARRITO)
+                .estadoPago(EstadoPago.PENDIENTE)
+                .total(BigDecimal.ZERO)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Los totales incrementales deben coincidir con un recálculo completo")
+    void incrementalDebeCoincidirConRecalculo() {
+        Pedido pedido = carrito();
+        DetallePedido tomate = linea(1L, 5, "5000");
+        DetallePedido papa = linea(2L, 3, "3000.50");
+        DetallePedido cebolla = linea(3L, 7, "1234.99");
+
+        pedido.agregarDetalle(tomate);
+        pedido.agregarDetalle(papa);
+        pedido.agregarDetalle(cebolla);
+        pedido.cambiarCantidad(papa, 10);
+        pedido.eliminarDetalle(tomate);
+
+        BigDecimal subtotal = pedido.getSubtotal();
+        BigDecimal impuestos = pedido.getImpuestos();
+        BigDecimal total = pedido.getTotal();
+
+        pedido.calcularTotal();
+        assertEquals(pedido.getSubtotal(), subtotal);
+        assertEquals(pedido.getImpuestos(), impuestos);
+        assertEquals(pedido.getTotal(), total);
+        // 10 * 3000.50 + 7 * 1234.99
+        assertEquals(new BigDecimal("38649.93"), subtotal);
+    }
+
+    @Test
+    @DisplayName("El IVA debe redondearse al centavo")
+    void debeRedondearIvaAlCentavo() {
+        Pedido pedido = carrito();
+
+        pedido.agregarDetalle(linea(1L, 1, "0.05"));
+
+        // 0.05 * 0.19 = 0.0095 -> 0.01
+        assertEquals(new BigDecimal("0.01"), pedido.getImpuestos());
+        assertEquals(new BigDecimal("0.06"), pedido.getTotal());
+    }
+
+    @Test
+    @DisplayName("Un pedido recién cargado debe partir de sus líneas en la primera edición")
+    void pedidoCargadoDebePartirDeSusLineas() {
+        DetallePedido existente = linea(1L, 2, "1000");
+        existente.calcularSubtotal();
+        // Como lo deja JPA: líneas cargadas y totales leídos de la BD
+        Pedido pedido = Pedido.builder()
+                .clienteId("cliente-1")
+                .estado(EstadoPedido.CARRITO)
+                .estadoPago(EstadoPago.PENDIENTE)
+                .subtotal(new BigDecimal("2000.00"))
+                .total(new BigDecimal("2380.00"))
+                .detalles(new ArrayList<>(List.of(existente)))
+                .build();
+
+        pedido.agregarDetalle(linea(2L, 1, "500"));
+
+        assertEquals(new BigDecimal("2500.00"), pedido.getSubtotal());
+        assertEquals(new BigDecimal("475.00"), pedido.getImpuestos());
+        assertEquals(new BigDecimal("2975.00"), pedido.getTotal());
+    }
+
+    @Test
+    @DisplayName("Vaciar debe dejar los totales en cero")
+    void vaciarDebeDejarTotalesEnCero() {
+        Pedido pedido = carrito();
+        pedido.agregarDetalle(linea(1L, 2, "1000"));
+
+        pedido.vaciar();
+
+        assertTrue(pedido.getDetalles().isEmpty());
+        assertEquals(0, BigDecimal.ZERO.compareTo(pedido.getTotal()));
+    }
+}
@@ -0,0 +1,154 @@
+package com.agromercado.pedidos.messaging;
+
+import com.agromercado.pedidos.config.RabbitConfig;
+import com.agromercado.pedidos.domain.model.OutboxEvento;
+import com.agromercado.pedidos.domain.repository.OutboxEventoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OutboxRelay - Pruebas Unitarias")
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventoRepository outboxRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry registry;
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(outboxRepository, rabbitTemplate, transactionManager, registry,
+                true, 2, Duration.ofMillis(200), Duration.ofDays(7), 3, Duration.ofSeconds(1), Duration.ofSeconds(3));
+    }
+
+    private static OutboxEvento evento(String eventId) {
+        return OutboxEvento.builder()
+                .eventId(eventId)
+                .eventType(RabbitConfig.RK_PEDIDO_CONFIRMADO)
+                .payload("{\"eventId\":\"" + eventId + "\"}")
+                .aggregateId("1")
+                .status(OutboxEvento.PENDIENTE)
+                .occurredAt(Instant.now())
+                .build();
+    }
+
+    private void confirmar(boolean ack) {
+        doAnswer(inv -> {
+            CorrelationData correlacion = inv.getArgument(3);
+            correlacion.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "rechazado"));
+            return null;
+        }).when(rabbitTemplate).send(eq(RabbitConfig.EVENTS_EXCHANGE), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    @DisplayName("Debe marcar como enviados los eventos confirmados por el broker")
+    void debeMarcarEnviadosLosConfirmados() {
+        OutboxEvento primero = evento("e-1");
+        OutboxEvento segundo = evento("e-2");
+        when(outboxRepository.bloquearPendientes(any(Instant.class), eq(2))).thenReturn(List.of(primero, segundo), List.of());
+        confirmar(true);
+
+        relay.publicarPendientes();
+
+        assertEquals(OutboxEvento.ENVIADO, primero.getStatus());
+        assertEquals(OutboxEvento.ENVIADO, segundo.getStatus());
+        assertNotNull(primero.getSentAt());
+        // Lote lleno y todo confirmado: vuelve a buscar pendientes
+        verify(outboxRepository, times(2)).bloquearPendientes(any(Instant.class), eq(2));
+    }
+
+    @Test
+    @DisplayName("Un nack debe dejar el evento pendiente para reintentarlo")
+    void nackDebeDejarPendiente() {
+        OutboxEvento evento = evento("e-1");
+        when(outboxRepository.bloquearPendientes(any(Instant.class), eq(2))).thenReturn(List.of(evento));
+        confirmar(false);
+
+        relay.publicarPendientes();
+
+        assertEquals(OutboxEvento.PENDIENTE, evento.getStatus());
+        assertEquals(1, evento.getIntentos());
+        assertTrue(evento.getLastError().contains("rechazado"));
+        assertTrue(evento.getSiguienteIntento().isAfter(Instant.now()));
+    }
+
+    @Test
+    @DisplayName("Sin confirmación a tiempo el evento debe quedar pendiente")
+    void sinConfirmacionDebeQuedarPendiente() {
+        OutboxEvento evento = evento("e-1");
+        when(outboxRepository.bloquearPendientes(any(Instant.class), eq(2))).thenReturn(List.of(evento));
+
+        relay.publicarPendientes();
+
+        assertEquals(OutboxEvento.PENDIENTE, evento.getStatus());
+        assertEquals(1, evento.getIntentos());
+    }
+
+    @Test
+    @DisplayName("Si el broker no está disponible no debe seguir con más lotes")
+    void brokerCaidoNoDebeSeguir() {
+        OutboxEvento primero = evento("e-1");
+        OutboxEvento segundo = evento("e-2");
+        when(outboxRepository.bloquearPendientes(any(Instant.class), eq(2))).thenReturn(List.of(primero, segundo));
+        doThrow(new AmqpConnectException(new java.net.ConnectException("sin conexión")))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        relay.publicarPendientes();
+
+        assertEquals(OutboxEvento.PENDIENTE, primero.getStatus());
+        assertEquals(1, segundo.getIntentos());
+        verify(outboxRepository, times(1)).bloquearPendientes(any(Instant.class), eq(2));
+    }
+
+    @Test
+    @DisplayName("Debe espaciar los reintentos y marcar FAILED al agotar los intentos")
+    void debeMarcarFallidoTrasAgotarIntentos() {
+        OutboxEvento evento = evento("e-1");
+        when(outboxRepository.bloquearPendientes(any(Instant.class), eq(2))).thenReturn(List.of(evento));
+        confirmar(false);
+
+        relay.publicarPendientes();
+        Instant primerReintento = evento.getSiguienteIntento();
+        relay.publicarPendientes();
+
+        assertEquals(OutboxEvento.PENDIENTE, evento.getStatus());
+        assertTrue(evento.getSiguienteIntento().isAfter(primerReintento));
+        assertEquals(Duration.ofSeconds(1), relay.espera(1));
+        assertEquals(Duration.ofSeconds(2), relay.espera(2));
+        assertEquals(Duration.ofSeconds(3), relay.espera(5));
+
+        relay.publicarPendientes();
+
+        assertEquals(OutboxEvento.FALLIDO, evento.getStatus());
+        assertEquals(3, evento.getIntentos());
+        assertNull(evento.getSiguienteIntento());
+        assertEquals(1.0, registry.get("pedidos.outbox.fallidos").counter().count());
+    }
+}
@@ -0,0 +1,55 @@
+package com.agromercado.pedidos.messaging;
+
+import com.agromercado.pedidos.application.service.CatalogoProductosReplica;
+import com.agromercado.pedidos.config.RabbitConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ProductoEventSubscriber - Pruebas Unitarias")
+class ProductoEventSubscriberTest {
+
+    private CatalogoProductosReplica replica;
+    private ProductoEventSubscriber subscriber;
+
+    @BeforeEach
+    void setUp() {
+        replica = new CatalogoProductosReplica(new SimpleMeterRegistry(), true, Duration.ofMinutes(10));
+        subscriber = new ProductoEventSubscriber(new ObjectMapper().registerModule(new JavaTimeModule()), replica);
+    }
+
+    private static Message<String> mensaje(String routingKey, String json) {
+        return MessageBuilder.withPayload(json)
+                .setHeader(AmqpHeaders.RECEIVED_ROUTING_KEY, routingKey)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Debe aplicar un ProductoActualizado a la réplica")
+    void debeAplicarActualizacion() {
+        subscriber.onMessage(mensaje(RabbitConfig.RK_PRODUCTO_ACTUALIZADO,
+                "{\"idProducto\":3,\"nombre\":\"Papa\",\"zonaId\":\"ZONA-1\",\"updatedAt\":\"2026-01-01T00:00:00Z\"}"));
+
+        assertEquals("Papa", replica.buscar(3L).orElseThrow().getNombre());
+    }
+
+    @Test
+    @DisplayName("Debe descartar sin reencolar los mensajes ilegibles o con routing key desconocida")
+    void debeDescartarMensajesInvalidos() {
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+                () -> subscriber.onMessage(mensaje(RabbitConfig.RK_PRODUCTO_ACTUALIZADO, "{no es json")));
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+                () -> subscriber.onMessage(mensaje("producto.desconocido", "{}")));
+    }
+}
@@ -0,0 +1,195 @@
+package com.agromercado.pedidos.postgres;
+
+import com.agromercado.pedidos.application.dto.ConfirmarPedidoRequest;
+import com.agromercado.pedidos.application.dto.PedidoResponse;
+import com.agromercado.pedidos.application.service.ArchivadorPedidos;
+import com.agromercado.pedidos.application.service.PedidoService;
+import com.agromercado.pedidos.application.service.ProductoClientService;
+import com.agromercado.pedidos.domain.model.DetallePedido;
+import com.agromercado.pedidos.domain.model.EstadoPago;
+import com.agromercado.pedidos.domain.model.EstadoPedido;
+import com.agromercado.pedidos.domain.model.MetodoPago;
+import com.agromercado.pedidos.domain.model.Pedido;
+import com.agromercado.pedidos.domain.repository.PedidoArchivadoRepository;
+import com.agromercado.pedidos.domain.repository.PedidoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Migraciones y particiones contra PostgreSQL real. El resto de las pruebas
+ * usa H2 con el esquema generado por Hibernate, que no tiene particiones ni
+ * las funciones PL/pgSQL de V15/V16; sin Docker esta clase se omite.
+ */
+@SpringBootTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.datasource.driver-class-name=org.postgresql.Driver"
+})
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("Particiones en PostgreSQL - Pruebas de Integración")
+class PostgresParticionesIntegrationTest {
+
+    private static final String CLIENTE = "cliente-postgres";
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:17-alpine");
+
+    @DynamicPropertySource
+    static void baseDeDatos(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private PedidoArchivadoRepository pedidoArchivadoRepository;
+
+    @Autowired
+    private ArchivadorPedidos archivadorPedidos;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private ProductoClientService productoClientService;
+
+    @BeforeEach
+    void setUp() {
+        pedidoArchivadoRepository.deleteAll();
+        pedidoRepository.deleteAll();
+    }
+
+    private static Pedido conLinea(Pedido pedido) {
+        pedido.agregarDetalle(DetallePedido.builder()
+                .productoId(10L)
+                .productoNombre("Papa")
+                .productorId("productor-postgres")
+                .cantidad(3)
+                .precioUnitario(new BigDecimal("2000.00"))
+                .build());
+        return pedido;
+    }
+
+    private String particionDe(String tabla, String columna, Long id) {
+        return jdbcTemplate.queryForObject(
+                "SELECT tableoid::regclass::text FROM " + tabla + " WHERE " + columna + " = ?", String.class, id);
+    }
+
+    private static String sufijo(LocalDate mes) {
+        return mes.format(DateTimeFormatter.ofPattern("yyyyMM"));
+    }
+
+    @Test
+    @DisplayName("Las migraciones deben aplicarse y coincidir con las entidades")
+    void migracionesDebenValidar() {
+        // El contexto ya arrancó con ddl-auto=validate sobre el esquema de Flyway
+        flyway.validate();
+        assertEquals(0, flyway.info().pending().length);
+    }
+
+    @Test
+    @DisplayName("Confirmar un carrito antiguo debe mover la fila y sus líneas a la partición de su mes")
+    void confirmarDebeCambiarDeParticion() {
+        Long id = pedidoRepository.save(conLinea(Pedido.builder()
+                .clienteId(CLIENTE)
+                .zonaId("zona-1")
+                .estado(EstadoPedido.CARRITO)
+                .estadoPago(EstadoPago.PENDIENTE)
+                .total(BigDecimal.ZERO)
+                .build())).getId();
+        assertEquals("pedidos_carritos", particionDe("pedidos", "id", id));
+        LocalDateTime creacion = LocalDateTime.now().minusMonths(14).truncatedTo(ChronoUnit.MICROS);
+        jdbcTemplate.update("UPDATE pedidos SET fecha_creacion = ? WHERE id = ?", Timestamp.valueOf(creacion), id);
+        when(productoClientService.reservarStock(anyString(), anyMap())).thenReturn("reserva-postgres");
+
+        ConfirmarPedidoRequest request = new ConfirmarPedidoRequest();
+        request.setDireccionEntrega("Calle 5 # 10-20");
+        request.setTelefonoContacto("3001234567");
+        request.setMetodoPago(MetodoPago.TARJETA_CREDITO);
+        PedidoResponse respuesta = pedidoService.confirmarPedido(CLIENTE, request);
+
+        String mes = sufijo(Pedido.particionDelMes(creacion));
+        assertEquals(EstadoPedido.PENDIENTE, respuesta.getEstado());
+        assertEquals("pedidos_" + mes, particionDe("pedidos", "id", id));
+        assertEquals("detalles_pedido_" + mes, particionDe("detalles_pedido", "pedido_id", id));
+        assertEquals(1, pedidoService.obtenerPedido(id).getDetalles().size());
+        assertEquals(id, jdbcTemplate.queryForObject(
+                "SELECT pedido_id FROM numeros_pedido WHERE numero_pedido = ?", Long.class, respuesta.getNumeroPedido()));
+    }
+
+    @Test
+    @DisplayName("Debe archivar un lote de pedidos antiguos y quitarlos de sus particiones")
+    void debeArchivarUnLote() {
+        LocalDateTime fecha = LocalDateTime.now().minusMonths(14).truncatedTo(ChronoUnit.MICROS);
+        LocalDate particion = Pedido.particionDelMes(fecha);
+        archivadorPedidos.asegurarParticion(Pedido.particionDelMes(LocalDateTime.now()));
+        archivadorPedidos.asegurarParticion(particion);
+        Long id = pedidoRepository.save(conLinea(Pedido.builder()
+                .clienteId(CLIENTE)
+                .zonaId("zona-1")
+                .numeroPedido("PED-POSTGRES-" + System.nanoTime())
+                .estado(EstadoPedido.ENTREGADO)
+                .estadoPago(EstadoPago.APROBADO)
+                .total(BigDecimal.ZERO)
+                .build())).getId();
+        // Las líneas siguen a la cabecera por la FK con ON UPDATE CASCADE
+        jdbcTemplate.update("UPDATE pedidos SET fecha_creacion = ?, fecha_actualizacion = ?, particion = ? WHERE id = ?",
+                Timestamp.valueOf(fecha), Timestamp.valueOf(fecha), Date.valueOf(particion), id);
+        assertEquals("detalles_pedido_" + sufijo(particion), particionDe("detalles_pedido", "pedido_id", id));
+
+        ArchivadorPedidos archivador = new ArchivadorPedidos(jdbcTemplate, transactionManager, pedidoRepository,
+                objectMapper, new SimpleMeterRegistry(), true, 12, 3, 50);
+        assertEquals(1, archivador.archivar(LocalDateTime.now().minusMonths(12)));
+
+        assertFalse(pedidoRepository.existsById(id));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM detalles_pedido WHERE pedido_id = ?", Integer.class, id));
+        List<Long> archivados = jdbcTemplate.queryForList("SELECT id FROM pedidos_archivo", Long.class);
+        assertEquals(List.of(id), archivados);
+    }
+}
@@ -17,6 +17,8 @@ import jakarta.validation.Valid;
 @RequestMapping("/productos")
 public class ProductoRestController {
 
+	private static final int MAX_IDS_BATCH = 500;
+
 	@Autowired
 	private IProductoService productoService;
 
@@ -33,6 +35,19 @@ public class ProductoRestController {
 		return ResponseEntity.ok(productoService.findAll());
 	}
 
+	/**
+	 * GET /productos/batch?ids=1,2,3 - Obtener varios productos en una sola consulta.
+	 * Los IDs inexistentes se omiten de la respuesta.
+	 */
+	@GetMapping("/batch")
+	public ResponseEntity<List<ProductoDTO>> consultarProductos(@RequestParam List<Integer> ids) {
+		List<Integer> idsUnicos = ids.stream().distinct().toList();
+		if (idsUnicos.size() > MAX_IDS_BATCH) {
+			return ResponseEntity.badRequest().build();
+		}
+		return ResponseEntity.ok(productoService.findByIds(idsUnicos));
+	}
+
 	/**
 	 * GET /productos/{id} - Obtener producto por ID
 	 */
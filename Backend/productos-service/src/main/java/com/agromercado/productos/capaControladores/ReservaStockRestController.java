@@ -0,0 +1,90 @@
+package com.agromercado.productos.capaControladores;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.agromercado.productos.fachadaServices.DTO.ReservaStockDTO;
+import com.agromercado.productos.fachadaServices.DTO.ReservaStockRequestDTO;
+import com.agromercado.productos.fachadaServices.services.IReservaStockService;
+
+import jakarta.validation.Valid;
+
+@RestController
+@RequestMapping("/productos/reservas")
+public class ReservaStockRestController {
+
+	@Autowired
+	private IReservaStockService reservaStockService;
+
+	/**
+	 * POST /productos/reservas - Aparta stock de uno o varios productos con TTL
+	 */
+	@PostMapping
+	public ResponseEntity<?> reservar(@Valid @RequestBody ReservaStockRequestDTO request) {
+		try {
+			ReservaStockDTO reserva = reservaStockService.reservar(request);
+			return ResponseEntity.status(HttpStatus.CREATED).body(reserva);
+		} catch (IllegalStateException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"message\": \"" + e.getMessage() + "\"}");
+		}
+	}
+
+	/**
+	 * POST /productos/reservas/{reservaId}/confirmar - Consolida la reserva
+	 */
+	@PostMapping("/{reservaId}/confirmar")
+	public ResponseEntity<?> confirmar(@PathVariable String reservaId) {
+		try {
+			reservaStockService.confirmar(reservaId);
+			return ResponseEntity.noContent().build();
+		} catch (IllegalStateException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"message\": \"" + e.getMessage() + "\"}");
+		} catch (RuntimeException e) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+	}
+
+	/**
+	 * POST /productos/reservas/{reservaId}/renovar - Amplía el TTL de una reserva pendiente
+	 */
+	@PostMapping("/{reservaId}/renovar")
+	public ResponseEntity<?> renovar(@PathVariable String reservaId,
+			@RequestParam(required = false) Long ttlSegundos) {
+		try {
+			reservaStockService.renovar(reservaId, ttlSegundos);
+			return ResponseEntity.noContent().build();
+		} catch (IllegalStateException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).body("{\"message\": \"" + e.getMessage() + "\"}");
+		} catch (RuntimeException e) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+	}
+
+	/**
+	 * POST /productos/reservas/{reservaId}/liberar - Devuelve el stock reservado
+	 */
+	@PostMapping("/{reservaId}/liberar")
+	public ResponseEntity<Void> liberar(@PathVariable String reservaId) {
+		try {
+			reservaStockService.liberar(reservaId);
+			return ResponseEntity.noContent().build();
+		} catch (RuntimeException e) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+	}
+
+	/**
+	 * POST /productos/reservas/{reservaId}/devolver - Devuelve el stock de una reserva confirmada
+	 */
+	@PostMapping("/{reservaId}/devolver")
+	public ResponseEntity<Void> devolver(@PathVariable String reservaId) {
+		try {
+			reservaStockService.devolver(reservaId);
+			return ResponseEntity.noContent().build();
+		} catch (RuntimeException e) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+	}
+}
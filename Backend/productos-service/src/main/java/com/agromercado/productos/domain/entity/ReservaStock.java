@@ -0,0 +1,52 @@
+package com.agromercado.productos.domain.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "reservas_stock")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservaStock {
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String CONFIRMADA = "CONFIRMADA";
+    public static final String LIBERADA = "LIBERADA";
+    public static final String EXPIRADA = "EXPIRADA";
+    public static final String DEVUELTA = "DEVUELTA";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "reserva_id", nullable = false, length = 50)
+    private String reservaId;
+
+    @Column(name = "id_producto", nullable = false)
+    private Integer idProducto;
+
+    @Column(name = "cantidad", nullable = false)
+    private Integer cantidad;
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado;
+
+    @Column(name = "referencia", length = 120)
+    private String referencia;
+
+    @Column(name = "expira_en", nullable = false)
+    private Instant expiraEn;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+    }
+}
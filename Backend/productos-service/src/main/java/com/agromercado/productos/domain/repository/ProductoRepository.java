@@ -1,8 +1,12 @@
 package com.agromercado.productos.domain.repository;
 
+import java.time.Instant;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.agromercado.productos.domain.entity.Producto;
@@ -27,4 +31,16 @@ public interface ProductoRepository extends JpaRepository<Producto, Integer> {
 
     // Buscar productos disponibles por zona
     List<Producto> findByZonaIdAndDisponibleTrue(String zonaId);
+
+    // Descuenta stock de forma atómica; devuelve 0 si no hay suficiente
+    @Modifying
+    @Query("UPDATE Producto p SET p.stockDisponible = p.stockDisponible - :cantidad, p.updatedAt = :ahora " +
+           "WHERE p.idProducto = :id AND p.stockDisponible >= :cantidad")
+    int descontarStock(@Param("id") Integer id, @Param("cantidad") int cantidad, @Param("ahora") Instant ahora);
+
+    // Devuelve stock de una reserva liberada o expirada
+    @Modifying
+    @Query("UPDATE Producto p SET p.stockDisponible = p.stockDisponible + :cantidad, p.updatedAt = :ahora " +
+           "WHERE p.idProducto = :id")
+    int reponerStock(@Param("id") Integer id, @Param("cantidad") int cantidad, @Param("ahora") Instant ahora);
 }
@@ -0,0 +1,44 @@
+package com.agromercado.productos.domain.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.agromercado.productos.domain.entity.ReservaStock;
+
+@Repository
+public interface ReservaStockRepository extends JpaRepository<ReservaStock, Long> {
+
+    // Líneas de una reserva
+    List<ReservaStock> findByReservaId(String reservaId);
+
+    // Reservas pendientes cuyo TTL ya venció (para el barrido por lotes)
+    @Query("SELECT r FROM ReservaStock r WHERE r.estado = 'PENDIENTE' AND r.expiraEn < :ahora ORDER BY r.expiraEn")
+    List<ReservaStock> findPendientesExpiradas(@Param("ahora") Instant ahora, Pageable pageable);
+
+    // Transición condicional de estado: solo una petición concurrente gana
+    @Modifying
+    @Query("UPDATE ReservaStock r SET r.estado = :nuevoEstado WHERE r.id = :id AND r.estado = 'PENDIENTE'")
+    int cerrarSiPendiente(@Param("id") Long id, @Param("nuevoEstado") String nuevoEstado);
+
+    // Devolución de una línea ya confirmada (pedido pagado y cancelado): solo una vez
+    @Modifying
+    @Query("UPDATE ReservaStock r SET r.estado = 'DEVUELTA' WHERE r.id = :id AND r.estado = 'CONFIRMADA'")
+    int devolverSiConfirmada(@Param("id") Long id);
+
+    // Solo expira si sigue vencida: una renovación concurrente gana al barrido
+    @Modifying
+    @Query("UPDATE ReservaStock r SET r.estado = 'EXPIRADA' WHERE r.id = :id AND r.estado = 'PENDIENTE' AND r.expiraEn < :ahora")
+    int expirarSiVencida(@Param("id") Long id, @Param("ahora") Instant ahora);
+
+    // Nuevo vencimiento para las líneas aún pendientes de una reserva
+    @Modifying
+    @Query("UPDATE ReservaStock r SET r.expiraEn = :expiraEn WHERE r.reservaId = :reservaId AND r.estado = 'PENDIENTE'")
+    int renovarPendientes(@Param("reservaId") String reservaId, @Param("expiraEn") Instant expiraEn);
+}
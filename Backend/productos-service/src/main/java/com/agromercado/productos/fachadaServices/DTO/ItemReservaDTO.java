@@ -0,0 +1,20 @@
+package com.agromercado.productos.fachadaServices.DTO;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemReservaDTO {
+
+	@NotNull(message = "El ID del producto es obligatorio")
+	private Integer idProducto;
+
+	@NotNull(message = "La cantidad es obligatoria")
+	@Min(value = 1, message = "La cantidad debe ser al menos 1")
+	private Integer cantidad;
+}
@@ -0,0 +1,19 @@
+package com.agromercado.productos.fachadaServices.DTO;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservaStockDTO {
+	private String reservaId;
+	private String estado;
+	private String referencia;
+	private Instant expiraEn;
+	private List<ItemReservaDTO> items;
+}
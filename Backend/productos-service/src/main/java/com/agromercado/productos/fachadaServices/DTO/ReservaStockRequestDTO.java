@@ -0,0 +1,25 @@
+package com.agromercado.productos.fachadaServices.DTO;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservaStockRequestDTO {
+
+	private String referencia;   // Referencia externa, p. ej. "pedido-123"
+
+	@Min(value = 1, message = "El TTL debe ser de al menos 1 segundo")
+	private Integer ttlSegundos; // Opcional: si no viene se usa reservas.ttl-segundos
+
+	@NotEmpty(message = "La reserva debe tener al menos un producto")
+	@Valid
+	private List<ItemReservaDTO> items;
+}
@@ -13,6 +13,9 @@ public interface IProductoService {
 	// Buscar producto por ID
 	ProductoDTO findById(Integer id);
 
+	// Buscar varios productos por ID en una sola consulta
+	List<ProductoDTO> findByIds(List<Integer> ids);
+
 	// Buscar productos por productor
 	List<ProductoDTO> findByProductorId(String idProductor);
 
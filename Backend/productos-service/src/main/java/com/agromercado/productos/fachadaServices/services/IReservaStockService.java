@@ -0,0 +1,25 @@
+package com.agromercado.productos.fachadaServices.services;
+
+import com.agromercado.productos.fachadaServices.DTO.ReservaStockDTO;
+import com.agromercado.productos.fachadaServices.DTO.ReservaStockRequestDTO;
+
+public interface IReservaStockService {
+
+	// Aparta stock de todos los productos o de ninguno
+	ReservaStockDTO reservar(ReservaStockRequestDTO request);
+
+	// Consolida la reserva (el stock ya descontado no vuelve)
+	void confirmar(String reservaId);
+
+	// Amplía el TTL de una reserva pendiente; falla si ya expiró o se cerró
+	void renovar(String reservaId, Long ttlSegundos);
+
+	// Devuelve al inventario el stock de una reserva pendiente
+	void liberar(String reservaId);
+
+	// Devuelve al inventario el stock de una reserva confirmada (pedido cancelado tras pagar)
+	void devolver(String reservaId);
+
+	// Devuelve el stock de un lote de reservas vencidas; retorna cuántas líneas procesó
+	int liberarExpiradas(int tamanoLote);
+}
@@ -5,12 +5,14 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.agromercado.productos.domain.entity.Producto;
 import com.agromercado.productos.domain.repository.ProductoRepository;
 import com.agromercado.productos.fachadaServices.DTO.ProductoDTO;
+import com.agromercado.productos.mensajeria.ProductoCambiadoEvent;
 
 @Service
 public class ProductoServiceImpl implements IProductoService {
@@ -18,6 +20,9 @@ public class ProductoServiceImpl implements IProductoService {
 	@Autowired
 	private ProductoRepository productoRepository;
 
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
 	@Override
 	@Transactional(readOnly = true)
 	public List<ProductoDTO> findAll() {
@@ -34,6 +39,14 @@ public class ProductoServiceImpl implements IProductoService {
 		return convertToDTO(producto);
 	}
 
+	@Override
+	@Transactional(readOnly = true)
+	public List<ProductoDTO> findByIds(List<Integer> ids) {
+		return productoRepository.findAllById(ids).stream()
+				.map(this::convertToDTO)
+				.collect(Collectors.toList());
+	}
+
 	@Override
 	@Transactional(readOnly = true)
 	public List<ProductoDTO> findByProductorId(String idProductor) {
@@ -63,7 +76,9 @@ public class ProductoServiceImpl implements IProductoService {
 	public ProductoDTO create(ProductoDTO productoDTO) {
 		Producto producto = convertToEntity(productoDTO);
 		Producto savedProducto = productoRepository.save(producto);
-		return convertToDTO(savedProducto);
+		ProductoDTO dto = convertToDTO(savedProducto);
+		eventPublisher.publishEvent(ProductoCambiadoEvent.actualizado(dto));
+		return dto;
 	}
 
 	@Override
@@ -82,8 +97,10 @@ public class ProductoServiceImpl implements IProductoService {
 		producto.setImagenUrl(productoDTO.getImagenUrl());
 		producto.setDisponible(productoDTO.getDisponible());
 
-		Producto updatedProducto = productoRepository.save(producto);
-		return convertToDTO(updatedProducto);
+		Producto updatedProducto = productoRepository.saveAndFlush(producto);
+		ProductoDTO dto = convertToDTO(updatedProducto);
+		eventPublisher.publishEvent(ProductoCambiadoEvent.actualizado(dto));
+		return dto;
 	}
 
 	@Override
@@ -93,6 +110,7 @@ public class ProductoServiceImpl implements IProductoService {
 			throw new RuntimeException("Producto no encontrado con ID: " + id);
 		}
 		productoRepository.deleteById(id);
+		eventPublisher.publishEvent(ProductoCambiadoEvent.eliminado(id));
 	}
 
 	@Override
@@ -102,8 +120,10 @@ public class ProductoServiceImpl implements IProductoService {
 				.orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
 
 		producto.setDisponible(!producto.getDisponible());
-		Producto updatedProducto = productoRepository.save(producto);
-		return convertToDTO(updatedProducto);
+		Producto updatedProducto = productoRepository.saveAndFlush(producto);
+		ProductoDTO dto = convertToDTO(updatedProducto);
+		eventPublisher.publishEvent(ProductoCambiadoEvent.actualizado(dto));
+		return dto;
 	}
 
 	// Métodos auxiliares de conversión
@@ -0,0 +1,153 @@
+package com.agromercado.productos.fachadaServices.services;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.agromercado.productos.domain.entity.ReservaStock;
+import com.agromercado.productos.domain.repository.ProductoRepository;
+import com.agromercado.productos.domain.repository.ReservaStockRepository;
+import com.agromercado.productos.fachadaServices.DTO.ItemReservaDTO;
+import com.agromercado.productos.fachadaServices.DTO.ReservaStockDTO;
+import com.agromercado.productos.fachadaServices.DTO.ReservaStockRequestDTO;
+
+/**
+ * Reservas de stock sin lectura previa ni bloqueos entre peticiones: cada línea
+ * se descuenta con un UPDATE condicional (stock_disponible >= cantidad) y los
+ * cambios de estado de la reserva también son condicionales, así que dos
+ * liberaciones concurrentes nunca devuelven el stock dos veces.
+ */
+@Service
+public class ReservaStockServiceImpl implements IReservaStockService {
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private ReservaStockRepository reservaStockRepository;
+
+	@Value("${reservas.ttl-segundos:900}")
+	private long ttlPorDefectoSegundos;
+
+	@Override
+	@Transactional
+	public ReservaStockDTO reservar(ReservaStockRequestDTO request) {
+		// Agrupar por producto y recorrer en orden de ID para que reservas
+		// concurrentes de varios productos tomen los bloqueos de fila en el mismo orden
+		Map<Integer, Integer> cantidades = new TreeMap<>();
+		for (ItemReservaDTO item : request.getItems()) {
+			cantidades.merge(item.getIdProducto(), item.getCantidad(), Integer::sum);
+		}
+
+		Instant ahora = Instant.now();
+		long ttl = request.getTtlSegundos() != null ? request.getTtlSegundos() : ttlPorDefectoSegundos;
+		Instant expiraEn = ahora.plusSeconds(ttl);
+		String reservaId = UUID.randomUUID().toString();
+
+		for (Map.Entry<Integer, Integer> linea : cantidades.entrySet()) {
+			int actualizados = productoRepository.descontarStock(linea.getKey(), linea.getValue(), ahora);
+			if (actualizados == 0) {
+				// La excepción revierte los descuentos ya aplicados en esta transacción
+				throw new IllegalStateException("Stock insuficiente para el producto " + linea.getKey());
+			}
+		}
+
+		List<ReservaStock> lineas = cantidades.entrySet().stream()
+				.map(linea -> new ReservaStock(null, reservaId, linea.getKey(), linea.getValue(),
+						ReservaStock.PENDIENTE, request.getReferencia(), expiraEn, null))
+				.collect(Collectors.toList());
+		reservaStockRepository.saveAll(lineas);
+
+		return convertToDTO(reservaId, ReservaStock.PENDIENTE, request.getReferencia(), expiraEn, lineas);
+	}
+
+	@Override
+	@Transactional
+	public void confirmar(String reservaId) {
+		List<ReservaStock> lineas = buscarLineas(reservaId);
+		for (ReservaStock linea : lineas) {
+			int actualizados = reservaStockRepository.cerrarSiPendiente(linea.getId(), ReservaStock.CONFIRMADA);
+			if (actualizados == 0 && !ReservaStock.CONFIRMADA.equals(linea.getEstado())) {
+				throw new IllegalStateException("La reserva " + reservaId + " ya no está vigente");
+			}
+		}
+	}
+
+	@Override
+	@Transactional(noRollbackFor = IllegalStateException.class)
+	public void renovar(String reservaId, Long ttlSegundos) {
+		List<ReservaStock> lineas = buscarLineas(reservaId);
+		long ttl = ttlSegundos != null ? ttlSegundos : ttlPorDefectoSegundos;
+		int renovadas = reservaStockRepository.renovarPendientes(reservaId, Instant.now().plusSeconds(ttl));
+		if (renovadas < lineas.size()) {
+			// El barrido ya cerró alguna línea: la reserva dejó de ser todo o nada, se devuelve el resto
+			liberar(reservaId);
+			throw new IllegalStateException("La reserva " + reservaId + " ya no está vigente");
+		}
+	}
+
+	@Override
+	@Transactional
+	public void liberar(String reservaId) {
+		Instant ahora = Instant.now();
+		for (ReservaStock linea : buscarLineas(reservaId)) {
+			if (reservaStockRepository.cerrarSiPendiente(linea.getId(), ReservaStock.LIBERADA) == 1) {
+				productoRepository.reponerStock(linea.getIdProducto(), linea.getCantidad(), ahora);
+			}
+		}
+	}
+
+	@Override
+	@Transactional
+	public void devolver(String reservaId) {
+		Instant ahora = Instant.now();
+		for (ReservaStock linea : buscarLineas(reservaId)) {
+			if (reservaStockRepository.devolverSiConfirmada(linea.getId()) == 1) {
+				productoRepository.reponerStock(linea.getIdProducto(), linea.getCantidad(), ahora);
+			}
+		}
+	}
+
+	@Override
+	@Transactional
+	public int liberarExpiradas(int tamanoLote) {
+		Instant ahora = Instant.now();
+		List<ReservaStock> vencidas = reservaStockRepository.findPendientesExpiradas(ahora, PageRequest.of(0, tamanoLote));
+
+		// Una sola actualización de stock por producto en todo el lote
+		Map<Integer, Integer> aReponer = new TreeMap<>();
+		for (ReservaStock linea : vencidas) {
+			if (reservaStockRepository.expirarSiVencida(linea.getId(), ahora) == 1) {
+				aReponer.merge(linea.getIdProducto(), linea.getCantidad(), Integer::sum);
+			}
+		}
+		aReponer.forEach((idProducto, cantidad) -> productoRepository.reponerStock(idProducto, cantidad, ahora));
+
+		return vencidas.size();
+	}
+
+	private List<ReservaStock> buscarLineas(String reservaId) {
+		List<ReservaStock> lineas = reservaStockRepository.findByReservaId(reservaId);
+		if (lineas.isEmpty()) {
+			throw new RuntimeException("Reserva no encontrada con ID: " + reservaId);
+		}
+		return lineas;
+	}
+
+	private ReservaStockDTO convertToDTO(String reservaId, String estado, String referencia,
+			Instant expiraEn, List<ReservaStock> lineas) {
+		List<ItemReservaDTO> items = lineas.stream()
+				.map(l -> new ItemReservaDTO(l.getIdProducto(), l.getCantidad()))
+				.collect(Collectors.toList());
+		return new ReservaStockDTO(reservaId, estado, referencia, expiraEn, items);
+	}
+}
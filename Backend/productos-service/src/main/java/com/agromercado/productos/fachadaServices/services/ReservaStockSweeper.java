@@ -0,0 +1,38 @@
+package com.agromercado.productos.fachadaServices.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Devuelve al inventario el stock de las reservas cuyo TTL venció.
+ * Procesa lotes acotados, cada uno en su propia transacción corta.
+ */
+@Component
+public class ReservaStockSweeper {
+
+	private static final Logger log = LoggerFactory.getLogger(ReservaStockSweeper.class);
+
+	@Autowired
+	private IReservaStockService reservaStockService;
+
+	@Value("${reservas.barrido.tamano-lote:500}")
+	private int tamanoLote;
+
+	@Scheduled(fixedDelayString = "${reservas.barrido.intervalo-ms:30000}")
+	public void liberarExpiradas() {
+		int total = 0;
+		int procesadas;
+		do {
+			procesadas = reservaStockService.liberarExpiradas(tamanoLote);
+			total += procesadas;
+		} while (procesadas == tamanoLote);
+
+		if (total > 0) {
+			log.info("Reservas de stock expiradas liberadas: {}", total);
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.agromercado.productos.mensajeria;
+
+import com.agromercado.productos.fachadaServices.DTO.ProductoDTO;
+
+/**
+ * Evento interno que se publica dentro de la transacción del servicio.
+ * Si {@code producto} es null, el producto fue eliminado.
+ */
+public record ProductoCambiadoEvent(Integer idProducto, ProductoDTO producto) {
+
+	public static ProductoCambiadoEvent actualizado(ProductoDTO producto) {
+		return new ProductoCambiadoEvent(producto.getIdProducto(), producto);
+	}
+
+	public static ProductoCambiadoEvent eliminado(Integer idProducto) {
+		return new ProductoCambiadoEvent(idProducto, null);
+	}
+}
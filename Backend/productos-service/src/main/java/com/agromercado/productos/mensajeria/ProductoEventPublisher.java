@@ -0,0 +1,68 @@
+package com.agromercado.productos.mensajeria;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.agromercado.productos.fachadaServices.DTO.ProductoDTO;
+import com.agromercado.productos.mensajeria.contracts.ProductoActualizadoMsg;
+import com.agromercado.productos.mensajeria.contracts.ProductoEliminadoMsg;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Publica los cambios de producto en el exchange de eventos una vez confirmada
+ * la transacción. Los consumidores (p. ej. la réplica de catálogo de
+ * pedidos-service) se resincronizan periódicamente, así que un fallo de envío
+ * solo se registra y no revierte la operación.
+ */
+@Component
+public class ProductoEventPublisher {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductoEventPublisher.class);
+
+	private final RabbitTemplate rabbit;
+	private final ObjectMapper mapper;
+
+	public ProductoEventPublisher(
+			@Qualifier("productosRabbitTemplate") RabbitTemplate rabbitTemplate,
+			ObjectMapper mapper
+	) {
+		this.rabbit = rabbitTemplate;
+		this.mapper = mapper;
+	}
+
+	@TransactionalEventListener
+	public void onProductoCambiado(ProductoCambiadoEvent event) {
+		try {
+			if (event.producto() == null) {
+				var msg = new ProductoEliminadoMsg(UUID.randomUUID().toString(), Instant.now(), event.idProducto());
+				rabbit.convertAndSend(RabbitProductosConfig.RK_PRODUCTO_ELIMINADO, mapper.writeValueAsString(msg));
+				return;
+			}
+
+			ProductoDTO p = event.producto();
+			var msg = new ProductoActualizadoMsg(
+					UUID.randomUUID().toString(),
+					Instant.now(),
+					p.getIdProducto(),
+					p.getIdProductor(),
+					p.getZonaId(),
+					p.getNombre(),
+					p.getDescripcion(),
+					p.getPrecioUnitario(),
+					p.getUnidadMedida(),
+					p.getStockDisponible(),
+					p.getDisponible(),
+					p.getUpdatedAt());
+			rabbit.convertAndSend(RabbitProductosConfig.RK_PRODUCTO_ACTUALIZADO, mapper.writeValueAsString(msg));
+		} catch (Exception e) {
+			log.warn("No se pudo publicar el cambio del producto {}: {}", event.idProducto(), e.getMessage());
+		}
+	}
+}
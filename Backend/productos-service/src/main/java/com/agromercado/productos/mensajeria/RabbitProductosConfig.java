@@ -0,0 +1,31 @@
+package com.agromercado.productos.mensajeria;
+
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RabbitProductosConfig {
+
+	// Mismo exchange de eventos que usan los demás microservicios
+	public static final String EVENTS_EXCHANGE = "agromercado.events.exchange";
+
+	// Routing keys
+	public static final String RK_PRODUCTO_ACTUALIZADO = "ProductoActualizado.v1";
+	public static final String RK_PRODUCTO_ELIMINADO = "ProductoEliminado.v1";
+
+	@Bean("productosExchange")
+	public TopicExchange productosExchange() {
+		// durable=true, autoDelete=false
+		return new TopicExchange(EVENTS_EXCHANGE, true, false);
+	}
+
+	@Bean("productosRabbitTemplate")
+	public RabbitTemplate productosRabbitTemplate(ConnectionFactory connectionFactory) {
+		RabbitTemplate tpl = new RabbitTemplate(connectionFactory);
+		tpl.setExchange(EVENTS_EXCHANGE);
+		return tpl;
+	}
+}
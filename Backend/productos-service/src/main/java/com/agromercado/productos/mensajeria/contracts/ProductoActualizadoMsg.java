@@ -0,0 +1,19 @@
+package com.agromercado.productos.mensajeria.contracts;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record ProductoActualizadoMsg(
+		String eventId,
+		Instant occurredAt,
+		Integer idProducto,
+		String idProductor,
+		String zonaId,
+		String nombre,
+		String descripcion,
+		BigDecimal precioUnitario,
+		String unidadMedida,
+		Integer stockDisponible,
+		Boolean disponible,
+		Instant updatedAt
+) {}
@@ -0,0 +1,9 @@
+package com.agromercado.productos.mensajeria.contracts;
+
+import java.time.Instant;
+
+public record ProductoEliminadoMsg(
+		String eventId,
+		Instant occurredAt,
+		Integer idProducto
+) {}
@@ -0,0 +1,20 @@
+-- Reservas temporales de stock (checkout de pedidos-service)
+CREATE TABLE IF NOT EXISTS reservas_stock (
+  id                    BIGSERIAL PRIMARY KEY,
+  reserva_id            VARCHAR(50)  NOT NULL,   -- Agrupa las líneas de una misma reserva
+  id_producto           INTEGER      NOT NULL REFERENCES productos(id_producto) ON DELETE CASCADE,
+  cantidad              INTEGER      NOT NULL CHECK (cantidad > 0),
+  estado                VARCHAR(20)  NOT NULL,   -- PENDIENTE, CONFIRMADA, LIBERADA, EXPIRADA
+  referencia            VARCHAR(120),            -- Referencia externa (p. ej. pedido)
+  expira_en             TIMESTAMPTZ  NOT NULL,
+  created_at            TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS ix_reservas_stock_reserva ON reservas_stock(reserva_id);
+-- El barrido de expiradas solo mira reservas pendientes
+CREATE INDEX IF NOT EXISTS ix_reservas_stock_pendientes ON reservas_stock(expira_en) WHERE estado = 'PENDIENTE';
+
+-- Garantía a nivel de BD: el stock nunca queda negativo
+ALTER TABLE productos ADD CONSTRAINT ck_productos_stock_no_negativo CHECK (stock_disponible >= 0);
+
+COMMENT ON TABLE reservas_stock IS 'Stock apartado temporalmente; se confirma al pagar o se devuelve al liberar/expirar';
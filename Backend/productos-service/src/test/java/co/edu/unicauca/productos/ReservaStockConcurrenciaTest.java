@@ -0,0 +1,161 @@
+package co.edu.unicauca.productos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.agromercado.productos.ProductosApplication;
+import com.agromercado.productos.domain.entity.Producto;
+import com.agromercado.productos.domain.repository.ProductoRepository;
+import com.agromercado.productos.domain.repository.ReservaStockRepository;
+import com.agromercado.productos.fachadaServices.DTO.ItemReservaDTO;
+import com.agromercado.productos.fachadaServices.DTO.ReservaStockDTO;
+import com.agromercado.productos.fachadaServices.DTO.ReservaStockRequestDTO;
+import com.agromercado.productos.fachadaServices.services.IReservaStockService;
+
+@SpringBootTest(classes = ProductosApplication.class, properties = "reservas.barrido.intervalo-ms=3600000")
+@ActiveProfiles("test")
+class ReservaStockConcurrenciaTest {
+
+	private static final int STOCK_INICIAL = 100;
+	private static final int COMPRADORES = 300;
+
+	@Autowired
+	private IReservaStockService reservaStockService;
+
+	@Autowired
+	private ProductoRepository productoRepository;
+
+	@Autowired
+	private ReservaStockRepository reservaStockRepository;
+
+	private Integer idProducto;
+
+	@BeforeEach
+	void setUp() {
+		reservaStockRepository.deleteAll();
+		Producto producto = new Producto();
+		producto.setIdProductor("productor-1");
+		producto.setZonaId("ZONA-1");
+		producto.setNombre("Café especial");
+		producto.setCategoria("Granos");
+		producto.setUnidadMedida("kg");
+		producto.setPrecioUnitario(new BigDecimal("25000"));
+		producto.setStockDisponible(STOCK_INICIAL);
+		idProducto = productoRepository.save(producto).getIdProducto();
+	}
+
+	private ReservaStockRequestDTO solicitud(int cantidad, Integer ttlSegundos) {
+		return new ReservaStockRequestDTO("test", ttlSegundos, List.of(new ItemReservaDTO(idProducto, cantidad)));
+	}
+
+	private int stockActual() {
+		return productoRepository.findById(idProducto).orElseThrow().getStockDisponible();
+	}
+
+	@Test
+	void soloReservaElStockExistenteConCompradoresConcurrentes() throws Exception {
+		AtomicInteger exitosas = new AtomicInteger();
+		AtomicInteger rechazadas = new AtomicInteger();
+		CountDownLatch salida = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(64);
+		List<Future<?>> tareas = new ArrayList<>();
+		for (int i = 0; i < COMPRADORES; i++) {
+			tareas.add(executor.submit(() -> {
+				salida.await();
+				try {
+					reservaStockService.reservar(solicitud(1, null));
+					exitosas.incrementAndGet();
+				} catch (IllegalStateException e) {
+					rechazadas.incrementAndGet();
+				}
+				return null;
+			}));
+		}
+		salida.countDown();
+		for (Future<?> tarea : tareas) {
+			tarea.get();
+		}
+		executor.shutdown();
+
+		assertEquals(STOCK_INICIAL, exitosas.get());
+		assertEquals(COMPRADORES - STOCK_INICIAL, rechazadas.get());
+		assertEquals(0, stockActual());
+	}
+
+	@Test
+	void liberarDevuelveElStockUnaSolaVez() {
+		ReservaStockDTO reserva = reservaStockService.reservar(solicitud(30, null));
+		assertEquals(STOCK_INICIAL - 30, stockActual());
+
+		reservaStockService.liberar(reserva.getReservaId());
+		reservaStockService.liberar(reserva.getReservaId());
+
+		assertEquals(STOCK_INICIAL, stockActual());
+		assertThrows(IllegalStateException.class, () -> reservaStockService.confirmar(reserva.getReservaId()));
+	}
+
+	@Test
+	void elBarridoDevuelveElStockDeReservasExpiradas() throws Exception {
+		reservaStockService.reservar(solicitud(10, 1));
+		ReservaStockDTO vigente = reservaStockService.reservar(solicitud(5, null));
+		Thread.sleep(1100);
+
+		assertEquals(1, reservaStockService.liberarExpiradas(500));
+		assertEquals(STOCK_INICIAL - 5, stockActual());
+
+		reservaStockService.confirmar(vigente.getReservaId());
+		assertEquals(0, reservaStockService.liberarExpiradas(500));
+		assertEquals(STOCK_INICIAL - 5, stockActual());
+	}
+
+	@Test
+	void renovarEvitaQueElBarridoExpireLaReserva() throws Exception {
+		ReservaStockDTO reserva = reservaStockService.reservar(solicitud(10, 1));
+		Thread.sleep(1100);
+
+		reservaStockService.renovar(reserva.getReservaId(), 60L);
+		assertEquals(0, reservaStockService.liberarExpiradas(500));
+		reservaStockService.confirmar(reserva.getReservaId());
+		assertEquals(STOCK_INICIAL - 10, stockActual());
+	}
+
+	@Test
+	void noSePuedeRenovarUnaReservaExpirada() throws Exception {
+		ReservaStockDTO reserva = reservaStockService.reservar(solicitud(10, 1));
+		Thread.sleep(1100);
+		reservaStockService.liberarExpiradas(500);
+
+		assertThrows(IllegalStateException.class, () -> reservaStockService.renovar(reserva.getReservaId(), 60L));
+		assertEquals(STOCK_INICIAL, stockActual());
+	}
+
+	@Test
+	void devolverReponeElStockConfirmadoUnaSolaVez() {
+		ReservaStockDTO reserva = reservaStockService.reservar(solicitud(20, null));
+		ReservaStockDTO pendiente = reservaStockService.reservar(solicitud(5, null));
+		reservaStockService.confirmar(reserva.getReservaId());
+
+		reservaStockService.devolver(reserva.getReservaId());
+		reservaStockService.devolver(reserva.getReservaId());
+		// Una reserva pendiente no se devuelve: para eso está liberar
+		reservaStockService.devolver(pendiente.getReservaId());
+
+		assertEquals(STOCK_INICIAL - 5, stockActual());
+	}
+}
@@ -61,6 +61,8 @@ export interface ProcesarPagoRequest {
 }
 
 export interface PagoResponse {
+  pagoId: number;
+  estado: 'PENDIENTE' | 'PROCESANDO' | 'APROBADO' | 'RECHAZADO' | 'REEMBOLSADO';
   transaccionId: string;
   aprobado: boolean;
   mensaje: string;
@@ -197,18 +199,36 @@ class PedidosService {
   // ========== PAGOS ==========
 
   /**
-   * Procesa el pago de un pedido
+   * Procesa el pago de un pedido.
+   * El backend responde 202 con el pago en PROCESANDO; se consulta hasta obtener el resultado.
    */
   async procesarPago(datos: ProcesarPagoRequest): Promise<PagoResponse> {
     try {
-      const response = await apiService.post<PagoResponse>('/pagos/procesar', datos);
-      return response;
+      let pago = await apiService.post<PagoResponse>('/pagos/procesar', datos);
+      for (let intento = 0; pago.estado === 'PROCESANDO' && intento < 30; intento++) {
+        await new Promise((resolve) => setTimeout(resolve, 1000));
+        pago = await this.consultarPago(pago.pagoId);
+      }
+      return pago;
     } catch (error) {
       console.error('Error al procesar pago:', error);
       throw error;
     }
   }
 
+  /**
+   * Consulta el estado de un pago
+   */
+  async consultarPago(pagoId: number): Promise<PagoResponse> {
+    try {
+      const response = await apiService.get<PagoResponse>(`/pagos/${pagoId}`);
+      return response;
+    } catch (error) {
+      console.error('Error al consultar pago:', error);
+      throw error;
+    }
+  }
+
   // ========== UTILIDADES ==========
 
   /**